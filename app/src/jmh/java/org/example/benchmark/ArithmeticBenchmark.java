@@ -0,0 +1,131 @@
+package org.example.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.ScriptContextPool;
+import org.example.model.Spreadsheet;
+import org.graalvm.polyglot.Context;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the built in arithmetic evaluator with the previous approach of creating
+ * a JavaScript context for every formula. Run with the gc profiler (enabled in the
+ * jmh block of the build) to see allocation per evaluation. How much the heap still
+ * in use after a full collection grew during each iteration is reported as the
+ * retainedHeapGrowthMegabytes counter, which JMH adds up over the iterations, so
+ * leaked contexts show up in the results file as growth above zero.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark {
+
+    @Param({ "=1 + 2 * 3", "=($A1 - 4) / 2 + -$B1", "=(1.5 + 2) * (3 + 4) / (5 - 6)" })
+    public String formula; // The formula to evaluate
+
+    private Spreadsheet spreadsheet; // Sheet holding the referenced cells
+    private String script; // The formula body with references replaced, as handed to the script engine
+
+    /**
+     * Fills the referenced cells and prepares the script form of the formula.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        System.setProperty("polyglot.engine.WarnInterpreterOnly", "false"); // Avoid interpreter warnings
+        this.spreadsheet = new Spreadsheet("benchmark");
+        this.spreadsheet.setCellValue(0, 0, "10"); // $A1
+        this.spreadsheet.setCellValue(0, 1, "3"); // $B1
+        this.script = this.formula.substring(1).replace("$A1", "10").replace("$B1", "3");
+    }
+
+    /**
+     * Evaluates the formula with the built in evaluator.
+     *
+     * @param heap receives the growth of the retained heap.
+     * @return the result, so it is not optimised away.
+     */
+    @Benchmark
+    public String nativeEvaluator(RetainedHeap heap) {
+        return this.spreadsheet.evaluateFormula(this.formula);
+    }
+
+    /**
+     * Evaluates the formula the way it was done before: a new context for every
+     * call that is never closed.
+     *
+     * @param heap receives the growth of the retained heap.
+     * @return the result, so it is not optimised away.
+     */
+    @Benchmark
+    public String scriptContextPerCall(RetainedHeap heap) {
+        Context context = Context.create("js"); // Deliberately leaked, as before
+        return context.eval("js", this.script).toString();
+    }
+
+    /**
+     * Evaluates the formula on the shared engine with a pooled context and cached source.
+     *
+     * @param heap receives the growth of the retained heap.
+     * @return the result, so it is not optimised away.
+     * @throws InterruptedException if interrupted while waiting for a context.
+     */
+    @Benchmark
+    public String scriptPooledContext(RetainedHeap heap) throws InterruptedException {
+        return ScriptContextPool.getShared().evaluate(this.script);
+    }
+
+    /**
+     * The growth of the retained heap during an iteration, reported with the results of
+     * the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedHeap {
+        public double retainedHeapGrowthMegabytes; // Growth of the heap in use after a full collection
+        private long before; // Heap in use at the start of the iteration
+
+        /**
+         * Measures the heap in use before an iteration.
+         */
+        @Setup(Level.Iteration)
+        public void start() {
+            this.before = retained();
+            this.retainedHeapGrowthMegabytes = 0;
+        }
+
+        /**
+         * Measures how much the heap in use grew during an iteration.
+         */
+        @TearDown(Level.Iteration)
+        public void measure() {
+            this.retainedHeapGrowthMegabytes = (retained() - this.before) / (1024.0 * 1024.0);
+        }
+
+        /**
+         * Gets the heap still in use after a full collection.
+         *
+         * @return the used heap, in bytes.
+         */
+        private static long retained() {
+            System.gc(); // Collect garbage so only retained objects remain
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+    }
+}
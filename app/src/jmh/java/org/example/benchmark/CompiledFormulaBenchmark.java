@@ -0,0 +1,83 @@
+package org.example.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.formula.CompiledFormula;
+import org.example.model.formula.Expression;
+import org.example.model.formula.Formula;
+import org.example.model.formula.IEvaluationContext;
+import org.example.model.formula.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares interpreting an arithmetic formula with running its compiled method handle
+ * tree. Cells are read from an array of values so the sheet itself does not skew the result.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledFormulaBenchmark {
+
+    @Param({ "interpreted", "compiled" })
+    public String tier; // How the formula is evaluated
+
+    private Expression root; // The interpreted tree
+    private CompiledFormula compiled; // The compiled tree
+    private IEvaluationContext context; // Column A holds 1 to 8
+
+    /**
+     * Parses and compiles the formula.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        this.root = Formula.parse("=($A1 + $A2) * 3 - $A3 / 2 + ($A4 > $A5 & $A6 < $A7) * $A8").getRoot();
+        this.compiled = CompiledFormula.compile(this.root);
+        Value[] column = new Value[8];
+        for (int row = 0; row < column.length; row++) {
+            column[row] = Value.text(String.valueOf(row + 1));
+        }
+        this.context = new IEvaluationContext() {
+            @Override
+            public Value getValue(int row, int col) {
+                return row < column.length && col == 0 ? column[row] : Value.EMPTY;
+            }
+
+            @Override
+            public void copyValue(int row, int col, String value) {
+                throw new UnsupportedOperationException("Read only");
+            }
+
+            @Override
+            public Value evaluateScript(String expression) {
+                return Value.ERROR;
+            }
+        };
+    }
+
+    /**
+     * Evaluates the formula once.
+     *
+     * @return the result, returned so it is not optimised away.
+     */
+    @Benchmark
+    public Value evaluate() {
+        if (this.compiled != null && this.tier.equals("compiled")) {
+            return this.compiled.evaluate(this.context);
+        }
+        return this.root.evaluate(this.context);
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.Spreadsheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Spreadsheet#evaluateFormula(String)} for each kind of formula the
+ * engine handles. Column A holds the numbers 1 to 100 and column B holds short words,
+ * so the range functions always read a full column of values. Parses are cached by
+ * formula text, so this measures evaluation rather than parsing after warmup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormulaBenchmark {
+    private static final int FILLED_ROWS = 100; // Rows filled in columns A and B
+
+    @Param({ "literal", "arithmetic", "nestedIf", "sumRange", "stddev", "sort", "concat" })
+    public String kind; // The kind of formula to evaluate
+
+    private Spreadsheet spreadsheet; // Sheet holding the referenced cells
+    private String formula; // The formula for the chosen kind
+
+    /**
+     * Fills columns A and B and picks the formula for the chosen kind.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        System.setProperty("polyglot.engine.WarnInterpreterOnly", "false"); // Avoid interpreter warnings
+        this.spreadsheet = new Spreadsheet("benchmark");
+        for (int row = 0; row < FILLED_ROWS; row++) {
+            this.spreadsheet.setCellValue(row, 0, String.valueOf((row * 37) % 101)); // Unsorted numbers
+            this.spreadsheet.setCellValue(row, 1, "w" + row); // Short words
+        }
+        this.formula = formulaFor(this.kind);
+    }
+
+    /**
+     * Returns the formula measured for a kind.
+     *
+     * @param kind the kind of formula.
+     * @return the formula.
+     */
+    static String formulaFor(String kind) {
+        switch (kind) {
+            case "literal":
+                return "=42";
+            case "arithmetic":
+                return "=($A1 + $A2) * 3 - $A3 / 2";
+            case "nestedIf":
+                return "=IF($A1 > 50, IF($A2 > 25, 1, 2), IF($A3 < 10, 3, 4))";
+            case "sumRange":
+                return "=SUM($A1:$A" + FILLED_ROWS + ")";
+            case "stddev":
+                return "=STDDEV($A1:$A" + FILLED_ROWS + ")";
+            case "sort":
+                return "=SORT($A1:$A" + FILLED_ROWS + ")";
+            case "concat":
+                return "=CONCAT($B1,$B2,$B3,\" \",$A1)";
+            default:
+                throw new IllegalArgumentException("Unknown formula kind: " + kind);
+        }
+    }
+
+    /**
+     * Evaluates the formula.
+     *
+     * @return the result, so it is not optimised away.
+     */
+    @Benchmark
+    public String evaluate() {
+        return this.spreadsheet.evaluateFormula(this.formula);
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.Home;
+import org.example.model.Spreadsheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures turning a sheet into an update payload and parsing a payload back into
+ * cell positions, for sheets filled to different ratios. The cells are chosen with a
+ * fixed seed so every run measures the same sheet.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadBenchmark {
+    private static final int SIZE = 100; // Rows and columns of the sheet
+    private static final long SEED = 42L; // Seed for choosing the filled cells
+
+    @Param({ "0.01", "0.1", "0.5", "1.0" })
+    public double fillRatio; // Fraction of the cells that hold data
+
+    private Spreadsheet spreadsheet; // The filled sheet
+    private String payload; // The payload of the filled sheet
+
+    /**
+     * Fills the sheet to the chosen ratio and builds its payload.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        this.spreadsheet = new Spreadsheet("benchmark");
+        Random random = new Random(SEED);
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                if (random.nextDouble() < this.fillRatio) {
+                    String data = String.valueOf(random.nextInt(1000));
+                    this.spreadsheet.setCellRawdata(row, col, data);
+                    this.spreadsheet.setCellValue(row, col, data);
+                }
+            }
+        }
+        this.payload = Spreadsheet.convertSheetToPayload(this.spreadsheet);
+    }
+
+    /**
+     * Builds the payload of the sheet.
+     *
+     * @return the payload, so it is not optimised away.
+     */
+    @Benchmark
+    public String convertSheetToPayload() {
+        return Spreadsheet.convertSheetToPayload(this.spreadsheet);
+    }
+
+    /**
+     * Parses the payload into cell positions and data.
+     *
+     * @return the parsed cells, so they are not optimised away.
+     */
+    @Benchmark
+    public List<List<String>> convertStringTo2DArray() {
+        return Home.convertStringTo2DArray(this.payload);
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.Spreadsheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures recalculating a sheet of per row aggregates on pools of different sizes.
+ * Every formula reads one shared input cell, so changing it recalculates all of them
+ * in a single level. A pool of 0 threads recalculates in order, as the baseline the
+ * speedup is measured against.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecalculationBenchmark {
+    private static final int INPUTS = 10; // Numbers per row, in columns A to J
+    private static final int INPUT_COL = 12; // Column of the shared input cell, $M1
+
+    @Param({ "0", "1", "2", "4", "8" })
+    public int threads; // Size of the pool, or 0 to recalculate in order
+
+    @Param({ "2000" })
+    public int rows; // Number of rows, each holding two formulas
+
+    private Spreadsheet spreadsheet; // The sheet being recalculated
+    private ForkJoinPool pool; // The pool, or null when recalculating in order
+    private int input; // The value written to the shared input cell next
+
+    /**
+     * Fills the rows and their formulas and sets up the pool.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        this.spreadsheet = new Spreadsheet("benchmark");
+        this.spreadsheet.setCellValue(0, INPUT_COL, "1");
+        for (int row = 0; row < this.rows; row++) {
+            StringBuilder cells = new StringBuilder();
+            for (int col = 0; col < INPUTS; col++) {
+                this.spreadsheet.setCellValue(row, col, String.valueOf((row * 31 + col * 7) % 100));
+                cells.append(col == 0 ? "" : ", ").append('$').append((char) ('A' + col)).append(row + 1);
+            }
+            this.spreadsheet.setCellValue(row, INPUTS, "=STDDEV(" + cells + ") * $M1"); // Per row spread
+            this.spreadsheet.setCellValue(row, INPUTS + 1, "=SUM(" + cells + ") + AVG(" + cells + ") * $M1");
+        }
+        if (this.threads > 0) {
+            this.pool = new ForkJoinPool(this.threads);
+            this.spreadsheet.setParallelRecalculation(this.pool, Spreadsheet.DEFAULT_PARALLEL_THRESHOLD);
+        }
+    }
+
+    /**
+     * Changes the shared input cell, recalculating every formula.
+     *
+     * @return the recalculated cells, so they are not optimised away.
+     */
+    @Benchmark
+    public int recalculate() {
+        this.spreadsheet.setCellValue(0, INPUT_COL, String.valueOf(++this.input % 10));
+        return this.spreadsheet.takeChangedCells().size();
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+        }
+    }
+}
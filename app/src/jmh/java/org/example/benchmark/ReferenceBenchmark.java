@@ -0,0 +1,80 @@
+package org.example.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.formula.ReferenceScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures resolving cell references to rows and columns, with the scanner and with
+ * the two regular expression replacements the sheet used before it. Each operation
+ * resolves a batch of references of mixed lengths.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceBenchmark {
+    private static final int BATCH = 1000; // References resolved per operation
+
+    @Param({ "regex", "scanner" })
+    public String method; // How references are resolved
+
+    private String[] references; // The references of the batch
+
+    /**
+     * Builds the batch of references.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        this.references = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            int col = (i * 7919) % 16384;
+            StringBuilder name = new StringBuilder();
+            for (int c = col + 1; c > 0; c = (c - 1) / 26) {
+                name.insert(0, (char) ('A' + (c - 1) % 26)); // Column letters, A to XFD
+            }
+            this.references[i] = "$" + name + ((i * 104729) % 1048576 + 1);
+        }
+    }
+
+    /**
+     * Resolves every reference of the batch.
+     *
+     * @return the sum of the rows and columns, returned so the work is not optimised away.
+     */
+    @Benchmark
+    public long resolve() {
+        long total = 0;
+        if (this.method.equals("regex")) {
+            for (String reference : this.references) {
+                int row = Integer.parseInt(reference.replaceAll("[^0-9]", "")) - 1;
+                String letters = reference.replaceAll("[^A-Z]", "");
+                int col = 0;
+                for (int i = 0; i < letters.length(); i++) {
+                    col = col * 26 + (letters.charAt(i) - 'A' + 1);
+                }
+                total += row + col - 1;
+            }
+        } else {
+            for (String reference : this.references) {
+                long cell = ReferenceScanner.parse(reference);
+                total += ReferenceScanner.row(cell) + ReferenceScanner.col(cell);
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,189 @@
+package org.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.example.model.Argument;
+import org.example.server.RequestLimiter;
+import org.example.server.Server;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Load test of request execution. A number of clients each send a request for the
+ * updates of a sheet, wait for the response and send the next, and every request
+ * blocks for a while as it would on persistence or long polling. The requests run
+ * either on a pool of 200 platform threads, Tomcat's default, or on one virtual thread
+ * each behind the request limiter, as with spring.threads.virtual.enabled.
+ *
+ * <p>The latency benchmark samples one more request sent while the clients are busy,
+ * so the percentiles JMH prints, p0.99 among them, are those of a request under that
+ * load. The requests counter of the throughput benchmark is the throughput of the
+ * whole server, in requests per second.</p>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class RequestExecutionBenchmark {
+    private static final int PLATFORM_THREADS = 200; // Tomcat's default maxThreads
+    private static final long BLOCKING_MILLIS = 10; // Time each request spends blocked
+    private static final String AUTH = "Basic " + Base64.getEncoder().encodeToString("publisher:password".getBytes());
+
+    @Param({ "1000", "10000", "50000" })
+    public int clients; // Clients sending requests at once
+
+    @Param({ "platform", "virtual" })
+    public String threads; // What the requests run on
+
+    private Server server; // The server answering the requests
+    private ExecutorService executor; // Runs the requests
+    private RequestLimiter limiter; // Bounds the requests served at once on virtual threads
+    private final AtomicLong served = new AtomicLong(); // Requests answered so far
+    private volatile boolean running; // Cleared to stop the clients
+    private final List<Thread> clientThreads = new ArrayList<>(); // One virtual thread per client
+
+    /**
+     * Counts the requests the server answers during an iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long requests; // Requests answered in the iteration, reported per second
+        private long start; // Requests answered before the iteration
+
+        /**
+         * Notes how many requests were answered before the iteration.
+         *
+         * @param benchmark the benchmark whose requests are counted.
+         */
+        @Setup(Level.Iteration)
+        public void reset(RequestExecutionBenchmark benchmark) {
+            this.start = benchmark.served.get();
+            this.requests = 0;
+        }
+    }
+
+    /**
+     * Registers a publisher with a published sheet, starts the executor and then the clients.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        this.server = new Server();
+        this.server.register(AUTH);
+        this.server.createSheet(AUTH, new Argument("publisher", "sheet", null, null));
+        for (int i = 1; i <= 10; i++) {
+            this.server.updatePublished(AUTH, new Argument("publisher", "sheet", null, "$A" + i + " " + i + "\n"));
+        }
+        this.executor = this.threads.equals("virtual") ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        this.limiter = new RequestLimiter(RequestLimiter.DEFAULT_MAX_REQUESTS, RequestLimiter.DEFAULT_WAIT_MILLIS);
+        this.running = true;
+        for (int i = 0; i < this.clients; i++) {
+            this.clientThreads.add(Thread.ofVirtual().start(() -> {
+                while (this.running) {
+                    try {
+                        send();
+                    } catch (InterruptedException e) {
+                        return; // Stopped
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     * Stops the clients and the executor.
+     *
+     * @throws InterruptedException if interrupted while waiting for the clients.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        this.running = false;
+        for (Thread client : this.clientThreads) {
+            client.join();
+        }
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Sends one request while the clients keep the server busy and waits for the response.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void latency() throws InterruptedException {
+        send();
+    }
+
+    /**
+     * Sends one request like {@link #latency()} and counts every request the server
+     * answered meanwhile, as JMH only reports counters in throughput and average time modes.
+     *
+     * @param throughput the counter of requests the server answered.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput(Throughput throughput) throws InterruptedException {
+        send();
+        throughput.requests = this.served.get() - throughput.start;
+    }
+
+    /**
+     * Sends a request to the executor and waits for it to be answered.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private void send() throws InterruptedException {
+        try {
+            this.executor.submit(this::serve).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Serves one request the way a request thread would, behind the limiter on virtual threads.
+     *
+     * @return null, the response is dropped.
+     * @throws InterruptedException if interrupted while blocked.
+     */
+    private Void serve() throws InterruptedException {
+        boolean limited = this.threads.equals("virtual"); // The pool already bounds platform threads
+        if (limited && !this.limiter.tryAcquire()) {
+            return null; // Answered with 503
+        }
+        try {
+            Thread.sleep(BLOCKING_MILLIS); // Blocked on I/O
+            this.server.getUpdatesForPublished(AUTH, new Argument("publisher", "sheet", "0", ""));
+            this.served.incrementAndGet();
+        } finally {
+            if (limited) {
+                this.limiter.release();
+            }
+        }
+        return null;
+    }
+}
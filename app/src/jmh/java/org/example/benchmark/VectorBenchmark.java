@@ -0,0 +1,92 @@
+package org.example.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.formula.NumericKernels;
+import org.example.model.formula.VectorKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the scalar aggregate kernels with the Vector API kernels on arrays of
+ * 10 thousand to 10 million numbers. Needs the jdk.incubator.vector module, which the
+ * jmh block of the build adds.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+    private static final long SEED = 42L; // Seed for the numbers
+
+    @Param({ "10000", "100000", "1000000", "10000000" })
+    public int size; // Number of numbers aggregated
+
+    @Param({ "sum", "min", "max", "stddev" })
+    public String function; // The aggregate to compute
+
+    private double[] values; // The numbers
+
+    /**
+     * Fills the array with random numbers.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(SEED);
+        this.values = new double[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.values[i] = random.nextDouble() * 1000;
+        }
+    }
+
+    /**
+     * Computes the aggregate one number at a time.
+     *
+     * @return the result, so it is not optimised away.
+     */
+    @Benchmark
+    public double scalar() {
+        switch (this.function) {
+            case "sum":
+                return NumericKernels.sumScalar(this.values, this.size);
+            case "min":
+                return NumericKernels.minScalar(this.values, this.size);
+            case "max":
+                return NumericKernels.maxScalar(this.values, this.size);
+            default:
+                return NumericKernels.stddevScalar(this.values, this.size);
+        }
+    }
+
+    /**
+     * Computes the aggregate with the Vector API.
+     *
+     * @return the result, so it is not optimised away.
+     */
+    @Benchmark
+    public double vector() {
+        switch (this.function) {
+            case "sum":
+                return VectorKernels.sum(this.values, this.size);
+            case "min":
+                return VectorKernels.min(this.values, this.size);
+            case "max":
+                return VectorKernels.max(this.values, this.size);
+            default:
+                return VectorKernels.stddev(this.values, this.size);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.Cell;
+import org.example.model.SparseGrid;
+import org.example.model.Spreadsheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a client catching up on the last ten versions of a sheet of 1000 cells
+ * where every version changes one cell, and a client opening the sheet from version 0,
+ * with and without the version log keeping snapshots.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionLogBenchmark {
+    private static final int CELLS = 1000; // Cells in every version
+    private static final int MISSED = 10; // Versions the client has not seen
+
+    @Param({ "100", "1000" })
+    public int versions; // Versions published
+
+    @Param({ "on", "off" })
+    public String snapshots; // Whether the log keeps snapshots at the default interval
+
+    private Spreadsheet sheet; // The published sheet
+
+    /**
+     * Publishes the versions.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        this.sheet = new Spreadsheet("bench");
+        if (this.snapshots.equals("off")) {
+            this.sheet.setSnapshotInterval(Integer.MAX_VALUE, Integer.MAX_VALUE); // Never kept
+        }
+        for (int v = 0; v < this.versions; v++) {
+            SparseGrid grid = new SparseGrid(100, 100);
+            for (int i = 0; i < CELLS; i++) {
+                String value = i == v % CELLS ? "v" + v : String.valueOf(i); // One cell changes per version
+                Cell cell = grid.getForWrite(i / 10, i % 10);
+                cell.setRawData(value);
+                cell.setValue(value);
+            }
+            this.sheet.publish(grid.asRows());
+        }
+    }
+
+    /**
+     * Finds the changes made by the missed versions.
+     *
+     * @return the payload.
+     */
+    @Benchmark
+    public String catchUp() {
+        return this.sheet.getPublishedUpdates(this.versions - MISSED).getPayload();
+    }
+
+    /**
+     * Reads every change from version 0, as a client opening the sheet does.
+     *
+     * @return the payload.
+     */
+    @Benchmark
+    public String open() {
+        return this.sheet.getPublishedUpdates(0).getPayload();
+    }
+}
@@ -1,7 +1,10 @@
 package org.example;
 
+import org.example.server.RequestLimiter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
@@ -31,5 +34,23 @@ public class HuskSheetsApplication {
             }
         };
     }
-}
 
+    /**
+     * Caps how many /api/v1 requests are served at once. Requests run on virtual threads
+     * when spring.threads.virtual.enabled is set, and this keeps their number, and the
+     * memory they hold, bounded however many clients connect.
+     *
+     * @param maxRequests the number of requests served at once.
+     * @param waitMillis  how long a request over the cap waits before it gets a 503.
+     * @return the registration of the limiting filter
+     */
+    @Bean
+    public FilterRegistrationBean<RequestLimiter> requestLimiter(
+            @Value("${husksheets.max-concurrent-requests:" + RequestLimiter.DEFAULT_MAX_REQUESTS + "}") int maxRequests,
+            @Value("${husksheets.request-wait-millis:" + RequestLimiter.DEFAULT_WAIT_MILLIS + "}") long waitMillis) {
+        FilterRegistrationBean<RequestLimiter> registration =
+                new FilterRegistrationBean<>(new RequestLimiter(maxRequests, waitMillis));
+        registration.addUrlPatterns("/api/v1/*"); // Only the API, which is where requests block
+        return registration;
+    }
+}
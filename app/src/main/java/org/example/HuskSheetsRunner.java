@@ -31,7 +31,7 @@ public class HuskSheetsRunner {
                   String[] splitArg = arg.split("=", 2);
                   if (splitArg.length == 2) {
                       String key = splitArg[0].substring(2); // Remove the leading --
-                      String value = splitArg[1].replaceAll("\"", ""); // Remove quotes
+                      String value = splitArg[1].replace("\"", ""); // Remove quotes
                       arguments.put(key, value);
                   }
               }
@@ -1,6 +1,7 @@
 package org.example.controller;
 
 import org.example.model.*;
+import org.example.model.formula.Value;
 import org.example.view.*;
 
 import java.awt.Color;
@@ -470,7 +471,7 @@ public class UserController implements IUserController {
     public String handleReevaluatingCellFormula(int row, int col, String data) {
         String rawdata = this.spreadsheetModel.getCellRawdata(row, col); // Get the raw data of the cell.
         if (rawdata.startsWith("=")) {
-            return this.spreadsheetModel.evaluateFormula(rawdata); // Evaluate the formula if the raw data starts with "=".
+            return this.spreadsheetModel.evaluateCell(row, col); // Evaluate the formula if the raw data starts with "=".
         } else {
             return data; // Return the data if it is not a formula.
         }
@@ -491,15 +492,12 @@ public class UserController implements IUserController {
     @Override
     public void changeSpreadSheetValueAt(int selRow, int selCol, String val) {
         this.spreadsheetModel.setCellRawdata(selRow, selCol, val); // Set the raw data of the cell.
-        if (val.startsWith("=")) {
-            this.spreadsheetModel.setCellValue(selRow, selCol, val); // Set the cell value.
-            val = this.spreadsheetModel.evaluateFormula(val); // Evaluate the formula.
-        } else if (val.isEmpty()) {
-            this.spreadsheetModel.setCellValue(selRow, selCol, ""); // Clear the cell value if it is empty.
-        } else {
-            this.spreadsheetModel.setCellValue(selRow, selCol, val); // Set the cell value.
+        this.spreadsheetModel.setCellValue(selRow, selCol, val); // Set the cell value, recalculating its dependents.
+        for (long cell : this.spreadsheetModel.takeChangedCells()) {
+            int row = DependencyGraph.row(cell); // Unpack the changed cell.
+            int col = DependencyGraph.col(cell);
+            this.sheetView.updateCell(row, col, this.spreadsheetModel.getCellValue(row, col)); // Update only the changed cells.
         }
-        this.sheetView.updateTable(); // Update the table view.
     }
 
     @Override
@@ -530,37 +528,32 @@ public class UserController implements IUserController {
 
     @Override
     public void getPercentile(int selRow, int selCol) {
-        String value = this.spreadsheetModel.getCellValue(selRow, selCol); // Get the cell value.
-        if (value.isEmpty() || value.contains("%")) return; // Return if the value is empty or already contains a percentage.
+        Value value = this.spreadsheetModel.getCellTypedValue(selRow, selCol); // Get the cell value, parsed when it was written.
+        if (value.isEmpty() || value.toString().contains("%")) return; // Return if the value is empty or already contains a percentage.
 
-        try {
-            double num = Double.parseDouble(value); // Parse the value to a double.
-            this.spreadsheetModel.setCellValue(selRow, selCol, "" + (num * 100) + "%"); // Set the cell value to the percentage.
-        } catch (NumberFormatException e) {
+        if (value.isNumeric()) {
+            this.spreadsheetModel.setCellValue(selRow, selCol, "" + (value.asNumber() * 100) + "%"); // Set the cell value to the percentage.
+        } else {
             this.spreadsheetModel.setCellValue(selRow, selCol, "Error"); // Set the cell value to "Error" if the value is not a number.
         }
     }
 
     @Override
     public void applyConditionalFormatting() {
-        Cell[][] cells = this.spreadsheetModel.getCellsObject(); // Get the cells of the spreadsheet model.
-        for (int i = 0; i < this.spreadsheetModel.getRows(); i++) {
-            for (int j = 0; j < this.spreadsheetModel.getCols(); j++) {
-                String value = cells[i][j].getValue(); // Get the value of the cell.
-                if (value != null && !value.isEmpty()) {
-                    try {
-                        double numericValue = Double.parseDouble(value); // Parse the value to a double.
-                        if (numericValue < 0) {
-                            sheetView.highlightCell(i, j, SheetView.PINK); // Highlight the cell in pink if the value is negative.
-                        } else if (numericValue > 0) {
-                            sheetView.highlightCell(i, j, SheetView.GREEN); // Highlight the cell in green if the value is positive.
-                        }
-                    } catch (NumberFormatException e) {
-                        sheetView.highlightCell(i, j, Color.WHITE); // Highlight the cell in white if the value is not a number.
-                    }
-                } else {
-                    sheetView.highlightCell(i, j, Color.WHITE); // Highlight the cell in white if the value is empty.
+        for (Cell cell : this.spreadsheetModel.getPopulatedCells()) { // Cells that were never written stay white.
+            int i = cell.getRow(); // Get the row of the cell.
+            int j = cell.getCol(); // Get the column of the cell.
+            Value value = cell.getTypedValue(); // Get the value of the cell, parsed when it was written.
+            if (!value.isEmpty()) {
+                if (!value.isNumeric()) {
+                    sheetView.highlightCell(i, j, Color.WHITE); // Highlight the cell in white if the value is not a number.
+                } else if (value.asNumber() < 0) {
+                    sheetView.highlightCell(i, j, SheetView.PINK); // Highlight the cell in pink if the value is negative.
+                } else if (value.asNumber() > 0) {
+                    sheetView.highlightCell(i, j, SheetView.GREEN); // Highlight the cell in green if the value is positive.
                 }
+            } else {
+                sheetView.highlightCell(i, j, Color.WHITE); // Highlight the cell in white if the value is empty.
             }
         }
         this.sheetView.updateTable(); // Update the table view.
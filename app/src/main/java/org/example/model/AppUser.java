@@ -1,7 +1,10 @@
 package org.example.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The AppUser class represents a user entity in the application.
@@ -11,7 +14,7 @@ public class AppUser implements IAppUser {
     private String username; // Stores the username of the user
     private String password; // Stores the password of the user
 
-    private List<ISpreadsheet> sheets; // List to store the user's sheets
+    private final Map<String, ISpreadsheet> sheets; // The user's sheets by name, in the order they were added
 
     /**
      * Default constructor for AppUser.
@@ -20,7 +23,7 @@ public class AppUser implements IAppUser {
      * @param password a password
      */
     public AppUser(String username, String password) {
-        this.sheets = new ArrayList<>(); // Initialize the list of sheets
+        this.sheets = Collections.synchronizedMap(new LinkedHashMap<>()); // Requests for one user may run at once
         this.username = username; // Set the username
         this.password = password; // Set the password
     }
@@ -37,31 +40,28 @@ public class AppUser implements IAppUser {
 
     @Override
     public void addSheet(String sheetName) {
-        this.sheets.add(new Spreadsheet(sheetName)); // Add a new sheet to the list
+        this.sheets.putIfAbsent(sheetName, new Spreadsheet(sheetName)); // Add a new sheet unless the name is taken
     }
 
     @Override
     public void removeSheet(String sheetName) {
-        for (ISpreadsheet sheet : this.sheets) { // Iterate over the list of sheets
-            if (sheet.getName().equals(sheetName)) { // Check if the sheet name matches
-                this.sheets.remove(sheet); // Remove the sheet from the list
-                return; // Exit the method once the sheet is removed
-            }
-        }
+        this.sheets.remove(sheetName); // Remove the sheet if it exists
     }
 
     @Override
     public boolean doesSheetExist(String name) {
-        for (ISpreadsheet sheet : this.sheets) { // Iterate over the list of sheets
-            if (sheet.getName().equals(name)) { // Check if the sheet name matches
-                return true; // Return true if the sheet exists
-            }
-        }
-        return false; // Return false if the sheet does not exist
+        return this.sheets.containsKey(name); // Look the sheet up by name
+    }
+
+    @Override
+    public ISpreadsheet getSheet(String name) {
+        return this.sheets.get(name); // Look the sheet up by name
     }
 
     @Override
     public List<ISpreadsheet> getSheets() {
-        return this.sheets; // Return the list of sheets
+        synchronized (this.sheets) { // Copying iterates, which the map does not lock by itself
+            return new ArrayList<>(this.sheets.values()); // Return the sheets in the order they were added
+        }
     }
 }
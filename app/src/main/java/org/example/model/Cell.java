@@ -1,20 +1,30 @@
 package org.example.model;
 
+import org.example.model.formula.ExpressionInterner;
+import org.example.model.formula.Formula;
+import org.example.model.formula.Value;
+
 /**
  * Represents a cell in a spreadsheet.
  */
 public class Cell {
-    private String value; // Stores the cell's value
+    /**
+     * The cell read from every position that has never been written. It cannot be changed.
+     */
+    public static final Cell EMPTY = new ReadOnlyCell(new Cell());
+
+    private Value value; // Stores the cell's value, parsed when it is written
     private String formula; // Stores the cell's formula
     private String rawdata; // Stores the cell's raw data
     private int row; // Stores the cell's row index
     private int col; // Stores the cell's column index
+    private Formula parsed; // The most recently parsed formula of the cell
  
     /**
      * Default constructor that initializes a cell with empty values.
      */
     public Cell() {
-        this.value = ""; // Initialize value to an empty string
+        this.value = Value.EMPTY; // Initialize value to the empty value
         this.rawdata = ""; // Initialize raw data to an empty string
         this.formula = ""; // Initialize formula to an empty string
     }
@@ -27,7 +37,7 @@ public class Cell {
      */
     public Cell(String value) {
         this(); // Call the default constructor to initialize empty values
-        this.value = value; // Set the cell's value to the specified value
+        this.value = Value.text(value); // Set the cell's value to the specified value
         if (value.startsWith("=")) { // Check if the value starts with "=" indicating a formula
             this.formula = value; // Set the formula if the value starts with "="
         }
@@ -50,6 +60,15 @@ public class Cell {
      * @author Tony
      */
     public String getValue() {
+        return this.value.toString(); // Return the cell's display value
+    }
+
+    /**
+     * Returns the typed value of the cell, which was parsed when the cell was written.
+     *
+     * @return the typed value of the cell.
+     */
+    public Value getTypedValue() {
         return this.value; // Return the cell's value
     }
 
@@ -70,7 +89,7 @@ public class Cell {
      * @author Vinay
      */
     public void setValue(String value) {
-        this.value = value; // Set the cell's value to the specified value
+        this.value = Value.text(value); // Parse the cell's value once
         if (value.startsWith("=")) { // Check if the value starts with "=" indicating a formula
             this.formula = value; // Set the formula if the value starts with "="
         } else {
@@ -78,6 +97,17 @@ public class Cell {
         }
     }
 
+    /**
+     * Sets the value of the cell to an already typed value, such as the result of a formula.
+     *
+     * @param value the value to set for the cell.
+     */
+    public void setValue(Value value) {
+        this.value = value; // Set the cell's value
+        boolean isFormula = value.getKind() == Value.Kind.TEXT && value.toString().startsWith("=");
+        this.formula = isFormula ? value.toString() : ""; // COPY leaves its own formula as the value
+    }
+
     /**
      * Returns the row index of the cell.
      *
@@ -145,6 +175,127 @@ public class Cell {
      * @author Vinay
      */
     public boolean isFormula() {
-        return this.value.startsWith("="); // Return true if the cell's value starts with "="
+        return getValue().startsWith("="); // Return true if the cell's value starts with "="
+    }
+
+    /**
+     * Returns the parsed form of the given cell text. The text is only parsed again
+     * when it differs from the text that was parsed last.
+     *
+     * @param source the cell text, usually its raw data.
+     * @return the parsed formula.
+     */
+    public Formula getParsedFormula(String source) {
+        if (this.parsed == null || !this.parsed.getSource().equals(source)) {
+            this.parsed = Formula.parse(source); // Parse the new text once
+        }
+        return this.parsed; // Return the cached formula
+    }
+
+    /**
+     * Returns the parsed form of the given cell text with its function calls shared
+     * through the given interner. The text is only parsed and interned again when it
+     * differs from the text that was parsed last.
+     *
+     * @param source   the cell text, usually its raw data.
+     * @param interner the interner of the sheet the cell belongs to.
+     * @return the interned formula.
+     */
+    public Formula getParsedFormula(String source, ExpressionInterner interner) {
+        Formula formula = getParsedFormula(source); // Parse the text if it changed
+        if (!formula.isInterned()) {
+            formula = interner.intern(formula); // Share calls with the other formulas of the sheet
+            this.parsed = formula; // Keep the interned formula
+        }
+        return formula;
+    }
+
+    /**
+     * Returns the formula that was parsed last for this cell.
+     *
+     * @return the parsed formula, or null if the cell has never been evaluated.
+     */
+    public Formula getParsedFormula() {
+        return this.parsed; // Return the cached formula
+    }
+
+    /**
+     * Returns a copy of this cell that cannot be changed, for use in snapshots.
+     *
+     * @return the read only copy.
+     */
+    public Cell readOnlyCopy() {
+        return new ReadOnlyCell(this); // Copy the current contents
+    }
+
+    /**
+     * A cell whose contents are fixed when it is created, such as the shared empty cell
+     * or a cell in a snapshot. Every change is rejected.
+     */
+    private static final class ReadOnlyCell extends Cell {
+
+        /**
+         * Constructs a read only copy of a cell.
+         *
+         * @param source the cell to copy.
+         */
+        ReadOnlyCell(Cell source) {
+            Cell self = this; // The fields are private to Cell
+            self.value = source.value;
+            self.formula = source.formula;
+            self.rawdata = source.rawdata;
+            self.row = source.row;
+            self.col = source.col;
+            self.parsed = source.parsed; // Parsed formulas are immutable, so they can be shared
+        }
+
+        @Override
+        public void setRawData(String rawdata) {
+            throw new UnsupportedOperationException("A read only cell cannot be changed");
+        }
+
+        @Override
+        public void setValue(String value) {
+            throw new UnsupportedOperationException("A read only cell cannot be changed");
+        }
+
+        @Override
+        public void setValue(Value value) {
+            throw new UnsupportedOperationException("A read only cell cannot be changed");
+        }
+
+        @Override
+        public void setRow(int row) {
+            throw new UnsupportedOperationException("A read only cell cannot be changed");
+        }
+
+        @Override
+        public void setCol(int col) {
+            throw new UnsupportedOperationException("A read only cell cannot be changed");
+        }
+
+        @Override
+        public void setFormula(String formula) {
+            throw new UnsupportedOperationException("A read only cell cannot be changed");
+        }
+
+        @Override
+        public Formula getParsedFormula(String source) {
+            Cell self = this;
+            if (self.parsed != null && self.parsed.getSource().equals(source)) {
+                return self.parsed; // Parsed before the copy was made
+            }
+            return Formula.parse(source); // Never cache on a read only cell
+        }
+
+        @Override
+        public Formula getParsedFormula(String source, ExpressionInterner interner) {
+            return interner.intern(getParsedFormula(source)); // Never cache on a read only cell
+        }
+
+        @Override
+        public Cell readOnlyCopy() {
+            return this; // Already read only
+        }
     }
 }
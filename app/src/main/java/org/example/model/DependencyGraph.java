@@ -0,0 +1,417 @@
+package org.example.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.example.model.formula.CellReference;
+import org.example.model.formula.Formula;
+import org.example.model.formula.RangeReference;
+import org.example.model.formula.ReferenceScanner;
+
+/**
+ * Keeps track of which cells each formula reads so that a change to one cell only
+ * recalculates the formulas that depend on it. Cells are identified by a packed
+ * row and column, see {@link #key(int, int)}.
+ *
+ * <p>Formulas that read ranges are bucketed by where their ranges lie, so finding the
+ * formulas that read a cell only looks at ranges near it rather than at every range
+ * in the sheet.</p>
+ */
+public class DependencyGraph {
+    private final Map<Long, List<Long>> precedents = new HashMap<>(); // Formula cell -> single cells it reads
+    private final Map<Long, List<RangeReference>> ranges = new HashMap<>(); // Formula cell -> ranges it reads
+    private final Map<Long, Set<Long>> dependents = new HashMap<>(); // Cell -> formula cells reading it directly
+    private final RangeReaders rangeReaders = new RangeReaders(); // Ranges by where they lie -> formula cells
+
+    /**
+     * Packs a row and column into a single key.
+     *
+     * @param row the zero based row index.
+     * @param col the zero based column index.
+     * @return the packed key.
+     */
+    public static long key(int row, int col) {
+        return ReferenceScanner.pack(row, col); // Row in the high half, column in the low half
+    }
+
+    /**
+     * Gets the row of a packed key.
+     *
+     * @param key the packed key.
+     * @return the zero based row index.
+     */
+    public static int row(long key) {
+        return ReferenceScanner.row(key); // Row is the high half
+    }
+
+    /**
+     * Gets the column of a packed key.
+     *
+     * @param key the packed key.
+     * @return the zero based column index.
+     */
+    public static int col(long key) {
+        return ReferenceScanner.col(key); // Column is the low half
+    }
+
+    /**
+     * Replaces the recorded precedents of a cell with the cells read by its formula.
+     *
+     * @param row     the row of the cell.
+     * @param col     the column of the cell.
+     * @param formula the formula now held by the cell.
+     */
+    public void setPrecedents(int row, int col, Formula formula) {
+        long cell = key(row, col);
+        removePrecedents(cell); // Forget the old formula
+        if (!formula.getCellReferences().isEmpty()) {
+            List<Long> reads = new ArrayList<>();
+            for (CellReference reference : formula.getCellReferences()) {
+                long precedent = key(reference.getRow(), reference.getCol());
+                reads.add(precedent); // Record the cell the formula reads
+                this.dependents.computeIfAbsent(precedent, k -> new HashSet<>()).add(cell); // And the reverse edge
+            }
+            this.precedents.put(cell, reads);
+        }
+        if (!formula.getRangeReferences().isEmpty()) {
+            List<RangeReference> read = new ArrayList<>(formula.getRangeReferences());
+            this.ranges.put(cell, read); // Record the ranges the formula reads
+            for (RangeReference range : read) {
+                this.rangeReaders.add(cell, range); // And where they lie
+            }
+        }
+    }
+
+    /**
+     * Forgets every recorded formula.
+     */
+    public void clear() {
+        this.precedents.clear(); // Clear single cell edges
+        this.ranges.clear(); // Clear range edges
+        this.dependents.clear(); // Clear reverse edges
+        this.rangeReaders.clear(); // Clear range buckets
+    }
+
+    /**
+     * Gets the formula cells that read the given cell directly, either by reference or through a range.
+     *
+     * @param cell the packed cell key.
+     * @return the packed keys of the dependent cells.
+     */
+    public Set<Long> getDependents(long cell) {
+        Set<Long> result = new LinkedHashSet<>(this.dependents.getOrDefault(cell, Collections.emptySet()));
+        this.rangeReaders.collect(row(cell), col(cell), result); // Formulas reading the cell through a range
+        return result;
+    }
+
+    /**
+     * Gets every formula that has to be recalculated after the given cells change,
+     * ordered so that each formula comes after the formulas it reads. Formulas that
+     * are part of a cycle cannot be ordered and are left out.
+     *
+     * @param changed the packed keys of the changed cells.
+     * @return the packed keys of the cells to recalculate, in order.
+     */
+    public List<Long> getRecalculationOrder(Set<Long> changed) {
+        List<Long> order = new ArrayList<>();
+        for (List<Long> level : getRecalculationLevels(changed)) {
+            order.addAll(level); // Each level only reads earlier levels
+        }
+        return order;
+    }
+
+    /**
+     * Gets every formula that has to be recalculated after the given cells change,
+     * grouped into levels. A formula only reads formulas of earlier levels, so the
+     * formulas of one level can be recalculated in any order, or at the same time.
+     * Formulas that are part of a cycle cannot be ordered and are left out.
+     *
+     * @param changed the packed keys of the changed cells.
+     * @return the levels of packed cell keys, in order.
+     */
+    public List<List<Long>> getRecalculationLevels(Set<Long> changed) {
+        return getRecalculationLevels(changed, new HashSet<>()); // Cycles are dropped
+    }
+
+    /**
+     * Gets every formula that has to be recalculated after the given cells change,
+     * grouped into levels as {@link #getRecalculationLevels(Set)} does, and collects
+     * the formulas that cannot be ordered. Those are part of a cycle or read a formula
+     * that is, so they can never be calculated.
+     *
+     * @param changed the packed keys of the changed cells.
+     * @param cycles  receives the packed keys of the formulas that cannot be ordered.
+     * @return the levels of packed cell keys, in order.
+     */
+    public List<List<Long>> getRecalculationLevels(Set<Long> changed, Set<Long> cycles) {
+        Set<Long> affected = new LinkedHashSet<>(); // Transitive dependents of the changed cells
+        Deque<Long> queue = new ArrayDeque<>(changed);
+        Map<Long, Set<Long>> edges = new HashMap<>(); // Dependents of each visited cell
+        while (!queue.isEmpty()) {
+            long cell = queue.poll();
+            if (edges.containsKey(cell)) {
+                continue; // Already visited
+            }
+            Set<Long> next = getDependents(cell);
+            edges.put(cell, next);
+            for (long dependent : next) {
+                if (affected.add(dependent)) {
+                    queue.add(dependent); // Visit each dependent once
+                }
+            }
+        }
+
+        Map<Long, Integer> indegree = new HashMap<>(); // Number of affected precedents of each affected cell
+        for (long cell : affected) {
+            indegree.putIfAbsent(cell, 0);
+            for (long dependent : edges.get(cell)) {
+                indegree.merge(dependent, 1, Integer::sum);
+            }
+        }
+        List<Long> ready = new ArrayList<>();
+        for (long cell : affected) {
+            if (indegree.get(cell) == 0) {
+                ready.add(cell); // Only reads cells that are already up to date
+            }
+        }
+        List<List<Long>> levels = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            levels.add(ready);
+            List<Long> next = new ArrayList<>();
+            for (long cell : ready) {
+                for (long dependent : edges.get(cell)) {
+                    if (indegree.merge(dependent, -1, Integer::sum) == 0) {
+                        next.add(dependent); // All of its precedents are now up to date
+                    }
+                }
+            }
+            ready = next;
+        }
+        for (long cell : affected) {
+            if (indegree.get(cell) > 0) {
+                cycles.add(cell); // Still waiting for a formula on a cycle
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Removes the edges recorded for a formula cell.
+     *
+     * @param cell the packed cell key.
+     */
+    private void removePrecedents(long cell) {
+        List<Long> reads = this.precedents.remove(cell);
+        if (reads != null) {
+            for (long precedent : reads) {
+                Set<Long> readers = this.dependents.get(precedent);
+                if (readers != null) {
+                    readers.remove(cell); // Drop the reverse edge
+                    if (readers.isEmpty()) {
+                        this.dependents.remove(precedent);
+                    }
+                }
+            }
+        }
+        List<RangeReference> read = this.ranges.remove(cell);
+        if (read != null) {
+            for (RangeReference range : read) {
+                this.rangeReaders.remove(cell, range); // Drop range edges
+            }
+        }
+    }
+
+    /**
+     * Checks if a range contains a cell.
+     *
+     * @param range the range.
+     * @param row   the row of the cell.
+     * @param col   the column of the cell.
+     * @return true if the cell lies inside the range.
+     */
+    private static boolean contains(RangeReference range, int row, int col) {
+        return row >= range.getStart().getRow() && row <= range.getEnd().getRow()
+                && col >= range.getStart().getCol() && col <= range.getEnd().getCol();
+    }
+
+    /**
+     * The formulas that read ranges, bucketed by where the ranges lie. Each range is
+     * kept at the level whose tiles are just large enough for the range to touch at
+     * most two of them across and two down, and is put in each of those tiles. Rows and
+     * columns have levels of their own, so a long thin range such as a whole column does
+     * not land in tiles spanning many columns. A cell is then looked up in one tile per
+     * level in use, and each tile holds ranges of about its own size, so a lookup touches
+     * few ranges that do not contain the cell.
+     */
+    private static final class RangeReaders {
+        private static final int BASE_SHIFT = 4; // Tiles of the finest level are 16 cells on a side
+        private static final int LEVEL_BITS = 5; // Bits of a row or column level
+        private static final int TILE_BITS = 27; // Bits of a tile row or column, enough for any int
+        private static final long TILE_MASK = (1L << TILE_BITS) - 1; // Selects a tile row or column
+
+        private final Map<Long, List<Reader>> buckets = new HashMap<>(); // Packed level and tile -> readers
+        private final Map<Integer, Integer> levels = new HashMap<>(); // Packed level -> number of readers kept there
+
+        /**
+         * Adds a formula that reads a range.
+         *
+         * @param cell  the packed key of the formula cell.
+         * @param range the range it reads.
+         */
+        void add(long cell, RangeReference range) {
+            if (!range.isValid()) {
+                return; // Contains no cells
+            }
+            int level = level(range);
+            for (long bucket : buckets(level, range)) {
+                this.buckets.computeIfAbsent(bucket, k -> new ArrayList<>()).add(new Reader(cell, range));
+            }
+            this.levels.merge(level, 1, Integer::sum);
+        }
+
+        /**
+         * Removes a formula that reads a range, once for each time it was added.
+         *
+         * @param cell  the packed key of the formula cell.
+         * @param range the range it reads.
+         */
+        void remove(long cell, RangeReference range) {
+            if (!range.isValid()) {
+                return; // Was never added
+            }
+            int level = level(range);
+            for (long bucket : buckets(level, range)) {
+                List<Reader> readers = this.buckets.get(bucket);
+                for (int i = 0; i < readers.size(); i++) {
+                    Reader reader = readers.get(i);
+                    if (reader.cell == cell && reader.range.equals(range)) {
+                        readers.remove(i); // Only one, the formula may read the range twice
+                        break;
+                    }
+                }
+                if (readers.isEmpty()) {
+                    this.buckets.remove(bucket);
+                }
+            }
+            if (this.levels.merge(level, -1, Integer::sum) == 0) {
+                this.levels.remove(level); // No longer looked up
+            }
+        }
+
+        /**
+         * Forgets every range.
+         */
+        void clear() {
+            this.buckets.clear();
+            this.levels.clear();
+        }
+
+        /**
+         * Adds the formulas that read a cell through a range.
+         *
+         * @param row    the row of the cell.
+         * @param col    the column of the cell.
+         * @param result receives the packed keys of the formula cells.
+         */
+        void collect(int row, int col, Set<Long> result) {
+            for (int level : this.levels.keySet()) {
+                int rowShift = BASE_SHIFT + (level >>> LEVEL_BITS);
+                int colShift = BASE_SHIFT + (level & ((1 << LEVEL_BITS) - 1));
+                List<Reader> readers = this.buckets.get(bucket(level, row >> rowShift, col >> colShift));
+                if (readers == null) {
+                    continue; // No range of this size near the cell
+                }
+                for (Reader reader : readers) {
+                    if (contains(reader.range, row, col)) {
+                        result.add(reader.cell); // The formula reads the cell through a range
+                    }
+                }
+            }
+        }
+
+        /**
+         * Finds the level a range is kept at.
+         *
+         * @param range the range.
+         * @return the row level and column level, packed.
+         */
+        private static int level(RangeReference range) {
+            int rowLevel = level(range.getStart().getRow(), range.getEnd().getRow());
+            int colLevel = level(range.getStart().getCol(), range.getEnd().getCol());
+            return (rowLevel << LEVEL_BITS) | colLevel;
+        }
+
+        /**
+         * Finds the smallest level at which a span touches at most two tiles.
+         *
+         * @param first the first row or column of the span.
+         * @param last  the last row or column of the span.
+         * @return the level.
+         */
+        private static int level(int first, int last) {
+            int level = 0;
+            while ((last >> (BASE_SHIFT + level)) - (first >> (BASE_SHIFT + level)) > 1) {
+                level++; // Tiles twice the size
+            }
+            return level;
+        }
+
+        /**
+         * Lists the tiles of a level that a range touches, at most four.
+         *
+         * @param level the packed level of the range.
+         * @param range the range.
+         * @return the packed keys of the tiles.
+         */
+        private static List<Long> buckets(int level, RangeReference range) {
+            int rowShift = BASE_SHIFT + (level >>> LEVEL_BITS);
+            int colShift = BASE_SHIFT + (level & ((1 << LEVEL_BITS) - 1));
+            List<Long> result = new ArrayList<>(4);
+            for (int tileRow = range.getStart().getRow() >> rowShift; tileRow <= range.getEnd().getRow() >> rowShift; tileRow++) {
+                for (int tileCol = range.getStart().getCol() >> colShift; tileCol <= range.getEnd().getCol() >> colShift; tileCol++) {
+                    result.add(bucket(level, tileRow, tileCol));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Packs a level and a tile into a single key.
+         *
+         * @param level   the packed level.
+         * @param tileRow the row of the tile at that level.
+         * @param tileCol the column of the tile at that level.
+         * @return the packed key.
+         */
+        private static long bucket(int level, int tileRow, int tileCol) {
+            return ((long) level << (2 * TILE_BITS)) | ((tileRow & TILE_MASK) << TILE_BITS) | (tileCol & TILE_MASK);
+        }
+    }
+
+    /**
+     * A formula cell and one range it reads.
+     */
+    private static final class Reader {
+        private final long cell; // The packed key of the formula cell
+        private final RangeReference range; // The range it reads
+
+        /**
+         * Constructs a reader.
+         *
+         * @param cell  the packed key of the formula cell.
+         * @param range the range it reads.
+         */
+        Reader(long cell, RangeReference range) {
+            this.cell = cell;
+            this.range = range;
+        }
+    }
+}
@@ -5,12 +5,14 @@ import java.util.ArrayList;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import javax.xml.parsers.*;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.*;
 import javax.xml.transform.stream.*;
 
+import org.example.model.formula.ReferenceScanner;
 import org.w3c.dom.*;
 
 /**
@@ -18,6 +20,7 @@ import org.w3c.dom.*;
  * to XML files.
  */
 public class Home implements IHome {
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n"); // Compiled once for every payload
 
     public ISpreadsheet readXML(String path) {
         try {
@@ -59,18 +62,9 @@ public class Home implements IHome {
      */
     private ISpreadsheet generateSpreadsheet(NodeList cellNodes, int maxRow,
                                              int maxCol, String path) {
-        // Create 2D cell array
-        List<List<Cell>> cellArray = new ArrayList<>();
-        for (int i = 0; i < 100; i++) {
-            ArrayList<Cell> row = new ArrayList<>();
-            for (int j = 0; j < 100; j++) {
-                Cell c = new Cell(); // Create a new cell
-                c.setRow(i); // Set the row index
-                c.setCol(j); // Set the column index
-                row.add(c); // Add the cell to the row
-            }
-            cellArray.add(row); // Add the row to the cell array
-        }
+        // Create an empty grid large enough for the file, cells are only allocated when they are filled
+        SparseGrid cellArray = new SparseGrid(Math.min(Math.max(100, maxRow + 1), SparseGrid.MAX_ROWS),
+                Math.min(Math.max(100, maxCol + 1), SparseGrid.MAX_COLS));
 
         // Fill cell values
         for (int i = 0; i < cellNodes.getLength(); i++) {
@@ -78,9 +72,9 @@ public class Home implements IHome {
             int col = Integer.parseInt(cellElement.getAttribute("col")); // Get the column number
             int row = Integer.parseInt(cellElement.getAttribute("row")); // Get the row number
             String value = cellElement.getTextContent(); // Get the cell value
-            cellArray.get(row).get(col).setValue(value); // Set the cell value in the array
+            cellArray.getForWrite(row, col).setValue(value); // Set the cell value in the grid
         }
-        return new Spreadsheet(cellArray, trimEnds(path)); // Return the generated spreadsheet
+        return new Spreadsheet(cellArray.asRows(), trimEnds(path)); // Return the generated spreadsheet
     }
 
     public ISpreadsheet readPayload(String payload, String sheetName) {
@@ -144,13 +138,10 @@ public class Home implements IHome {
      * @author Theo
      */
     private void populateDocumentWithSheetData(Document dom, Element root, IReadOnlySpreadSheet sheet) {
-        String[][] values = sheet.getCellStringsObject(); // Get the cell values from the sheet
-        for (int i = 0; i < sheet.getRows(); i++) {
-            for (int j = 0; j < sheet.getCols(); j++) {
-                if (!values[i][j].equals("")) { // If the cell is not empty
-                    Element cellElement = createCellElement(dom, i, j, values[i][j]); // Create a cell element
-                    root.appendChild(cellElement); // Append the cell element to the root
-                }
+        for (Cell cell : sheet.getPopulatedCells()) { // Only visit the cells that have been written
+            if (!cell.getValue().equals("")) { // If the cell is not empty
+                Element cellElement = createCellElement(dom, cell.getRow(), cell.getCol(), cell.getValue()); // Create a cell element
+                root.appendChild(cellElement); // Append the cell element to the root
             }
         }
     }
@@ -210,7 +201,7 @@ public class Home implements IHome {
         if (input.contains("\\n")) {
             input = input.replace("\\n", "\n"); // Replace literal "\n" with actual newline characters if needed
         }
-        String[] lines = input.split("\\r?\\n"); // Split the input into lines
+        String[] lines = LINE_BREAK.split(input); // Split the input into lines
         List<List<String>> result = new ArrayList<>();
 
         // Process each line that was split
@@ -230,6 +221,9 @@ public class Home implements IHome {
 
             // Extract row and column from the reference
             int[] rowCol = convertRefToRowCol(ref); // Convert the reference to row and column indices
+            if (rowCol[0] < 0 || rowCol[1] < 0 || rowCol[0] >= SparseGrid.MAX_ROWS || rowCol[1] >= SparseGrid.MAX_COLS) {
+                continue; // Skip references outside the largest sheet
+            }
             List<String> cellData = new ArrayList<>();
             cellData.add(String.valueOf(rowCol[0])); // Add the row index to the list
             cellData.add(String.valueOf(rowCol[1])); // Add the column index to the list
@@ -248,24 +242,8 @@ public class Home implements IHome {
      */
 
     private static int[] convertRefToRowCol(String ref) {
-        ref = ref.substring(1); // Remove the leading $
-        int row = 0;
-        int col = 0;
-        int i = 0;
-
-        // Extract column part (letters)
-        while (i < ref.length() && Character.isLetter(ref.charAt(i))) {
-            col = col * 26 + (ref.charAt(i) - 'A' + 1); // Convert letters to column index
-            i++;
-        }
-
-        // Extract row part (digits)
-        while (i < ref.length() && Character.isDigit(ref.charAt(i))) {
-            row = row * 10 + (ref.charAt(i) - '0'); // Convert digits to row index
-            i++;
-        }
-
-        return new int[]{row - 1, col - 1}; // Convert to 0-based index
+        long cell = ReferenceScanner.parse(ref); // Very large rows and columns stop growing past the largest sheet
+        return new int[]{ReferenceScanner.row(cell), ReferenceScanner.col(cell)}; // Already 0-based
     }
 
     /**
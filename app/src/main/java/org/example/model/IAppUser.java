@@ -41,9 +41,17 @@ public interface IAppUser {
     boolean doesSheetExist(String name);
 
     /**
-     * Gets the list of spreadsheets associated with the user.
+     * Gets the sheet with the given name.
      *
-     * @return a list of spreadsheets.
+     * @param name the name of the sheet.
+     * @return the sheet, or null if the user has no sheet with that name.
+     */
+    ISpreadsheet getSheet(String name);
+
+    /**
+     * Gets the list of spreadsheets associated with the user, in the order they were added.
+     *
+     * @return a new list of spreadsheets.
      * @author Ben
      */
     List<ISpreadsheet> getSheets();
@@ -1,5 +1,7 @@
 package org.example.model;
 
+import java.util.List;
+
 /**
  * Represents the interface for a read-only spreadsheet.
  */
@@ -37,6 +39,14 @@ public interface IReadOnlySpreadSheet {
      */
     String[][] getCellStringsObject();
 
+    /**
+     * Gets the cells that have been written, in row major order. Each cell knows its
+     * own row and column; cells that were never written are not included.
+     *
+     * @return the populated cells of the spreadsheet.
+     */
+    List<Cell> getPopulatedCells();
+
     /**
      * Get the id of the sheet
      *
@@ -2,6 +2,8 @@ package org.example.model;
 
 import java.util.List;
 
+import org.example.model.formula.Value;
+
 /**
  * Represents the interface for a spreadsheet.
  */
@@ -26,6 +28,23 @@ public interface ISpreadsheet extends IReadOnlySpreadSheet {
      */
     String evaluateFormula(String formula);
 
+    /**
+     * Evaluates the raw data of the given cell, reusing the formula parsed for that cell.
+     *
+     * @param row the row index of the cell.
+     * @param col the column index of the cell.
+     * @return the result of evaluating the raw data.
+     */
+    String evaluateCell(int row, int col);
+
+    /**
+     * Returns the cells whose values were set or recalculated since the last call,
+     * and starts collecting again. Cells are packed with {@link DependencyGraph#key(int, int)}.
+     *
+     * @return the packed keys of the changed cells.
+     */
+    List<Long> takeChangedCells();
+
     /**
      * Gets the grid.
      * @return a 2D list of Cell
@@ -53,6 +72,16 @@ public interface ISpreadsheet extends IReadOnlySpreadSheet {
      */
     String getCellValue(int row, int col);
 
+    /**
+     * Gets the typed value of the cell at the specified row and column, as parsed when
+     * the cell was written.
+     *
+     * @param row the row index of the cell.
+     * @param col the column index of the cell.
+     * @return the typed value of the cell.
+     */
+    Value getCellTypedValue(int row, int col);
+
     /**
      * Sets the raw data of the cell at the specified row and column.
      *
@@ -95,7 +124,7 @@ public interface ISpreadsheet extends IReadOnlySpreadSheet {
      * @param sheet the published spreadsheet to add.
      * @author Tony
      */
-    void addPublished(ISpreadsheet sheet);
+    void addPublished(IReadOnlySpreadSheet sheet);
 
     /**
      * Adds a subscribed version of the spreadsheet.
@@ -103,7 +132,7 @@ public interface ISpreadsheet extends IReadOnlySpreadSheet {
      * @param sheet the subscribed spreadsheet to add.
      * @author Tony
      */
-    void addSubscribed(ISpreadsheet sheet);
+    void addSubscribed(IReadOnlySpreadSheet sheet);
 
     /**
      * Gets the list of published versions of the spreadsheet.
@@ -111,7 +140,16 @@ public interface ISpreadsheet extends IReadOnlySpreadSheet {
      * @return a list of published versions of the spreadsheet.
      * @author Tony
      */
-    List<ISpreadsheet> getPublishedVersions();
+    List<IReadOnlySpreadSheet> getPublishedVersions();
+
+    /**
+     * Gets the changes the published versions made from a version on, read from the
+     * version log in time proportional to the changes.
+     *
+     * @param from the number of published versions the reader has seen.
+     * @return the changes, and the number of published versions they bring the reader up to.
+     */
+    SheetUpdates getPublishedUpdates(int from);
 
     /**
      * Gets the list of subscribed modified versions of the spreadsheet
@@ -119,7 +157,45 @@ public interface ISpreadsheet extends IReadOnlySpreadSheet {
      * @return a list of subscribed modified versions of the spreadsheet
      * @author Tony
      */
-    List<ISpreadsheet> getSubscribedVersions();
+    List<IReadOnlySpreadSheet> getSubscribedVersions();
+
+    /**
+     * Gets the changes the subscribed versions made from a version on, read from the
+     * version log in time proportional to the changes.
+     *
+     * @param from the number of subscribed versions the reader has seen.
+     * @return the changes, and the number of subscribed versions they bring the reader up to.
+     */
+    SheetUpdates getSubscribedUpdates(int from);
+
+    /**
+     * Replaces every cell and keeps the result as the next published version, as one
+     * step. Concurrent updates of the same sheet are applied one at a time.
+     *
+     * @param updatedGrid 2D List of Cell
+     * @return the number of published versions, so the new version is this minus one.
+     */
+    int publish(List<List<Cell>> updatedGrid);
+
+    /**
+     * Replaces every cell and keeps the result as the next subscribed version, as one
+     * step. Concurrent updates of the same sheet are applied one at a time.
+     *
+     * @param updatedGrid 2D List of Cell
+     * @return the number of subscribed versions, so the new version is this minus one.
+     */
+    int subscribe(List<List<Cell>> updatedGrid);
+
+    /**
+     * Sets how often the version logs keep the whole cells of a version, so that a reader
+     * far behind catches up from the latest snapshot instead of from the first version.
+     * A snapshot is kept as soon as either limit is reached.
+     *
+     * @param versions the number of versions between snapshots.
+     * @param cells    the number of changed cells between snapshots.
+     * @throws IllegalArgumentException if either limit is less than 1.
+     */
+    void setSnapshotInterval(int versions, int cells);
 
     /**
      * Sets a grid
@@ -128,4 +204,13 @@ public interface ISpreadsheet extends IReadOnlySpreadSheet {
      * @author Vinay
      */
     void setGrid(List<List<Cell>> updatedGrid);
+
+    /**
+     * Takes an immutable snapshot of the cells, to keep as a published or subscribed
+     * version. The snapshot shares every cell that has not been written since the
+     * previous snapshot, so it takes time and memory in proportion to the changed cells.
+     *
+     * @return the snapshot.
+     */
+    SheetSnapshot snapshot();
 }
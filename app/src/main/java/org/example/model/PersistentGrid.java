@@ -0,0 +1,261 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable map from cell positions to read only cells. Changing a cell returns a
+ * new grid that shares every untouched node with the old one, so keeping many versions
+ * of a sheet costs memory in proportion to the cells that changed between them.
+ *
+ * <p>The grid is a 32-way trie over the row major index of a cell. Each node keeps a
+ * bitmap of its children and an array holding only the children that exist, so a
+ * sparse sheet uses little memory.</p>
+ */
+public final class PersistentGrid {
+    public static final PersistentGrid EMPTY = new PersistentGrid(null, 0); // The grid with no cells
+
+    private static final int BITS = 5; // Index bits consumed per level
+    private static final int MASK = (1 << BITS) - 1; // Selects one level's bits
+    private static final int COL_BITS = Integer.numberOfTrailingZeros(SparseGrid.MAX_COLS); // Bits of a column
+    private static final int TOP_SHIFT = 30; // Shift of the root level, enough for 35 index bits
+
+    private final Node root; // The root node, or null if the grid is empty
+    private final int size; // Number of cells
+
+    /**
+     * Constructs a grid.
+     *
+     * @param root the root node.
+     * @param size the number of cells.
+     */
+    private PersistentGrid(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of cells in the grid.
+     *
+     * @return the number of cells.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the cell at the given position.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the cell, or null if there is none.
+     */
+    public Cell get(int row, int col) {
+        long index = index(row, col);
+        Node node = this.root;
+        for (int shift = TOP_SHIFT; node != null; shift -= BITS) {
+            int bit = 1 << (int) ((index >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null; // No cell below this node
+            }
+            Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (shift == 0) {
+                return (Cell) child; // Reached the leaf level
+            }
+            node = (Node) child;
+        }
+        return null;
+    }
+
+    /**
+     * Returns a grid with one cell replaced. The cell is copied so that later changes
+     * to it do not affect the grid.
+     *
+     * @param row  the row of the cell.
+     * @param col  the column of the cell.
+     * @param cell the new cell, or null to remove it.
+     * @return the new grid, or this grid if nothing changed.
+     */
+    public PersistentGrid with(int row, int col, Cell cell) {
+        Cell old = get(row, col);
+        if (cell == null && old == null) {
+            return this; // Nothing to remove
+        }
+        Cell copy = cell == null ? null : cell.readOnlyCopy();
+        Node newRoot = with(this.root, TOP_SHIFT, index(row, col), copy);
+        int newSize = this.size + (old == null ? 1 : 0) - (copy == null ? 1 : 0);
+        return new PersistentGrid(newRoot, newSize);
+    }
+
+    /**
+     * Returns every cell in row major order.
+     *
+     * @return the cells.
+     */
+    public List<Cell> getCells() {
+        List<Cell> cells = new ArrayList<>(this.size);
+        collect(this.root, TOP_SHIFT, cells);
+        return cells;
+    }
+
+    /**
+     * Finds the cells that differ between this grid and a newer one. Parts of the two
+     * tries that are shared are skipped without being visited, so a newer grid made from
+     * this one by a few changes is compared in time proportional to the changes.
+     *
+     * @param newer   the newer grid.
+     * @param changed receives the cells of the newer grid that are new or hold a different
+     *                value, in row major order.
+     * @param removed receives the cells of this grid missing from the newer grid, in row
+     *                major order.
+     */
+    public void diff(PersistentGrid newer, List<Cell> changed, List<Cell> removed) {
+        diff(this.root, newer.root, TOP_SHIFT, changed, removed);
+    }
+
+    /**
+     * Gets the row major index of a cell.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the index.
+     */
+    private static long index(int row, int col) {
+        return ((long) row << COL_BITS) | col;
+    }
+
+    /**
+     * Copies the path to an index, replacing the leaf at its end.
+     *
+     * @param node  the node at this level, or null if there is none.
+     * @param shift the shift of this level.
+     * @param index the index of the cell.
+     * @param cell  the new cell, or null to remove it.
+     * @return the new node, or null if it has no children left.
+     */
+    private static Node with(Node node, int shift, long index, Cell cell) {
+        int bit = 1 << (int) ((index >>> shift) & MASK);
+        int bitmap = node == null ? 0 : node.bitmap;
+        int pos = Integer.bitCount(bitmap & (bit - 1));
+        boolean present = (bitmap & bit) != 0;
+        Object child;
+        if (shift == 0) {
+            child = cell; // The leaf itself
+        } else {
+            child = with(present ? (Node) node.children[pos] : null, shift - BITS, index, cell);
+        }
+
+        if (child == null) {
+            if (!present) {
+                return node; // Nothing to remove
+            }
+            if (bitmap == bit) {
+                return null; // The node has no children left
+            }
+            Object[] children = new Object[node.children.length - 1];
+            System.arraycopy(node.children, 0, children, 0, pos);
+            System.arraycopy(node.children, pos + 1, children, pos, children.length - pos);
+            return new Node(bitmap & ~bit, children); // Drop the child
+        }
+        if (present) {
+            Object[] children = node.children.clone();
+            children[pos] = child; // Replace the child
+            return new Node(bitmap, children);
+        }
+        Object[] children = new Object[node == null ? 1 : node.children.length + 1];
+        if (node != null) {
+            System.arraycopy(node.children, 0, children, 0, pos);
+            System.arraycopy(node.children, pos, children, pos + 1, node.children.length - pos);
+        }
+        children[pos] = child; // Insert the child
+        return new Node(bitmap | bit, children);
+    }
+
+    /**
+     * Adds the cells below a node in index order.
+     *
+     * @param node  the node.
+     * @param shift the shift of its level.
+     * @param cells the list to add to.
+     */
+    private static void collect(Node node, int shift, List<Cell> cells) {
+        if (node == null) {
+            return;
+        }
+        for (Object child : node.children) {
+            if (shift == 0) {
+                cells.add((Cell) child); // A leaf
+            } else {
+                collect((Node) child, shift - BITS, cells); // Children are stored in index order
+            }
+        }
+    }
+
+    /**
+     * Compares the cells below two nodes at the same level.
+     *
+     * @param older   the node of the older grid, or null if it has none here.
+     * @param newer   the node of the newer grid, or null if it has none here.
+     * @param shift   the shift of the level.
+     * @param changed receives the new or changed cells.
+     * @param removed receives the removed cells.
+     */
+    private static void diff(Node older, Node newer, int shift, List<Cell> changed, List<Cell> removed) {
+        if (older == newer) {
+            return; // Shared, so nothing below differs
+        }
+        if (older == null) {
+            collect(newer, shift, changed); // Everything below is new
+            return;
+        }
+        if (newer == null) {
+            collect(older, shift, removed); // Everything below is gone
+            return;
+        }
+        int bitmap = older.bitmap | newer.bitmap;
+        for (int bits = bitmap; bits != 0; bits &= bits - 1) {
+            int bit = bits & -bits; // Lowest remaining child, so cells come out in index order
+            Object before = (older.bitmap & bit) == 0 ? null
+                    : older.children[Integer.bitCount(older.bitmap & (bit - 1))];
+            Object after = (newer.bitmap & bit) == 0 ? null
+                    : newer.children[Integer.bitCount(newer.bitmap & (bit - 1))];
+            if (shift > 0) {
+                diff((Node) before, (Node) after, shift - BITS, changed, removed);
+            } else if (after == null) {
+                removed.add((Cell) before);
+            } else if (before == null || !sameContent((Cell) before, (Cell) after)) {
+                changed.add((Cell) after);
+            }
+        }
+    }
+
+    /**
+     * Checks if two cells hold the same value and raw data.
+     *
+     * @param a a cell.
+     * @param b another cell.
+     * @return true if they hold the same.
+     */
+    private static boolean sameContent(Cell a, Cell b) {
+        return a == b || (a.getValue().equals(b.getValue()) && a.getRawdata().equals(b.getRawdata()));
+    }
+
+    /**
+     * A trie node with a bitmap of which of its 32 children exist.
+     */
+    private static final class Node {
+        private final int bitmap; // Bit i is set if child i exists
+        private final Object[] children; // The existing children in order, nodes or cells at the last level
+
+        /**
+         * Constructs a node.
+         *
+         * @param bitmap   the bitmap of existing children.
+         * @param children the existing children.
+         */
+        Node(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package org.example.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.example.model.formula.RangeAggregate;
+import org.example.model.formula.Value;
+
+/**
+ * Keeps a segment tree per column with the count, sum, minimum and maximum of the
+ * numbers in it, so that SUM, AVG, MIN and MAX over a range take O(log n) per column
+ * instead of reading every cell. Like {@link SparseGrid}, each tree is split into
+ * tiles of {@link SparseGrid#TILE_SIZE} rows that are only allocated when one of their
+ * cells is first written, under a tree of nodes allocated on the way down to them. A
+ * column uses memory in proportion to the tiles it has written, not to how far down
+ * they lie.
+ */
+public class RangeIndex {
+    private final int rows; // Largest number of rows
+    private final int cols; // Largest number of columns
+    private final Map<Integer, ColumnTree> columns = new HashMap<>(); // One tree per column, created on first write
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param rows the largest number of rows.
+     * @param cols the largest number of columns.
+     */
+    public RangeIndex(int rows, int cols) {
+        this.rows = rows; // Set the number of rows
+        this.cols = cols; // Set the number of columns
+    }
+
+    /**
+     * Records the new value of a cell.
+     *
+     * @param row   the row of the cell.
+     * @param col   the column of the cell.
+     * @param value the new value of the cell.
+     */
+    public void update(int row, int col, Value value) {
+        if (row < 0 || col < 0 || row >= this.rows || col >= this.cols) {
+            return; // Outside the indexed area
+        }
+        ColumnTree tree = this.columns.get(col);
+        if (tree == null) {
+            if (value.isEmpty()) {
+                return; // Nothing to record in an empty column
+            }
+            tree = new ColumnTree(this.rows);
+            this.columns.put(col, tree); // Create the tree on first write
+        }
+        if (value.isEmpty()) {
+            tree.set(row, 0, 0, false); // Empty cells are skipped by aggregates
+        } else if (value.isNumeric()) {
+            tree.set(row, 1, value.asNumber(), false); // Numeric cell
+        } else {
+            tree.set(row, 0, 0, true); // Text or error
+        }
+    }
+
+    /**
+     * Summarises a rectangular range.
+     *
+     * @param startRow the first row.
+     * @param startCol the first column.
+     * @param endRow   the last row.
+     * @param endCol   the last column.
+     * @return the summary, or null if the range reaches outside the indexed area.
+     */
+    public RangeAggregate query(int startRow, int startCol, int endRow, int endCol) {
+        if (startRow < 0 || startCol < 0 || endRow >= this.rows || endCol >= this.cols) {
+            return null; // Outside the indexed area
+        }
+        RangeAggregate result = RangeAggregate.EMPTY;
+        if (endCol - startCol + 1 > this.columns.size()) {
+            for (Map.Entry<Integer, ColumnTree> entry : this.columns.entrySet()) {
+                int col = entry.getKey();
+                if (col >= startCol && col <= endCol) {
+                    result = result.merge(entry.getValue().query(startRow, endRow)); // Fewer trees than columns in range
+                }
+            }
+            return result;
+        }
+        for (int col = startCol; col <= endCol; col++) {
+            ColumnTree tree = this.columns.get(col);
+            if (tree != null) {
+                result = result.merge(tree.query(startRow, endRow)); // Combine the columns
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A segment tree over the rows of one column, with a node for every part of the
+     * column holding a written tile and nothing for the rest.
+     */
+    private static final class ColumnTree {
+        private final int span; // Rows covered by the root, a power of two of at least one tile
+        private Node root; // The root node, or null until a cell is written
+
+        /**
+         * Constructs an empty tree.
+         *
+         * @param rows the largest number of rows.
+         */
+        ColumnTree(int rows) {
+            int span = SparseGrid.TILE_SIZE;
+            while (span < rows) {
+                span <<= 1; // Round up to a power of two
+            }
+            this.span = span;
+        }
+
+        /**
+         * Sets the cell at a row, allocating its tile and the nodes above it if the cell
+         * is not empty and they do not exist yet.
+         *
+         * @param row     the row of the cell.
+         * @param count   1 if the cell is numeric, otherwise 0.
+         * @param value   the number held by the cell.
+         * @param invalid whether the cell holds text or an error.
+         */
+        void set(int row, int count, double value, boolean invalid) {
+            this.root = set(this.root, 0, this.span, row, count, value, invalid);
+        }
+
+        /**
+         * Summarises the rows from start to end inclusive. Rows in tiles that were never
+         * written are empty.
+         *
+         * @param start the first row.
+         * @param end   the last row.
+         * @return the summary.
+         */
+        RangeAggregate query(int start, int end) {
+            return query(this.root, 0, this.span, start, end);
+        }
+
+        /**
+         * Sets a cell below a node.
+         *
+         * @param node    the node, or null if there is none yet.
+         * @param first   the first row the node covers.
+         * @param span    the number of rows the node covers.
+         * @param row     the row of the cell.
+         * @param count   1 if the cell is numeric, otherwise 0.
+         * @param value   the number held by the cell.
+         * @param invalid whether the cell holds text or an error.
+         * @return the node, or null if there is still none.
+         */
+        private static Node set(Node node, int first, int span, int row, int count, double value, boolean invalid) {
+            if (node == null) {
+                if (count == 0 && !invalid) {
+                    return null; // Clearing a cell of a tile that was never written
+                }
+                node = new Node(span == SparseGrid.TILE_SIZE ? new Tile() : null); // Allocate on first write
+            }
+            if (node.tile != null) {
+                node.tile.set(row - first, count, value, invalid);
+                node.summarise(node.tile); // The tile's root
+                return node;
+            }
+            int half = span >> 1;
+            if (row < first + half) {
+                node.left = set(node.left, first, half, row, count, value, invalid);
+            } else {
+                node.right = set(node.right, first + half, half, row, count, value, invalid);
+            }
+            node.combine(); // Recompute from the children
+            return node;
+        }
+
+        /**
+         * Summarises the rows from start to end that lie below a node.
+         *
+         * @param node  the node, or null if there is none.
+         * @param first the first row the node covers.
+         * @param span  the number of rows the node covers.
+         * @param start the first row.
+         * @param end   the last row.
+         * @return the summary.
+         */
+        private static RangeAggregate query(Node node, int first, int span, int start, int end) {
+            int last = first + span - 1;
+            if (node == null || end < first || start > last) {
+                return RangeAggregate.EMPTY; // Nothing written here, or outside the range
+            }
+            if (start <= first && last <= end) {
+                return new RangeAggregate(node.count, node.sum, node.min, node.max, node.invalid); // Fully inside
+            }
+            if (node.tile != null) {
+                return node.tile.query(Math.max(start, first) - first, Math.min(end, last) - first);
+            }
+            int half = span >> 1;
+            return query(node.left, first, half, start, end).merge(query(node.right, first + half, half, start, end));
+        }
+    }
+
+    /**
+     * A node of a column tree, summarising the rows below it. Nodes at the bottom hold a
+     * tile, the others hold up to two children.
+     */
+    private static final class Node {
+        private final Tile tile; // The tile below a bottom node, or null
+        private Node left; // The first half of the rows, or null if never written
+        private Node right; // The second half of the rows, or null if never written
+        private int count; // Numeric cells below the node
+        private boolean invalid; // Whether a text or error cell lies below the node
+        private double sum; // Sum below the node
+        private double min = Double.POSITIVE_INFINITY; // Minimum below the node
+        private double max = Double.NEGATIVE_INFINITY; // Maximum below the node
+
+        /**
+         * Constructs an empty node.
+         *
+         * @param tile the tile below the node, or null if it has children instead.
+         */
+        Node(Tile tile) {
+            this.tile = tile;
+        }
+
+        /**
+         * Copies the summary of a tile.
+         *
+         * @param tile the tile.
+         */
+        void summarise(Tile tile) {
+            this.count = tile.count[1];
+            this.invalid = tile.invalid[1];
+            this.sum = tile.sum[1];
+            this.min = tile.min[1];
+            this.max = tile.max[1];
+        }
+
+        /**
+         * Recomputes the summary from the children.
+         */
+        void combine() {
+            this.count = 0;
+            this.invalid = false;
+            this.sum = 0;
+            this.min = Double.POSITIVE_INFINITY;
+            this.max = Double.NEGATIVE_INFINITY;
+            add(this.left);
+            add(this.right);
+        }
+
+        /**
+         * Adds the summary of a child.
+         *
+         * @param child the child, or null if it was never written.
+         */
+        private void add(Node child) {
+            if (child == null) {
+                return; // Nothing below
+            }
+            this.count += child.count;
+            this.invalid |= child.invalid;
+            this.sum += child.sum;
+            this.min = Math.min(this.min, child.min);
+            this.max = Math.max(this.max, child.max);
+        }
+    }
+
+    /**
+     * A bottom-up segment tree over the rows of one tile of a column.
+     */
+    private static final class Tile {
+        private final int size = SparseGrid.TILE_SIZE; // Number of leaves, a power of two
+        private final int[] count = new int[2 * SparseGrid.TILE_SIZE]; // Numeric cells below each node
+        private final boolean[] invalid = new boolean[2 * SparseGrid.TILE_SIZE]; // Whether a text or error cell lies below each node
+        private final double[] sum = new double[2 * SparseGrid.TILE_SIZE]; // Sum below each node
+        private final double[] min = new double[2 * SparseGrid.TILE_SIZE]; // Minimum below each node
+        private final double[] max = new double[2 * SparseGrid.TILE_SIZE]; // Maximum below each node
+
+        /**
+         * Constructs an empty tile.
+         */
+        Tile() {
+            Arrays.fill(this.min, Double.POSITIVE_INFINITY); // No numbers yet
+            Arrays.fill(this.max, Double.NEGATIVE_INFINITY);
+        }
+
+        /**
+         * Recomputes a node from its two children.
+         *
+         * @param node the node.
+         */
+        private void combine(int node) {
+            int left = 2 * node;
+            int right = left + 1;
+            this.count[node] = this.count[left] + this.count[right];
+            this.invalid[node] = this.invalid[left] || this.invalid[right];
+            this.sum[node] = this.sum[left] + this.sum[right];
+            this.min[node] = Math.min(this.min[left], this.min[right]);
+            this.max[node] = Math.max(this.max[left], this.max[right]);
+        }
+
+        /**
+         * Sets one leaf and updates its ancestors.
+         *
+         * @param row     the row of the cell within the tile.
+         * @param count   1 if the cell is numeric, otherwise 0.
+         * @param value   the number held by the cell.
+         * @param invalid whether the cell holds text or an error.
+         */
+        void set(int row, int count, double value, boolean invalid) {
+            int node = row + this.size;
+            this.count[node] = count;
+            this.invalid[node] = invalid;
+            this.sum[node] = value;
+            this.min[node] = count == 0 ? Double.POSITIVE_INFINITY : value;
+            this.max[node] = count == 0 ? Double.NEGATIVE_INFINITY : value;
+            for (node >>= 1; node > 0; node >>= 1) {
+                combine(node); // Recompute the parent
+            }
+        }
+
+        /**
+         * Summarises the rows from start to end inclusive, both within the tile.
+         *
+         * @param start the first row.
+         * @param end   the last row.
+         * @return the summary.
+         */
+        RangeAggregate query(int start, int end) {
+            int count = 0;
+            boolean invalid = false;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int lo = start + this.size, hi = end + this.size + 1; lo < hi; lo >>= 1, hi >>= 1) {
+                if ((lo & 1) == 1) {
+                    count += this.count[lo]; // Left edge node is fully inside
+                    invalid |= this.invalid[lo];
+                    sum += this.sum[lo];
+                    min = Math.min(min, this.min[lo]);
+                    max = Math.max(max, this.max[lo]);
+                    lo++;
+                }
+                if ((hi & 1) == 1) {
+                    hi--; // Right edge node is fully inside
+                    count += this.count[hi];
+                    invalid |= this.invalid[hi];
+                    sum += this.sum[hi];
+                    min = Math.min(min, this.min[hi]);
+                    max = Math.max(max, this.max[hi]);
+                }
+            }
+            return new RangeAggregate(count, sum, min, max, invalid);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package org.example.model;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+
+/**
+ * Evaluates the formulas that still need the JavaScript engine. All contexts share one
+ * polyglot engine, so code compiled for a repeated source is reused, and at most a
+ * fixed number of contexts exist at any time. Closing the pool cancels scripts that are
+ * still running, closes every context it created and the engine, and makes later
+ * evaluations fail.
+ *
+ * <p>An evaluation may be given a time limit, which covers waiting for a free context
+ * as well as running the script. A watchdog interrupts a script that runs past its
+ * limit, so a script that never ends neither holds its caller nor keeps its context
+ * from other callers.</p>
+ */
+public final class ScriptContextPool {
+    private static final String LANGUAGE = "js"; // The script language
+    private static final int SOURCE_CACHE_SIZE = 256; // Number of sources kept for code caching
+    private static final long CLOSE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // How often a caller waiting for a context checks for close
+    private static final Duration INTERRUPT_WAIT = Duration.ofSeconds(1); // How long an interrupted script may take to stop
+    private static final long NO_LIMIT = Long.MAX_VALUE; // Time limit of an evaluation without one
+
+    private static ScriptContextPool shared; // The pool used by every spreadsheet
+
+    private final Engine engine; // The engine shared by all contexts
+    private final BlockingQueue<Context> idle; // Contexts that are free to use
+    private final Set<Context> contexts = ConcurrentHashMap.newKeySet(); // Every open context, free or borrowed
+    private final AtomicInteger created = new AtomicInteger(); // Number of contexts created so far
+    private final int capacity; // Maximum number of contexts
+    private final Map<String, Source> sources; // Recently evaluated sources, least recently used first
+    private final ScheduledThreadPoolExecutor watchdog; // Interrupts scripts that run past their time limit
+    private volatile boolean closed; // Whether the pool has been closed
+
+    /**
+     * Constructs a pool with the given number of contexts.
+     *
+     * @param capacity the maximum number of contexts.
+     */
+    public ScriptContextPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        System.setProperty("polyglot.engine.WarnInterpreterOnly", "false"); // Set system property to avoid warnings
+        this.engine = Engine.create(); // One engine for every context
+        this.capacity = capacity; // Set the capacity
+        this.idle = new ArrayBlockingQueue<>(capacity); // Free contexts
+        this.sources = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Source> eldest) {
+                return size() > SOURCE_CACHE_SIZE; // Drop the least recently used source
+            }
+        };
+        this.watchdog = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "script-watchdog");
+            thread.setDaemon(true); // Does not keep the JVM alive
+            return thread;
+        });
+        this.watchdog.setRemoveOnCancelPolicy(true); // Most evaluations finish in time
+    }
+
+    /**
+     * Gets the pool shared by every spreadsheet, creating it on first use with one
+     * context per processor. The pool is closed when the JVM shuts down.
+     *
+     * @return the shared pool.
+     */
+    public static synchronized ScriptContextPool getShared() {
+        if (shared == null) {
+            shared = new ScriptContextPool(Runtime.getRuntime().availableProcessors()); // Create the pool once
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::close)); // Release native resources on exit
+        }
+        return shared;
+    }
+
+    /**
+     * Evaluates a script and returns its result as text.
+     *
+     * @param script the script to evaluate.
+     * @return the result of the script.
+     * @throws InterruptedException  if interrupted while waiting for a free context.
+     * @throws IllegalStateException if the pool has been closed.
+     */
+    public String evaluate(String script) throws InterruptedException {
+        try {
+            return evaluate(script, NO_LIMIT);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(e); // Only thrown with a limit
+        }
+    }
+
+    /**
+     * Evaluates a script and returns its result as text, giving up once it has taken
+     * longer than a time limit, including any wait for a free context.
+     *
+     * @param script       the script to evaluate.
+     * @param timeoutNanos the time limit, in nanoseconds.
+     * @return the result of the script.
+     * @throws InterruptedException  if interrupted while waiting for a free context.
+     * @throws TimeoutException      if the time limit was reached.
+     * @throws IllegalStateException if the pool has been closed.
+     */
+    public String evaluate(String script, long timeoutNanos) throws InterruptedException, TimeoutException {
+        long start = System.nanoTime();
+        Source source = getSource(script); // Reuse the source so its compiled code is reused
+        Context context = borrow(start, timeoutNanos); // Get a free context
+        AtomicBoolean fired = new AtomicBoolean(); // Whether the watchdog interrupted the script
+        Future<Boolean> watch = null;
+        try {
+            if (timeoutNanos != NO_LIMIT) {
+                watch = this.watchdog.schedule(() -> interrupt(context, fired),
+                        timeoutNanos - (System.nanoTime() - start), TimeUnit.NANOSECONDS);
+            }
+            return context.eval(source).toString(); // Convert before the context is reused
+        } catch (PolyglotException e) {
+            if (fired.get()) {
+                throw new TimeoutException("Script ran longer than " + timeoutNanos + " ns");
+            }
+            throw e;
+        } finally {
+            boolean destroyed = watch != null && finish(watch); // The context must not be interrupted once reused
+            release(context, destroyed); // Hand the context back
+        }
+    }
+
+    /**
+     * Closes every context and the shared engine, cancelling the scripts that are still
+     * running. Their callers get an exception instead of a result.
+     */
+    public synchronized void close() {
+        if (this.closed) {
+            return; // Already closed
+        }
+        this.closed = true;
+        for (Context context : this.contexts) {
+            context.close(true); // Cancel the script if it is running
+        }
+        this.contexts.clear();
+        this.idle.clear();
+        this.watchdog.shutdownNow();
+        this.engine.close(true); // Nothing can be executing any more
+    }
+
+    /**
+     * Gets the cached source for a script.
+     *
+     * @param script the script.
+     * @return the source.
+     */
+    private Source getSource(String script) {
+        synchronized (this.sources) {
+            return this.sources.computeIfAbsent(script,
+                    s -> Source.newBuilder(LANGUAGE, s, "formula").cached(true).buildLiteral()); // Build once
+        }
+    }
+
+    /**
+     * Interrupts the script running in a context, closing the context if the script does
+     * not stop.
+     *
+     * @param context the context.
+     * @param fired   set to record that the script was interrupted.
+     * @return true if the context had to be closed.
+     */
+    private static boolean interrupt(Context context, AtomicBoolean fired) {
+        fired.set(true);
+        try {
+            context.interrupt(INTERRUPT_WAIT); // The context stays usable
+            return false;
+        } catch (TimeoutException e) {
+            context.close(true); // Cancel the script the hard way
+            return true;
+        } catch (IllegalStateException e) {
+            return false; // Closed with the pool
+        }
+    }
+
+    /**
+     * Stops the watchdog of an evaluation that has ended, waiting for it if it is
+     * already interrupting the script.
+     *
+     * @param watch the watchdog task.
+     * @return true if the watchdog had to close the context.
+     */
+    private static boolean finish(Future<Boolean> watch) {
+        if (watch.cancel(false)) {
+            return false; // Ended in time
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return watch.get();
+                } catch (InterruptedException e) {
+                    interrupted = true; // Keep waiting, the context is still being interrupted
+                } catch (ExecutionException | CancellationException e) {
+                    return false;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Takes a free context, creating one if the pool is not yet full and waiting otherwise.
+     *
+     * @param start        when the evaluation started, from {@link System#nanoTime()}.
+     * @param timeoutNanos the time limit of the evaluation.
+     * @return the context.
+     * @throws InterruptedException  if interrupted while waiting.
+     * @throws TimeoutException      if no context became free within the time limit.
+     * @throws IllegalStateException if the pool has been closed.
+     */
+    private Context borrow(long start, long timeoutNanos) throws InterruptedException, TimeoutException {
+        checkOpen();
+        Context context = this.idle.poll(); // Use a free context if there is one
+        if (context != null) {
+            return context;
+        }
+        while (true) {
+            int count = this.created.get();
+            if (count >= this.capacity) {
+                long remaining;
+                while ((remaining = timeoutNanos - (System.nanoTime() - start)) > 0) {
+                    context = this.idle.poll(Math.min(remaining, CLOSE_CHECK_NANOS), TimeUnit.NANOSECONDS);
+                    if (context != null) {
+                        return context; // A context that was returned
+                    }
+                    checkOpen(); // Closed contexts are never returned
+                }
+                throw new TimeoutException("No script context became free in time");
+            }
+            if (this.created.compareAndSet(count, count + 1)) {
+                return create();
+            }
+        }
+    }
+
+    /**
+     * Creates a context on the shared engine and keeps track of it.
+     *
+     * @return the context.
+     * @throws IllegalStateException if the pool has been closed.
+     */
+    private synchronized Context create() {
+        checkOpen(); // The engine may already be closed
+        Context context = Context.newBuilder(LANGUAGE).engine(this.engine).build();
+        this.contexts.add(context); // So that close can reach it while it is borrowed
+        return context;
+    }
+
+    /**
+     * Checks that the pool has not been closed.
+     *
+     * @throws IllegalStateException if it has.
+     */
+    private void checkOpen() {
+        if (this.closed) {
+            throw new IllegalStateException("The script context pool is closed");
+        }
+    }
+
+    /**
+     * Returns a context to the pool, or closes it if the pool has been closed. A context
+     * the watchdog had to close is dropped, so that a new one can take its place.
+     *
+     * @param context   the context.
+     * @param destroyed whether the context has been closed.
+     */
+    private synchronized void release(Context context, boolean destroyed) {
+        if (destroyed) {
+            this.contexts.remove(context);
+            this.created.decrementAndGet(); // Make room for a new context
+            return;
+        }
+        if (this.closed || !this.idle.offer(context)) {
+            this.contexts.remove(context);
+            context.close(true); // Nobody will use it again
+        }
+    }
+}
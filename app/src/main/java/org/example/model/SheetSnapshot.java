@@ -0,0 +1,98 @@
+package org.example.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable version of a spreadsheet, as kept in its list of published or
+ * subscribed versions. The cells are held in a {@link PersistentGrid}, so a version
+ * shares every unchanged part with the version before it.
+ */
+public final class SheetSnapshot implements IReadOnlySpreadSheet {
+    private final String name; // The name of the spreadsheet
+    private final int idVersion; // The version ID of the spreadsheet when the snapshot was taken
+    private final int rows; // Number of rows in use
+    private final int cols; // Number of columns in use
+    private final PersistentGrid cells; // The cells of the snapshot
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param name      the name of the spreadsheet.
+     * @param idVersion the version ID of the spreadsheet.
+     * @param rows      the number of rows in use.
+     * @param cols      the number of columns in use.
+     * @param cells     the cells.
+     */
+    public SheetSnapshot(String name, int idVersion, int rows, int cols, PersistentGrid cells) {
+        this.name = name;
+        this.idVersion = idVersion;
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = cells;
+    }
+
+    /**
+     * Returns the cells of the snapshot, for building the next snapshot from.
+     *
+     * @return the persistent grid of cells.
+     */
+    public PersistentGrid getGrid() {
+        return this.cells;
+    }
+
+    @Override
+    public int getRows() {
+        return this.rows;
+    }
+
+    @Override
+    public int getCols() {
+        return this.cols;
+    }
+
+    @Override
+    public Cell[][] getCellsObject() {
+        Cell[][] retObject = new Cell[this.rows][this.cols]; // Initialize a 2D array for the cells
+        for (Cell[] row : retObject) {
+            Arrays.fill(row, Cell.EMPTY); // Cells that were never written are empty
+        }
+        for (Cell cell : this.cells.getCells()) {
+            retObject[cell.getRow()][cell.getCol()] = cell; // Set the cell in the 2D array
+        }
+        return retObject;
+    }
+
+    @Override
+    public String[][] getCellStringsObject() {
+        String[][] retObject = new String[this.rows][this.cols]; // Initialize a 2D array for the cell values
+        for (String[] row : retObject) {
+            Arrays.fill(row, ""); // Cells that were never written are empty
+        }
+        for (Cell cell : this.cells.getCells()) {
+            retObject[cell.getRow()][cell.getCol()] = cell.getValue(); // Set the cell value in the 2D array
+        }
+        return retObject;
+    }
+
+    @Override
+    public List<Cell> getPopulatedCells() {
+        return this.cells.getCells(); // Already in row major order
+    }
+
+    @Override
+    public int getId_version() {
+        return this.idVersion;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public String getCellRawdata(int row, int col) {
+        Cell cell = this.cells.get(row, col);
+        return cell == null ? "" : cell.getRawdata(); // Missing cells are empty
+    }
+}
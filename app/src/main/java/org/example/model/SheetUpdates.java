@@ -0,0 +1,41 @@
+package org.example.model;
+
+/**
+ * The changes a reader of a sheet's published or subscribed versions has not seen yet,
+ * as read from the sheet's version log in one step.
+ */
+public final class SheetUpdates {
+    private final int version; // Number of versions the reader has seen after applying the changes
+    private final String payload; // One line per changed cell
+
+    /**
+     * Constructs the updates.
+     *
+     * @param version the number of versions the changes bring the reader up to.
+     * @param payload the changes, one "$A1 value" line per written cell and one "$A1"
+     *                line per cleared cell, in the order they were made.
+     */
+    public SheetUpdates(int version, String payload) {
+        this.version = version;
+        this.payload = payload;
+    }
+
+    /**
+     * Gets the number of versions the changes bring the reader up to, which is the
+     * version to ask for next time.
+     *
+     * @return the number of versions.
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Gets the changes.
+     *
+     * @return one line per written or cleared cell.
+     */
+    public String getPayload() {
+        return this.payload;
+    }
+}
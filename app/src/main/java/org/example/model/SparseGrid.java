@@ -0,0 +1,328 @@
+package org.example.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores the cells of a spreadsheet in square tiles that are only allocated when one
+ * of their cells is first written. Cells that were never written are read as
+ * {@link Cell#EMPTY}, so memory and construction time grow with the number of
+ * populated cells rather than with the size of the sheet. The grid grows as cells are
+ * written, up to {@link #MAX_ROWS} by {@link #MAX_COLS}.
+ */
+public class SparseGrid {
+    public static final int MAX_ROWS = 1 << 20; // Largest number of rows, 1,048,576
+    public static final int MAX_COLS = 1 << 14; // Largest number of columns, 16,384 (A to XFD)
+    public static final int TILE_SIZE = 64; // Rows and columns per tile
+    private static final int TILE_SHIFT = 6; // log2 of the tile size
+    private static final int TILE_MASK = TILE_SIZE - 1; // Position of a cell inside its tile
+
+    private int rows; // Number of rows in use
+    private int cols; // Number of columns in use
+    private final Map<Long, Cell[]> tiles = new HashMap<>(); // Allocated tiles by packed tile row and column
+    private int size; // Number of populated cells
+    private Set<Long> writeLog; // Receives the packed key of every cell handed out for writing, if set
+
+    /**
+     * Constructs an empty grid. No tiles are allocated until a cell is written.
+     *
+     * @param rows the initial number of rows.
+     * @param cols the initial number of columns.
+     */
+    public SparseGrid(int rows, int cols) {
+        if (rows < 0 || cols < 0 || rows > MAX_ROWS || cols > MAX_COLS) {
+            throw new IllegalArgumentException("A grid must be between 0x0 and " + MAX_ROWS + "x" + MAX_COLS);
+        }
+        this.rows = rows; // Set the number of rows
+        this.cols = cols; // Set the number of columns
+    }
+
+    /**
+     * Returns the number of rows in use, which grows when a cell below them is written.
+     *
+     * @return the number of rows.
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Returns the number of columns in use, which grows when a cell right of them is written.
+     *
+     * @return the number of columns.
+     */
+    public int getCols() {
+        return this.cols;
+    }
+
+    /**
+     * Sets the set that receives the packed key, see {@link DependencyGraph#key(int, int)},
+     * of every cell that is written from now on.
+     *
+     * @param writeLog the set to add keys to, or null to stop recording.
+     */
+    public void setWriteLog(Set<Long> writeLog) {
+        this.writeLog = writeLog;
+    }
+
+    /**
+     * Returns the number of populated cells.
+     *
+     * @return the number of cells that have been written.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the cell at the given position.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the cell, or {@link Cell#EMPTY} if it has never been written.
+     */
+    public Cell get(int row, int col) {
+        checkBounds(row, col);
+        Cell[] tile = this.tiles.get(tileKey(row, col)); // Find the tile holding the cell
+        if (tile == null) {
+            return Cell.EMPTY; // Nothing in this tile has been written
+        }
+        Cell cell = tile[slot(row, col)];
+        return cell == null ? Cell.EMPTY : cell;
+    }
+
+    /**
+     * Returns the cell at the given position so that it can be written, allocating
+     * its tile and the cell itself if necessary.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the cell, never {@link Cell#EMPTY}.
+     */
+    public Cell getForWrite(int row, int col) {
+        checkBounds(row, col);
+        grow(row, col);
+        logWrite(row, col);
+        Cell[] tile = this.tiles.computeIfAbsent(tileKey(row, col), k -> new Cell[TILE_SIZE * TILE_SIZE]); // Allocate on first write
+        int slot = slot(row, col);
+        Cell cell = tile[slot];
+        if (cell == null) {
+            cell = new Cell(); // Create the cell on first write
+            cell.setRow(row);
+            cell.setCol(col);
+            tile[slot] = cell;
+            this.size++;
+        }
+        return cell;
+    }
+
+    /**
+     * Places an existing cell at the given position. Placing null or
+     * {@link Cell#EMPTY} removes the cell.
+     *
+     * @param row  the row of the cell.
+     * @param col  the column of the cell.
+     * @param cell the cell to place.
+     */
+    public void put(int row, int col, Cell cell) {
+        checkBounds(row, col);
+        long key = tileKey(row, col);
+        int slot = slot(row, col);
+        logWrite(row, col);
+        if (cell == null || cell == Cell.EMPTY) {
+            Cell[] tile = this.tiles.get(key);
+            if (tile != null && tile[slot] != null) {
+                tile[slot] = null; // Remove the cell
+                this.size--;
+            }
+            return;
+        }
+        grow(row, col);
+        Cell[] tile = this.tiles.computeIfAbsent(key, k -> new Cell[TILE_SIZE * TILE_SIZE]); // Allocate on first write
+        if (tile[slot] == null) {
+            this.size++;
+        }
+        cell.setRow(row); // Keep the position stored in the cell in step with the grid
+        cell.setCol(col);
+        tile[slot] = cell;
+    }
+
+    /**
+     * Returns every populated cell in row major order.
+     *
+     * @return the populated cells.
+     */
+    public List<Cell> getPopulatedCells() {
+        List<Cell> cells = new ArrayList<>(this.size);
+        for (Cell[] tile : this.tiles.values()) {
+            for (Cell cell : tile) {
+                if (cell != null) {
+                    cells.add(cell); // Collect the cells of each tile
+                }
+            }
+        }
+        cells.sort(Comparator.comparingInt(Cell::getRow).thenComparingInt(Cell::getCol)); // Tiles are unordered
+        return cells;
+    }
+
+    /**
+     * Returns the cells that have been written in one column, in row order. Only the
+     * tiles of that column are visited.
+     *
+     * @param col the column.
+     * @return the populated cells of the column.
+     */
+    public List<Cell> getColumnCells(int col) {
+        List<Cell> cells = new ArrayList<>();
+        for (Map.Entry<Long, Cell[]> entry : this.tiles.entrySet()) {
+            if (DependencyGraph.col(entry.getKey()) != col >>> TILE_SHIFT) {
+                continue; // A tile of another column
+            }
+            Cell[] tile = entry.getValue();
+            for (int i = col & TILE_MASK; i < tile.length; i += TILE_SIZE) {
+                if (tile[i] != null) {
+                    cells.add(tile[i]); // One cell per row of the tile
+                }
+            }
+        }
+        cells.sort(Comparator.comparingInt(Cell::getRow)); // Tiles are unordered
+        return cells;
+    }
+
+    /**
+     * Returns a live view of the grid as a list of rows. Reading a cell that has never
+     * been written gives {@link Cell#EMPTY}; setting a cell places it in the grid.
+     *
+     * @return the rows of the grid.
+     */
+    public List<List<Cell>> asRows() {
+        return new Rows();
+    }
+
+    /**
+     * Packs the position of the tile holding a cell.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the packed tile key.
+     */
+    private static long tileKey(int row, int col) {
+        return DependencyGraph.key(row >>> TILE_SHIFT, col >>> TILE_SHIFT);
+    }
+
+    /**
+     * Gets the position of a cell inside its tile.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the index in the tile array.
+     */
+    private static int slot(int row, int col) {
+        return ((row & TILE_MASK) << TILE_SHIFT) | (col & TILE_MASK);
+    }
+
+    /**
+     * Records that a cell is being written, if a write log is set.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    private void logWrite(int row, int col) {
+        if (this.writeLog != null) {
+            this.writeLog.add(DependencyGraph.key(row, col)); // Remember the cell
+        }
+    }
+
+    /**
+     * Extends the rows and columns in use to include a cell.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    private void grow(int row, int col) {
+        this.rows = Math.max(this.rows, row + 1); // Grow downwards
+        this.cols = Math.max(this.cols, col + 1); // Grow to the right
+    }
+
+    /**
+     * Rejects positions outside the largest possible grid. Positions beyond the rows
+     * and columns in use are allowed and read as empty.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    private static void checkBounds(int row, int col) {
+        if (row < 0 || col < 0 || row >= MAX_ROWS || col >= MAX_COLS) {
+            throw new IndexOutOfBoundsException("Cell " + row + ", " + col + " is outside the grid");
+        }
+    }
+
+    /**
+     * The rows of the grid as a list.
+     */
+    public final class Rows extends AbstractList<List<Cell>> {
+
+        @Override
+        public List<Cell> get(int row) {
+            if (row < 0 || row >= rows) {
+                throw new IndexOutOfBoundsException("Row " + row + " is outside the grid");
+            }
+            return new Row(row);
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+
+        /**
+         * Returns the grid this view reads from.
+         *
+         * @return the grid.
+         */
+        public SparseGrid getGrid() {
+            return SparseGrid.this;
+        }
+    }
+
+    /**
+     * One row of the grid as a list.
+     */
+    private final class Row extends AbstractList<Cell> {
+        private final int row; // The row this view reads from
+
+        /**
+         * Constructs a view of a row.
+         *
+         * @param row the row.
+         */
+        Row(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Cell get(int col) {
+            if (col < 0 || col >= cols) {
+                throw new IndexOutOfBoundsException("Column " + col + " is outside the grid");
+            }
+            return SparseGrid.this.get(this.row, col);
+        }
+
+        @Override
+        public Cell set(int col, Cell cell) {
+            Cell previous = SparseGrid.this.get(this.row, col);
+            put(this.row, col, cell); // Place the cell in the grid
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return cols;
+        }
+    }
+}
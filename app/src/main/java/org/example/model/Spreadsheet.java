@@ -1,17 +1,33 @@
 package org.example.model;
 
 import java.util.ArrayList;
-
-import java.util.List;
-
 import java.util.Arrays;
-
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import org.graalvm.polyglot.Context;
-
-import ch.qos.logback.core.net.SyslogOutputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.StampedLock;
+
+
+import org.example.model.formula.CellReference;
+import org.example.model.formula.ColumnLookup;
+import org.example.model.formula.EvaluationTrace;
+import org.example.model.formula.ExpressionInterner;
+import org.example.model.formula.Formula;
+import org.example.model.formula.IEvaluationContext;
+import org.example.model.formula.RangeAggregate;
+import org.example.model.formula.RangeReference;
+import org.example.model.formula.ReferenceScanner;
+import org.example.model.formula.SharedExpression;
+import org.example.model.formula.Value;
 
 /**
  * Represents a spreadsheet with various functionalities such as evaluating
@@ -21,20 +37,54 @@ import ch.qos.logback.core.net.SyslogOutputStream;
 
 public class Spreadsheet implements ISpreadsheet {
 
-    private List<List<Cell>> grid; // The grid representing the spreadsheet
+    private static final int DEFAULT_SIZE = 100; // Rows and columns of a new spreadsheet, which grows as cells are written
+
+    private SparseGrid grid; // The cells of the spreadsheet, allocated as they are written
 
     private String name; // The name of the spreadsheet
     private int id_version; // Version ID for tracking updates
     // used to retrieve version for GetUpdatesForSubscription
-    private List<ISpreadsheet> publishVersions;
+    private final VersionLog publishVersions;
 
     // used to retrieve version for GetUpdatesPublished
-    private List<ISpreadsheet> subscribeVersions;
+    private final VersionLog subscribeVersions;
+
+    // guards the versions and updates from the server, which arrive on many threads
+    private final StampedLock versionLock = new StampedLock();
 
-    private String[] functions = new String[] { "IF", "SUM", "MIN", "MAX", "AVG", "CONCAT", "DEBUG", "STDDEV", "SORT",
-            "COPY" };
     private String[] arith = new String[] { "+", "-", "*", "/" };
-    private String[] operations = new String[] { "<>", "<", ">", "=", "&", "|", ":" };
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256; // Smallest level recalculated in parallel by default
+    private static final int PARALLEL_LEAF_SIZE = 32; // Formulas evaluated by one task without splitting further
+    public static final int DEFAULT_MAX_EVALUATIONS = 10_000_000; // Formulas evaluated per recalculation by default
+    public static final long DEFAULT_MAX_RECALCULATION_NANOS = TimeUnit.SECONDS.toNanos(5); // Time per recalculation by default
+    public static final int DEFAULT_SNAPSHOT_VERSIONS = 64; // Versions between snapshots of the version logs by default
+    public static final int DEFAULT_SNAPSHOT_CELLS = 10_000; // Changed cells between snapshots of the version logs by default
+    private static final int FORMULA_CACHE_SIZE = 256; // Number of parsed formulas kept for evaluateFormula
+
+    // parsed formulas passed to evaluateFormula, least recently used first
+    private final Map<String, Formula> formulaCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Formula> eldest) {
+            return size() > FORMULA_CACHE_SIZE; // Drop the least recently used formula
+        }
+    };
+    private final IEvaluationContext evaluationContext = new SheetEvaluationContext(); // Cell access for formulas
+    private final DependencyGraph dependencies = new DependencyGraph(); // Which formulas read which cells
+    private final Set<Long> changedCells = new LinkedHashSet<>(); // Cells changed since takeChangedCells was last called
+    private final Set<Long> copiedCells = new LinkedHashSet<>(); // Cells written by COPY during an evaluation
+    private RangeIndex rangeIndex; // Per column sums, minimums and maximums for range aggregates
+    private final Map<Integer, ColumnLookup> lookups = new ConcurrentHashMap<>(); // Lookup indexes, built on first use per column
+    private final ExpressionInterner interner = new ExpressionInterner(); // Shares equal function calls between formulas
+    private final SubexpressionCache sharedResults = new SubexpressionCache(); // Results of shared function calls
+    private PersistentGrid lastSnapshot; // The cells as of the last snapshot, or null before the first
+    private final Set<Long> writtenSinceSnapshot = new HashSet<>(); // Cells written since the last snapshot
+    private EvaluationTrace trace; // Records every evaluation of this sheet, or null when tracing is off
+    private ForkJoinPool recalculationPool; // Pool for recalculating large levels at once, or null to recalculate in order
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD; // Smallest level recalculated on the pool
+    private int maxEvaluations = DEFAULT_MAX_EVALUATIONS; // Formulas one recalculation may evaluate
+    private long maxRecalculationNanos = DEFAULT_MAX_RECALCULATION_NANOS; // Time one recalculation may take
+    private long recalculationStart; // When the current recalculation or evaluation started, from System.nanoTime()
 
     /**
      * Constructs a new Spreadsheet with the specified name.
@@ -42,19 +92,11 @@ public class Spreadsheet implements ISpreadsheet {
      * @param name the name of the spreadsheet.
      */
     public Spreadsheet(String name) {
-        grid = new ArrayList<>(); // Initialize the grid
-        for (int i = 0; i < 100; i++) { // Loop to create 100 rows
-            ArrayList<Cell> row = new ArrayList<>(); // Initialize a new row
-            for (int j = 0; j < 100; j++) { // Loop to create 100 columns in each row
-                row.add(new Cell("")); // Add a new empty cell to the row
-            }
-            grid.add(row); // Add the row to the grid
-        }
-
+        this.grid = new SparseGrid(DEFAULT_SIZE, DEFAULT_SIZE); // No cell is allocated until it is written
         this.name = name; // Set the name of the spreadsheet
-        this.publishVersions = new ArrayList<>(); // Initialize the publish versions list
-        this.subscribeVersions = new ArrayList<>(); // Initialize the subscribe versions list
-
+        this.publishVersions = new VersionLog(name); // Initialize the publish versions log
+        this.subscribeVersions = new VersionLog(name); // Initialize the subscribe versions log
+        this.rangeIndex = new RangeIndex(SparseGrid.MAX_ROWS, SparseGrid.MAX_COLS); // Every cell starts empty
     }
 
     /**
@@ -65,15 +107,25 @@ public class Spreadsheet implements ISpreadsheet {
      */
     public Spreadsheet(List<List<Cell>> grid, String name) {
         this(name); // Call the other constructor to initialize the object
-        for (int i = 0; i < 100; i++) { // Loop to process the grid
+        if (grid instanceof SparseGrid.Rows rows) {
+            for (Cell cell : rows.getGrid().getPopulatedCells()) { // Only visit the cells that were written
+                if (!cell.getValue().isEmpty()) {
+                    this.grid.put(cell.getRow(), cell.getCol(), cell); // Set the cell in the grid
+                }
+            }
+            rebuildIndexes(); // Index the copied cells
+            return;
+        }
+        for (int i = 0; i < grid.size(); i++) { // Loop to process the grid
             List<Cell> row = grid.get(i); // Get a row from the input grid
-            for (int j = 0; j < 100; j++) { // Loop to process each cell in the row
+            for (int j = 0; j < row.size(); j++) { // Loop to process each cell in the row
                 Cell cell = row.get(j); // Get a cell from the input row
-                if (!cell.getValue().isEmpty()) { // Check if the cell value is not empty
-                    this.grid.get(i).set(j, cell); // Set the cell in the grid
+                if (cell != null && !cell.getValue().isEmpty()) { // Only keep cells that hold a value
+                    this.grid.put(i, j, cell); // Set the cell in the grid
                 }
             }
         }
+        rebuildIndexes(); // Index the copied cells
     }
 
     /**
@@ -87,17 +139,10 @@ public class Spreadsheet implements ISpreadsheet {
      */
     public static String convertSheetToPayload(IReadOnlySpreadSheet sheet) {
         StringBuilder payload = new StringBuilder(); // Initialize a StringBuilder for the payload
-        Cell[][] values = sheet.getCellsObject(); // Get the cell values as a 2D array
-        for (int i = 0; i < sheet.getRows(); i++) { // Loop through the rows
-            for (int j = 0; j < sheet.getCols(); j++) { // Loop through the columns
-                if (values[i][j] != null && !values[i][j].getRawdata().isEmpty()) { // Check if the cell is not null and
-                                                                                    // has raw data
-                    String cellValue = values[i][j].isFormula() ? values[i][j].getFormula() : values[i][j].getRawdata();
-                    payload.append(String.format("$%s%s %s\\n", getColumnName(j + 1), i + 1, cellValue)); // Append the
-                                                                                                          // cell data
-                                                                                                          // to the
-                                                                                                          // payload
-                }
+        for (Cell cell : sheet.getPopulatedCells()) { // Only visit the cells that have been written
+            if (!cell.getRawdata().isEmpty()) { // Check if the cell has raw data
+                String cellValue = cell.isFormula() ? cell.getFormula() : cell.getRawdata();
+                payload.append(String.format("$%s%s %s\\n", getColumnName(cell.getCol() + 1), cell.getRow() + 1, cellValue)); // Append the cell data
             }
         }
         return payload.toString(); // Return the payload as a string
@@ -122,27 +167,27 @@ public class Spreadsheet implements ISpreadsheet {
 
     @Override
     public int getRows() {
-        return this.grid.size(); // Return the number of rows in the grid
+        return this.grid.getRows(); // Return the number of rows in the grid
     }
 
     @Override
     public int getCols() {
-        return this.grid.get(0).size(); // Return the number of columns in the grid
+        return this.grid.getCols(); // Return the number of columns in the grid
     }
 
     @Override
     public List<List<Cell>> getCells() {
-        return this.grid; // Return the grid
+        return this.grid.asRows(); // Return a view of the grid
     }
 
     @Override
     public Cell[][] getCellsObject() {
         Cell[][] retObject = new Cell[this.getRows()][this.getCols()]; // Initialize a 2D array for the cells
-        for (int r = 0; r < this.getRows(); r++) { // Loop through the rows
-            List<Cell> row = this.grid.get(r); // Get a row from the grid
-            for (int c = 0; c < this.getCols(); c++) { // Loop through the columns
-                retObject[r][c] = row.get(c); // Set the cell in the 2D array
-            }
+        for (Cell[] row : retObject) {
+            Arrays.fill(row, Cell.EMPTY); // Cells that were never written are empty
+        }
+        for (Cell cell : this.grid.getPopulatedCells()) {
+            retObject[cell.getRow()][cell.getCol()] = cell; // Set the cell in the 2D array
         }
         return retObject; // Return the 2D array
     }
@@ -150,870 +195,575 @@ public class Spreadsheet implements ISpreadsheet {
     @Override
     public String[][] getCellStringsObject() {
         String[][] retObject = new String[this.getRows()][this.getCols()]; // Initialize a 2D array for the cell values
-        for (int r = 0; r < this.getRows(); r++) { // Loop through the rows
-            List<Cell> row = this.grid.get(r); // Get a row from the grid
-            for (int c = 0; c < this.getCols(); c++) { // Loop through the columns
-                retObject[r][c] = row.get(c).getValue(); // Set the cell value in the 2D array
-            }
+        for (String[] row : retObject) {
+            Arrays.fill(row, ""); // Cells that were never written are empty
+        }
+        for (Cell cell : this.grid.getPopulatedCells()) {
+            retObject[cell.getRow()][cell.getCol()] = cell.getValue(); // Set the cell value in the 2D array
         }
         return retObject;
     }
 
     @Override
     public int getRow(String cell) {
-        try {
-            return Integer.parseInt(cell.replaceAll("[^0-9]", "")) - 1; // Extract the row number from the cell
-                                                                        // reference
-        } catch (NumberFormatException e) {
-            return -1; // Return -1 if there is a number format exception
-        }
+        return ReferenceScanner.row(ReferenceScanner.parse(cell)); // -1 if the reference has no row
     }
 
     @Override
     public int getColumn(String cell) {
-        String col = cell.replaceAll("[^A-Z]", "").toUpperCase(); // Extract the column part from the cell reference
-        int column = 0; // Initialize the column number
-        for (int i = 0; i < col.length(); i++) { // Loop through the characters in the column part
-            column = column * 26 + (col.charAt(i) - 'A' + 1); // Convert the character to a number
-        }
-        return column - 1; // Return the column number (0-based index)
-    }
-
-    @Override
-    public void addPublished(ISpreadsheet sheet) {
-        this.publishVersions.add(sheet); // Add the sheet to the publish versions list
-        this.id_version++; // Increment the version ID
+        return ReferenceScanner.col(ReferenceScanner.parse(cell)); // -1 if the reference has no column
     }
 
     @Override
-    public void addSubscribed(ISpreadsheet sheet) {
-        this.subscribeVersions.add(sheet); // Add the sheet to the subscribe versions list
+    public void addPublished(IReadOnlySpreadSheet sheet) {
+        long stamp = this.versionLock.writeLock();
+        try {
+            this.publishVersions.add(sheet); // Add the sheet to the publish versions list
+            this.id_version++; // Increment the version ID
+        } finally {
+            this.versionLock.unlockWrite(stamp);
+        }
     }
 
     @Override
-    public List<ISpreadsheet> getPublishedVersions() {
-        return this.publishVersions; // Return the publish versions list
+    public void addSubscribed(IReadOnlySpreadSheet sheet) {
+        long stamp = this.versionLock.writeLock();
+        try {
+            this.subscribeVersions.add(sheet); // Add the sheet to the subscribe versions list
+        } finally {
+            this.versionLock.unlockWrite(stamp);
+        }
     }
 
     @Override
-    public List<ISpreadsheet> getSubscribedVersions() {
-        return this.subscribeVersions; // Return the subscribe versions list
+    public List<IReadOnlySpreadSheet> getPublishedVersions() {
+        return readVersions(this.publishVersions); // The versions published so far
     }
 
     @Override
-    public void setGrid(List<List<Cell>> updatedGrid) {
-        this.grid = updatedGrid; // Set the grid to the updated grid
+    public SheetUpdates getPublishedUpdates(int from) {
+        return readVersions(this.publishVersions).updatesSince(from); // Only the changes from the version on
     }
 
     @Override
-    public List<List<Cell>> getGrid() {
-        return this.grid; // Return the grid
+    public List<IReadOnlySpreadSheet> getSubscribedVersions() {
+        return readVersions(this.subscribeVersions); // The versions subscribed so far
     }
 
     @Override
-    public String getName() {
-        return this.name; // Return the name of the spreadsheet
+    public SheetUpdates getSubscribedUpdates(int from) {
+        return readVersions(this.subscribeVersions).updatesSince(from); // Only the changes from the version on
     }
 
     @Override
-    public int getId_version() {
-        return this.id_version; // Return the version ID
+    public int publish(List<List<Cell>> updatedGrid) {
+        long stamp = this.versionLock.writeLock();
+        try {
+            setGrid(updatedGrid); // Take the new cells
+            int count = this.publishVersions.add(snapshot()); // And keep them as the next version
+            this.id_version++; // Increment the version ID
+            return count;
+        } finally {
+            this.versionLock.unlockWrite(stamp);
+        }
     }
 
     @Override
-    public void setCellValue(int row, int col, String value) {
-        this.grid.get(row).get(col).setValue(evaluateFormula(value)); // Set the cell value after evaluating the formula
+    public int subscribe(List<List<Cell>> updatedGrid) {
+        long stamp = this.versionLock.writeLock();
+        try {
+            setGrid(updatedGrid); // Take the new cells
+            return this.subscribeVersions.add(snapshot()); // And keep them as the next version
+        } finally {
+            this.versionLock.unlockWrite(stamp);
+        }
     }
 
     @Override
-    public String getCellValue(int row, int col) {
-        return this.grid.get(row).get(col).getValue(); // Return the cell value
+    public void setSnapshotInterval(int versions, int cells) {
+        long stamp = this.versionLock.writeLock();
+        try {
+            this.publishVersions.setSnapshotInterval(versions, cells); // Checks the limits
+            this.subscribeVersions.setSnapshotInterval(versions, cells);
+        } finally {
+            this.versionLock.unlockWrite(stamp);
+        }
     }
 
-    @Override
-    public void setCellRawdata(int row, int col, String val) {
-        this.grid.get(row).get(col).setRawData(val); // Set the raw data of the cell
+    /**
+     * Reads a log of versions without blocking. An optimistic read is tried first, and
+     * only if a version was added meanwhile is the read repeated under a read lock.
+     *
+     * @param versions the published or subscribed versions.
+     * @return the versions added so far, unaffected by later appends.
+     */
+    private VersionLog.View readVersions(VersionLog versions) {
+        long stamp = this.versionLock.tryOptimisticRead();
+        VersionLog.View view = versions.view();
+        if (this.versionLock.validate(stamp)) {
+            return view; // No version was added while reading
+        }
+        stamp = this.versionLock.readLock();
+        try {
+            return versions.view();
+        } finally {
+            this.versionLock.unlockRead(stamp);
+        }
     }
 
     @Override
-    public String getCellRawdata(int row, int col) {
-        return this.grid.get(row).get(col).getRawdata(); // Return the raw data of the cell
-
+    public void setGrid(List<List<Cell>> updatedGrid) {
+        SparseGrid oldGrid = this.grid;
+        if (updatedGrid instanceof SparseGrid.Rows rows) {
+            this.grid = rows.getGrid(); // Take over a sparse grid without visiting its empty cells
+        } else {
+            int rows = updatedGrid.size();
+            this.grid = new SparseGrid(rows, rows == 0 ? 0 : updatedGrid.get(0).size()); // Match the given size
+            for (int i = 0; i < rows; i++) {
+                List<Cell> row = updatedGrid.get(i);
+                for (int j = 0; j < row.size(); j++) {
+                    this.grid.put(i, j, row.get(j)); // Keep every cell that was given
+                }
+            }
+        }
+        if (this.lastSnapshot != null) {
+            oldGrid.setWriteLog(null); // The old grid is no longer part of this sheet
+            markWritten(oldGrid.getPopulatedCells()); // Its cells may be gone now
+            markWritten(this.grid.getPopulatedCells()); // And the new cells may differ
+            this.grid.setWriteLog(this.writtenSinceSnapshot);
+        }
+        rebuildIndexes(); // Index the new cells
     }
 
     @Override
-    public String evaluateFormula(String formula) {
-        System.out.println("Evaluating formula: " + formula); // Print the formula for debugging
-        String original = formula;
-        if (!formula.startsWith("=")) {
-            return formula; // Return the formula if it does not start with "="
-        }
-    
-        // Remove the initial "="
-        formula = formula.substring(1).stripLeading();
-        System.out.println("Stripped formula: " + formula);
-    
-        try {
-            if (formula.startsWith("COPY(")) {
-                return evaluateCOPY(formula.substring(5, formula.length() - 1), original); // Evaluate COPY function
+    public SheetSnapshot snapshot() {
+        PersistentGrid cells;
+        if (this.lastSnapshot == null) {
+            cells = PersistentGrid.EMPTY;
+            for (Cell cell : this.grid.getPopulatedCells()) {
+                cells = withCell(cells, cell.getRow(), cell.getCol()); // Copy every cell the first time
             }
-            if (formula.startsWith("SUM(")) {
-                return evaluateSUM(formula.substring(4, formula.length() - 1)); // Evaluate SUM function directly
-            }
-            if (!formula.contains(":")) {
-                formula = replaceCellReferences(formula); // Replace cell references with their values
-                System.out.println("Formula after replacing cell references: " + formula);
-            }
-            formula = evaluateNestedExpressions(formula); // Evaluate nested expressions first
-            System.out.println("Formula after evaluating nested expressions: " + formula);
-    
-            if (formula.startsWith("DEBUG")) { // Check if formula starts with DEBUG
-                return evaluateDEBUG(formula.substring(5).trim());
-            }
-    
-            Object result = formula; // Initialize result with the formula
-            System.setProperty("polyglot.engine.WarnInterpreterOnly", "false"); // Set system property to avoid warnings
-    
-            if (containsOperation(formula)) {
-                result = parseOperations(formula); // Parse operations in the formula
-            } else if (containsArith(formula)) { // Check if formula contains arithmetic operations
-                Context context = Context.create("js"); // Create a JavaScript context
-                result = context.eval("js", formula); // Evaluate the formula using JavaScript
+            this.grid.setWriteLog(this.writtenSinceSnapshot); // Only look at written cells from now on
+        } else {
+            cells = this.lastSnapshot;
+            for (long key : this.writtenSinceSnapshot) {
+                cells = withCell(cells, DependencyGraph.row(key), DependencyGraph.col(key)); // Copy the written cells
             }
-    
-            return result.toString(); // Return the result as a string
-        } catch (Exception e) {
-            System.out.println("Exception in evaluateFormula: " + e.getMessage());
-            return "Error"; // Return "Error" if an exception occurs
         }
+        this.writtenSinceSnapshot.clear();
+        this.lastSnapshot = cells;
+        return new SheetSnapshot(this.name, this.id_version, getRows(), getCols(), cells);
     }
-    
+
     /**
-     * Checks if logical operation is found
-     * @param cell
-     * @return Boolean Value representing whether an operation was found
-     * @author Vinay
+     * Returns a snapshot grid with one cell brought up to date. Unchanged and empty cells
+     * do not copy any part of the grid.
+     *
+     * @param cells the snapshot grid.
+     * @param row   the row of the cell.
+     * @param col   the column of the cell.
+     * @return the updated snapshot grid.
      */
-    private boolean containsOperation(String cell) {
-        for (String op : operations) { // Loop through the logical operations
-            if (cell.contains(op)) {
-                return true; // Return true if logical operation is found
-            }
+    private PersistentGrid withCell(PersistentGrid cells, int row, int col) {
+        Cell cell = this.grid.get(row, col);
+        if (cell.getValue().isEmpty() && cell.getRawdata().isEmpty()) {
+            return cells.with(row, col, null); // Empty cells are left out
         }
-        return false; // Return false if no logical operation is found
+        Cell old = cells.get(row, col);
+        if (old != null && old.getValue().equals(cell.getValue()) && old.getRawdata().equals(cell.getRawdata())) {
+            return cells; // Share the unchanged cell
+        }
+        return cells.with(row, col, cell);
     }
 
     /**
-     * Parses and handles various operations in the formula.
+     * Records cells as written since the last snapshot.
      *
-     * @param formula the formula to parse.
-     * @return the result of parsing the formula.
-     * @author Vinay
+     * @param cells the cells.
      */
-    private String parseOperations(String formula) {
-        System.out.println("Parsing operations, initial formula: " + formula);
-
-        // Check if the formula is an IF function and handle it specially
-        if (formula.startsWith("IF(")) {
-            int startIndex = formula.indexOf("(") + 1;
-            int endIndex = formula.lastIndexOf(")");
-            String args = formula.substring(startIndex, endIndex);
-            System.out.println("IF function detected with args: " + args);
-            return evaluateIF(args); // Evaluate IF function
-        }
-
-        // Evaluate nested expressions within parentheses first
-        formula = evaluateNestedExpressions(formula);
-        System.out.println("Formula after evaluating nested expressions: " + formula);
-
-        if (formula.startsWith("DEBUG")) { // Check if formula starts with DEBUG after evaluating nested expressions
-            return evaluateDEBUG(formula.substring(5).trim());
+    private void markWritten(List<Cell> cells) {
+        for (Cell cell : cells) {
+            this.writtenSinceSnapshot.add(DependencyGraph.key(cell.getRow(), cell.getCol()));
         }
+    }
 
-        // Handle logical operations
-        if (formula.contains("&") || formula.contains("|")) {
-            String[] logicalParts;
-            String logicalResult = "";
-
-            if (formula.contains("&")) {
-                logicalParts = formula.split("&");
-                logicalResult = "1"; // Initialize to "1" for AND operation
-                for (String part : logicalParts) {
-                    part = part.trim();
-                    System.out.println("Evaluating part of AND operation: " + part);
-                    String evaluatedPart = evaluateLogical(part);
-                    System.out.println("Evaluated part of AND operation: " + evaluatedPart);
-                    logicalResult = andOperation(logicalResult, evaluatedPart);
-                    System.out.println("AND operation result so far: " + logicalResult);
-                }
-            } else if (formula.contains("|")) {
-                logicalParts = formula.split("\\|");
-                logicalResult = "0"; // Initialize to "0" for OR operation
-                for (String part : logicalParts) {
-                    part = part.trim();
-                    System.out.println("Evaluating part of OR operation: " + part);
-                    String evaluatedPart = evaluateLogical(part);
-                    System.out.println("Evaluated part of OR operation: " + evaluatedPart);
-                    logicalResult = orOperation(logicalResult, evaluatedPart);
-                    System.out.println("OR operation result so far: " + logicalResult);
-                }
-            }
-
-            return logicalResult;
-        }
+    @Override
+    public List<List<Cell>> getGrid() {
+        return this.grid.asRows(); // Return a view of the grid
+    }
 
-        String operation = getOperation(formula); // Get the operation in the formula
-        System.out.println("Parsing operations, found operation: " + operation);
-
-        if (!operation.isEmpty()) {
-            String[] parts = formula.replaceAll(" ", "").split(Pattern.quote(operation)); // Split the formula into parts
-            System.out.println("Parts after split: " + Arrays.toString(parts));
-
-            if (formula.contains("<>")) {
-                return compareNotEqual(parts[0].trim(), parts[1].trim()); // Compare not equal
-            } else if (formula.contains("<") && !formula.contains("=")) {
-                return compareLess(parts[0].trim(), parts[1].trim()); // Compare less than
-            } else if (formula.contains(">") && !formula.contains("=")) {
-                return compareGreater(parts[0].trim(), parts[1].trim()); // Compare greater than
-            } else if (formula.contains("=") && !formula.contains("<") && !formula.contains(">")) {
-                return compareEqual(parts[0].trim(), parts[1].trim()); // Compare equal
-            }
-        }
+    @Override
+    public List<Cell> getPopulatedCells() {
+        return this.grid.getPopulatedCells(); // Return the cells that have been written
+    }
 
-        String function = getFunction(formula); // Get the function in the formula
-        if (!function.isEmpty()) {
-            int start = function.length() + 1; // Calculate start index of the arguments
-            int end = formula.length() - 1; // Calculate end index of the arguments
-            String args = formula.substring(start, end); // Extract the arguments
-            System.out.println("Function: " + function + ", Arguments: " + args);
-
-            if (formula.startsWith("IF(")) {
-                return evaluateIF(args); // Evaluate IF function
-            } else if (formula.startsWith("SUM(")) {
-                return evaluateSUM(args); // Evaluate SUM function
-            } else if (formula.startsWith("MIN(")) {
-                return evaluateMIN(args); // Evaluate MIN function
-            } else if (formula.startsWith("MAX(")) {
-                return evaluateMAX(args); // Evaluate MAX function
-            } else if (formula.startsWith("AVG(")) {
-                return evaluateAVG(args); // Evaluate AVG function
-            } else if (formula.startsWith("CONCAT(")) {
-                return evaluateCONCAT(args); // Evaluate CONCAT function
-            } else if (formula.startsWith("DEBUG(")) {
-                return evaluateDEBUG(args); // Evaluate DEBUG function
-            } else if (formula.startsWith("STDDEV(")) {
-                return evaluateSTDDEV(args); // Evaluate STDDEV function
-            } else if (formula.startsWith("SORT(")) {
-                return evaluateSORT(args); // Evaluate SORT function
-            }
-        }
-        return formula; // Return the formula if no operations or functions are found
+    @Override
+    public String getName() {
+        return this.name; // Return the name of the spreadsheet
     }
 
-/**
- * Evaluates nested expressions within the given formula by recursively processing innermost parentheses.
- * @param formula The input formula containing potential nested expressions.
- * @return The formula with all nested expressions evaluated.
- * @author Vinay
- */
-private String evaluateNestedExpressions(String formula) {
-    // Compile a regex pattern to match the innermost parentheses
-    Pattern pattern = Pattern.compile("\\(([^()]+)\\)");
-    // Create a matcher to find occurrences of the pattern in the formula
-    Matcher matcher = pattern.matcher(formula);
-
-    // Iterate while there are matches in the formula
-    while (matcher.find()) {
-        // Extract the content inside the innermost parentheses
-        String nestedExpr = matcher.group(1);
-        System.out.println("Found nested expression: " + nestedExpr);
-
-        String result;
-        // Check if the nested expression starts with "IF"
-        if (nestedExpr.trim().startsWith("IF")) {
-            System.out.println("Nested expression starts with IF: " + nestedExpr);
-            // Evaluate the IF expression
-            result = evaluateIF(nestedExpr.trim().substring(2).trim());
-            // Replace the nested expression in the formula with its result
-            formula = formula.replace("(" + nestedExpr + ")", result);
-            System.out.println("Formula after replacing nested expression " + nestedExpr + " with result " + result + ": " + formula);
-            // Update the matcher to reflect changes in the formula
-            matcher = pattern.matcher(formula);
-        // Check if the nested expression starts with "DEBUG"
-        } else if (nestedExpr.trim().startsWith("DEBUG")) {
-            System.out.println("Nested expression starts with DEBUG: " + nestedExpr);
-            // Evaluate the DEBUG expression
-            result = evaluateDEBUG(nestedExpr.trim().substring(5).trim());
-            // Replace the nested expression in the formula with its result
-            formula = formula.replace("(" + nestedExpr + ")", result);
-            System.out.println("Formula after replacing nested expression " + nestedExpr + " with result " + result + ": " + formula);
-            // Update the matcher to reflect changes in the formula
-            matcher = pattern.matcher(formula);
-        // Check if the nested expression starts with "SUM"
-        } else if (nestedExpr.trim().startsWith("SUM")) {
-            System.out.println("Nested expression starts with SUM: " + nestedExpr);
-            // Evaluate the SUM expression
-            result = evaluateSUM(nestedExpr.trim().substring(3).trim());
-            // Replace the nested expression in the formula with its result
-            formula = formula.replace("(" + nestedExpr + ")", result);
-            System.out.println("Formula after replacing nested expression " + nestedExpr + " with result " + result + ": " + formula);
-            // Update the matcher to reflect changes in the formula
-            matcher = pattern.matcher(formula);
-        // Check if the nested expression contains a range operation
-        } else if (nestedExpr.contains(":")) {
-            // Split the expression by the colon to get the cell references
-            String[] cellRefs = nestedExpr.split(":");
-            // Perform the range operation
-            String range = rangeOperation(cellRefs[0].trim(), cellRefs[1].trim());
-            System.out.println("RANGE: " + range);
-            result = range;
-            // Replace the nested expression in the formula with its result
-            formula = formula.replace("(" + nestedExpr + ")", result);
-            // Replace cell references within the formula
-            formula = replaceCellReferences(formula);
-            System.out.println("Formula after replacing nested expression " + nestedExpr + " with result " + result + ": " + formula);
-            // Update the matcher to reflect changes in the formula
-            matcher = pattern.matcher(formula);
-        } else {
-            // Parse and evaluate other types of operations within the nested expression
-            result = parseOperations(nestedExpr);
-            // Replace the nested expression in the formula with its result
-            formula = formula.replace("(" + nestedExpr + ")", result);
-            System.out.println("Formula after replacing nested expression " + nestedExpr + " with result " + result + ": " + formula);
-            // Update the matcher to reflect changes in the formula
-            matcher = pattern.matcher(formula);
-        }
+    @Override
+    public int getId_version() {
+        return this.id_version; // Return the version ID
     }
-    // Return the fully evaluated formula
-    return formula;
-}
 
-/**
- * Evaluates logical expressions within the given formula.
- * @param formula The input formula containing logical expressions.
- * @return The result of the logical expression evaluation.
- * @author Vinay
- */
-private String evaluateLogical(String formula) {
-    System.out.println("Evaluating logical expression: " + formula);
-    // Get the logical operation from the formula
-    String operation = getOperation(formula);
-    if (!operation.isEmpty()) {
-        // Split the formula into parts based on the logical operation
-        String[] parts = formula.split(Pattern.quote(operation));
-        System.out.println("Parts of logical expression: " + Arrays.toString(parts));
-        // Evaluate nested expressions within each part
-        parts[0] = evaluateNestedExpressions(parts[0].trim());
-        parts[1] = evaluateNestedExpressions(parts[1].trim());
-        System.out.println("Parts after evaluating nested expressions: " + Arrays.toString(parts));
-        // Perform the logical comparison based on the operation
-        switch (operation) {
-            case "<>":
-                return compareNotEqual(parts[0], parts[1]);
-            case "<":
-                return compareLess(parts[0], parts[1]);
-            case ">":
-                return compareGreater(parts[0], parts[1]);
-            case "=":
-                return compareEqual(parts[0], parts[1]);
-            default:
-                return "Error";
+    @Override
+    public void setCellValue(int row, int col, String value) {
+        if (value.isEmpty() && this.grid.get(row, col) == Cell.EMPTY) {
+            return; // Clearing a cell that was never written changes nothing
         }
+        Cell cell = this.grid.getForWrite(row, col); // Get the cell, allocating it on first write
+        Formula formula = cell.getParsedFormula(value, this.interner); // Get the cached formula
+        this.dependencies.setPrecedents(row, col, formula); // Record the cells the formula reads
+        this.copiedCells.clear();
+        this.recalculationStart = System.nanoTime(); // The written formula counts towards the budget
+        storeValue(row, col, cell, evaluate(formula)); // Set the cell value after evaluating the formula
+        long key = DependencyGraph.key(row, col);
+        Set<Long> written = new LinkedHashSet<>(this.copiedCells);
+        written.add(key);
+        recalculateDependents(written); // Update every formula that reads the cell
     }
-    // Attempt to parse the formula as a numeric value
-    try {
-        double value = Double.parseDouble(formula);
-        // Return "1" if the value is non-zero, otherwise "0"
-        return value != 0 ? "1" : "0";
-    } catch (NumberFormatException e) {
-        // Return "0" if parsing fails
-        return "0";
+
+    @Override
+    public List<Long> takeChangedCells() {
+        List<Long> changed = new ArrayList<>(this.changedCells); // Copy the changed cells
+        this.changedCells.clear(); // Start collecting again
+        return changed;
     }
-}
 
     /**
-     * Replaces cell references in the formula with their actual values.
+     * Recalculates the formulas that depend on the given cells, each after the
+     * formulas it reads. Cells written by COPY along the way are handled the same way.
+     * Formulas on a cycle are set to {@link Value#CYCLE}. If the recalculation runs
+     * over its budget, the formulas not yet recalculated are set to {@link Value#TIMEOUT}
+     * instead, which also ends COPY formulas that keep rewriting the cells they read.
      *
-     * @param formula the formula with cell references.
-     * @return the formula with cell references replaced by values.
-     * @author Vinay
+     * @param written the packed keys of the cells that were written.
      */
-    private String replaceCellReferences(String formula) {
-        Pattern pattern = Pattern.compile("\\$[A-Z]+[0-9]+"); // Define pattern for cell references
-        Matcher matcher = pattern.matcher(formula); // Create matcher for the formula
-        StringBuffer result = new StringBuffer(); // Initialize result buffer
-
-        while (matcher.find()) {
-            String cellReference = matcher.group(); // Get the cell reference
-            int row = getRow(cellReference); // Get the row index
-            int col = getColumn(cellReference); // Get the column index
-            String cellValue = getCellValue(row, col); // Get the cell value
-            matcher.appendReplacement(result, cellValue); // Replace the cell reference with its value
+    private void recalculateDependents(Set<Long> written) {
+        int evaluations = 1; // The formula that was written
+        long start = this.recalculationStart;
+        while (!written.isEmpty()) {
+            this.copiedCells.clear();
+            Set<Long> cycles = new LinkedHashSet<>();
+            List<List<Long>> levels = this.dependencies.getRecalculationLevels(written, cycles);
+            for (int i = 0; i < levels.size(); i++) {
+                List<Long> level = levels.get(i);
+                boolean inOrder = this.recalculationPool == null || level.size() < this.parallelThreshold;
+                for (int j = 0; j < level.size(); j += inOrder ? 1 : level.size()) { // One formula or the whole level at a time
+                    evaluations += inOrder ? 1 : level.size();
+                    if (evaluations > this.maxEvaluations || System.nanoTime() - start > this.maxRecalculationNanos) {
+                        storeError(level.subList(j, level.size()), Value.TIMEOUT); // Give up on the rest
+                        for (List<Long> later : levels.subList(i + 1, levels.size())) {
+                            storeError(later, Value.TIMEOUT);
+                        }
+                        storeError(cycles, Value.CYCLE);
+                        return;
+                    }
+                    if (inOrder) {
+                        recalculate(level.get(j)); // Recalculate one formula at a time
+                    } else {
+                        recalculateLevel(level); // Formulas of a level do not read each other
+                    }
+                }
+            }
+            storeError(cycles, Value.CYCLE); // These can never be calculated
+            written = new LinkedHashSet<>(this.copiedCells); // Continue with cells written by COPY
         }
-        matcher.appendTail(result); // Append the remaining part of the formula
-
-        return result.toString(); // Return the modified formula
     }
 
     /**
-     * Checks if the cell contains a function.
+     * Sets formula cells to an error instead of recalculating them.
      *
-     * @param cell the cell content.
-     * @return the function if present, otherwise an empty string.
-     * @author Theo
+     * @param keys  the packed keys of the cells.
+     * @param error the error.
      */
-    private String getFunction(String cell) {
-        for (String func : functions) { // Loop through the functions
-            if (cell.contains(func)) {
-                return func; // Return the function if found
+    private void storeError(Collection<Long> keys, Value error) {
+        for (long key : keys) {
+            int row = DependencyGraph.row(key);
+            int col = DependencyGraph.col(key);
+            Cell cell = this.grid.get(row, col);
+            if (cell.getParsedFormula() != null) {
+                storeValue(row, col, cell, error); // Only formulas are recalculated
             }
         }
-
-        return ""; // Return empty string if no function is found
     }
 
     /**
-     * Checks if the cell contains a basic arithmetic operation.
+     * Limits how much one recalculation may do, so that a runaway formula returns
+     * {@link Value#TIMEOUT} instead of holding the calling thread. The time limit also
+     * applies inside a formula that falls back to the script engine, and to a single
+     * evaluation outside a recalculation.
      *
-     * @param cell the cell content.
-     * @return true if it contains an arithmetic operation, otherwise false.
-     * @author Vinay
+     * @param maxEvaluations the largest number of formulas one recalculation may evaluate.
+     * @param maxNanos       the longest time one recalculation may take, in nanoseconds.
+     * @throws IllegalArgumentException if either limit is less than 1.
      */
-    private boolean containsArith(String cell) {
-        for (String op : arith) { // Loop through the arithmetic operations
-            if (cell.contains(op)) {
-                return true; // Return true if arithmetic operation is found
-            }
+    public void setRecalculationBudget(int maxEvaluations, long maxNanos) {
+        if (maxEvaluations < 1 || maxNanos < 1) {
+            throw new IllegalArgumentException("Recalculation budget must be positive: " + maxEvaluations + ", " + maxNanos);
         }
-
-        return false; // Return false if no arithmetic operation is found
+        this.maxEvaluations = maxEvaluations; // Set the evaluation limit
+        this.maxRecalculationNanos = maxNanos; // Set the time limit
     }
 
     /**
-     * Checks if the cell contains an operation.
+     * Recalculates the formula held by a cell.
      *
-     * @param cell the cell content.
-     * @return the operation if present, otherwise an empty string.
-     * @author Theo
+     * @param key the packed key of the cell.
      */
-    private String getOperation(String cell) {
-        for (String op : operations) { // Loop through the logical operations
-            if (cell.contains(op)) {
-                return op; // Return the operation if found
-            }
+    private void recalculate(long key) {
+        int row = DependencyGraph.row(key);
+        int col = DependencyGraph.col(key);
+        Cell cell = this.grid.get(row, col);
+        Formula formula = cell.getParsedFormula();
+        if (formula != null) {
+            storeValue(row, col, cell, evaluate(formula)); // Recalculate the formula
         }
-
-        return ""; // Return empty string if no operation is found
     }
 
     /**
-     * Compares if the first value is less than the second value.
+     * Recalculates one level of the recalculation order on the pool, storing the
+     * results afterwards, so the grid and the range index are only read while the pool
+     * is busy. Levels holding a formula that writes cells are recalculated in order.
      *
-     * @param x the first value.
-     * @param y the second value.
-     * @return "1" if x is less than y, otherwise "0".
-     * @author Vinay
+     * @param level the packed keys of the cells of the level.
      */
-    private String compareLess(String x, String y) {
-        x = x.replaceAll("[()]", ""); // Remove parentheses
-        y = y.replaceAll("[()]", ""); // Remove parentheses
-        System.out.println("Comparing less: " + x + " < " + y);
-        x = replaceCellReferences(x); // Replace cell references in x
-        y = replaceCellReferences(y); // Replace cell references in y
-        try {
-            double a = Double.parseDouble(x); // Parse x as double
-            double b = Double.parseDouble(y); // Parse y as double
-            return a < b ? "1" : "0"; // Return "1" if a is less than b, otherwise "0"
-        } catch (NumberFormatException e) {
-            System.out.println("NumberFormatException in compareLess: " + e.getMessage());
-            return "Error"; // Return "Error" if parsing fails
+    private void recalculateLevel(List<Long> level) {
+        Cell[] cells = new Cell[level.size()];
+        Formula[] formulas = new Formula[level.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = this.grid.get(DependencyGraph.row(level.get(i)), DependencyGraph.col(level.get(i)));
+            formulas[i] = cells[i].getParsedFormula();
+            if (formulas[i] != null && formulas[i].writesCells()) {
+                for (long key : level) {
+                    recalculate(key); // COPY writes the grid, so nothing may run beside it
+                }
+                return;
+            }
+        }
+        Value[] results = new Value[cells.length];
+        this.recalculationPool.invoke(new EvaluateLevel(formulas, results, activeTrace(), 0, cells.length));
+        for (int i = 0; i < cells.length; i++) {
+            if (formulas[i] != null) {
+                storeValue(DependencyGraph.row(level.get(i)), DependencyGraph.col(level.get(i)), cells[i], results[i]);
+            }
         }
     }
 
     /**
-     * Compares if the first value is greater than the second value.
+     * Recalculates large levels of independent formulas on a pool instead of one
+     * formula at a time. Levels smaller than the threshold are still recalculated in
+     * order, since splitting them costs more than it saves.
      *
-     * @param x the first value.
-     * @param y the second value.
-     * @return "1" if x is greater than y, otherwise "0".
-     * @author Vinay
+     * @param pool      the pool to recalculate on, or null to always recalculate in order.
+     * @param threshold the smallest number of formulas in a level to recalculate on the pool.
+     * @throws IllegalArgumentException if the threshold is less than 1.
      */
-    private String compareGreater(String x, String y) {
-        x = x.replaceAll("[()]", ""); // Remove parentheses
-        y = y.replaceAll("[()]", ""); // Remove parentheses
-        System.out.println("Comparing greater: " + x + " > " + y);
-        x = replaceCellReferences(x); // Replace cell references in x
-        y = replaceCellReferences(y); // Replace cell references in y
-        try {
-            double a = Double.parseDouble(x); // Parse x as double
-            double b = Double.parseDouble(y); // Parse y as double
-            return a > b ? "1" : "0"; // Return "1" if a is greater than b, otherwise "0"
-        } catch (NumberFormatException e) {
-            System.out.println("NumberFormatException in compareGreater: " + e.getMessage());
-            return "Error"; // Return "Error" if parsing fails
+    public void setParallelRecalculation(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be at least 1: " + threshold);
         }
+        this.recalculationPool = pool; // Set the pool
+        this.parallelThreshold = threshold; // Set the threshold
     }
 
     /**
-     * Compares if the first value is equal to the second value.
+     * Sets the value of a cell and keeps the range index and the list of changed cells up to date.
      *
-     * @param x the first value.
-     * @param y the second value.
-     * @return "1" if x is equal to y, otherwise "0".
-     * @author Vinay
+     * @param row   the row of the cell.
+     * @param col   the column of the cell.
+     * @param cell  the cell.
+     * @param value the new value.
      */
-    private String compareEqual(String x, String y) {
-        x = x.replaceAll("[()]", ""); // Remove parentheses
-        y = y.replaceAll("[()]", ""); // Remove parentheses
-        System.out.println("Comparing equal: " + x + " = " + y);
-        x = replaceCellReferences(x); // Replace cell references in x
-        y = replaceCellReferences(y); // Replace cell references in y
-        try {
-            double a = Double.parseDouble(x); // Parse x as double
-            double b = Double.parseDouble(y); // Parse y as double
-            return a == b ? "1" : "0"; // Return "1" if a is equal to b, otherwise "0"
-        } catch (NumberFormatException e) {
-            if (x.equals(y)) {
-                return "1"; // Return "1" if x equals y as strings
-            } else {
-                return "0"; // Return "0" if x does not equal y as strings
-            }
-        }
+    private void storeValue(int row, int col, Cell cell, Value value) {
+        cell.setValue(value); // Set the value
+        this.rangeIndex.update(row, col, value); // Update the range aggregates
+        this.lookups.remove(col); // The lookup index of the column is out of date
+        this.sharedResults.invalidate(row, col); // So are the results of calls reading the cell
+        this.changedCells.add(DependencyGraph.key(row, col)); // Remember the change
     }
 
     /**
-     * Compares if the first value is not equal to the second value.
-     *
-     * @param x the first value.
-     * @param y the second value.
-     * @return "1" if x is not equal to y, otherwise "0".
-     * @author Theo
+     * Rebuilds the dependency graph and the range index from the populated cells of the grid.
      */
-    private String compareNotEqual(String x, String y) {
-        x = replaceCellReferences(x); // Replace cell references in x
-        y = replaceCellReferences(y); // Replace cell references in y
-        try {
-            double a = Double.parseDouble(x); // Parse x as double
-            double b = Double.parseDouble(y); // Parse y as double
-            return a != b ? "1" : "0"; // Return "1" if a is not equal to b, otherwise "0"
-        } catch (NumberFormatException e) {
-            if (!x.equals(y)) {
-                return "1"; // Return "1" if x does not equal y as strings
-            } else {
-                return "0"; // Return "0" if x equals y as strings
+    private void rebuildIndexes() {
+        this.dependencies.clear(); // Forget the old grid
+        this.lookups.clear(); // Lookup indexes are rebuilt when next used
+        this.sharedResults.clear(); // Results are recalculated when next used
+        this.rangeIndex = new RangeIndex(SparseGrid.MAX_ROWS, SparseGrid.MAX_COLS); // Start an empty index
+        for (Cell cell : this.grid.getPopulatedCells()) {
+            if (cell.getRawdata().startsWith("=")) {
+                this.dependencies.setPrecedents(cell.getRow(), cell.getCol(), cell.getParsedFormula(cell.getRawdata(), this.interner)); // Record the formula
             }
+            this.rangeIndex.update(cell.getRow(), cell.getCol(), cell.getTypedValue()); // Index the value
         }
     }
 
+    @Override
+    public String getCellValue(int row, int col) {
+        return this.grid.get(row, col).getValue(); // Return the cell value
+    }
+
+    @Override
+    public Value getCellTypedValue(int row, int col) {
+        return this.grid.get(row, col).getTypedValue(); // Return the value parsed when the cell was written
+    }
+
+    @Override
+    public void setCellRawdata(int row, int col, String val) {
+        this.grid.getForWrite(row, col).setRawData(val); // Set the raw data of the cell
+    }
+
+    @Override
+    public String getCellRawdata(int row, int col) {
+        return this.grid.get(row, col).getRawdata(); // Return the raw data of the cell
+
+    }
+
+    @Override
+    public String evaluateFormula(String formula) {
+        this.recalculationStart = System.nanoTime(); // Gets a budget of its own
+        return evaluate(parseCached(formula)).toString(); // Evaluate the parsed formula
+    }
+
+    @Override
+    public String evaluateCell(int row, int col) {
+        Cell cell = this.grid.get(row, col); // Get the cell
+        String rawdata = cell.getRawdata(); // Get the raw data of the cell
+        this.recalculationStart = System.nanoTime(); // Gets a budget of its own
+        return evaluate(cell.getParsedFormula(rawdata, this.interner)).toString(); // Evaluate the cached formula
+    }
+
     /**
-     * Performs the AND operation between two values.
+     * Switches tracing on or off for this sheet.
      *
-     * @param x the first value.
-     * @param y the second value.
-     * @return "1" if both values are non-zero, otherwise "0".
-     * @author Vinay
+     * @param trace the trace to record every evaluation to, or null to switch tracing off.
      */
-    private String andOperation(String x, String y) {
-        System.out.println("Performing AND operation: " + x + " & " + y);
-        try {
-            double a = Double.parseDouble(evaluateNestedExpressions(x)); // Evaluate and parse x as double
-            double b = Double.parseDouble(evaluateNestedExpressions(y)); // Evaluate and parse y as double
-            // Convert to boolean (0.0 = false, any non-zero = true)
-            boolean boolA = a != 0.0;
-            boolean boolB = b != 0.0;
-            return (boolA && boolB) ? "1" : "0"; // Return "1" if both are true, otherwise "0"
-        } catch (NumberFormatException e) {
-            System.out.println("NumberFormatException in andOperation: " + e.getMessage());
-            return "0"; // Return "0" if parsing fails
-        }
+    public void setTrace(EvaluationTrace trace) {
+        this.trace = trace; // Set the trace
     }
 
     /**
-     * Performs the OR operation between two values.
+     * Gets the trace this sheet records to.
      *
-     * @param x the first value.
-     * @param y the second value.
-     * @return "1" if either value is non-zero, otherwise "0".
-     * @author Vinay
+     * @return the trace, or null if tracing is off for this sheet.
      */
-    private String orOperation(String x, String y) {
-        System.out.println("Performing OR operation: " + x + " | " + y);
-        try {
-            double a = Double.parseDouble(evaluateNestedExpressions(x)); // Evaluate and parse x as double
-            double b = Double.parseDouble(evaluateNestedExpressions(y)); // Evaluate and parse y as double
-            return (a != 0 || b != 0) ? "1" : "0"; // Return "1" if either a or b is non-zero, otherwise "0"
-        } catch (NumberFormatException e) {
-            System.out.println("NumberFormatException in orOperation: " + e.getMessage());
-            return "Error"; // Return "Error" if parsing fails
-        }
+    public EvaluationTrace getTrace() {
+        return this.trace; // Return the trace
     }
 
     /**
-     * Performs a range operation between two cells.
+     * Evaluates a formula against this sheet, recording it if this sheet or the
+     * current request is traced.
      *
-     * @param startCell the start cell.
-     * @param endCell   the end cell.
-     * @return the result of the range operation.
-     * @author Theo
+     * @param formula the formula.
+     * @return the result.
      */
-    private String rangeOperation(String startCell, String endCell) {
-        String func = getFunction(startCell); // Get function from startCell
-        if (func != "") {
-            startCell = startCell.substring(startCell.indexOf('(', startCell.indexOf(func)) + 1); // Remove function
-                                                                                                  // part from startCell
-        }
-
-        int startRow = getRow(startCell); // Get start row
-        int endRow = getRow(endCell); // Get end row
-        int startCol = getColumn(startCell); // Get start column
-        int endCol = getColumn(endCell); // Get end column
-
-        // Check if the range is valid
-        if (startRow > endRow || startCol > endCol || startRow == -1 || endRow == -1 || startCol == -1
-                || endCol == -1) {
-            return "Error"; // Return "Error" if range is invalid
-        }
-
-        // Append the cells' values
-        StringBuilder rangeResult = new StringBuilder(); // Initialize range result
-        for (int row = startRow; row <= endRow; row++) {
-            for (int col = startCol; col <= endCol; col++) {
-                String cellValue = getCellValue(row, col); // Get cell value
-                if (!cellValue.isEmpty()) {
-                    rangeResult.append(cellValue).append(","); // Append cell value to range result
-                }
-            }
-        }
-
-        if (rangeResult.length() == 0) {
-            return ""; // Return empty string if range result is empty
-        }
-
-        String result = rangeResult.substring(0, rangeResult.length() - 1); // Remove trailing comma
-        // Add function if needed
-        if (func != "") {
-            result = func + "(" + result + ")"; // Add function to result
-            return parseOperations(result); // Parse operations in result
-        }
-        return result; // Return range result
+    private Value evaluate(Formula formula) {
+        return evaluate(formula, activeTrace());
     }
 
     /**
-     * Evaluates the IF function with the given parameters.
+     * Gets the trace evaluations of this sheet are recorded to on the current thread.
      *
-     * @param parameters the parameters for the IF function.
-     * @return the result of the IF function.
-     * @author Vinay
+     * @return the trace of this sheet or of the current request, or null if neither is on.
      */
-    private String evaluateIF(String parameters) {
-        System.out.println("Evaluating IF with parameters: " + parameters);
-        List<String> parts = splitByCommaOutsideParentheses(parameters.trim());
-    
-        if (parts.size() != 3) {
-            return "Error"; // Return "Error" if parameter count is not 3
-        }
-    
-        String condition = replaceCellReferences(parts.get(0).trim()); // Replace cell references in condition
-        String trueResult = replaceCellReferences(parts.get(1).trim());
-        String falseResult = replaceCellReferences(parts.get(2).trim());
-    
-        condition = parseOperations(condition); // Evaluate the condition
-        System.out.println("Condition after parsing: " + condition);
-    
-        try {
-            double conditionValue = Double.parseDouble(condition);
-            return conditionValue != 0 ? trueResult : falseResult; // Return trueResult if condition is non-zero, otherwise falseResult
-        } catch (NumberFormatException e) {
-            return condition.equals("0") ? falseResult : trueResult;
-        }
-    }
-    
-/**
- * Splits the input string by commas, but only if the commas are outside any parentheses.
- * 
- * @param input The input string to be split.
- * @return A list of substrings split by commas outside parentheses.
- * @author Vinay
- */
-private List<String> splitByCommaOutsideParentheses(String input) {
-    // Initialize a list to hold the resulting parts
-    List<String> parts = new ArrayList<>();
-    // Variable to keep track of the current level of nested parentheses
-    int bracketLevel = 0;
-    // StringBuilder to accumulate characters for the current part
-    StringBuilder currentPart = new StringBuilder();
-
-    // Iterate over each character in the input string
-    for (char c : input.toCharArray()) {
-        // If the character is an opening parenthesis, increase the bracket level
-        if (c == '(') {
-            bracketLevel++;
-        // If the character is a closing parenthesis, decrease the bracket level
-        } else if (c == ')') {
-            bracketLevel--;
-        // If the character is a comma and we are not inside parentheses, split here
-        } else if (c == ',' && bracketLevel == 0) {
-            // Add the current part to the list of parts
-            parts.add(currentPart.toString());
-            // Reset the current part for the next segment
-            currentPart.setLength(0);
-            // Skip adding the comma itself to the current part
-            continue;
-        }
-        // Append the current character to the current part
-        currentPart.append(c);
+    private EvaluationTrace activeTrace() {
+        return this.trace != null ? this.trace : EvaluationTrace.current(); // Find a trace that is on
     }
-    // Add the last accumulated part to the list
-    parts.add(currentPart.toString());
 
-    // Return the list of parts
-    return parts;
-}
-    
     /**
-     * Evaluates the SUM function with the given parameters.
+     * Evaluates a formula against this sheet, recording it to the given trace.
      *
-     * @param parameters the parameters for the SUM function.
-     * @return the result of the SUM function.
-     * @author Theo
+     * @param formula the formula.
+     * @param active  the trace to record to, or null if tracing is off.
+     * @return the result.
      */
-    private String evaluateSUM(String parameters) {
-        String[] parts = parameters.split(","); // Split parameters
-        System.out.println("Formula SUM: " + parameters);
-        double sum = 0;
-        try {
-            for (String part : parts) {
-                part = part.trim();
-                if (part.contains(":")) {
-                    part = rangeOperation(part.split(":")[0], part.split(":")[1]);
-                }
-                String[] values = part.split(",");
-                for (String value : values) {
-                    value = replaceCellReferences(value.trim());
-                    if (!value.isEmpty()) {
-                        sum += Double.parseDouble(value); // Add value to sum
-                    }
-                }
-            }
-            return String.valueOf(sum); // Return sum as string
-        } catch (NumberFormatException e) {
-            return "Error"; // Return "Error" if parsing fails
+    private Value evaluate(Formula formula, EvaluationTrace active) {
+        if (active == null) {
+            return formula.evaluate(this.evaluationContext); // Not traced
         }
+        return active.evaluate(this.name, formula, this.evaluationContext); // Record the evaluation
     }
-    
+
     /**
-     * Evaluates the MIN function with the given parameters.
+     * Gets the parsed form of a formula that is not stored in a cell, parsing it
+     * only if it has not been seen recently.
      *
-     * @param parameters the parameters for the MIN function.
-     * @return the result of the MIN function.
-     * @author Vinay
+     * @param formula the formula.
+     * @return the parsed formula.
      */
-    private String evaluateMIN(String parameters) {
-        String[] parts = parameters.split(","); // Split parameters
-        double min = Double.MAX_VALUE;
-        try {
-            for (String part : parts) {
-                String func = getFunction(part); // Get function from part
-                part = replaceCellReferences(part.trim());
-                part = parseNestedOperations(func, part, parameters); // Parse nested operations
-                if (part != "") {
-                    double value = Double.parseDouble(part); // Parse part as double
-                    int index = parameters.indexOf(")"); // Find index of closing parenthesis
-                    if (func != "" && index != -1) {
-                        parameters = parameters.substring(index + 1); // Update parameters
-                    }
-                    if (value < min) {
-                        min = value; // Update min if value is smaller
-                    }
-                }
-            }
-            return String.valueOf(min); // Return min as string
-        } catch (NumberFormatException e) {
-            return "Error"; // Return "Error" if parsing fails
+    private Formula parseCached(String formula) {
+        Formula parsed = this.formulaCache.get(formula); // Look up the formula
+        if (parsed == null) {
+            parsed = this.interner.intern(Formula.parse(formula)); // Parse the formula once
+            this.formulaCache.put(formula, parsed); // Remember the parsed formula
         }
+        return parsed;
     }
 
     /**
-     * Evaluates the MAX function with the given parameters.
+     * Replaces cell references in the formula with their values.
      *
-     * @param parameters the parameters for the MAX function.
-     * @return the result of the MAX function.
+     * @param formula the formula with cell references.
+     * @return the formula with cell references replaced by values.
      * @author Vinay
      */
-    private String evaluateMAX(String parameters) {
-        String[] parts = parameters.split(","); // Split parameters
-        double max = Double.MIN_VALUE;
-        try {
-            for (String part : parts) {
-                String func = getFunction(part); // Get function from part
-                part = replaceCellReferences(part.trim());
-                part = parseNestedOperations(func, part, parameters); // Parse nested operations
-                if (part != "") {
-                    double value = Double.parseDouble(part); // Parse part as double
-                    int index = parameters.indexOf(")"); // Find index of closing parenthesis
-                    if (func != "" && index != -1) {
-                        parameters = parameters.substring(index + 1); // Update parameters
-                    }
-
-                    if (value > max) {
-                        max = value; // Update max if value is larger
-                    }
-                }
-            }
-            return String.valueOf(max); // Return max as string
-        } catch (NumberFormatException e) {
-            return "Error"; // Return "Error" if parsing fails
+    private String replaceCellReferences(String formula) {
+        StringBuilder result = new StringBuilder(formula.length()); // Initialize result buffer
+        int copied = 0; // Text before this offset is already in the result
+        for (int start = ReferenceScanner.find(formula, 0); start >= 0; start = ReferenceScanner.find(formula, copied)) {
+            int end = ReferenceScanner.referenceEnd(formula, start);
+            long cell = ReferenceScanner.parse(formula, start, end); // Decode the reference in place
+            result.append(formula, copied, start); // Text before the reference
+            result.append(getCellValue(ReferenceScanner.row(cell), ReferenceScanner.col(cell))); // Replace the cell reference with its value
+            copied = end;
         }
+        result.append(formula, copied, formula.length()); // Append the remaining part of the formula
+
+        return result.toString(); // Return the modified formula
     }
 
     /**
-     * Evaluates the AVG function with the given parameters.
+     * Checks if the cell contains a basic arithmetic operation.
      *
-     * @param parameters the parameters for the AVG function.
-     * @return the result of the AVG function.
+     * @param cell the cell content.
+     * @return true if it contains an arithmetic operation, otherwise false.
      * @author Vinay
      */
-    private String evaluateAVG(String parameters) {
-        String[] parts = parameters.split(","); // Split parameters
-        double sum = 0;
-        try {
-            for (String part : parts) {
-                String func = getFunction(part); // Get function from part
-                part = replaceCellReferences(part.trim());
-                part = parseNestedOperations(func, part, parameters); // Parse nested operations
-                if (part != "") {
-                    sum += Double.parseDouble(part); // Add part value to sum
-                    int index = parameters.indexOf(")"); // Find index of closing parenthesis
-                    if (func != "" && index != -1) {
-                        parameters = parameters.substring(index + 1); // Update parameters
-                    }
-                }
+    private boolean containsArith(String cell) {
+        for (String op : arith) { // Loop through the arithmetic operations
+            if (cell.contains(op)) {
+                return true; // Return true if arithmetic operation is found
             }
-            return String.valueOf(sum / parts.length); // Return average as string
-        } catch (NumberFormatException e) {
-            return "Error"; // Return "Error" if parsing fails
         }
+
+        return false; // Return false if no arithmetic operation is found
     }
 
     /**
-     * Evaluates the CONCAT function with the given parameters.
+     * Performs a range operation between two cells.
      *
-     * @param parameters the parameters for the CONCAT function.
-     * @return the result of the CONCAT function.
+     * @param startCell the start cell.
+     * @param endCell   the end cell.
+     * @return the values in the range separated by commas, or "Error" if the range is invalid.
      * @author Theo
      */
-    private String evaluateCONCAT(String parameters) {
-        String[] parts = parameters.split(","); // Split parameters
-        StringBuilder result = new StringBuilder();
-        for (String part : parts) {
-            // Remove double quotes from around the string parts
-            String trimmedPart = part.trim();
-            if (trimmedPart.startsWith("\"") && trimmedPart.endsWith("\"")) {
-                trimmedPart = trimmedPart.substring(1, trimmedPart.length() - 1); // Remove quotes
-            }
-            result.append(trimmedPart); // Append part to result
-        }
-        return result.toString(); // Return concatenated string
+    private String rangeOperation(String startCell, String endCell) {
+        RangeReference range = new RangeReference(CellReference.parse(startCell), CellReference.parse(endCell));
+        return range.evaluate(this.evaluationContext).toString(); // Evaluate the range
+    }
+
+    /**
+     * Evaluates the IF function with the given parameters.
+     *
+     * @param parameters the parameters for the IF function.
+     * @return the result of the IF function.
+     * @author Vinay
+     */
+    private String evaluateIF(String parameters) {
+        return evaluateFormula("=IF(" + parameters + ")"); // Evaluate as an IF formula
     }
 
     /**
@@ -1025,127 +775,144 @@ private List<String> splitByCommaOutsideParentheses(String input) {
      */
     private String evaluateDEBUG(String parameter) {
         String innerExpression = parameter.trim();
-        System.out.println("This is the inner expression of DEBUG: " + innerExpression);
         if (innerExpression.startsWith("=")) {
             innerExpression = innerExpression.substring(1).stripLeading();
         }
-        // Evaluate the inner expression and make sure to return the correct value.
-        return evaluateFormula("=" + innerExpression);
+        return evaluateFormula("=" + innerExpression); // Evaluate the inner expression
     }
 
     /**
-     * Evaluates the STDDEV function with the given parameter.
-     *
-     * @param parameters the parameter for the STDDEV function.
-     * @return the result of the STDDEV function.
-     * @author Theo
+     * Evaluates a slice of a level of formulas, splitting it between the workers of the pool.
      */
-    private String evaluateSTDDEV(String parameters) {
-        String[] parts = parameters.split(","); // Split parameters
-        double sum = 0;
-
-        try {
-            double avg = Double.parseDouble(evaluateAVG(parameters)); // Calculate average
-            for (String part : parts) {
-                String func = getFunction(part); // Get function from part
-                part = replaceCellReferences(part.trim());
-                part = parseNestedOperations(func, part, parameters); // Parse nested operations
-                if (part != "") {
-                    sum += Math.pow(Double.parseDouble(replaceCellReferences(part)) - avg, 2); // Calculate squared
-                                                                                               // difference
-                    int index = parameters.indexOf(")"); // Find index of closing parenthesis
-                    if (func != "" && index != -1) {
-                        parameters = parameters.substring(index + 1); // Update parameters
+    private final class EvaluateLevel extends RecursiveAction {
+        private final Formula[] formulas; // The formulas of the level, null for cells without one
+        private final Value[] results; // Receives the result of each formula
+        private final EvaluationTrace active; // The trace of the thread that started the recalculation
+        private final int start; // First formula of the slice
+        private final int end; // One past the last formula of the slice
+
+        /**
+         * Constructs a task for a slice of a level.
+         *
+         * @param formulas the formulas of the level.
+         * @param results  receives the result of each formula.
+         * @param active   the trace to record to, or null if tracing is off.
+         * @param start    the first formula of the slice.
+         * @param end      one past the last formula of the slice.
+         */
+        EvaluateLevel(Formula[] formulas, Value[] results, EvaluationTrace active, int start, int end) {
+            this.formulas = formulas;
+            this.results = results;
+            this.active = active;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start <= PARALLEL_LEAF_SIZE) {
+                for (int i = this.start; i < this.end; i++) {
+                    if (this.formulas[i] != null) {
+                        this.results[i] = evaluate(this.formulas[i], this.active); // Only reads the sheet
                     }
                 }
+                return;
             }
-        } catch (NumberFormatException e) {
-            return "Error"; // Return "Error" if parsing fails
+            int middle = (this.start + this.end) >>> 1;
+            invokeAll(new EvaluateLevel(this.formulas, this.results, this.active, this.start, middle),
+                    new EvaluateLevel(this.formulas, this.results, this.active, middle, this.end)); // Split in two
         }
-
-        double result = Math.pow(sum / parts.length, 0.5); // Calculate standard deviation
-        return "" + (double) Math.round(result * 1000) / 1000; // Return rounded result
     }
 
     /**
-     * Evaluates the SORT function with the given parameter.
-     *
-     * @param parameters the parameter for the SORT function.
-     * @return the result of the SORT function.
-     * @author Theo
+     * Gives formulas access to the cells of this spreadsheet.
      */
-    private String evaluateSORT(String parameters) {
-        String[] parts = parameters.split(","); // Split parameters
-        double[] nums = new double[parts.length];
-        try {
-            for (int i = 0; i < nums.length; i++) {
-                String part = parts[i];
-                String func = getFunction(part); // Get function from part
-                part = replaceCellReferences(part.trim());
-                part = parseNestedOperations(func, part, parameters); // Parse nested operations
-                if (part != "") {
-                    nums[i] = Double.parseDouble(part); // Parse part as double
-                    int index = parameters.indexOf(")"); // Find index of closing parenthesis
-                    if (func != "" && index != -1) {
-                        parameters = parameters.substring(index + 1); // Update parameters
-                    }
-                }
+    private class SheetEvaluationContext implements IEvaluationContext {
+
+        @Override
+        public Value getValue(int row, int col) {
+            if (row < 0 || col < 0 || row >= SparseGrid.MAX_ROWS || col >= SparseGrid.MAX_COLS) {
+                return Value.ERROR; // References outside the sheet are errors
             }
-        } catch (NumberFormatException e) {
-            return "Error"; // Return "Error" if parsing fails
+            return grid.get(row, col).getTypedValue(); // Return the value parsed when the cell was written
         }
 
-        Arrays.sort(nums); // Sort numbers
-        StringBuilder result = new StringBuilder();
+        @Override
+        public void copyValue(int row, int col, String value) {
+            if (row < 0 || col < 0 || row >= SparseGrid.MAX_ROWS || col >= SparseGrid.MAX_COLS) {
+                return; // Ignore copies outside the sheet
+            }
+            if (value.equals(grid.get(row, col).getValue()) && value.equals(grid.get(row, col).getRawdata())) {
+                return; // Nothing changes, so nothing has to be recalculated
+            }
+            Cell target = grid.getForWrite(row, col); // Get the target cell, allocating it on first write
+            storeValue(row, col, target, Value.text(value)); // Copy the value
+            target.setRawData(value); // Copy the raw data
+            dependencies.setPrecedents(row, col, target.getParsedFormula(value)); // The target no longer holds a formula
+            copiedCells.add(DependencyGraph.key(row, col)); // Recalculate the target's dependents afterwards
+        }
 
-        for (double num : nums) {
-            result.append(num).append(","); // Append sorted numbers to result
+        @Override
+        public RangeAggregate aggregate(RangeReference range) {
+            return rangeIndex.query(range.getStart().getRow(), range.getStart().getCol(),
+                    range.getEnd().getRow(), range.getEnd().getCol()); // Answer from the range index
         }
 
-        return result.substring(0, result.length() - 1); // Return sorted numbers as string
-    }
+        @Override
+        public Value evaluateShared(SharedExpression expression) {
+            Value result = sharedResults.get(expression);
+            if (result == null) {
+                result = expression.getExpression().evaluate(this); // None of its cells changed since
+                sharedResults.put(expression, result);
+            }
+            return result;
+        }
 
-    private String evaluateCOPY(String parameters, String original) {
-        String[] parts = parameters.split(",");
-        String value = replaceCellReferences(parts[0]); // get the value of the first argument
-        // get the position of the second argument
-        int row = getRow(parts[1]);
-        int col = getColumn(parts[1]);
-        this.grid.get(row).get(col).setValue(value);
-        this.grid.get(row).get(col).setRawData(value);
-        return original;
-    }
+        @Override
+        public ColumnLookup lookup(int col) {
+            if (col < 0 || col >= SparseGrid.MAX_COLS) {
+                return null; // Outside the sheet
+            }
+            return lookups.computeIfAbsent(col, this::buildLookup); // Build the index on first use
+        }
+
+        /**
+         * Builds the lookup index of a column from its populated cells.
+         *
+         * @param col the column.
+         * @return the index.
+         */
+        private ColumnLookup buildLookup(int col) {
+            List<Cell> cells = grid.getColumnCells(col); // Only the tiles of the column
+            int[] rows = new int[cells.size()];
+            Value[] values = new Value[cells.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = cells.get(i).getRow();
+                values[i] = cells.get(i).getTypedValue();
+            }
+            return new ColumnLookup(rows, values);
+        }
 
-    /**
-     * Parses and evaluated any nested functions within the formula parameters.
-     *
-     * @param func       the nested function within the given part.
-     * @param part       the section of the parameters being evaluated
-     * @param parameters the entire parameter.
-     * @return the result of the nested function, or an empty string for the ends of
-     *         functions.
-     * @author Theo
-     */
-    private String parseNestedOperations(String func, String part, String parameters) {
-        // see if there is a nested function to be evaluated
-        if (func != "" && part.contains("(")) {
-            int index = parameters.indexOf("(", parameters.indexOf(part));
-            // parse the nested parameters
-            String nestedParameters = "";
-            while (!nestedParameters.contains(")")) {
-                nestedParameters += parameters.charAt(index);
-                index += 1;
+        @Override
+        public Value evaluateScript(String expression) {
+            try {
+                String script = replaceCellReferences(expression); // Replace cell references with their values
+                if (!containsArith(script)) {
+                    return Value.text(script); // Plain text is returned unchanged
+                }
+                long remaining = maxRecalculationNanos - (System.nanoTime() - recalculationStart);
+                if (remaining <= 0) {
+                    return Value.TIMEOUT; // The budget is already spent
+                }
+                return Value.text(ScriptContextPool.getShared().evaluate(script, remaining)); // Evaluate the formula using JavaScript
+            } catch (TimeoutException e) {
+                return Value.TIMEOUT; // Ran past the budget, and was stopped
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Keep the interrupt for the caller
+                return Value.ERROR;
+            } catch (Exception e) {
+                return Value.ERROR; // Return "Error" if an exception occurs
             }
-            // evaluate the function
-            func += nestedParameters;
-            part = parseOperations(func); // Parse nested function
-            return part;
-            // for the ends of already evaluated functions
-        } else if (!part.contains("(") && part.contains(")")) {
-            return ""; // Return empty string for ends of functions
-            // for parts that don't need evaluation
-        } else {
-            return part; // Return part if no evaluation is needed
         }
     }
 }
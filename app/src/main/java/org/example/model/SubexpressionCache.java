@@ -0,0 +1,112 @@
+package org.example.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.example.model.formula.SharedExpression;
+import org.example.model.formula.Value;
+
+/**
+ * Keeps the results of function calls shared by several formulas of a sheet, so a
+ * call such as SUM($A1:$A500) that appears in many cells is evaluated once per change
+ * of the cells it reads instead of once per cell. A result is dropped as soon as one
+ * of the cells its call reads is written.
+ *
+ * <p>Results may be added from several threads while a level of formulas is
+ * recalculated in parallel. Cells are only written between levels, so a result is
+ * never added for cells that are being changed at the same time. Adding, dropping and
+ * starting over hold one lock, so a result is never left behind without the readers
+ * that drop it, even when the cache starts over while other threads are adding.
+ * Getting a result does not lock.</p>
+ */
+public class SubexpressionCache {
+    public static final int DEFAULT_CAPACITY = 4096; // Results kept by default
+
+    private final int capacity; // Results kept before the cache starts over
+    private final Map<SharedExpression, Value> results = new ConcurrentHashMap<>(); // Call -> its last result
+    private final Map<Integer, Set<SharedExpression>> readers = new HashMap<>(); // Column -> cached calls reading it, guarded by this
+
+    /**
+     * Constructs a cache keeping up to {@link #DEFAULT_CAPACITY} results.
+     */
+    public SubexpressionCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a cache.
+     *
+     * @param capacity the number of results kept before the cache starts over.
+     */
+    public SubexpressionCache(int capacity) {
+        this.capacity = capacity; // Set the capacity
+    }
+
+    /**
+     * Gets the cached result of a call.
+     *
+     * @param expression the shared call.
+     * @return the result, or null if it is not cached.
+     */
+    public Value get(SharedExpression expression) {
+        return this.results.get(expression);
+    }
+
+    /**
+     * Caches the result of a call.
+     *
+     * @param expression the shared call.
+     * @param value      its result.
+     */
+    public synchronized void put(SharedExpression expression, Value value) {
+        if (this.results.size() >= this.capacity) {
+            clear(); // Start over rather than track which result is oldest
+        }
+        for (int[] span : expression.getReads()) {
+            this.readers.computeIfAbsent(span[0], col -> new HashSet<>()).add(expression);
+        }
+        this.results.put(expression, value); // Registered as a reader first, so no write is missed
+    }
+
+    /**
+     * Drops the results of every call that reads a cell.
+     *
+     * @param row the row of the written cell.
+     * @param col the column of the written cell.
+     */
+    public synchronized void invalidate(int row, int col) {
+        Set<SharedExpression> columnReaders = this.readers.get(col);
+        if (columnReaders == null) {
+            return; // No cached call reads the column
+        }
+        columnReaders.removeIf(expression -> {
+            for (int[] span : expression.getReads()) {
+                if (span[0] == col && span[1] <= row && row <= span[2]) {
+                    this.results.remove(expression); // The call read the cell
+                    return true;
+                }
+            }
+            return false; // Reads other rows of the column
+        });
+    }
+
+    /**
+     * Drops every result.
+     */
+    public synchronized void clear() {
+        this.results.clear();
+        this.readers.clear();
+    }
+
+    /**
+     * Gets the number of cached results.
+     *
+     * @return the number of results.
+     */
+    public int size() {
+        return this.results.size();
+    }
+}
@@ -0,0 +1,328 @@
+package org.example.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The published or subscribed versions of a spreadsheet, kept as an append-only log of
+ * the cells each version changed rather than as a copy of every version. Only the cells
+ * of the latest version are kept whole, to find what the next version changes. A
+ * reader that has seen some of the versions catches up by reading the log from there,
+ * in time proportional to the changes it missed.
+ *
+ * <p>Every so many versions, or once enough cells have changed, the whole cells of a
+ * version are kept as a snapshot. Grids share everything they have in common, so a
+ * snapshot only holds on to the parts of the grid the log does not already keep. A
+ * reader far behind, such as one opening the sheet from version 0, is then answered
+ * with the difference between its version and the latest snapshot plus the versions
+ * after it, instead of every change ever made.</p>
+ *
+ * <p>Entries are only ever appended and a slot is never written twice, so a
+ * {@link View} stays valid while more versions are added. The log does no locking of
+ * its own. Its owner appends under a write lock and may call {@link #view()} under an
+ * optimistic read, validating the stamp before using the result.</p>
+ */
+final class VersionLog {
+    private final String name; // The name of the spreadsheet, for rebuilt versions
+    private Entry[] entries = new Entry[8]; // Grown by copying, never shrunk
+    private int size; // Number of versions added
+    private PersistentGrid head = PersistentGrid.EMPTY; // The cells of the latest version
+    private int snapshotVersions = Spreadsheet.DEFAULT_SNAPSHOT_VERSIONS; // Versions after which a snapshot is kept
+    private int snapshotCells = Spreadsheet.DEFAULT_SNAPSHOT_CELLS; // Changed cells after which a snapshot is kept
+    private int versionsSinceSnapshot; // Versions added since the last snapshot
+    private int cellsSinceSnapshot; // Cells changed since the last snapshot
+
+    /**
+     * Constructs an empty log.
+     *
+     * @param name the name of the spreadsheet.
+     */
+    VersionLog(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Sets how often the whole cells of a version are kept. A snapshot is kept as soon as
+     * either limit is reached.
+     *
+     * @param versions the number of versions between snapshots.
+     * @param cells    the number of changed cells between snapshots.
+     * @throws IllegalArgumentException if either limit is less than 1.
+     */
+    void setSnapshotInterval(int versions, int cells) {
+        if (versions < 1 || cells < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + versions + ", " + cells);
+        }
+        this.snapshotVersions = versions;
+        this.snapshotCells = cells;
+    }
+
+    /**
+     * Appends a version, recording the cells that differ from the latest version.
+     *
+     * @param version the version.
+     * @return the number of versions, including the new one.
+     */
+    int add(IReadOnlySpreadSheet version) {
+        PersistentGrid cells = version instanceof SheetSnapshot snapshot ? snapshot.getGrid() : toGrid(version);
+        List<Cell> changed = new ArrayList<>();
+        List<Cell> removed = new ArrayList<>();
+        this.head.diff(cells, changed, removed); // Skips everything the two versions share
+        this.versionsSinceSnapshot++;
+        this.cellsSinceSnapshot += changed.size() + removed.size();
+        boolean keep = this.versionsSinceSnapshot >= this.snapshotVersions || this.cellsSinceSnapshot >= this.snapshotCells;
+        if (keep) {
+            this.versionsSinceSnapshot = 0; // Start counting towards the next snapshot
+            this.cellsSinceSnapshot = 0;
+        }
+        Entry entry = new Entry(changed.toArray(new Cell[0]), removed.toArray(new Cell[0]),
+                version.getId_version(), version.getRows(), version.getCols(),
+                version instanceof SheetSnapshot ? null : version, // Snapshots are rebuilt from the log
+                keep ? cells : null);
+        if (this.size == this.entries.length) {
+            this.entries = Arrays.copyOf(this.entries, this.size * 2); // Readers keep the old array
+        }
+        this.entries[this.size] = entry;
+        this.head = cells;
+        return ++this.size;
+    }
+
+    /**
+     * Gets the number of versions.
+     *
+     * @return the number of versions.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the versions added so far, without copying them.
+     *
+     * @return a view of the versions, unaffected by later appends.
+     */
+    View view() {
+        Entry[] array = this.entries; // Read the array before the size it goes with
+        int count = Math.min(this.size, array.length); // May be torn under an optimistic read
+        return new View(this.name, array, count);
+    }
+
+    /**
+     * Copies the cells of a version that is not a snapshot into a grid.
+     *
+     * @param version the version.
+     * @return its cells.
+     */
+    private static PersistentGrid toGrid(IReadOnlySpreadSheet version) {
+        PersistentGrid cells = PersistentGrid.EMPTY;
+        for (Cell cell : version.getPopulatedCells()) {
+            if (!cell.getValue().isEmpty() || !cell.getRawdata().isEmpty()) { // Empty cells are left out
+                cells = cells.with(cell.getRow(), cell.getCol(), cell);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * The versions of a log up to some point, read as a list of whole versions or as the
+     * changes made from a version on.
+     */
+    static final class View extends AbstractList<IReadOnlySpreadSheet> {
+        private final String name; // The name of the spreadsheet
+        private final Entry[] entries; // The entries, of which the first count are used
+        private final int count; // Number of versions in the view
+
+        /**
+         * Constructs a view.
+         *
+         * @param name    the name of the spreadsheet.
+         * @param entries the entries of the log.
+         * @param count   the number of entries in the view.
+         */
+        View(String name, Entry[] entries, int count) {
+            this.name = name;
+            this.entries = entries;
+            this.count = count;
+        }
+
+        @Override
+        public int size() {
+            return this.count;
+        }
+
+        /**
+         * Rebuilds a version from the nearest snapshot at or before it and the versions in
+         * between. Versions that were added whole are returned as they were given.
+         *
+         * @param index the index of the version.
+         * @return the version.
+         */
+        @Override
+        public IReadOnlySpreadSheet get(int index) {
+            if (index < 0 || index >= this.count) {
+                throw new IndexOutOfBoundsException("Version " + index + " of " + this.count);
+            }
+            Entry entry = this.entries[index];
+            if (entry.version != null) {
+                return entry.version;
+            }
+            return new SheetSnapshot(this.name, entry.idVersion, entry.rows, entry.cols, cellsAt(index));
+        }
+
+        /**
+         * Reads the changes made from a version on. Applying the lines in order to a copy
+         * of version from - 1, or to an empty sheet for version 0, gives the latest version.
+         *
+         * <p>If a snapshot was kept since the version, the lines are the difference between
+         * the version and the latest snapshot, followed by the versions after the snapshot.
+         * Otherwise they are the changes of each version in turn.</p>
+         *
+         * @param from the first version to read, the number of versions the reader has seen.
+         * @return the changes, and the number of versions they bring the reader up to.
+         */
+        SheetUpdates updatesSince(int from) {
+            StringBuilder payload = new StringBuilder();
+            int start = Math.max(from, 0);
+            int snapshot = latestSnapshot(start, this.count - 1);
+            if (snapshot >= 0) {
+                List<Cell> changed = new ArrayList<>();
+                List<Cell> removed = new ArrayList<>();
+                PersistentGrid seen = start == 0 ? PersistentGrid.EMPTY : cellsAt(start - 1); // What the reader has
+                seen.diff(this.entries[snapshot].snapshot, changed, removed); // Skips what the two share
+                appendChanges(payload, changed, removed);
+                start = snapshot + 1; // Then the versions after the snapshot
+            }
+            for (int i = start; i < this.count; i++) {
+                this.entries[i].appendTo(payload); // Only the cells each version changed
+            }
+            return new SheetUpdates(this.count, payload.toString());
+        }
+
+        /**
+         * Rebuilds the cells of a version from the nearest snapshot at or before it and the
+         * versions in between.
+         *
+         * @param index the index of the version.
+         * @return the cells of the version.
+         */
+        private PersistentGrid cellsAt(int index) {
+            int snapshot = latestSnapshot(0, index);
+            PersistentGrid cells = snapshot < 0 ? PersistentGrid.EMPTY : this.entries[snapshot].snapshot;
+            for (int i = snapshot + 1; i <= index; i++) {
+                cells = this.entries[i].applyTo(cells); // Replay the changes after the snapshot
+            }
+            return cells;
+        }
+
+        /**
+         * Finds the latest version in a range whose cells were kept as a snapshot.
+         *
+         * @param first the first version of the range.
+         * @param last  the last version of the range.
+         * @return the index of the version, or -1 if none in the range was kept.
+         */
+        private int latestSnapshot(int first, int last) {
+            for (int i = last; i >= first; i--) {
+                if (this.entries[i].snapshot != null) {
+                    return i; // At most one snapshot interval back
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The cells one version changed.
+     */
+    private static final class Entry {
+        private final Cell[] changed; // Cells written, in row major order
+        private final Cell[] removed; // Cells cleared, as they were before, in row major order
+        private final int idVersion; // The version ID of the version
+        private final int rows; // Rows in use by the version
+        private final int cols; // Columns in use by the version
+        private final IReadOnlySpreadSheet version; // The version as added, or null if it is rebuilt
+        private final PersistentGrid snapshot; // The whole cells of the version, or null if not kept
+
+        /**
+         * Constructs an entry.
+         *
+         * @param changed   the cells written.
+         * @param removed   the cells cleared.
+         * @param idVersion the version ID.
+         * @param rows      the rows in use.
+         * @param cols      the columns in use.
+         * @param version   the version as added, or null to rebuild it from the log.
+         * @param snapshot  the whole cells of the version, or null if they are not kept.
+         */
+        Entry(Cell[] changed, Cell[] removed, int idVersion, int rows, int cols, IReadOnlySpreadSheet version,
+              PersistentGrid snapshot) {
+            this.changed = changed;
+            this.removed = removed;
+            this.idVersion = idVersion;
+            this.rows = rows;
+            this.cols = cols;
+            this.version = version;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Applies the changes to the cells of the version before.
+         *
+         * @param cells the cells of the version before.
+         * @return the cells of this version.
+         */
+        PersistentGrid applyTo(PersistentGrid cells) {
+            for (Cell cell : this.removed) {
+                cells = cells.with(cell.getRow(), cell.getCol(), null);
+            }
+            for (Cell cell : this.changed) {
+                cells = cells.with(cell.getRow(), cell.getCol(), cell); // Already read only, so not copied
+            }
+            return cells;
+        }
+
+        /**
+         * Appends the changes as payload lines.
+         *
+         * @param payload the payload to append to.
+         */
+        void appendTo(StringBuilder payload) {
+            appendChanges(payload, Arrays.asList(this.changed), Arrays.asList(this.removed));
+        }
+    }
+
+    /**
+     * Appends changes as payload lines, written cells first and then cleared ones.
+     *
+     * @param payload the payload to append to.
+     * @param changed the cells written.
+     * @param removed the cells cleared.
+     */
+    private static void appendChanges(StringBuilder payload, List<Cell> changed, List<Cell> removed) {
+        List<Cell> cleared = new ArrayList<>(removed);
+        for (Cell cell : changed) {
+            String value = cell.isFormula() ? cell.getFormula() : cell.getRawdata();
+            if (cell.getRawdata().isEmpty()) {
+                cleared.add(cell); // Holds nothing a client would see
+                continue;
+            }
+            appendReference(payload, cell).append(' ').append(value).append('\n');
+        }
+        for (Cell cell : cleared) {
+            appendReference(payload, cell).append('\n');
+        }
+    }
+
+    /**
+     * Appends the reference of a cell, such as $A1.
+     *
+     * @param payload the payload to append to.
+     * @param cell    the cell.
+     * @return the payload.
+     */
+    private static StringBuilder appendReference(StringBuilder payload, Cell cell) {
+        return payload.append('$').append(Spreadsheet.getColumnName(cell.getCol() + 1)).append(cell.getRow() + 1);
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.model.formula;
+
+/**
+ * An arithmetic, comparison or logical operation between two expressions.
+ */
+public final class BinaryOperation implements Expression {
+
+    /**
+     * The operators that can join two expressions.
+     */
+    public enum Operator {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE, LESS, GREATER, EQUAL, NOT_EQUAL, AND, OR
+    }
+
+    private final Operator operator; // The operator
+    private final Expression left; // The left operand
+    private final Expression right; // The right operand
+
+    /**
+     * Constructs a binary operation.
+     *
+     * @param operator the operator.
+     * @param left     the left operand.
+     * @param right    the right operand.
+     */
+    public BinaryOperation(Operator operator, Expression left, Expression right) {
+        this.operator = operator; // Set the operator
+        this.left = left; // Set the left operand
+        this.right = right; // Set the right operand
+    }
+
+    /**
+     * Gets the operator.
+     *
+     * @return the operator.
+     */
+    public Operator getOperator() {
+        return this.operator; // Return the operator
+    }
+
+    /**
+     * Gets the left operand.
+     *
+     * @return the left operand.
+     */
+    public Expression getLeft() {
+        return this.left; // Return the left operand
+    }
+
+    /**
+     * Gets the right operand.
+     *
+     * @return the right operand.
+     */
+    public Expression getRight() {
+        return this.right; // Return the right operand
+    }
+
+    @Override
+    public Value evaluate(IEvaluationContext context) {
+        Value a = this.left.evaluate(context); // Evaluate the left operand
+        if (a.isError()) {
+            return Value.ERROR; // Errors propagate through every operator, so the right operand is not needed
+        }
+        if (this.operator == Operator.AND || this.operator == Operator.OR) {
+            return logical(a, context); // May not need the right operand either
+        }
+        Value b = this.right.evaluate(context); // Evaluate the right operand
+        if (b.isError()) {
+            return Value.ERROR; // Errors propagate through every operator
+        }
+        switch (this.operator) {
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+                return arithmetic(a, b);
+            case LESS:
+            case GREATER:
+                return compare(a, b);
+            case EQUAL:
+                return Value.bool(equal(a, b));
+            default:
+                return Value.bool(!equal(a, b));
+        }
+    }
+
+    /**
+     * Applies an arithmetic operator. Empty cells count as zero.
+     *
+     * @param a the left value.
+     * @param b the right value.
+     * @return the result, or an error if either value is not a number.
+     */
+    private Value arithmetic(Value a, Value b) {
+        if ((!a.isEmpty() && !a.isNumeric()) || (!b.isEmpty() && !b.isNumeric())) {
+            return Value.ERROR; // Text cannot be used in arithmetic
+        }
+        double x = a.asNumber(); // Empty values hold zero
+        double y = b.asNumber();
+        switch (this.operator) {
+            case ADD:
+                return Value.number(x + y);
+            case SUBTRACT:
+                return Value.number(x - y);
+            case MULTIPLY:
+                return Value.number(x * y);
+            default:
+                return Value.number(x / y);
+        }
+    }
+
+    /**
+     * Applies a less than or greater than comparison.
+     *
+     * @param a the left value.
+     * @param b the right value.
+     * @return 1 or 0, or an error if either value is not a number.
+     */
+    private Value compare(Value a, Value b) {
+        if (!a.isNumeric() || !b.isNumeric()) {
+            return Value.ERROR; // Only numbers can be ordered
+        }
+        if (this.operator == Operator.LESS) {
+            return Value.bool(a.asNumber() < b.asNumber());
+        }
+        return Value.bool(a.asNumber() > b.asNumber());
+    }
+
+    /**
+     * Checks two values for equality, numerically if both are numbers and as text otherwise.
+     *
+     * @param a the left value.
+     * @param b the right value.
+     * @return true if the values are equal.
+     */
+    private static boolean equal(Value a, Value b) {
+        if (a.isNumeric() && b.isNumeric()) {
+            return a.asNumber() == b.asNumber(); // Compare numbers by value
+        }
+        return a.toString().equals(b.toString()); // Compare everything else as text
+    }
+
+    /**
+     * Applies a logical operator, where any non-zero number is true. The right operand
+     * is only evaluated if the left one does not decide the result, so a false left
+     * operand of &amp; or a true left operand of | skips the right one entirely.
+     *
+     * @param a       the left value.
+     * @param context the context used to evaluate the right operand.
+     * @return 1 or 0, or an error if an evaluated operand is not a number.
+     */
+    private Value logical(Value a, IEvaluationContext context) {
+        if (!a.isNumeric()) {
+            return Value.ERROR; // Only numbers have a truth value
+        }
+        boolean x = a.asNumber() != 0;
+        if (x == (this.operator == Operator.OR)) {
+            return Value.bool(x); // False for & and true for | decide the result alone
+        }
+        Value b = this.right.evaluate(context); // Evaluate the right operand
+        if (!b.isNumeric()) {
+            return Value.ERROR; // Errors and text have no truth value
+        }
+        return Value.bool(b.asNumber() != 0);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BinaryOperation)) {
+            return false;
+        }
+        BinaryOperation operation = (BinaryOperation) other;
+        return this.operator == operation.operator && this.left.equals(operation.left)
+                && this.right.equals(operation.right);
+    }
+
+    @Override
+    public int hashCode() {
+        return (this.operator.ordinal() * 31 + this.left.hashCode()) * 31 + this.right.hashCode();
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.model.formula;
+
+/**
+ * The functions that can be called from a formula.
+ */
+public enum BuiltinFunction {
+    IF, SUM, MIN, MAX, AVG, CONCAT, DEBUG, STDDEV, SORT, COPY, VLOOKUP, MATCH, XLOOKUP, COUNTIF;
+
+    /**
+     * Looks up a function by the name used in a formula.
+     *
+     * @param name the function name.
+     * @return the function, or null if there is no function with that name.
+     */
+    public static BuiltinFunction fromName(String name) {
+        for (BuiltinFunction function : values()) {
+            if (function.name().equals(name)) {
+                return function; // Return the matching function
+            }
+        }
+        return null; // Return null if no function matches
+    }
+}
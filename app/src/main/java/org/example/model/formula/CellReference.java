@@ -0,0 +1,65 @@
+package org.example.model.formula;
+
+/**
+ * A reference to a single cell such as $A1.
+ */
+public final class CellReference implements Expression {
+    private final int row; // Zero based row index
+    private final int col; // Zero based column index
+
+    /**
+     * Constructs a cell reference.
+     *
+     * @param row the zero based row index.
+     * @param col the zero based column index.
+     */
+    public CellReference(int row, int col) {
+        this.row = row; // Set the row
+        this.col = col; // Set the column
+    }
+
+    /**
+     * Parses a reference such as $A1 into a cell reference.
+     *
+     * @param reference the reference text.
+     * @return the cell reference.
+     */
+    public static CellReference parse(String reference) {
+        long cell = ReferenceScanner.parse(reference); // Decode without substrings
+        return new CellReference(ReferenceScanner.row(cell), ReferenceScanner.col(cell));
+    }
+
+    /**
+     * Gets the row index of the referenced cell.
+     *
+     * @return the zero based row index.
+     */
+    public int getRow() {
+        return this.row; // Return the row
+    }
+
+    /**
+     * Gets the column index of the referenced cell.
+     *
+     * @return the zero based column index.
+     */
+    public int getCol() {
+        return this.col; // Return the column
+    }
+
+    @Override
+    public Value evaluate(IEvaluationContext context) {
+        return context.getValue(this.row, this.col); // Look up the referenced cell
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CellReference && this.row == ((CellReference) other).row
+                && this.col == ((CellReference) other).col;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(((long) this.row << 32) | (this.col & 0xFFFFFFFFL)); // Hash of the packed cell
+    }
+}
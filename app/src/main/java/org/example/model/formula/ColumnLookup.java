@@ -0,0 +1,432 @@
+package org.example.model.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An index of the values in one column, used by the lookup functions instead of
+ * reading the column cell by cell. A hash index answers exact matches in constant
+ * time; a sorted index, built the first time a lookup needs ordering, answers
+ * approximate matches and comparisons in logarithmic time, over the whole column or
+ * any part of it.
+ *
+ * <p>Numbers are matched by value and text without regard to case, and every number
+ * sorts before every text. Empty cells and errors are not indexed. The index is a
+ * picture of the column when it was built, so the owner of the column has to
+ * discard it when a cell of the column changes.</p>
+ */
+public final class ColumnLookup {
+    private static final Comparator<Object> KEY_ORDER = ColumnLookup::compareKeys; // Numbers first, then text
+
+    private final Map<Object, int[]> exact; // Key -> rows holding it, ascending
+    private final int[] rows; // Rows of the indexed cells, ascending
+    private final Object[] keys; // Keys of the indexed cells, in the same order
+    private SortedIndex sorted; // The keys in order and a wavelet matrix over them, built on first use
+
+    /**
+     * Builds the index of a column.
+     *
+     * @param rows   the rows of the populated cells, ascending.
+     * @param values the values of those cells.
+     */
+    public ColumnLookup(int[] rows, Value[] values) {
+        Map<Object, List<Integer>> grouped = new HashMap<>();
+        int[] indexedRows = new int[rows.length];
+        Object[] indexedKeys = new Object[rows.length];
+        int indexed = 0;
+        for (int i = 0; i < rows.length; i++) {
+            Object key = keyOf(values[i]);
+            if (key != null) {
+                grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(rows[i]); // Rows stay ascending
+                indexedRows[indexed] = rows[i];
+                indexedKeys[indexed++] = key;
+            }
+        }
+        this.rows = Arrays.copyOf(indexedRows, indexed);
+        this.keys = Arrays.copyOf(indexedKeys, indexed);
+        this.exact = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<Object, List<Integer>> entry : grouped.entrySet()) {
+            this.exact.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * Finds the first row between two rows holding a value equal to the key.
+     *
+     * @param key     the value to find.
+     * @param fromRow the first row searched.
+     * @param toRow   the last row searched.
+     * @return the row, or -1 if there is none.
+     */
+    public int findExact(Value key, int fromRow, int toRow) {
+        Object lookupKey = keyOf(key);
+        return lookupKey == null ? -1 : firstRowIn(this.exact.get(lookupKey), fromRow, toRow);
+    }
+
+    /**
+     * Finds the row between two rows holding the largest value not greater than the
+     * key, or with {@code below} false the smallest value not less than the key. Of
+     * several rows with that value the first is returned.
+     *
+     * @param key     the value to find.
+     * @param below   true to find the nearest value below the key, false for above.
+     * @param fromRow the first row searched.
+     * @param toRow   the last row searched.
+     * @return the row, or -1 if there is none.
+     */
+    public int findNearest(Value key, boolean below, int fromRow, int toRow) {
+        Object lookupKey = keyOf(key);
+        if (lookupKey == null) {
+            return -1; // Empty and error keys match nothing
+        }
+        SortedIndex index = sorted();
+        int first = lowerBound(this.rows, fromRow); // The cells between the rows
+        int last = lowerBound(this.rows, toRow + 1);
+        int kindStart = isNumber(lookupKey) ? 0 : index.numbers; // Numbers only match numbers and text only text
+        int kindEnd = isNumber(lookupKey) ? index.numbers : index.keys.length;
+        int rank;
+        if (below) {
+            int end = index.rankAfter(lookupKey); // Ranks of keys not greater than the key
+            int smaller = index.matrix.countLess(first, last, end);
+            if (end <= kindStart || smaller == index.matrix.countLess(first, last, kindStart)) {
+                return -1; // No value of the same kind below the key in the rows
+            }
+            rank = index.matrix.kthSmallest(first, last, smaller - 1); // The largest of them
+        } else {
+            int start = Math.max(index.rankOf(lookupKey), kindStart); // Ranks of keys not less than the key
+            int smaller = index.matrix.countLess(first, last, start);
+            if (start >= kindEnd || smaller == index.matrix.countLess(first, last, kindEnd)) {
+                return -1; // No value of the same kind above the key in the rows
+            }
+            rank = index.matrix.kthSmallest(first, last, smaller); // The smallest of them
+        }
+        return firstRowIn(this.exact.get(index.keys[rank]), fromRow, toRow); // The first row holding it
+    }
+
+    /**
+     * Counts the rows between two rows holding a value that meets a comparison with
+     * the key. Numbers are only compared with numbers and text only with text.
+     *
+     * @param operator the comparison: EQUAL, LESS or GREATER.
+     * @param orEqual  whether values equal to the key also count for LESS and GREATER.
+     * @param key      the value to compare with.
+     * @param fromRow  the first row counted.
+     * @param toRow    the last row counted.
+     * @return the number of rows.
+     */
+    public int count(BinaryOperation.Operator operator, boolean orEqual, Value key, int fromRow, int toRow) {
+        Object lookupKey = keyOf(key);
+        if (lookupKey == null) {
+            return 0; // Empty and error keys match nothing
+        }
+        if (operator == BinaryOperation.Operator.EQUAL) {
+            return countIn(this.exact.get(lookupKey), fromRow, toRow); // A single hash lookup
+        }
+        SortedIndex index = sorted();
+        int kindStart = isNumber(lookupKey) ? 0 : index.numbers; // Only keys of the same kind as the key
+        int kindEnd = isNumber(lookupKey) ? index.numbers : index.keys.length;
+        int start;
+        int end;
+        if (operator == BinaryOperation.Operator.LESS) {
+            start = kindStart;
+            end = Math.max(kindStart, orEqual ? index.rankAfter(lookupKey) : index.rankOf(lookupKey));
+        } else {
+            start = Math.min(kindEnd, orEqual ? index.rankOf(lookupKey) : index.rankAfter(lookupKey));
+            end = kindEnd;
+        }
+        int first = lowerBound(this.rows, fromRow); // The cells between the rows
+        int last = lowerBound(this.rows, toRow + 1);
+        return index.matrix.countLess(first, last, end) - index.matrix.countLess(first, last, start);
+    }
+
+    /**
+     * Gets the key a value is indexed under.
+     *
+     * @param value the value.
+     * @return a Double for numbers, lower case text for text, or null if the value is
+     *         empty or an error.
+     */
+    public static Object keyOf(Value value) {
+        if (value.isEmpty() || value.isError()) {
+            return null; // Not indexed
+        }
+        if (value.isNumeric()) {
+            return value.asNumber() + 0.0; // Adding zero turns -0.0 into 0.0
+        }
+        return value.toString().toLowerCase(Locale.ROOT); // Text matches without regard to case
+    }
+
+    /**
+     * Orders two keys, numbers by value before text in alphabetical order.
+     *
+     * @param a the first key.
+     * @param b the second key.
+     * @return a negative number, zero or a positive number as a is before, equal to or after b.
+     */
+    public static int compareKeys(Object a, Object b) {
+        if (isNumber(a) != isNumber(b)) {
+            return isNumber(a) ? -1 : 1; // Numbers before text
+        }
+        return isNumber(a) ? Double.compare((Double) a, (Double) b) : ((String) a).compareTo((String) b);
+    }
+
+    /**
+     * Gets the sorted index, building it the first time it is needed.
+     *
+     * @return the sorted index.
+     */
+    private synchronized SortedIndex sorted() {
+        if (this.sorted == null) {
+            Object[] ordered = this.exact.keySet().toArray();
+            Arrays.sort(ordered, KEY_ORDER); // Each distinct key once, numbers first
+            int numbers = 0;
+            while (numbers < ordered.length && isNumber(ordered[numbers])) {
+                numbers++;
+            }
+            int[] ranks = new int[this.keys.length];
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] = Arrays.binarySearch(ordered, this.keys[i], KEY_ORDER); // The key's place in the order
+            }
+            this.sorted = new SortedIndex(ordered, numbers, new WaveletMatrix(ranks, ordered.length));
+        }
+        return this.sorted;
+    }
+
+    /**
+     * Checks if a key is a number.
+     *
+     * @param key the key.
+     * @return true for numbers, false for text.
+     */
+    public static boolean isNumber(Object key) {
+        return key instanceof Double;
+    }
+
+    /**
+     * Finds the first row of an ascending array that lies between two rows.
+     *
+     * @param rows    the rows, or null.
+     * @param fromRow the first row.
+     * @param toRow   the last row.
+     * @return the row, or -1 if there is none.
+     */
+    private static int firstRowIn(int[] rows, int fromRow, int toRow) {
+        if (rows == null) {
+            return -1;
+        }
+        int index = lowerBound(rows, fromRow);
+        return index < rows.length && rows[index] <= toRow ? rows[index] : -1;
+    }
+
+    /**
+     * Counts the entries of an ascending array that lie between two rows.
+     *
+     * @param rows    the rows, or null.
+     * @param fromRow the first row.
+     * @param toRow   the last row.
+     * @return the number of rows.
+     */
+    private static int countIn(int[] rows, int fromRow, int toRow) {
+        if (rows == null) {
+            return 0;
+        }
+        if (fromRow <= rows[0] && toRow >= rows[rows.length - 1]) {
+            return rows.length; // The whole column, which is the usual case
+        }
+        return lowerBound(rows, toRow + 1) - lowerBound(rows, fromRow);
+    }
+
+    /**
+     * Finds the first index of an ascending array holding a row not less than the given one.
+     *
+     * @param rows the rows.
+     * @param row  the row.
+     * @return the index, or the length of the array if every row is smaller.
+     */
+    private static int lowerBound(int[] rows, int row) {
+        int index = Arrays.binarySearch(rows, row);
+        return index >= 0 ? index : -index - 1; // Rows are unique, so a hit is the first
+    }
+
+    /**
+     * The distinct keys of a column in order, and the rank of every indexed cell's key
+     * in row order.
+     */
+    private static final class SortedIndex {
+        private final Object[] keys; // Distinct keys, numbers first
+        private final int numbers; // Number of keys that are numbers
+        private final WaveletMatrix matrix; // Ranks of the cells' keys, in row order
+
+        /**
+         * Constructs a sorted index.
+         *
+         * @param keys    the distinct keys in order.
+         * @param numbers the number of keys that are numbers.
+         * @param matrix  the ranks of the cells' keys in row order.
+         */
+        SortedIndex(Object[] keys, int numbers, WaveletMatrix matrix) {
+            this.keys = keys;
+            this.numbers = numbers;
+            this.matrix = matrix;
+        }
+
+        /**
+         * Gets the rank of the first key not less than a key.
+         *
+         * @param key the key.
+         * @return the rank, or the number of keys if every key is less.
+         */
+        int rankOf(Object key) {
+            int index = Arrays.binarySearch(this.keys, key, KEY_ORDER);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * Gets the rank of the first key greater than a key.
+         *
+         * @param key the key.
+         * @return the rank, or the number of keys if no key is greater.
+         */
+        int rankAfter(Object key) {
+            int index = Arrays.binarySearch(this.keys, key, KEY_ORDER);
+            return index >= 0 ? index + 1 : -index - 1; // Keys are distinct
+        }
+    }
+
+    /**
+     * A wavelet matrix over a sequence of small numbers. For any part of the sequence it
+     * counts the numbers less than a bound, and finds the k-th smallest number, reading
+     * one bit vector per bit of the numbers, so both take O(log n).
+     */
+    private static final class WaveletMatrix {
+        private final int bits; // Bits per number
+        private final int length; // Length of the sequence
+        private final long[][] words; // Bit vector of each level, most significant bit first
+        private final int[][] ones; // Ones before each word of each level
+        private final int[] zeros; // Zeros in each level
+
+        /**
+         * Builds the matrix.
+         *
+         * @param values the sequence, each number between 0 and limit - 1.
+         * @param limit  one more than the largest number.
+         */
+        WaveletMatrix(int[] values, int limit) {
+            int bits = 1;
+            while ((1 << bits) < limit) {
+                bits++; // Enough bits for every number
+            }
+            this.bits = bits;
+            this.length = values.length;
+            this.words = new long[bits][values.length / 64 + 1];
+            this.ones = new int[bits][values.length / 64 + 1];
+            this.zeros = new int[bits];
+            int[] current = values.clone();
+            int[] next = new int[values.length];
+            for (int level = 0; level < bits; level++) {
+                int shift = bits - 1 - level;
+                int zeroCount = 0;
+                for (int i = 0; i < current.length; i++) {
+                    if (((current[i] >>> shift) & 1) == 0) {
+                        zeroCount++;
+                    } else {
+                        this.words[level][i >>> 6] |= 1L << i; // Shifts use the low six bits
+                    }
+                }
+                for (int w = 1; w < this.ones[level].length; w++) {
+                    this.ones[level][w] = this.ones[level][w - 1] + Long.bitCount(this.words[level][w - 1]);
+                }
+                this.zeros[level] = zeroCount;
+                int zero = 0;
+                int one = zeroCount;
+                for (int value : current) {
+                    if (((value >>> shift) & 1) == 0) {
+                        next[zero++] = value; // Stable, zeros first
+                    } else {
+                        next[one++] = value;
+                    }
+                }
+                int[] swap = current;
+                current = next;
+                next = swap;
+            }
+        }
+
+        /**
+         * Counts the numbers less than a bound in part of the sequence.
+         *
+         * @param start the first position.
+         * @param end   one past the last position.
+         * @param bound the bound.
+         * @return the number of positions holding a number less than the bound.
+         */
+        int countLess(int start, int end, int bound) {
+            if (start >= end || bound <= 0) {
+                return 0;
+            }
+            if (bound >= (1 << this.bits)) {
+                return end - start; // Every number is less
+            }
+            int count = 0;
+            for (int level = 0; level < this.bits; level++) {
+                int startOnes = rank(level, start);
+                int endOnes = rank(level, end);
+                if (((bound >>> (this.bits - 1 - level)) & 1) == 1) {
+                    count += (end - start) - (endOnes - startOnes); // Numbers with a zero here are less
+                    start = this.zeros[level] + startOnes;
+                    end = this.zeros[level] + endOnes;
+                } else {
+                    start -= startOnes;
+                    end -= endOnes;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Finds the k-th smallest number in part of the sequence.
+         *
+         * @param start the first position.
+         * @param end   one past the last position.
+         * @param k     the number of smaller numbers to skip, less than end - start.
+         * @return the number.
+         */
+        int kthSmallest(int start, int end, int k) {
+            int value = 0;
+            for (int level = 0; level < this.bits; level++) {
+                int startOnes = rank(level, start);
+                int endOnes = rank(level, end);
+                int zeroCount = (end - start) - (endOnes - startOnes);
+                if (k < zeroCount) {
+                    start -= startOnes; // Among the numbers with a zero here
+                    end -= endOnes;
+                    value <<= 1;
+                } else {
+                    k -= zeroCount;
+                    start = this.zeros[level] + startOnes;
+                    end = this.zeros[level] + endOnes;
+                    value = (value << 1) | 1;
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Counts the ones of a level before a position.
+         *
+         * @param level    the level.
+         * @param position the position, at most the length of the sequence.
+         * @return the number of ones.
+         */
+        private int rank(int level, int position) {
+            int word = position >>> 6;
+            long below = (1L << position) - 1; // Bits before the position within its word
+            return this.ones[level][word] + Long.bitCount(this.words[level][word] & below);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package org.example.model.formula;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * A formula compiled into a tree of method handles, used by {@link Formula} once it
+ * has been evaluated often enough to be worth it. Only numeric formulas are compiled:
+ * number literals, cell references, negation and the binary operators. Cells are read
+ * as primitive doubles through {@link IEvaluationContext#getNumber(int, int)}, so a
+ * formula over numbers runs without creating a value per node.
+ *
+ * <p>As soon as a compiled formula reads a cell that is not a number, which includes
+ * empty cells and errors, it stops and the formula is interpreted instead. The
+ * interpreter handles every other case, so both give the same result.</p>
+ */
+public final class CompiledFormula {
+    private static final NotNumeric NOT_NUMERIC = new NotNumeric(); // Thrown to fall back to the interpreter
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType BINARY = MethodType.methodType(double.class, double.class, double.class);
+    private static final MethodHandle GET_NUMBER; // IEvaluationContext.getNumber(int, int)
+    private static final MethodHandle NUMBER; // Value.number(double)
+    private static final MethodHandle BOOL; // bool(double)
+    private static final MethodHandle NEGATE; // negate(double)
+    private static final MethodHandle IS_TRUE; // isTrue(double)
+    private static final MethodHandle TRUTH; // truth(double)
+
+    static {
+        try {
+            GET_NUMBER = LOOKUP.findVirtual(IEvaluationContext.class, "getNumber",
+                    MethodType.methodType(double.class, int.class, int.class));
+            NUMBER = LOOKUP.findStatic(Value.class, "number", MethodType.methodType(Value.class, double.class));
+            BOOL = LOOKUP.findStatic(CompiledFormula.class, "bool", MethodType.methodType(Value.class, double.class));
+            NEGATE = LOOKUP.findStatic(CompiledFormula.class, "negate", MethodType.methodType(double.class, double.class));
+            IS_TRUE = LOOKUP.findStatic(CompiledFormula.class, "isTrue", MethodType.methodType(boolean.class, double.class));
+            TRUTH = LOOKUP.findStatic(CompiledFormula.class, "truth", MethodType.methodType(double.class, double.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final MethodHandle handle; // (IEvaluationContext)Value
+    private final Expression fallback; // Interpreted when a cell is not a number
+
+    /**
+     * Constructs a compiled formula.
+     *
+     * @param handle   the compiled tree.
+     * @param fallback the expression interpreted when the compiled tree gives up.
+     */
+    private CompiledFormula(MethodHandle handle, Expression fallback) {
+        this.handle = handle;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Compiles an expression tree.
+     *
+     * @param root the root of the tree.
+     * @return the compiled formula, or null if the tree holds something other than
+     *         numbers, cell references and operators, or is a single literal or cell.
+     */
+    public static CompiledFormula compile(Expression root) {
+        if (!(root instanceof BinaryOperation) && !(root instanceof UnaryMinus)) {
+            return null; // Nothing to gain, and literals keep their written form
+        }
+        MethodHandle tree = compileNumber(root);
+        if (tree == null) {
+            return null; // Not a numeric formula
+        }
+        boolean logical = root instanceof BinaryOperation && !isArithmetic(((BinaryOperation) root).getOperator());
+        MethodHandle result = MethodHandles.filterReturnValue(tree, logical ? BOOL : NUMBER); // Box the result once
+        return new CompiledFormula(result, root);
+    }
+
+    /**
+     * Evaluates the compiled formula.
+     *
+     * @param context the context used to look up cell values.
+     * @return the result, the same as interpreting the formula.
+     */
+    public Value evaluate(IEvaluationContext context) {
+        try {
+            return (Value) this.handle.invokeExact(context);
+        } catch (NotNumeric e) {
+            return this.fallback.evaluate(context); // Let the interpreter deal with it
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e); // The tree throws no checked exceptions
+        }
+    }
+
+    /**
+     * Gets the exception {@link IEvaluationContext#getNumber(int, int)} throws for cells
+     * that do not hold a number. It is shared and has no stack trace, so throwing it is cheap.
+     *
+     * @return the exception.
+     */
+    static RuntimeException notNumeric() {
+        return NOT_NUMERIC;
+    }
+
+    /**
+     * Compiles an expression into a handle of type (IEvaluationContext)double.
+     *
+     * @param expression the expression.
+     * @return the handle, or null if the expression cannot be compiled.
+     */
+    private static MethodHandle compileNumber(Expression expression) {
+        if (expression instanceof NumberLiteral) {
+            return constant(expression.evaluate(null).asNumber()); // Literals do not read the context
+        }
+        if (expression instanceof CellReference) {
+            CellReference cell = (CellReference) expression;
+            return MethodHandles.insertArguments(GET_NUMBER, 1, cell.getRow(), cell.getCol()); // Read the cell as a double
+        }
+        if (expression instanceof UnaryMinus) {
+            MethodHandle operand = compileNumber(((UnaryMinus) expression).getOperand());
+            return operand == null ? null : MethodHandles.filterReturnValue(operand, NEGATE);
+        }
+        if (!(expression instanceof BinaryOperation)) {
+            return null; // Text, ranges and function calls are interpreted
+        }
+        BinaryOperation operation = (BinaryOperation) expression;
+        MethodHandle left = compileNumber(operation.getLeft());
+        MethodHandle right = compileNumber(operation.getRight());
+        if (left == null || right == null) {
+            return null;
+        }
+        switch (operation.getOperator()) {
+            case AND:
+                return MethodHandles.guardWithTest(MethodHandles.filterReturnValue(left, IS_TRUE),
+                        MethodHandles.filterReturnValue(right, TRUTH), constant(0)); // The right operand only if needed
+            case OR:
+                return MethodHandles.guardWithTest(MethodHandles.filterReturnValue(left, IS_TRUE),
+                        constant(1), MethodHandles.filterReturnValue(right, TRUTH));
+            default:
+                MethodHandle operator = binary(operation.getOperator());
+                MethodHandle both = MethodHandles.filterArguments(operator, 0, left, right); // (context, context)double
+                return MethodHandles.permuteArguments(both,
+                        MethodType.methodType(double.class, IEvaluationContext.class), 0, 0); // Pass the context to both
+        }
+    }
+
+    /**
+     * Checks if an operator is one of the four arithmetic operators.
+     *
+     * @param operator the operator.
+     * @return true for +, -, * and /.
+     */
+    private static boolean isArithmetic(BinaryOperation.Operator operator) {
+        return operator == BinaryOperation.Operator.ADD || operator == BinaryOperation.Operator.SUBTRACT
+                || operator == BinaryOperation.Operator.MULTIPLY || operator == BinaryOperation.Operator.DIVIDE;
+    }
+
+    /**
+     * Gets a handle of type (IEvaluationContext)double returning a constant.
+     *
+     * @param number the constant.
+     * @return the handle.
+     */
+    private static MethodHandle constant(double number) {
+        return MethodHandles.dropArguments(MethodHandles.constant(double.class, number), 0, IEvaluationContext.class);
+    }
+
+    /**
+     * Gets the handle of the method applying a binary operator to two numbers.
+     *
+     * @param operator the operator, other than &amp; and |.
+     * @return the handle of type (double, double)double.
+     */
+    private static MethodHandle binary(BinaryOperation.Operator operator) {
+        String name;
+        switch (operator) {
+            case ADD:
+                name = "add";
+                break;
+            case SUBTRACT:
+                name = "subtract";
+                break;
+            case MULTIPLY:
+                name = "multiply";
+                break;
+            case DIVIDE:
+                name = "divide";
+                break;
+            case LESS:
+                name = "less";
+                break;
+            case GREATER:
+                name = "greater";
+                break;
+            case EQUAL:
+                name = "equal";
+                break;
+            default:
+                name = "notEqual";
+                break;
+        }
+        try {
+            return LOOKUP.findStatic(CompiledFormula.class, name, BINARY);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds two numbers.
+     *
+     * @param x the left number.
+     * @param y the right number.
+     * @return the sum.
+     */
+    private static double add(double x, double y) {
+        return x + y;
+    }
+
+    /**
+     * Subtracts two numbers.
+     *
+     * @param x the left number.
+     * @param y the right number.
+     * @return the difference.
+     */
+    private static double subtract(double x, double y) {
+        return x - y;
+    }
+
+    /**
+     * Multiplies two numbers.
+     *
+     * @param x the left number.
+     * @param y the right number.
+     * @return the product.
+     */
+    private static double multiply(double x, double y) {
+        return x * y;
+    }
+
+    /**
+     * Divides two numbers.
+     *
+     * @param x the left number.
+     * @param y the right number.
+     * @return the quotient.
+     */
+    private static double divide(double x, double y) {
+        return x / y;
+    }
+
+    /**
+     * Compares two numbers with <.
+     *
+     * @param x the left number.
+     * @param y the right number.
+     * @return 1 or 0.
+     */
+    private static double less(double x, double y) {
+        return x < y ? 1 : 0;
+    }
+
+    /**
+     * Compares two numbers with >.
+     *
+     * @param x the left number.
+     * @param y the right number.
+     * @return 1 or 0.
+     */
+    private static double greater(double x, double y) {
+        return x > y ? 1 : 0;
+    }
+
+    /**
+     * Compares two numbers with =.
+     *
+     * @param x the left number.
+     * @param y the right number.
+     * @return 1 or 0.
+     */
+    private static double equal(double x, double y) {
+        return x == y ? 1 : 0;
+    }
+
+    /**
+     * Compares two numbers with <>.
+     *
+     * @param x the left number.
+     * @param y the right number.
+     * @return 1 or 0.
+     */
+    private static double notEqual(double x, double y) {
+        return x != y ? 1 : 0;
+    }
+
+    /**
+     * Negates a number.
+     *
+     * @param x the number.
+     * @return the negated number.
+     */
+    private static double negate(double x) {
+        return -x;
+    }
+
+    /**
+     * Checks if a number is true, as any non-zero number is.
+     *
+     * @param x the number.
+     * @return true if the number is not zero.
+     */
+    private static boolean isTrue(double x) {
+        return x != 0;
+    }
+
+    /**
+     * Turns a number into 1 if it is true and 0 otherwise.
+     *
+     * @param x the number.
+     * @return 1 or 0.
+     */
+    private static double truth(double x) {
+        return x != 0 ? 1 : 0;
+    }
+
+    /**
+     * Boxes the result of a comparison or logical operator.
+     *
+     * @param x 1 or 0.
+     * @return the boolean value.
+     */
+    private static Value bool(double x) {
+        return Value.bool(x != 0);
+    }
+
+    /**
+     * Thrown when a compiled formula reads a cell that does not hold a number.
+     */
+    private static final class NotNumeric extends RuntimeException {
+
+        /**
+         * Constructs the shared instance, without a stack trace.
+         */
+        NotNumeric() {
+            super(null, null, false, false);
+        }
+    }
+}
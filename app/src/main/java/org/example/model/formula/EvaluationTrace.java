@@ -0,0 +1,318 @@
+package org.example.model.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records how formulas are evaluated: the expression tree of each formula, the cells
+ * and ranges it reads, its result and how long it took. Events are kept in a ring
+ * buffer of fixed size, so a trace left switched on never grows past its capacity.
+ *
+ * <p>A trace is switched on for one sheet with {@code Spreadsheet.setTrace}, or for
+ * everything the current thread evaluates while a request is handled with
+ * {@link #forRequest(EvaluationTrace)}. When no trace is switched on, evaluation only
+ * pays for a null check and one volatile read.</p>
+ */
+public final class EvaluationTrace {
+    public static final int DEFAULT_CAPACITY = 1024; // Events kept by a trace created without a capacity
+
+    private static final ThreadLocal<EvaluationTrace> REQUEST_TRACE = new ThreadLocal<>(); // Trace of the current request
+    private static volatile int requestTraces; // Number of request traces switched on, so the thread local is skipped when 0
+
+    private final TraceEvent[] events; // The ring buffer
+    private long recorded; // Number of events recorded since the last clear
+
+    /**
+     * Constructs a trace that keeps the last {@link #DEFAULT_CAPACITY} events.
+     */
+    public EvaluationTrace() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a trace that keeps the given number of events.
+     *
+     * @param capacity the number of events kept.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public EvaluationTrace(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Trace capacity must be positive: " + capacity);
+        }
+        this.events = new TraceEvent[capacity]; // Allocate the ring buffer
+    }
+
+    /**
+     * Gets the trace switched on for the request handled by the current thread.
+     *
+     * @return the trace, or null if none is switched on.
+     */
+    public static EvaluationTrace current() {
+        return requestTraces == 0 ? null : REQUEST_TRACE.get(); // Skip the thread local when nothing is traced
+    }
+
+    /**
+     * Switches a trace on for the current thread until the returned scope is closed.
+     * Scopes can be nested; closing one restores the trace that was on before it.
+     *
+     * @param trace the trace to record to.
+     * @return the scope to close when the request is done.
+     */
+    public static Scope forRequest(EvaluationTrace trace) {
+        Scope scope = new Scope(REQUEST_TRACE.get()); // Remember the trace to restore
+        REQUEST_TRACE.set(trace); // Switch the trace on
+        synchronized (EvaluationTrace.class) {
+            requestTraces++;
+        }
+        return scope;
+    }
+
+    /**
+     * Evaluates a formula and records its expression tree, the cells it reads and its result.
+     *
+     * @param sheet   the name of the sheet the formula belongs to.
+     * @param formula the formula.
+     * @param context the context used to look up cell values.
+     * @return the result.
+     */
+    public Value evaluate(String sheet, Formula formula, IEvaluationContext context) {
+        long start = System.nanoTime(); // Time the evaluation
+        Value result = formula.getRoot().evaluate(new TracingContext(this, sheet, context)); // Interpreted, so every read is recorded once
+        long nanos = System.nanoTime() - start;
+        record(TraceEvent.Kind.FORMULA, sheet, formula.getSource(),
+                describe(formula.getRoot()) + " = " + result, nanos); // Record the tree and result
+        return result;
+    }
+
+    /**
+     * Records an event.
+     *
+     * @param kind    what the event records.
+     * @param sheet   the sheet the event belongs to.
+     * @param subject the formula, cell or version the event is about.
+     * @param detail  the expression tree, value or payload.
+     * @param nanos   the time taken, or 0 if not timed.
+     */
+    public synchronized void record(TraceEvent.Kind kind, String sheet, String subject, String detail, long nanos) {
+        long sequence = this.recorded++;
+        this.events[(int) (sequence % this.events.length)] = new TraceEvent(sequence, kind, sheet, subject, detail, nanos);
+    }
+
+    /**
+     * Gets the events still in the buffer, oldest first.
+     *
+     * @return a copy of the events.
+     */
+    public synchronized List<TraceEvent> getEvents() {
+        int kept = (int) Math.min(this.recorded, this.events.length); // Older events have been overwritten
+        List<TraceEvent> result = new ArrayList<>(kept);
+        for (long sequence = this.recorded - kept; sequence < this.recorded; sequence++) {
+            result.add(this.events[(int) (sequence % this.events.length)]);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of events recorded since the trace was created or cleared,
+     * including events that have been overwritten.
+     *
+     * @return the number of events recorded.
+     */
+    public synchronized long getRecordedCount() {
+        return this.recorded;
+    }
+
+    /**
+     * Removes every event.
+     */
+    public synchronized void clear() {
+        Arrays.fill(this.events, null); // Let the old events be collected
+        this.recorded = 0;
+    }
+
+    /**
+     * Writes an expression tree in prefix form, such as {@code IF(GREATER($A1, 50), 1, 2)}.
+     *
+     * @param expression the root of the tree.
+     * @return the text of the tree.
+     */
+    public static String describe(Expression expression) {
+        StringBuilder builder = new StringBuilder();
+        describe(expression, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Appends an expression tree in prefix form.
+     *
+     * @param expression the root of the tree.
+     * @param builder    the builder to append to.
+     */
+    private static void describe(Expression expression, StringBuilder builder) {
+        if (expression instanceof CellReference) {
+            appendCell((CellReference) expression, builder);
+        } else if (expression instanceof RangeReference) {
+            appendCell(((RangeReference) expression).getStart(), builder);
+            builder.append(':');
+            appendCell(((RangeReference) expression).getEnd(), builder);
+        } else if (expression instanceof SharedExpression) {
+            describe(((SharedExpression) expression).getExpression(), builder); // Shown like any other call
+        } else if (expression instanceof UnaryMinus) {
+            builder.append("NEGATE(");
+            describe(((UnaryMinus) expression).getOperand(), builder);
+            builder.append(')');
+        } else if (expression instanceof BinaryOperation) {
+            BinaryOperation operation = (BinaryOperation) expression;
+            builder.append(operation.getOperator()).append('(');
+            describe(operation.getLeft(), builder);
+            builder.append(", ");
+            describe(operation.getRight(), builder);
+            builder.append(')');
+        } else if (expression instanceof FunctionCall) {
+            FunctionCall call = (FunctionCall) expression;
+            builder.append(call.getFunction()).append('(');
+            for (int i = 0; i < call.getArguments().size(); i++) {
+                builder.append(i == 0 ? "" : ", ");
+                describe(call.getArguments().get(i), builder);
+            }
+            builder.append(')');
+        } else if (expression instanceof UnparsedFormula) {
+            builder.append("SCRIPT(").append(((UnparsedFormula) expression).getBody()).append(')');
+        } else if (expression instanceof TextLiteral) {
+            builder.append('"').append(expression.evaluate(null)).append('"'); // Literals ignore the context
+        } else {
+            builder.append(expression.evaluate(null)); // A number literal
+        }
+    }
+
+    /**
+     * Appends a cell reference such as $A1.
+     *
+     * @param cell    the cell.
+     * @param builder the builder to append to.
+     */
+    private static void appendCell(CellReference cell, StringBuilder builder) {
+        appendCell(cell.getRow(), cell.getCol(), builder);
+    }
+
+    /**
+     * Appends a cell position such as $A1.
+     *
+     * @param row     the zero based row.
+     * @param col     the zero based column.
+     * @param builder the builder to append to.
+     */
+    private static void appendCell(int row, int col, StringBuilder builder) {
+        builder.append('$');
+        int start = builder.length();
+        for (int n = col + 1; n > 0; n = (n - 1) / 26) {
+            builder.insert(start, (char) ('A' + (n - 1) % 26)); // Column letters, last letter first
+        }
+        builder.append(row + 1);
+    }
+
+    /**
+     * Gets the name of a cell such as $A1.
+     *
+     * @param row the zero based row.
+     * @param col the zero based column.
+     * @return the cell name.
+     */
+    private static String cellName(int row, int col) {
+        StringBuilder builder = new StringBuilder();
+        appendCell(row, col, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Switches a request trace off again when closed.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final EvaluationTrace previous; // The trace that was on before, or null
+        private boolean closed; // Whether the scope has been closed
+
+        /**
+         * Constructs a scope.
+         *
+         * @param previous the trace to restore when the scope is closed.
+         */
+        private Scope(EvaluationTrace previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (this.closed) {
+                return; // Closing twice changes nothing
+            }
+            this.closed = true;
+            if (this.previous == null) {
+                REQUEST_TRACE.remove(); // Nothing was on before
+            } else {
+                REQUEST_TRACE.set(this.previous); // Restore the outer trace
+            }
+            synchronized (EvaluationTrace.class) {
+                requestTraces--;
+            }
+        }
+    }
+
+    /**
+     * Passes lookups through to the sheet and records what they return.
+     */
+    private static final class TracingContext implements IEvaluationContext {
+        private final EvaluationTrace trace; // The trace to record to
+        private final String sheet; // The sheet being evaluated
+        private final IEvaluationContext delegate; // The sheet's own context
+
+        /**
+         * Constructs a tracing context.
+         *
+         * @param trace    the trace to record to.
+         * @param sheet    the sheet being evaluated.
+         * @param delegate the sheet's own context.
+         */
+        TracingContext(EvaluationTrace trace, String sheet, IEvaluationContext delegate) {
+            this.trace = trace;
+            this.sheet = sheet;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Value getValue(int row, int col) {
+            Value value = this.delegate.getValue(row, col);
+            this.trace.record(TraceEvent.Kind.READ, this.sheet, cellName(row, col), value.toString(), 0);
+            return value;
+        }
+
+        @Override
+        public void copyValue(int row, int col, String value) {
+            this.trace.record(TraceEvent.Kind.COPY, this.sheet, cellName(row, col), value, 0);
+            this.delegate.copyValue(row, col, value);
+        }
+
+        @Override
+        public Value evaluateScript(String expression) {
+            long start = System.nanoTime(); // The script engine is slow enough to be worth timing
+            Value value = this.delegate.evaluateScript(expression);
+            this.trace.record(TraceEvent.Kind.SCRIPT, this.sheet, expression, value.toString(), System.nanoTime() - start);
+            return value;
+        }
+
+        @Override
+        public RangeAggregate aggregate(RangeReference range) {
+            RangeAggregate aggregate = this.delegate.aggregate(range);
+            if (aggregate != null) {
+                this.trace.record(TraceEvent.Kind.RANGE, this.sheet, describe(range), "count=" + aggregate.getCount()
+                        + " sum=" + aggregate.getSum() + " min=" + aggregate.getMin() + " max=" + aggregate.getMax(), 0);
+            }
+            return aggregate;
+        }
+
+        @Override
+        public ColumnLookup lookup(int col) {
+            return this.delegate.lookup(col); // Lookups read through the index untraced
+        }
+    }
+}
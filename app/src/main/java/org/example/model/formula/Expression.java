@@ -0,0 +1,17 @@
+package org.example.model.formula;
+
+/**
+ * Represents a node of a parsed formula. Expressions are immutable, so a parsed
+ * formula can be cached and evaluated any number of times, and two expressions are
+ * equal when they have the same structure.
+ */
+public interface Expression {
+
+    /**
+     * Evaluates this expression against the given context.
+     *
+     * @param context the context used to look up cell values.
+     * @return the result of the evaluation.
+     */
+    Value evaluate(IEvaluationContext context);
+}
@@ -0,0 +1,117 @@
+package org.example.model.formula;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces equal function calls in the formulas of a sheet by one
+ * {@link SharedExpression}, built from the leaves up so that equal calls nested in
+ * different formulas end up as the same object. Calls to COPY, and calls containing
+ * one, are left alone since they write cells and must run every time.
+ *
+ * <p>The table of shared calls keeps the most recently used ones up to a fixed size.
+ * Forgetting a call only means that a formula interned afterwards gets a new shared
+ * expression for it instead of the old one.</p>
+ */
+public final class ExpressionInterner {
+    public static final int DEFAULT_CAPACITY = 4096; // Shared calls remembered by default
+
+    private final Map<Expression, SharedExpression> shared; // Call -> its shared expression
+
+    /**
+     * Constructs an interner remembering up to {@link #DEFAULT_CAPACITY} calls.
+     */
+    public ExpressionInterner() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an interner.
+     *
+     * @param capacity the number of calls remembered.
+     */
+    public ExpressionInterner(int capacity) {
+        this.shared = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Expression, SharedExpression> eldest) {
+                return size() > capacity; // Forget the least recently used call
+            }
+        };
+    }
+
+    /**
+     * Returns the formula with its function calls replaced by shared expressions.
+     *
+     * @param formula the formula.
+     * @return the interned formula, or the formula itself if it is already interned.
+     */
+    public synchronized Formula intern(Formula formula) {
+        if (formula.isInterned()) {
+            return formula; // Nothing to do
+        }
+        return new Formula(formula.getSource(), intern(formula.getRoot()), true);
+    }
+
+    /**
+     * Gets the number of shared calls remembered.
+     *
+     * @return the number of calls.
+     */
+    public synchronized int size() {
+        return this.shared.size();
+    }
+
+    /**
+     * Interns an expression and everything below it.
+     *
+     * @param expression the expression.
+     * @return the interned expression.
+     */
+    private Expression intern(Expression expression) {
+        if (expression instanceof UnaryMinus) {
+            return new UnaryMinus(intern(((UnaryMinus) expression).getOperand()));
+        }
+        if (expression instanceof BinaryOperation) {
+            BinaryOperation operation = (BinaryOperation) expression;
+            return new BinaryOperation(operation.getOperator(), intern(operation.getLeft()), intern(operation.getRight()));
+        }
+        if (!(expression instanceof FunctionCall)) {
+            return expression; // Literals and references are cheap and need no sharing
+        }
+        FunctionCall call = (FunctionCall) expression;
+        List<Expression> arguments = new ArrayList<>(call.getArguments().size());
+        boolean writes = call.getFunction() == BuiltinFunction.COPY;
+        for (Expression argument : call.getArguments()) {
+            Expression interned = intern(argument);
+            writes |= writesCells(interned);
+            arguments.add(interned);
+        }
+        FunctionCall canonical = new FunctionCall(call.getFunction(), arguments, call.getSource());
+        if (writes) {
+            return canonical; // Must run every time
+        }
+        return this.shared.computeIfAbsent(canonical, SharedExpression::new); // One object per distinct call
+    }
+
+    /**
+     * Checks if an interned expression contains a call to COPY, which is never shared.
+     *
+     * @param expression the interned expression.
+     * @return true if the expression contains a COPY call.
+     */
+    private static boolean writesCells(Expression expression) {
+        if (expression instanceof FunctionCall) {
+            return true; // Calls that are not shared contain a COPY
+        }
+        if (expression instanceof UnaryMinus) {
+            return writesCells(((UnaryMinus) expression).getOperand());
+        }
+        if (expression instanceof BinaryOperation) {
+            return writesCells(((BinaryOperation) expression).getLeft())
+                    || writesCells(((BinaryOperation) expression).getRight());
+        }
+        return false; // Shared expressions, literals and references
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.model.formula;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A formula that has been parsed once into an expression tree so that it can be
+ * evaluated many times without being parsed again.
+ */
+public final class Formula {
+    public static final int COMPILE_THRESHOLD = 1000; // Evaluations before a formula is compiled
+
+    private final String source; // The text the formula was parsed from
+    private final Expression root; // The root of the expression tree
+    private final List<CellReference> cells = new ArrayList<>(); // Single cells read by the formula
+    private final List<RangeReference> ranges = new ArrayList<>(); // Ranges read by the formula
+    private final boolean interned; // Whether the function calls are shared with other formulas
+    private boolean writesCells; // Whether the formula writes other cells through COPY
+    private int evaluations; // Interpreted evaluations so far, counted up to the compile threshold
+    private volatile CompiledFormula compiled; // The compiled tree, or null while the formula is interpreted
+
+    /**
+     * Constructs a formula.
+     *
+     * @param source the text the formula was parsed from.
+     * @param root   the root of the expression tree.
+     */
+    private Formula(String source, Expression root) {
+        this(source, root, false);
+    }
+
+    /**
+     * Constructs a formula.
+     *
+     * @param source   the text the formula was parsed from.
+     * @param root     the root of the expression tree.
+     * @param interned whether the function calls are shared, see {@link ExpressionInterner}.
+     */
+    Formula(String source, Expression root, boolean interned) {
+        this.source = source; // Set the source text
+        this.root = root; // Set the expression tree
+        this.interned = interned;
+        collectReferences(root); // Find the cells the formula reads
+    }
+
+    /**
+     * Parses the given cell text. Text that does not start with "=" is kept as a
+     * constant, and formulas the parser does not understand are kept for the script engine.
+     *
+     * @param source the cell text.
+     * @return the parsed formula.
+     */
+    public static Formula parse(String source) {
+        if (source == null || !source.startsWith("=")) {
+            return new Formula(source, new TextLiteral(source == null ? "" : source)); // Not a formula
+        }
+        String body = source.substring(1).stripLeading(); // Remove the "="
+        if (body.isEmpty()) {
+            return new Formula(source, new TextLiteral("")); // Empty formula
+        }
+        try {
+            return new Formula(source, FormulaParser.parse(body, source)); // Parse the formula
+        } catch (IllegalArgumentException e) {
+            return new Formula(source, new UnparsedFormula(body)); // Fall back to the script engine
+        }
+    }
+
+    /**
+     * Gets the text the formula was parsed from.
+     *
+     * @return the source text.
+     */
+    public String getSource() {
+        return this.source; // Return the source text
+    }
+
+    /**
+     * Gets the root of the expression tree.
+     *
+     * @return the root expression.
+     */
+    public Expression getRoot() {
+        return this.root; // Return the expression tree
+    }
+
+    /**
+     * Evaluates the formula. A formula is interpreted until it has been evaluated
+     * {@link #COMPILE_THRESHOLD} times, and is then compiled if it only does arithmetic
+     * on numbers and cells, see {@link CompiledFormula}.
+     *
+     * @param context the context used to look up cell values.
+     * @return the result.
+     */
+    public Value evaluate(IEvaluationContext context) {
+        CompiledFormula compiled = this.compiled;
+        if (compiled != null) {
+            return compiled.evaluate(context); // Hot and compiled
+        }
+        if (this.evaluations < COMPILE_THRESHOLD && ++this.evaluations == COMPILE_THRESHOLD) {
+            this.compiled = CompiledFormula.compile(this.root); // Stays null if the tree cannot be compiled
+        }
+        return this.root.evaluate(context); // Evaluate the expression tree
+    }
+
+    /**
+     * Checks if the formula has been compiled.
+     *
+     * @return true if evaluations run the compiled tree.
+     */
+    public boolean isCompiled() {
+        return this.compiled != null; // Return whether the formula is compiled
+    }
+
+    /**
+     * Gets the single cells the formula reads, not counting cells inside ranges.
+     *
+     * @return an unmodifiable list of cell references.
+     */
+    public List<CellReference> getCellReferences() {
+        return Collections.unmodifiableList(this.cells); // Return the cell references
+    }
+
+    /**
+     * Gets the ranges the formula reads.
+     *
+     * @return an unmodifiable list of range references.
+     */
+    public List<RangeReference> getRangeReferences() {
+        return Collections.unmodifiableList(this.ranges); // Return the range references
+    }
+
+    /**
+     * Checks if evaluating the formula writes other cells, as COPY does. Such formulas
+     * cannot be evaluated at the same time as other formulas of the sheet.
+     *
+     * @return true if the formula calls COPY.
+     */
+    public boolean writesCells() {
+        return this.writesCells; // Return whether the formula writes cells
+    }
+
+    /**
+     * Checks if the function calls of the formula have been replaced by shared expressions.
+     *
+     * @return true if the formula came from an {@link ExpressionInterner}.
+     */
+    public boolean isInterned() {
+        return this.interned; // Return whether the formula is interned
+    }
+
+    /**
+     * Walks the expression tree and records every cell and range it reads.
+     *
+     * @param expression the expression to walk.
+     */
+    private void collectReferences(Expression expression) {
+        if (expression instanceof CellReference) {
+            this.cells.add((CellReference) expression); // Record the cell
+        } else if (expression instanceof RangeReference) {
+            this.ranges.add((RangeReference) expression); // Record the range
+        } else if (expression instanceof SharedExpression) {
+            collectReferences(((SharedExpression) expression).getExpression()); // Shared calls never write cells
+        } else if (expression instanceof UnaryMinus) {
+            collectReferences(((UnaryMinus) expression).getOperand());
+        } else if (expression instanceof BinaryOperation) {
+            collectReferences(((BinaryOperation) expression).getLeft());
+            collectReferences(((BinaryOperation) expression).getRight());
+        } else if (expression instanceof FunctionCall) {
+            if (((FunctionCall) expression).getFunction() == BuiltinFunction.COPY) {
+                this.writesCells = true; // COPY writes its target cell
+            }
+            for (Expression argument : ((FunctionCall) expression).getArguments()) {
+                collectReferences(argument);
+            }
+        } else if (expression instanceof UnparsedFormula) {
+            String body = ((UnparsedFormula) expression).getBody();
+            for (int i = ReferenceScanner.find(body, 0); i >= 0; i = ReferenceScanner.find(body, i + 1)) {
+                long cell = ReferenceScanner.parse(body, i, ReferenceScanner.referenceEnd(body, i));
+                this.cells.add(new CellReference(ReferenceScanner.row(cell), ReferenceScanner.col(cell))); // Record cells the script engine will read
+            }
+        }
+    }
+}
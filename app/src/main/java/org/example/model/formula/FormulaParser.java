@@ -0,0 +1,244 @@
+package org.example.model.formula;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recursive descent parser that turns the body of a formula into an expression tree.
+ * From lowest to highest precedence the grammar is:
+ * <pre>
+ * or         := and ( "|" and )*
+ * and        := comparison ( "&amp;" comparison )*
+ * comparison := additive ( ( "&lt;" | "&gt;" | "=" | "&lt;&gt;" ) additive )*
+ * additive   := term ( ( "+" | "-" ) term )*
+ * term       := unary ( ( "*" | "/" ) unary )*
+ * unary      := "-" unary | primary
+ * primary    := number | string | reference [ ":" reference ] | name "(" args ")" | name | "(" or ")"
+ * </pre>
+ */
+public final class FormulaParser {
+    private final List<Token> tokens; // The tokens of the formula body
+    private final String source; // The full formula, used by COPY
+    private int position; // Index of the next token
+
+    /**
+     * Constructs a parser for the given formula body.
+     *
+     * @param body   the formula body without the leading "=".
+     * @param source the full formula.
+     */
+    private FormulaParser(String body, String source) {
+        this.tokens = Tokenizer.tokenize(body); // Split the body into tokens
+        this.source = source; // Set the source formula
+    }
+
+    /**
+     * Parses the body of a formula.
+     *
+     * @param body   the formula body without the leading "=".
+     * @param source the full formula.
+     * @return the root of the expression tree.
+     * @throws IllegalArgumentException if the body is not a valid formula.
+     */
+    public static Expression parse(String body, String source) {
+        FormulaParser parser = new FormulaParser(body, source);
+        Expression root = parser.parseOr(); // Parse the whole expression
+        parser.expect(TokenType.END); // Make sure nothing is left over
+        return root;
+    }
+
+    /**
+     * Parses a chain of "|" operations.
+     *
+     * @return the parsed expression.
+     */
+    private Expression parseOr() {
+        Expression left = parseAnd();
+        while (match(TokenType.OR)) {
+            left = new BinaryOperation(BinaryOperation.Operator.OR, left, parseAnd());
+        }
+        return left;
+    }
+
+    /**
+     * Parses a chain of "&amp;" operations.
+     *
+     * @return the parsed expression.
+     */
+    private Expression parseAnd() {
+        Expression left = parseComparison();
+        while (match(TokenType.AND)) {
+            left = new BinaryOperation(BinaryOperation.Operator.AND, left, parseComparison());
+        }
+        return left;
+    }
+
+    /**
+     * Parses a chain of comparisons.
+     *
+     * @return the parsed expression.
+     */
+    private Expression parseComparison() {
+        Expression left = parseAdditive();
+        while (true) {
+            BinaryOperation.Operator operator;
+            if (match(TokenType.LESS)) {
+                operator = BinaryOperation.Operator.LESS;
+            } else if (match(TokenType.GREATER)) {
+                operator = BinaryOperation.Operator.GREATER;
+            } else if (match(TokenType.EQUAL)) {
+                operator = BinaryOperation.Operator.EQUAL;
+            } else if (match(TokenType.NOT_EQUAL)) {
+                operator = BinaryOperation.Operator.NOT_EQUAL;
+            } else {
+                return left; // No more comparisons
+            }
+            left = new BinaryOperation(operator, left, parseAdditive());
+        }
+    }
+
+    /**
+     * Parses a chain of additions and subtractions.
+     *
+     * @return the parsed expression.
+     */
+    private Expression parseAdditive() {
+        Expression left = parseTerm();
+        while (true) {
+            if (match(TokenType.PLUS)) {
+                left = new BinaryOperation(BinaryOperation.Operator.ADD, left, parseTerm());
+            } else if (match(TokenType.MINUS)) {
+                left = new BinaryOperation(BinaryOperation.Operator.SUBTRACT, left, parseTerm());
+            } else {
+                return left; // No more additions
+            }
+        }
+    }
+
+    /**
+     * Parses a chain of multiplications and divisions.
+     *
+     * @return the parsed expression.
+     */
+    private Expression parseTerm() {
+        Expression left = parseUnary();
+        while (true) {
+            if (match(TokenType.STAR)) {
+                left = new BinaryOperation(BinaryOperation.Operator.MULTIPLY, left, parseUnary());
+            } else if (match(TokenType.SLASH)) {
+                left = new BinaryOperation(BinaryOperation.Operator.DIVIDE, left, parseUnary());
+            } else {
+                return left; // No more multiplications
+            }
+        }
+    }
+
+    /**
+     * Parses a negation or a primary expression.
+     *
+     * @return the parsed expression.
+     */
+    private Expression parseUnary() {
+        if (match(TokenType.MINUS)) {
+            return new UnaryMinus(parseUnary()); // Negate the operand
+        }
+        return parsePrimary();
+    }
+
+    /**
+     * Parses a literal, reference, function call or parenthesised expression.
+     *
+     * @return the parsed expression.
+     */
+    private Expression parsePrimary() {
+        Token token = advance();
+        switch (token.getType()) {
+            case NUMBER:
+                return new NumberLiteral(token.getText());
+            case STRING:
+                return new TextLiteral(token.getText());
+            case REFERENCE:
+                CellReference start = CellReference.parse(token.getText());
+                if (match(TokenType.COLON)) {
+                    Token end = expect(TokenType.REFERENCE); // A range needs a second cell
+                    return new RangeReference(start, CellReference.parse(end.getText()));
+                }
+                return start;
+            case IDENTIFIER:
+                if (match(TokenType.LEFT_PAREN)) {
+                    return parseCall(token);
+                }
+                return new TextLiteral(token.getText()); // Bare words are text
+            case LEFT_PAREN:
+                Expression inner = parseOr();
+                expect(TokenType.RIGHT_PAREN);
+                return inner;
+            default:
+                throw new IllegalArgumentException("Unexpected '" + token.getText() + "' at " + token.getPosition());
+        }
+    }
+
+    /**
+     * Parses the arguments of a function call after its opening parenthesis.
+     *
+     * @param name the token holding the function name.
+     * @return the function call.
+     */
+    private Expression parseCall(Token name) {
+        BuiltinFunction function = BuiltinFunction.fromName(name.getText());
+        if (function == null) {
+            throw new IllegalArgumentException("Unknown function " + name.getText());
+        }
+        List<Expression> arguments = new ArrayList<>();
+        if (!match(TokenType.RIGHT_PAREN)) {
+            do {
+                arguments.add(parseOr()); // Parse each argument
+            } while (match(TokenType.COMMA));
+            expect(TokenType.RIGHT_PAREN);
+        }
+        return new FunctionCall(function, arguments, this.source);
+    }
+
+    /**
+     * Consumes the next token if it has the given type.
+     *
+     * @param type the expected type.
+     * @return true if the token was consumed.
+     */
+    private boolean match(TokenType type) {
+        if (this.tokens.get(this.position).getType() == type) {
+            this.position++; // Consume the token
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the next token, which must have the given type.
+     *
+     * @param type the expected type.
+     * @return the consumed token.
+     * @throws IllegalArgumentException if the next token has a different type.
+     */
+    private Token expect(TokenType type) {
+        Token token = this.tokens.get(this.position);
+        if (token.getType() != type) {
+            throw new IllegalArgumentException("Expected " + type + " at " + token.getPosition());
+        }
+        this.position++; // Consume the token
+        return token;
+    }
+
+    /**
+     * Consumes the next token.
+     *
+     * @return the consumed token.
+     */
+    private Token advance() {
+        Token token = this.tokens.get(this.position);
+        if (token.getType() != TokenType.END) {
+            this.position++; // Never move past the end marker
+        }
+        return token;
+    }
+}
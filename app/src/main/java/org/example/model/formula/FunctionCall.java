@@ -0,0 +1,585 @@
+package org.example.model.formula;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A call to one of the {@link BuiltinFunction}s, such as SUM($A1:$A5, 2).
+ */
+public final class FunctionCall implements Expression {
+    private final BuiltinFunction function; // The called function
+    private final List<Expression> arguments; // The arguments of the call
+    private final String source; // The formula the call appears in
+
+    /**
+     * Constructs a function call.
+     *
+     * @param function  the called function.
+     * @param arguments the arguments of the call.
+     * @param source    the formula the call appears in, returned by COPY.
+     */
+    public FunctionCall(BuiltinFunction function, List<Expression> arguments, String source) {
+        this.function = function; // Set the function
+        this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments)); // Copy the arguments
+        this.source = source; // Set the source formula
+    }
+
+    /**
+     * Gets the called function.
+     *
+     * @return the function.
+     */
+    public BuiltinFunction getFunction() {
+        return this.function; // Return the function
+    }
+
+    /**
+     * Gets the arguments of the call.
+     *
+     * @return an unmodifiable list of arguments.
+     */
+    public List<Expression> getArguments() {
+        return this.arguments; // Return the arguments
+    }
+
+    /**
+     * Gets the formula the call appears in.
+     *
+     * @return the source formula.
+     */
+    public String getSource() {
+        return this.source; // Return the source formula
+    }
+
+    @Override
+    public Value evaluate(IEvaluationContext context) {
+        switch (this.function) {
+            case IF:
+                return evaluateIF(context);
+            case SUM:
+            case MIN:
+            case MAX:
+            case AVG:
+                return evaluateAggregate(context);
+            case CONCAT:
+                return evaluateCONCAT(context);
+            case DEBUG:
+                return evaluateDEBUG(context);
+            case STDDEV:
+                return evaluateSTDDEV(context);
+            case SORT:
+                return evaluateSORT(context);
+            case VLOOKUP:
+                return evaluateVLOOKUP(context);
+            case MATCH:
+                return evaluateMATCH(context);
+            case XLOOKUP:
+                return evaluateXLOOKUP(context);
+            case COUNTIF:
+                return evaluateCOUNTIF(context);
+            default:
+                return evaluateCOPY(context);
+        }
+    }
+
+    /**
+     * Evaluates IF(condition, then, else). Only the chosen branch is evaluated.
+     *
+     * @param context the evaluation context.
+     * @return the value of the chosen branch.
+     */
+    private Value evaluateIF(IEvaluationContext context) {
+        if (this.arguments.size() != 3) {
+            return Value.ERROR; // Return an error if the parameter count is not 3
+        }
+        Value condition = this.arguments.get(0).evaluate(context); // Evaluate the condition
+        if (!condition.isNumeric()) {
+            return Value.ERROR; // The condition must be a number
+        }
+        return this.arguments.get(condition.asNumber() != 0 ? 1 : 2).evaluate(context);
+    }
+
+    /**
+     * Evaluates SUM, MIN, MAX and AVG.
+     *
+     * @param context the evaluation context.
+     * @return the aggregate as a decimal number.
+     */
+    private Value evaluateAggregate(IEvaluationContext context) {
+        Accumulator accumulator = new Accumulator();
+        for (Expression argument : this.arguments) {
+            RangeAggregate summary = argument instanceof RangeReference && ((RangeReference) argument).isValid()
+                    ? context.aggregate((RangeReference) argument) : null; // Use the range index if there is one
+            if (summary != null) {
+                if (summary.isInvalid()) {
+                    return Value.ERROR; // The range holds text or an error
+                }
+                accumulator.merge(summary); // Add the whole range at once
+            } else if (argument instanceof RangeReference) {
+                NumberBuffer numbers = new NumberBuffer();
+                if (!forEachNumber(context, argument, numbers)) {
+                    return Value.ERROR; // Return an error if a cell is not a number
+                }
+                accumulator.merge(numbers); // Aggregate the range with the array kernels
+            } else if (!forEachNumber(context, argument, accumulator)) {
+                return Value.ERROR; // Return an error if an operand is not a number
+            }
+        }
+        switch (this.function) {
+            case SUM:
+                return Value.decimal(accumulator.sum);
+            case MIN:
+                return Value.decimal(accumulator.count == 0 ? 0 : accumulator.min);
+            case MAX:
+                return Value.decimal(accumulator.count == 0 ? 0 : accumulator.max);
+            default:
+                if (accumulator.count == 0) {
+                    return Value.ERROR; // The average of nothing is undefined
+                }
+                return Value.decimal(accumulator.sum / accumulator.count);
+        }
+    }
+
+    /**
+     * Evaluates STDDEV, the population standard deviation rounded to three decimals.
+     *
+     * @param context the evaluation context.
+     * @return the standard deviation.
+     */
+    private Value evaluateSTDDEV(IEvaluationContext context) {
+        NumberBuffer numbers = new NumberBuffer();
+        if (!forEachNumber(context, numbers) || numbers.size() == 0) {
+            return Value.ERROR; // Return an error if an operand is not a number
+        }
+        double result = NumericKernels.stddev(numbers.array(), numbers.size()); // Single pass over the numbers
+        return Value.decimal((double) Math.round(result * 1000) / 1000); // Round to three decimals
+    }
+
+    /**
+     * Evaluates SORT, which lists the numbers in ascending order separated by commas.
+     *
+     * @param context the evaluation context.
+     * @return the sorted numbers.
+     */
+    private Value evaluateSORT(IEvaluationContext context) {
+        NumberBuffer numbers = new NumberBuffer();
+        if (!forEachNumber(context, numbers) || numbers.size() == 0) {
+            return Value.ERROR; // Return an error if an operand is not a number
+        }
+        return Value.text(NumericKernels.sortedList(numbers.array(), numbers.size())); // Return the sorted numbers
+    }
+
+    /**
+     * Evaluates CONCAT, which joins the text of every operand.
+     *
+     * @param context the evaluation context.
+     * @return the joined text.
+     */
+    private Value evaluateCONCAT(IEvaluationContext context) {
+        StringBuilder result = new StringBuilder();
+        for (Expression argument : this.arguments) {
+            Value value = argument.evaluate(context); // Evaluate the operand
+            if (value.isError()) {
+                return value; // Propagate errors
+            }
+            result.append(argument instanceof RangeReference
+                    ? value.toString().replace(",", "") : value.toString()); // Append the operand text
+        }
+        return Value.text(result.toString()); // Return the joined text
+    }
+
+    /**
+     * Evaluates DEBUG, which returns the value of its only operand.
+     *
+     * @param context the evaluation context.
+     * @return the value of the operand.
+     */
+    private Value evaluateDEBUG(IEvaluationContext context) {
+        if (this.arguments.size() != 1) {
+            return Value.ERROR; // DEBUG takes exactly one operand
+        }
+        return this.arguments.get(0).evaluate(context); // Evaluate the operand
+    }
+
+    /**
+     * Evaluates COPY(value, $cell), which writes the value into the given cell and
+     * leaves the formula itself in the calling cell.
+     *
+     * @param context the evaluation context.
+     * @return the formula containing the call.
+     */
+    private Value evaluateCOPY(IEvaluationContext context) {
+        if (this.arguments.size() != 2 || !(this.arguments.get(1) instanceof CellReference)) {
+            return Value.ERROR; // COPY takes a value and a cell
+        }
+        CellReference target = (CellReference) this.arguments.get(1);
+        Value value = this.arguments.get(0).evaluate(context); // Evaluate the copied value
+        context.copyValue(target.getRow(), target.getCol(), value.toString()); // Write it to the target
+        return Value.text(this.source); // Return the formula itself
+    }
+
+    /**
+     * Evaluates VLOOKUP(key, range, column, [approximate]), which finds the key in the
+     * first column of the range and returns the value in the given column of that row.
+     * Unless approximate is 0, the row with the largest value not greater than the key is used.
+     *
+     * @param context the evaluation context.
+     * @return the value found, or an error if the key is not found.
+     */
+    private Value evaluateVLOOKUP(IEvaluationContext context) {
+        if (this.arguments.size() < 3 || this.arguments.size() > 4 || !isRange(1)) {
+            return Value.ERROR; // VLOOKUP takes a key, a range, a column and an optional mode
+        }
+        RangeReference range = (RangeReference) this.arguments.get(1);
+        Value column = this.arguments.get(2).evaluate(context);
+        int width = range.getEnd().getCol() - range.getStart().getCol() + 1;
+        if (!column.isNumeric() || column.asNumber() < 1 || column.asNumber() > width) {
+            return Value.ERROR; // The column must lie inside the range
+        }
+        int type = this.arguments.size() == 4 && isFalse(this.arguments.get(3).evaluate(context)) ? 0 : 1;
+        RangeReference keys = new RangeReference(range.getStart(),
+                new CellReference(range.getEnd().getRow(), range.getStart().getCol())); // The first column
+        int offset = find(context, keys, this.arguments.get(0).evaluate(context), type);
+        if (offset < 0) {
+            return Value.ERROR; // The key is not in the range
+        }
+        return context.getValue(range.getStart().getRow() + offset,
+                range.getStart().getCol() + (int) column.asNumber() - 1); // Read the chosen column
+    }
+
+    /**
+     * Evaluates MATCH(key, range, [type]), the position of the key in a single row or
+     * column. A type of 0 finds an equal value, 1 (the default) the largest value not
+     * greater than the key and -1 the smallest value not less than the key.
+     *
+     * @param context the evaluation context.
+     * @return the position counted from 1, or an error if the key is not found.
+     */
+    private Value evaluateMATCH(IEvaluationContext context) {
+        if (this.arguments.size() < 2 || this.arguments.size() > 3 || !isLine(1)) {
+            return Value.ERROR; // MATCH takes a key, a row or column and an optional type
+        }
+        int type = 1;
+        if (this.arguments.size() == 3) {
+            Value value = this.arguments.get(2).evaluate(context);
+            if (!value.isNumeric()) {
+                return Value.ERROR; // The type must be a number
+            }
+            type = (int) Math.signum(value.asNumber());
+        }
+        int offset = find(context, (RangeReference) this.arguments.get(1), this.arguments.get(0).evaluate(context), type);
+        return offset < 0 ? Value.ERROR : Value.number(offset + 1);
+    }
+
+    /**
+     * Evaluates XLOOKUP(key, lookup range, return range, [if not found]), which finds an
+     * equal value in a single row or column and returns the value at the same position
+     * of the return range. The last operand is only evaluated if the key is not found.
+     *
+     * @param context the evaluation context.
+     * @return the value found, the if not found value, or an error.
+     */
+    private Value evaluateXLOOKUP(IEvaluationContext context) {
+        if (this.arguments.size() < 3 || this.arguments.size() > 4 || !isLine(1) || !isLine(2)) {
+            return Value.ERROR; // XLOOKUP takes a key, two rows or columns and an optional default
+        }
+        RangeReference keys = (RangeReference) this.arguments.get(1);
+        RangeReference results = (RangeReference) this.arguments.get(2);
+        int offset = find(context, keys, this.arguments.get(0).evaluate(context), 0);
+        boolean vertical = results.getStart().getCol() == results.getEnd().getCol();
+        int length = vertical ? results.getEnd().getRow() - results.getStart().getRow() + 1
+                : results.getEnd().getCol() - results.getStart().getCol() + 1;
+        if (offset < 0 || offset >= length) {
+            return this.arguments.size() == 4 ? this.arguments.get(3).evaluate(context) : Value.ERROR;
+        }
+        return vertical ? context.getValue(results.getStart().getRow() + offset, results.getStart().getCol())
+                : context.getValue(results.getStart().getRow(), results.getStart().getCol() + offset);
+    }
+
+    /**
+     * Evaluates COUNTIF(range, criterion), the number of cells of the range that meet
+     * the criterion. The criterion is a value to equal, or text starting with one of
+     * =, &lt;&gt;, &lt;, &lt;=, &gt; or &gt;= followed by the value to compare with, such as "&gt;5".
+     *
+     * @param context the evaluation context.
+     * @return the count.
+     */
+    private Value evaluateCOUNTIF(IEvaluationContext context) {
+        if (this.arguments.size() != 2 || !isRange(0)) {
+            return Value.ERROR; // COUNTIF takes a range and a criterion
+        }
+        RangeReference range = (RangeReference) this.arguments.get(0);
+        Value criterion = this.arguments.get(1).evaluate(context);
+        if (criterion.isError()) {
+            return Value.ERROR; // Propagate errors
+        }
+        BinaryOperation.Operator operator = BinaryOperation.Operator.EQUAL;
+        boolean orEqual = false;
+        Value key = criterion;
+        String text = criterion.toString();
+        if (!criterion.isNumeric() && !text.isEmpty() && "<>=".indexOf(text.charAt(0)) >= 0) {
+            int length = text.startsWith("<>") || text.startsWith("<=") || text.startsWith(">=") ? 2 : 1;
+            String symbol = text.substring(0, length);
+            operator = symbol.equals("<>") ? BinaryOperation.Operator.NOT_EQUAL
+                    : symbol.startsWith("<") ? BinaryOperation.Operator.LESS
+                    : symbol.startsWith(">") ? BinaryOperation.Operator.GREATER : BinaryOperation.Operator.EQUAL;
+            orEqual = length == 2;
+            key = Value.text(text.substring(length)); // The value to compare with
+        }
+
+        int fromRow = range.getStart().getRow();
+        int toRow = range.getEnd().getRow();
+        BinaryOperation.Operator counted = operator == BinaryOperation.Operator.NOT_EQUAL
+                ? BinaryOperation.Operator.EQUAL : operator; // Not equal is counted as all cells minus equal ones
+        long count = 0;
+        for (int col = range.getStart().getCol(); col <= range.getEnd().getCol(); col++) {
+            ColumnLookup lookup = context.lookup(col);
+            if (lookup != null) {
+                count += lookup.count(counted, orEqual, key, fromRow, toRow); // Answer from the index
+            } else {
+                count += countCells(context, col, counted, orEqual, key, fromRow, toRow); // Read every cell
+            }
+        }
+        if (operator == BinaryOperation.Operator.NOT_EQUAL) {
+            count = (long) (toRow - fromRow + 1) * (range.getEnd().getCol() - range.getStart().getCol() + 1) - count;
+        }
+        return Value.number(count);
+    }
+
+    /**
+     * Counts the cells of a column that meet a comparison with the key, reading each cell.
+     *
+     * @param context  the evaluation context.
+     * @param col      the column.
+     * @param operator the comparison: EQUAL, LESS or GREATER.
+     * @param orEqual  whether values equal to the key also count for LESS and GREATER.
+     * @param key      the value to compare with.
+     * @param fromRow  the first row counted.
+     * @param toRow    the last row counted.
+     * @return the number of cells.
+     */
+    private static int countCells(IEvaluationContext context, int col, BinaryOperation.Operator operator,
+            boolean orEqual, Value key, int fromRow, int toRow) {
+        Object target = ColumnLookup.keyOf(key);
+        if (target == null) {
+            return 0; // Empty and error keys match nothing
+        }
+        int count = 0;
+        for (int row = fromRow; row <= toRow; row++) {
+            Object cell = ColumnLookup.keyOf(context.getValue(row, col));
+            if (cell == null || ColumnLookup.isNumber(cell) != ColumnLookup.isNumber(target)) {
+                continue; // Numbers are only compared with numbers and text only with text
+            }
+            int order = ColumnLookup.compareKeys(cell, target);
+            boolean counts = operator == BinaryOperation.Operator.EQUAL ? order == 0
+                    : (order == 0 && orEqual) || (operator == BinaryOperation.Operator.LESS ? order < 0 : order > 0);
+            count += counts ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Finds a key in a single row or column.
+     *
+     * @param context the evaluation context.
+     * @param line    the row or column.
+     * @param key     the value to find.
+     * @param type    0 for an equal value, 1 for the largest value not greater than the
+     *                key and -1 for the smallest value not less than the key.
+     * @return the position of the value counted from 0, or -1 if there is none.
+     */
+    private static int find(IEvaluationContext context, RangeReference line, Value key, int type) {
+        int fromRow = line.getStart().getRow();
+        int toRow = line.getEnd().getRow();
+        int fromCol = line.getStart().getCol();
+        boolean vertical = fromCol == line.getEnd().getCol();
+        ColumnLookup lookup = vertical ? context.lookup(fromCol) : null;
+        if (lookup != null) {
+            int row = type == 0 ? lookup.findExact(key, fromRow, toRow) : lookup.findNearest(key, type > 0, fromRow, toRow);
+            return row < 0 ? -1 : row - fromRow; // Answered from the index
+        }
+
+        Object target = ColumnLookup.keyOf(key);
+        if (target == null) {
+            return -1; // Empty and error keys match nothing
+        }
+        int length = vertical ? toRow - fromRow + 1 : line.getEnd().getCol() - fromCol + 1;
+        int best = -1;
+        Object bestKey = null;
+        for (int i = 0; i < length; i++) {
+            Object cell = ColumnLookup.keyOf(vertical ? context.getValue(fromRow + i, fromCol)
+                    : context.getValue(fromRow, fromCol + i));
+            if (cell == null || ColumnLookup.isNumber(cell) != ColumnLookup.isNumber(target)) {
+                continue; // Numbers only match numbers and text only text
+            }
+            int order = ColumnLookup.compareKeys(cell, target);
+            if (type == 0 && order == 0) {
+                return i; // The first equal value
+            }
+            if (type != 0 && order * type <= 0
+                    && (bestKey == null || ColumnLookup.compareKeys(cell, bestKey) * type > 0)) {
+                best = i; // Nearer than any value seen so far
+                bestKey = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks if an argument is a well formed range.
+     *
+     * @param index the position of the argument.
+     * @return true if the argument is a valid range.
+     */
+    private boolean isRange(int index) {
+        Expression argument = this.arguments.get(index);
+        return argument instanceof RangeReference && ((RangeReference) argument).isValid();
+    }
+
+    /**
+     * Checks if an argument is a well formed range of a single row or column.
+     *
+     * @param index the position of the argument.
+     * @return true if the argument is a valid range one cell wide or one cell high.
+     */
+    private boolean isLine(int index) {
+        if (!isRange(index)) {
+            return false;
+        }
+        RangeReference range = (RangeReference) this.arguments.get(index);
+        return range.getStart().getRow() == range.getEnd().getRow()
+                || range.getStart().getCol() == range.getEnd().getCol();
+    }
+
+    /**
+     * Checks if a value is the number zero, which selects exact matching.
+     *
+     * @param value the value.
+     * @return true if the value is zero.
+     */
+    private static boolean isFalse(Value value) {
+        return value.isNumeric() && value.asNumber() == 0;
+    }
+
+    /**
+     * Passes every numeric operand to the consumer. Ranges are expanded into their
+     * cells and empty cells are skipped.
+     *
+     * @param context  the evaluation context.
+     * @param consumer the consumer receiving the numbers.
+     * @return false if any operand is not a number.
+     */
+    private boolean forEachNumber(IEvaluationContext context, DoubleConsumer consumer) {
+        for (Expression argument : this.arguments) {
+            if (!forEachNumber(context, argument, consumer)) {
+                return false; // The operand is not a number
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes the numbers of a single operand to the consumer, expanding ranges into their cells.
+     *
+     * @param context  the evaluation context.
+     * @param argument the operand.
+     * @param consumer the consumer receiving the numbers.
+     * @return false if the operand is not a number.
+     */
+    private static boolean forEachNumber(IEvaluationContext context, Expression argument, DoubleConsumer consumer) {
+        if (!(argument instanceof RangeReference)) {
+            return accept(argument.evaluate(context), consumer); // A single operand
+        }
+        RangeReference range = (RangeReference) argument;
+        if (!range.isValid()) {
+            return false; // Invalid ranges are errors
+        }
+        for (int row = range.getStart().getRow(); row <= range.getEnd().getRow(); row++) {
+            for (int col = range.getStart().getCol(); col <= range.getEnd().getCol(); col++) {
+                if (!accept(context.getValue(row, col), consumer)) {
+                    return false; // The cell is not a number
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes a single value to the consumer if it is a number.
+     *
+     * @param value    the value.
+     * @param consumer the consumer receiving the number.
+     * @return false if the value is neither empty nor a number.
+     */
+    private static boolean accept(Value value, DoubleConsumer consumer) {
+        if (value.isEmpty()) {
+            return true; // Skip empty cells
+        }
+        if (!value.isNumeric()) {
+            return false; // Text and errors are not numbers
+        }
+        consumer.accept(value.asNumber()); // Pass on the number
+        return true;
+    }
+
+    /**
+     * Keeps the running sum, count, minimum and maximum of a stream of numbers.
+     */
+    private static final class Accumulator implements DoubleConsumer {
+        private double sum; // Running sum
+        private int count; // Number of values seen
+        private double min = Double.POSITIVE_INFINITY; // Smallest value seen
+        private double max = Double.NEGATIVE_INFINITY; // Largest value seen
+
+        @Override
+        public void accept(double value) {
+            this.sum += value; // Add to the sum
+            this.count++; // Count the value
+            this.min = Math.min(this.min, value); // Track the minimum
+            this.max = Math.max(this.max, value); // Track the maximum
+        }
+
+        /**
+         * Adds a summary of several numbers at once.
+         *
+         * @param summary the summary.
+         */
+        void merge(RangeAggregate summary) {
+            this.sum += summary.getSum(); // Add to the sum
+            this.count += summary.getCount(); // Count the values
+            this.min = Math.min(this.min, summary.getMin()); // Track the minimum
+            this.max = Math.max(this.max, summary.getMax()); // Track the maximum
+        }
+
+        /**
+         * Adds a batch of numbers at once.
+         *
+         * @param numbers the numbers.
+         */
+        void merge(NumberBuffer numbers) {
+            double[] values = numbers.array();
+            int length = numbers.size();
+            this.sum += NumericKernels.sum(values, length); // Add to the sum
+            this.count += length; // Count the values
+            this.min = Math.min(this.min, NumericKernels.min(values, length)); // Track the minimum
+            this.max = Math.max(this.max, NumericKernels.max(values, length)); // Track the maximum
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof FunctionCall)) {
+            return false;
+        }
+        FunctionCall call = (FunctionCall) other;
+        return this.function == call.function && this.arguments.equals(call.arguments)
+                && (this.function != BuiltinFunction.COPY || this.source.equals(call.source)); // COPY returns its formula
+    }
+
+    @Override
+    public int hashCode() {
+        return this.function.ordinal() * 31 + this.arguments.hashCode();
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.model.formula;
+
+/**
+ * Represents the spreadsheet an expression is evaluated against.
+ */
+public interface IEvaluationContext {
+
+    /**
+     * Gets the value of the cell at the specified row and column.
+     *
+     * @param row the row index of the cell.
+     * @param col the column index of the cell.
+     * @return the value of the cell, or an error if the cell is outside the sheet.
+     */
+    Value getValue(int row, int col);
+
+    /**
+     * Gets the number held by the cell at the specified row and column, for compiled
+     * formulas that work on primitive doubles.
+     *
+     * @param row the row index of the cell.
+     * @param col the column index of the cell.
+     * @return the number, with booleans as 1 and 0.
+     * @throws RuntimeException the exception of {@link CompiledFormula#notNumeric()} if the
+     *                          cell does not hold a number, so the formula is interpreted instead.
+     */
+    default double getNumber(int row, int col) {
+        Value value = getValue(row, col);
+        if (!value.isNumeric()) {
+            throw CompiledFormula.notNumeric(); // Empty cells, text and errors are left to the interpreter
+        }
+        return value.asNumber();
+    }
+
+    /**
+     * Writes a value into the cell at the specified row and column, as the COPY function does.
+     *
+     * @param row   the row index of the cell.
+     * @param col   the column index of the cell.
+     * @param value the value to write.
+     */
+    void copyValue(int row, int col, String value);
+
+    /**
+     * Evaluates a formula body that is not part of the formula language by
+     * handing it to the script engine.
+     *
+     * @param expression the formula body without the leading "=".
+     * @return the result of the evaluation.
+     */
+    Value evaluateScript(String expression);
+
+    /**
+     * Summarises the numbers in a range without reading its cells one by one.
+     *
+     * @param range the range to summarise.
+     * @return the summary, or null if the context keeps no index for the range, in
+     *         which case the cells are read individually.
+     */
+    default RangeAggregate aggregate(RangeReference range) {
+        return null; // No index by default
+    }
+
+    /**
+     * Gets an index of the values in a column, so lookups do not read the column cell by cell.
+     *
+     * @param col the column.
+     * @return the index, or null if the context keeps no index, in which case the
+     *         cells are read individually.
+     */
+    default ColumnLookup lookup(int col) {
+        return null; // No index by default
+    }
+
+    /**
+     * Evaluates a function call shared by several formulas. Contexts that keep results
+     * may return the result of an earlier evaluation while none of the cells the call
+     * reads have changed.
+     *
+     * @param expression the shared call.
+     * @return the result of the call.
+     */
+    default Value evaluateShared(SharedExpression expression) {
+        return expression.getExpression().evaluate(this); // No cache by default
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.model.formula;
+
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A growable array of primitive numbers, used to collect the numeric operands of a
+ * function without boxing each one.
+ */
+public final class NumberBuffer implements DoubleConsumer {
+    private static final int INITIAL_CAPACITY = 16; // Numbers held before the first resize
+
+    private double[] values = new double[INITIAL_CAPACITY]; // The numbers, valid up to size
+    private int size; // Number of numbers collected
+
+    @Override
+    public void accept(double value) {
+        if (this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.size * 2); // Double the capacity
+        }
+        this.values[this.size++] = value; // Append the number
+    }
+
+    /**
+     * Gets the number of numbers collected.
+     *
+     * @return the number of numbers.
+     */
+    public int size() {
+        return this.size; // Return the size
+    }
+
+    /**
+     * Gets the backing array. Only the first {@link #size()} entries are numbers
+     * collected by this buffer.
+     *
+     * @return the backing array.
+     */
+    public double[] array() {
+        return this.values; // Return the backing array
+    }
+}
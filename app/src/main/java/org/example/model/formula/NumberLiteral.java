@@ -0,0 +1,33 @@
+package org.example.model.formula;
+
+/**
+ * A numeric literal such as 4 or 2.5.
+ */
+public final class NumberLiteral implements Expression {
+    private final Value value; // The literal value, shared by every evaluation
+
+    /**
+     * Constructs a numeric literal.
+     *
+     * @param lexeme the text of the literal.
+     */
+    public NumberLiteral(String lexeme) {
+        this.value = Value.literal(Double.parseDouble(lexeme), lexeme); // Parse the literal once
+    }
+
+    @Override
+    public Value evaluate(IEvaluationContext context) {
+        return this.value; // Literals always evaluate to themselves
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof NumberLiteral
+                && this.value.toString().equals(((NumberLiteral) other).value.toString()); // Same lexeme
+    }
+
+    @Override
+    public int hashCode() {
+        return this.value.toString().hashCode();
+    }
+}
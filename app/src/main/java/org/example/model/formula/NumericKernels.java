@@ -0,0 +1,172 @@
+package org.example.model.formula;
+
+import java.util.Arrays;
+
+/**
+ * Aggregate functions over primitive arrays of numbers, each in a single pass and
+ * without allocating per number. Long arrays are handed to {@link VectorKernels} when
+ * the JVM was started with the jdk.incubator.vector module; otherwise, and for short
+ * arrays where setting up the vectors costs more than it saves, plain loops are used.
+ */
+public final class NumericKernels {
+    public static final int VECTOR_THRESHOLD = 256; // Shortest array handed to the vector kernels
+
+    private static final boolean VECTOR_AVAILABLE = ModuleLayer.boot()
+            .findModule("jdk.incubator.vector").isPresent(); // Whether the Vector API can be loaded
+
+    /**
+     * Prevents construction; all methods are static.
+     */
+    private NumericKernels() {
+    }
+
+    /**
+     * Checks if the vector kernels are used for long arrays.
+     *
+     * @return true if the jdk.incubator.vector module is present.
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR_AVAILABLE;
+    }
+
+    /**
+     * Sums the first numbers of an array.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the sum.
+     */
+    public static double sum(double[] values, int length) {
+        if (VECTOR_AVAILABLE && length >= VECTOR_THRESHOLD) {
+            return VectorKernels.sum(values, length); // Long enough to vectorize
+        }
+        return sumScalar(values, length);
+    }
+
+    /**
+     * Finds the smallest of the first numbers of an array.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the minimum, or positive infinity if there are no numbers.
+     */
+    public static double min(double[] values, int length) {
+        if (VECTOR_AVAILABLE && length >= VECTOR_THRESHOLD) {
+            return VectorKernels.min(values, length); // Long enough to vectorize
+        }
+        return minScalar(values, length);
+    }
+
+    /**
+     * Finds the largest of the first numbers of an array.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the maximum, or negative infinity if there are no numbers.
+     */
+    public static double max(double[] values, int length) {
+        if (VECTOR_AVAILABLE && length >= VECTOR_THRESHOLD) {
+            return VectorKernels.max(values, length); // Long enough to vectorize
+        }
+        return maxScalar(values, length);
+    }
+
+    /**
+     * Calculates the population standard deviation of the first numbers of an array.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the standard deviation, or NaN if there are no numbers.
+     */
+    public static double stddev(double[] values, int length) {
+        if (VECTOR_AVAILABLE && length >= VECTOR_THRESHOLD) {
+            return VectorKernels.stddev(values, length); // Long enough to vectorize
+        }
+        return stddevScalar(values, length);
+    }
+
+    /**
+     * Sums the first numbers of an array one at a time.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the sum.
+     */
+    public static double sumScalar(double[] values, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the smallest of the first numbers of an array one at a time.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the minimum, or positive infinity if there are no numbers.
+     */
+    public static double minScalar(double[] values, int length) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Finds the largest of the first numbers of an array one at a time.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the maximum, or negative infinity if there are no numbers.
+     */
+    public static double maxScalar(double[] values, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Calculates the population standard deviation of the first numbers of an array
+     * with Welford's algorithm, which keeps a running mean and sum of squared
+     * differences so the numbers are read once and large values do not lose precision.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the standard deviation, or NaN if there are no numbers.
+     */
+    public static double stddevScalar(double[] values, int length) {
+        double mean = 0; // Running mean
+        double squares = 0; // Running sum of squared differences from the mean
+        for (int i = 0; i < length; i++) {
+            double delta = values[i] - mean;
+            mean += delta / (i + 1); // Move the mean towards the new number
+            squares += delta * (values[i] - mean); // Uses the old and the new mean
+        }
+        return Math.sqrt(squares / length);
+    }
+
+    /**
+     * Sorts the first numbers of an array in place and writes them in ascending order
+     * separated by commas, appending each number directly to the result.
+     *
+     * @param values the numbers, sorted by this call.
+     * @param length the number of numbers to use.
+     * @return the sorted numbers as text.
+     */
+    public static String sortedList(double[] values, int length) {
+        Arrays.sort(values, 0, length); // Primitive sort, no boxing
+        StringBuilder result = new StringBuilder(length * 6); // Room for short numbers
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                result.append(','); // Separate numbers with commas
+            }
+            result.append(values[i]); // Written straight into the builder
+        }
+        return result.toString();
+    }
+}
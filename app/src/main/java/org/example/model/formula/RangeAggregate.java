@@ -0,0 +1,89 @@
+package org.example.model.formula;
+
+/**
+ * The count, sum, minimum and maximum of the numbers in a group of cells, and
+ * whether any of those cells held something other than a number.
+ */
+public final class RangeAggregate {
+    public static final RangeAggregate EMPTY = new RangeAggregate(0, 0,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, false); // Summary of no cells
+
+    private final int count; // Number of numeric cells
+    private final double sum; // Sum of the numeric cells
+    private final double min; // Smallest numeric cell
+    private final double max; // Largest numeric cell
+    private final boolean invalid; // Whether a cell held text or an error
+
+    /**
+     * Constructs a summary.
+     *
+     * @param count   the number of numeric cells.
+     * @param sum     the sum of the numeric cells.
+     * @param min     the smallest numeric cell.
+     * @param max     the largest numeric cell.
+     * @param invalid whether a cell held text or an error.
+     */
+    public RangeAggregate(int count, double sum, double min, double max, boolean invalid) {
+        this.count = count; // Set the count
+        this.sum = sum; // Set the sum
+        this.min = min; // Set the minimum
+        this.max = max; // Set the maximum
+        this.invalid = invalid; // Set the validity
+    }
+
+    /**
+     * Combines this summary with another one.
+     *
+     * @param other the other summary.
+     * @return the summary of both groups of cells.
+     */
+    public RangeAggregate merge(RangeAggregate other) {
+        return new RangeAggregate(this.count + other.count, this.sum + other.sum,
+                Math.min(this.min, other.min), Math.max(this.max, other.max), this.invalid || other.invalid);
+    }
+
+    /**
+     * Gets the number of numeric cells.
+     *
+     * @return the count.
+     */
+    public int getCount() {
+        return this.count; // Return the count
+    }
+
+    /**
+     * Gets the sum of the numeric cells.
+     *
+     * @return the sum.
+     */
+    public double getSum() {
+        return this.sum; // Return the sum
+    }
+
+    /**
+     * Gets the smallest numeric cell.
+     *
+     * @return the minimum, or positive infinity if there are no numbers.
+     */
+    public double getMin() {
+        return this.min; // Return the minimum
+    }
+
+    /**
+     * Gets the largest numeric cell.
+     *
+     * @return the maximum, or negative infinity if there are no numbers.
+     */
+    public double getMax() {
+        return this.max; // Return the maximum
+    }
+
+    /**
+     * Checks if any cell held text or an error.
+     *
+     * @return true if the group cannot be used in an aggregate.
+     */
+    public boolean isInvalid() {
+        return this.invalid; // Return the validity
+    }
+}
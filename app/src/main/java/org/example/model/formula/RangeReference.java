@@ -0,0 +1,90 @@
+package org.example.model.formula;
+
+/**
+ * A rectangular range of cells such as $A1:$B5.
+ */
+public final class RangeReference implements Expression {
+    private final CellReference start; // The top left cell
+    private final CellReference end; // The bottom right cell
+
+    /**
+     * Constructs a range reference.
+     *
+     * @param start the top left cell.
+     * @param end   the bottom right cell.
+     */
+    public RangeReference(CellReference start, CellReference end) {
+        this.start = start; // Set the start of the range
+        this.end = end; // Set the end of the range
+    }
+
+    /**
+     * Gets the top left cell of the range.
+     *
+     * @return the start of the range.
+     */
+    public CellReference getStart() {
+        return this.start; // Return the start
+    }
+
+    /**
+     * Gets the bottom right cell of the range.
+     *
+     * @return the end of the range.
+     */
+    public CellReference getEnd() {
+        return this.end; // Return the end
+    }
+
+    /**
+     * Checks if the range is well formed.
+     *
+     * @return true if the start is above and to the left of the end.
+     */
+    public boolean isValid() {
+        return this.start.getRow() >= 0 && this.start.getCol() >= 0
+                && this.start.getRow() <= this.end.getRow()
+                && this.start.getCol() <= this.end.getCol();
+    }
+
+    /**
+     * Evaluates the range on its own, which lists the non-empty values it contains
+     * separated by commas.
+     *
+     * @param context the context used to look up cell values.
+     * @return the listed values.
+     */
+    @Override
+    public Value evaluate(IEvaluationContext context) {
+        if (!isValid()) {
+            return Value.ERROR; // Return an error if the range is invalid
+        }
+        StringBuilder result = new StringBuilder();
+        for (int row = this.start.getRow(); row <= this.end.getRow(); row++) {
+            for (int col = this.start.getCol(); col <= this.end.getCol(); col++) {
+                Value value = context.getValue(row, col); // Get the cell value
+                if (value.isError()) {
+                    return value; // Propagate errors
+                }
+                if (!value.isEmpty()) {
+                    if (result.length() > 0) {
+                        result.append(','); // Separate values with commas
+                    }
+                    result.append(value); // Append the cell value
+                }
+            }
+        }
+        return Value.text(result.toString()); // Return the listed values
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RangeReference && this.start.equals(((RangeReference) other).start)
+                && this.end.equals(((RangeReference) other).end);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.start.hashCode() + this.end.hashCode();
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.model.formula;
+
+/**
+ * Finds and decodes cell references such as $A1 without regular expressions or
+ * substrings. A decoded reference is packed into one long holding the zero based row
+ * in the high half and the zero based column in the low half, the same packing
+ * {@code DependencyGraph} uses for its cell keys.
+ */
+public final class ReferenceScanner {
+    private static final int LIMIT = 10_000_000; // Rows and columns stop growing here, far outside any sheet
+
+    /**
+     * Prevents instantiation, all methods are static.
+     */
+    private ReferenceScanner() {
+    }
+
+    /**
+     * Packs a row and column into a single key.
+     *
+     * @param row the zero based row index.
+     * @param col the zero based column index.
+     * @return the packed key.
+     */
+    public static long pack(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL); // Row in the high half, column in the low half
+    }
+
+    /**
+     * Gets the row of a packed key.
+     *
+     * @param key the packed key.
+     * @return the zero based row index.
+     */
+    public static int row(long key) {
+        return (int) (key >> 32); // Row is the high half
+    }
+
+    /**
+     * Gets the column of a packed key.
+     *
+     * @param key the packed key.
+     * @return the zero based column index.
+     */
+    public static int col(long key) {
+        return (int) key; // Column is the low half
+    }
+
+    /**
+     * Decodes a reference such as $A1 or A1.
+     *
+     * @param text the reference.
+     * @return the packed row and column, see {@link #parse(CharSequence, int, int)}.
+     */
+    public static long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Decodes a reference made of an optional "$", column letters and row digits.
+     * Anything after the digits is ignored. A missing column or row decodes as -1, and
+     * very large ones stop growing well past the largest sheet instead of overflowing.
+     *
+     * @param text  the text holding the reference.
+     * @param start the offset of the reference.
+     * @param end   the offset after the reference.
+     * @return the packed zero based row and column.
+     */
+    public static long parse(CharSequence text, int start, int end) {
+        int i = start < end && text.charAt(start) == '$' ? start + 1 : start; // Skip the leading $
+        int col = 0;
+        while (i < end && isLetter(text.charAt(i))) {
+            if (col < LIMIT) {
+                col = col * 26 + (text.charAt(i) - 'A' + 1); // Convert letters to a column number
+            }
+            i++;
+        }
+        int row = 0;
+        while (i < end && isDigit(text.charAt(i))) {
+            if (row < LIMIT) {
+                row = row * 10 + (text.charAt(i) - '0'); // Convert digits to a row number
+            }
+            i++;
+        }
+        return pack(row - 1, col - 1); // Convert to zero based indices
+    }
+
+    /**
+     * Finds the end of a reference of the form $[A-Z]+[0-9]+ starting at an offset.
+     *
+     * @param text  the text.
+     * @param start the offset of the "$".
+     * @return the offset after the last digit, or -1 if no reference starts there.
+     */
+    public static int referenceEnd(CharSequence text, int start) {
+        int length = text.length();
+        if (start >= length || text.charAt(start) != '$') {
+            return -1;
+        }
+        int i = start + 1;
+        while (i < length && isLetter(text.charAt(i))) {
+            i++; // Column letters
+        }
+        int digits = i;
+        while (i < length && isDigit(text.charAt(i))) {
+            i++; // Row digits
+        }
+        return digits == start + 1 || i == digits ? -1 : i; // Both parts are required
+    }
+
+    /**
+     * Finds the next reference of the form $[A-Z]+[0-9]+.
+     *
+     * @param text the text.
+     * @param from the offset to search from.
+     * @return the offset of the "$" of the next reference, or -1 if there is none.
+     */
+    public static int find(CharSequence text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == '$' && referenceEnd(text, i) > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a character is a column letter.
+     *
+     * @param c the character.
+     * @return true for A to Z.
+     */
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    /**
+     * Checks if a character is an ASCII digit.
+     *
+     * @param c the character.
+     * @return true for 0 to 9.
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
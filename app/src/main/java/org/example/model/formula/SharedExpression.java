@@ -0,0 +1,80 @@
+package org.example.model.formula;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A function call that may appear in many formulas of a sheet. The
+ * {@link ExpressionInterner} gives every formula containing the same call the same
+ * shared expression, so its result can be cached once for all of them by the
+ * evaluation context. Shared expressions are only equal to themselves.
+ */
+public final class SharedExpression implements Expression {
+    private final Expression expression; // The shared call
+    private final List<int[]> reads; // Column, first row and last row of every cell span the call reads
+
+    /**
+     * Constructs a shared expression.
+     *
+     * @param expression the shared call.
+     */
+    SharedExpression(Expression expression) {
+        this.expression = expression; // Set the call
+        List<int[]> spans = new ArrayList<>();
+        collectReads(expression, spans); // Find the cells the call reads
+        this.reads = Collections.unmodifiableList(spans);
+    }
+
+    /**
+     * Gets the shared call.
+     *
+     * @return the expression evaluated when the result is not cached.
+     */
+    public Expression getExpression() {
+        return this.expression; // Return the call
+    }
+
+    /**
+     * Gets the cells the call reads, as spans of one column each.
+     *
+     * @return the spans, each holding a column, a first row and a last row.
+     */
+    public List<int[]> getReads() {
+        return this.reads; // Return the spans
+    }
+
+    @Override
+    public Value evaluate(IEvaluationContext context) {
+        return context.evaluateShared(this); // The context decides whether the result is cached
+    }
+
+    /**
+     * Adds the cells an expression reads as column spans.
+     *
+     * @param expression the expression.
+     * @param spans      the list to add to.
+     */
+    private static void collectReads(Expression expression, List<int[]> spans) {
+        if (expression instanceof CellReference) {
+            CellReference cell = (CellReference) expression;
+            spans.add(new int[] { cell.getCol(), cell.getRow(), cell.getRow() });
+        } else if (expression instanceof RangeReference) {
+            RangeReference range = (RangeReference) expression;
+            for (int col = range.getStart().getCol(); col <= range.getEnd().getCol(); col++) {
+                spans.add(new int[] { col, range.getStart().getRow(), range.getEnd().getRow() });
+            }
+        } else if (expression instanceof SharedExpression) {
+            spans.addAll(((SharedExpression) expression).reads); // Already collected
+        } else if (expression instanceof UnaryMinus) {
+            collectReads(((UnaryMinus) expression).getOperand(), spans);
+        } else if (expression instanceof BinaryOperation) {
+            collectReads(((BinaryOperation) expression).getLeft(), spans);
+            collectReads(((BinaryOperation) expression).getRight(), spans);
+        } else if (expression instanceof FunctionCall) {
+            for (Expression argument : ((FunctionCall) expression).getArguments()) {
+                collectReads(argument, spans);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.model.formula;
+
+/**
+ * A quoted string or a bare word in a formula, or the content of a cell that is
+ * not a formula at all.
+ */
+public final class TextLiteral implements Expression {
+    private final Value value; // The literal value, shared by every evaluation
+
+    /**
+     * Constructs a text literal.
+     *
+     * @param text the text of the literal.
+     */
+    public TextLiteral(String text) {
+        this.value = Value.text(text); // Wrap the text once
+    }
+
+    @Override
+    public Value evaluate(IEvaluationContext context) {
+        return this.value; // Literals always evaluate to themselves
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof TextLiteral
+                && this.value.toString().equals(((TextLiteral) other).value.toString()); // Same text
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 + this.value.toString().hashCode(); // Differs from a number with the same text
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.model.formula;
+
+/**
+ * Represents a single token produced by the {@link Tokenizer}.
+ */
+public final class Token {
+    private final TokenType type; // The kind of token
+    private final String text; // The text of the token
+    private final int position; // The offset of the token in the formula
+
+    /**
+     * Constructs a token.
+     *
+     * @param type     the kind of token.
+     * @param text     the text of the token.
+     * @param position the offset of the token in the formula.
+     */
+    public Token(TokenType type, String text, int position) {
+        this.type = type; // Set the type
+        this.text = text; // Set the text
+        this.position = position; // Set the position
+    }
+
+    /**
+     * Gets the kind of token.
+     *
+     * @return the token type.
+     */
+    public TokenType getType() {
+        return this.type; // Return the type
+    }
+
+    /**
+     * Gets the text of the token.
+     *
+     * @return the token text.
+     */
+    public String getText() {
+        return this.text; // Return the text
+    }
+
+    /**
+     * Gets the offset of the token in the formula.
+     *
+     * @return the position.
+     */
+    public int getPosition() {
+        return this.position; // Return the position
+    }
+}
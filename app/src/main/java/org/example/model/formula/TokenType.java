@@ -0,0 +1,16 @@
+package org.example.model.formula;
+
+/**
+ * The kinds of tokens that can appear in a formula.
+ */
+public enum TokenType {
+    NUMBER, // A numeric literal such as 4 or 2.5
+    STRING, // A quoted string literal such as "hello"
+    REFERENCE, // A cell reference such as $A1
+    IDENTIFIER, // A function name or bare word
+    PLUS, MINUS, STAR, SLASH, // Arithmetic operators
+    LESS, GREATER, EQUAL, NOT_EQUAL, // Comparison operators
+    AND, OR, // Logical operators
+    COLON, COMMA, LEFT_PAREN, RIGHT_PAREN, // Punctuation
+    END // The end of the formula
+}
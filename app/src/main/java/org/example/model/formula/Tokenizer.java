@@ -0,0 +1,164 @@
+package org.example.model.formula;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the body of a formula into tokens for the {@link FormulaParser}.
+ */
+public final class Tokenizer {
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Tokenizer() {
+    }
+
+    /**
+     * Splits the given formula body into tokens. The returned list always ends with
+     * an {@link TokenType#END} token.
+     *
+     * @param input the formula body without the leading "=".
+     * @return the list of tokens.
+     * @throws IllegalArgumentException if the input contains a character that is not
+     *                                  part of the formula language.
+     */
+    public static List<Token> tokenize(String input) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = input.length();
+        while (i < length) {
+            char c = input.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++; // Skip whitespace between tokens
+            } else if (isDigit(c) || (c == '.' && i + 1 < length && isDigit(input.charAt(i + 1)))) {
+                i = readNumber(input, i, tokens); // Read a numeric literal
+            } else if (c == '$') {
+                i = readReference(input, i, tokens); // Read a cell reference
+            } else if (Character.isLetter(c)) {
+                i = readIdentifier(input, i, tokens); // Read a function name or bare word
+            } else if (c == '"') {
+                i = readString(input, i, tokens); // Read a quoted string
+            } else if (c == '<' && i + 1 < length && input.charAt(i + 1) == '>') {
+                tokens.add(new Token(TokenType.NOT_EQUAL, "<>", i)); // Two character operator
+                i += 2;
+            } else {
+                tokens.add(new Token(symbolType(c, i), String.valueOf(c), i)); // Single character token
+                i++;
+            }
+        }
+        tokens.add(new Token(TokenType.END, "", length)); // Mark the end of the input
+        return tokens;
+    }
+
+    /**
+     * Reads a numeric literal starting at the given offset.
+     *
+     * @param input  the formula body.
+     * @param start  the offset of the first character.
+     * @param tokens the list to add the token to.
+     * @return the offset after the literal.
+     */
+    private static int readNumber(String input, int start, List<Token> tokens) {
+        int i = start;
+        while (i < input.length() && isDigit(input.charAt(i))) {
+            i++; // Integer part
+        }
+        if (i < input.length() && input.charAt(i) == '.') {
+            i++; // Decimal point
+            while (i < input.length() && isDigit(input.charAt(i))) {
+                i++; // Fractional part
+            }
+        }
+        tokens.add(new Token(TokenType.NUMBER, input.substring(start, i), start));
+        return i;
+    }
+
+    /**
+     * Reads a cell reference such as $A1 starting at the given offset.
+     *
+     * @param input  the formula body.
+     * @param start  the offset of the "$".
+     * @param tokens the list to add the token to.
+     * @return the offset after the reference.
+     */
+    private static int readReference(String input, int start, List<Token> tokens) {
+        int i = ReferenceScanner.referenceEnd(input, start); // Column letters, then row digits
+        if (i < 0) {
+            throw new IllegalArgumentException("Invalid cell reference at " + start);
+        }
+        tokens.add(new Token(TokenType.REFERENCE, input.substring(start, i), start));
+        return i;
+    }
+
+    /**
+     * Reads a run of letters starting at the given offset.
+     *
+     * @param input  the formula body.
+     * @param start  the offset of the first letter.
+     * @param tokens the list to add the token to.
+     * @return the offset after the identifier.
+     */
+    private static int readIdentifier(String input, int start, List<Token> tokens) {
+        int i = start;
+        while (i < input.length() && Character.isLetter(input.charAt(i))) {
+            i++; // Letters of the identifier
+        }
+        tokens.add(new Token(TokenType.IDENTIFIER, input.substring(start, i), start));
+        return i;
+    }
+
+    /**
+     * Reads a quoted string starting at the given offset.
+     *
+     * @param input  the formula body.
+     * @param start  the offset of the opening quote.
+     * @param tokens the list to add the token to.
+     * @return the offset after the closing quote.
+     */
+    private static int readString(String input, int start, List<Token> tokens) {
+        int end = input.indexOf('"', start + 1); // Find the closing quote
+        if (end == -1) {
+            throw new IllegalArgumentException("Unterminated string at " + start);
+        }
+        tokens.add(new Token(TokenType.STRING, input.substring(start + 1, end), start));
+        return end + 1;
+    }
+
+    /**
+     * Maps a single character to its token type.
+     *
+     * @param c        the character.
+     * @param position the offset of the character.
+     * @return the token type.
+     */
+    private static TokenType symbolType(char c, int position) {
+        switch (c) {
+            case '+': return TokenType.PLUS;
+            case '-': return TokenType.MINUS;
+            case '*': return TokenType.STAR;
+            case '/': return TokenType.SLASH;
+            case '<': return TokenType.LESS;
+            case '>': return TokenType.GREATER;
+            case '=': return TokenType.EQUAL;
+            case '&': return TokenType.AND;
+            case '|': return TokenType.OR;
+            case ':': return TokenType.COLON;
+            case ',': return TokenType.COMMA;
+            case '(': return TokenType.LEFT_PAREN;
+            case ')': return TokenType.RIGHT_PAREN;
+            default:
+                throw new IllegalArgumentException("Unexpected character '" + c + "' at " + position);
+        }
+    }
+
+    /**
+     * Checks if a character is an ASCII digit.
+     *
+     * @param c the character.
+     * @return true if the character is a digit.
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
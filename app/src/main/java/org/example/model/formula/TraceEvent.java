@@ -0,0 +1,106 @@
+package org.example.model.formula;
+
+/**
+ * One entry of an {@link EvaluationTrace}. Events are immutable so they can be handed
+ * out of the trace while evaluation continues.
+ */
+public final class TraceEvent {
+
+    /**
+     * What an event records.
+     */
+    public enum Kind {
+        FORMULA, // A formula was evaluated: its expression tree, result and time
+        READ, // A formula read a cell
+        RANGE, // A formula summarised a range from the range index
+        SCRIPT, // A formula body was handed to the script engine
+        COPY, // A formula wrote a value into another cell
+        PAYLOAD // A version of a sheet was turned into a payload
+    }
+
+    private final long sequence; // Position of the event among all events of its trace
+    private final Kind kind; // What the event records
+    private final String sheet; // The sheet the event belongs to
+    private final String subject; // The formula, cell or version the event is about
+    private final String detail; // The expression tree, value or payload
+    private final long nanos; // Time taken, or 0 if not timed
+
+    /**
+     * Constructs a trace event.
+     *
+     * @param sequence the position of the event among all events of its trace.
+     * @param kind     what the event records.
+     * @param sheet    the sheet the event belongs to.
+     * @param subject  the formula, cell or version the event is about.
+     * @param detail   the expression tree, value or payload.
+     * @param nanos    the time taken, or 0 if not timed.
+     */
+    public TraceEvent(long sequence, Kind kind, String sheet, String subject, String detail, long nanos) {
+        this.sequence = sequence; // Set the sequence number
+        this.kind = kind; // Set the kind
+        this.sheet = sheet; // Set the sheet
+        this.subject = subject; // Set the subject
+        this.detail = detail; // Set the detail
+        this.nanos = nanos; // Set the time taken
+    }
+
+    /**
+     * Gets the position of the event among all events of its trace.
+     *
+     * @return the sequence number, starting at 0.
+     */
+    public long getSequence() {
+        return this.sequence; // Return the sequence number
+    }
+
+    /**
+     * Gets what the event records.
+     *
+     * @return the kind of event.
+     */
+    public Kind getKind() {
+        return this.kind; // Return the kind
+    }
+
+    /**
+     * Gets the sheet the event belongs to.
+     *
+     * @return the sheet name.
+     */
+    public String getSheet() {
+        return this.sheet; // Return the sheet
+    }
+
+    /**
+     * Gets the formula, cell or version the event is about.
+     *
+     * @return the subject.
+     */
+    public String getSubject() {
+        return this.subject; // Return the subject
+    }
+
+    /**
+     * Gets the expression tree, value or payload of the event.
+     *
+     * @return the detail.
+     */
+    public String getDetail() {
+        return this.detail; // Return the detail
+    }
+
+    /**
+     * Gets the time taken.
+     *
+     * @return the time in nanoseconds, or 0 if the event was not timed.
+     */
+    public long getNanos() {
+        return this.nanos; // Return the time taken
+    }
+
+    @Override
+    public String toString() {
+        return "#" + this.sequence + " " + this.kind + " [" + this.sheet + "] " + this.subject + " -> "
+                + this.detail + (this.nanos > 0 ? " (" + this.nanos + " ns)" : ""); // One line per event
+    }
+}
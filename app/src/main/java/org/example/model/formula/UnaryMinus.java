@@ -0,0 +1,48 @@
+package org.example.model.formula;
+
+/**
+ * The negation of an expression, such as -$A1.
+ */
+public final class UnaryMinus implements Expression {
+    private final Expression operand; // The negated expression
+
+    /**
+     * Constructs a negation.
+     *
+     * @param operand the negated expression.
+     */
+    public UnaryMinus(Expression operand) {
+        this.operand = operand; // Set the operand
+    }
+
+    /**
+     * Gets the negated expression.
+     *
+     * @return the operand.
+     */
+    public Expression getOperand() {
+        return this.operand; // Return the operand
+    }
+
+    @Override
+    public Value evaluate(IEvaluationContext context) {
+        Value value = this.operand.evaluate(context); // Evaluate the operand
+        if (value.isEmpty()) {
+            return Value.number(0); // An empty cell counts as zero
+        }
+        if (!value.isNumeric()) {
+            return Value.ERROR; // Only numbers can be negated
+        }
+        return Value.number(-value.asNumber()); // Negate the number
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof UnaryMinus && this.operand.equals(((UnaryMinus) other).operand);
+    }
+
+    @Override
+    public int hashCode() {
+        return -this.operand.hashCode();
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.model.formula;
+
+/**
+ * A formula body that could not be parsed. It is kept as text and handed to the
+ * script engine, which is how every formula was evaluated before the parser existed.
+ */
+public final class UnparsedFormula implements Expression {
+    private final String body; // The formula body without the leading "="
+
+    /**
+     * Constructs an unparsed formula.
+     *
+     * @param body the formula body without the leading "=".
+     */
+    public UnparsedFormula(String body) {
+        this.body = body; // Set the body
+    }
+
+    /**
+     * Gets the formula body.
+     *
+     * @return the formula body without the leading "=".
+     */
+    public String getBody() {
+        return this.body; // Return the body
+    }
+
+    @Override
+    public Value evaluate(IEvaluationContext context) {
+        return context.evaluateScript(this.body); // Fall back to the script engine
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof UnparsedFormula && this.body.equals(((UnparsedFormula) other).body);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.body.hashCode();
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.model.formula;
+
+import java.math.BigDecimal;
+
+/**
+ * Represents the value of a cell or the result of evaluating an expression. Text is
+ * classified once when the value is created, numbers are kept as primitive doubles
+ * and are only turned into a display string when asked for.
+ */
+public final class Value {
+
+    /**
+     * The kind of data held by a value.
+     */
+    public enum Kind {
+        NUMBER, TEXT, BOOLEAN, EMPTY, ERROR
+    }
+
+    public static final Value EMPTY = new Value(Kind.EMPTY, 0, ""); // Shared empty value
+    public static final Value ERROR = new Value(Kind.ERROR, 0, "Error"); // Shared error value
+    public static final Value CYCLE = new Value(Kind.ERROR, 0, "#CYCLE"); // A formula that reads itself
+    public static final Value TIMEOUT = new Value(Kind.ERROR, 0, "#TIMEOUT"); // A formula left out of a recalculation that ran too long
+    private static final Value TRUE = new Value(Kind.BOOLEAN, 1, "1"); // Shared true value
+    private static final Value FALSE = new Value(Kind.BOOLEAN, 0, "0"); // Shared false value
+
+    private final Kind kind; // The kind of this value
+    private final double number; // The numeric data if this is a number
+    private final boolean decimal; // Whether numbers are displayed with a decimal point
+    private String text; // The display text, computed lazily for numbers
+
+    /**
+     * Constructs a value of the given kind.
+     *
+     * @param kind   the kind of value.
+     * @param number the numeric data.
+     * @param text   the display text, or null to format the number lazily.
+     */
+    private Value(Kind kind, double number, String text) {
+        this(kind, number, text, false); // Numbers with text are never reformatted
+    }
+
+    /**
+     * Constructs a value of the given kind.
+     *
+     * @param kind    the kind of value.
+     * @param number  the numeric data.
+     * @param text    the display text, or null to format the number lazily.
+     * @param decimal whether the number is displayed with a decimal point.
+     */
+    private Value(Kind kind, double number, String text, boolean decimal) {
+        this.kind = kind; // Set the kind
+        this.number = number; // Set the numeric data
+        this.text = text; // Set the display text
+        this.decimal = decimal; // Set the display style
+    }
+
+    /**
+     * Creates a number that is displayed without a trailing ".0" when it is whole,
+     * as arithmetic and comparison results are.
+     *
+     * @param number the number.
+     * @return a number value.
+     */
+    public static Value number(double number) {
+        return new Value(Kind.NUMBER, number, null, false); // Plain number
+    }
+
+    /**
+     * Creates a number that is always displayed as a decimal, as function results are.
+     *
+     * @param number the number.
+     * @return a number value.
+     */
+    public static Value decimal(double number) {
+        return new Value(Kind.NUMBER, number, null, true); // Decimal number
+    }
+
+    /**
+     * Creates a number that is displayed exactly as it was written in the formula.
+     *
+     * @param number the number.
+     * @param lexeme the text the number was parsed from.
+     * @return a number value.
+     */
+    public static Value literal(double number, String lexeme) {
+        return new Value(Kind.NUMBER, number, lexeme); // Number keeping its written form
+    }
+
+    /**
+     * Creates a boolean result, represented as 1 or 0.
+     *
+     * @param condition the condition.
+     * @return 1 if the condition holds, otherwise 0.
+     */
+    public static Value bool(boolean condition) {
+        return condition ? TRUE : FALSE; // Shared boolean values
+    }
+
+    /**
+     * Creates a value from text, such as a cell's contents. Text that holds a number
+     * becomes a number that keeps its written form.
+     *
+     * @param text the text.
+     * @return a number, text or error value, or the empty value for an empty string.
+     */
+    public static Value text(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY; // Empty text is the empty value
+        }
+        if (text.equals("Error")) {
+            return ERROR; // Propagate errors stored in cells
+        }
+        if (text.startsWith("#")) {
+            if (text.equals(CYCLE.text)) {
+                return CYCLE;
+            }
+            if (text.equals(TIMEOUT.text)) {
+                return TIMEOUT;
+            }
+        }
+        if (mayBeNumber(text.charAt(0))) {
+            try {
+                return new Value(Kind.NUMBER, Double.parseDouble(text), text); // Parse the number once
+            } catch (NumberFormatException e) {
+                // Not a number after all
+            }
+        }
+        return new Value(Kind.TEXT, 0, text); // Plain text
+    }
+
+    /**
+     * Checks if text starting with the given character could be a number, so that
+     * ordinary words are not handed to the number parser.
+     *
+     * @param c the first character.
+     * @return true if the text may hold a number.
+     */
+    private static boolean mayBeNumber(char c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'N' || c == 'I'
+                || Character.isWhitespace(c);
+    }
+
+    /**
+     * Gets the kind of this value.
+     *
+     * @return the kind.
+     */
+    public Kind getKind() {
+        return this.kind; // Return the kind
+    }
+
+    /**
+     * Checks if this value is an error.
+     *
+     * @return true if this value is an error.
+     */
+    public boolean isError() {
+        return this.kind == Kind.ERROR; // Errors are identified by kind
+    }
+
+    /**
+     * Checks if this value is empty.
+     *
+     * @return true if this value is empty.
+     */
+    public boolean isEmpty() {
+        return this.kind == Kind.EMPTY; // Empty values are identified by kind
+    }
+
+    /**
+     * Checks if this value can be used as a number.
+     *
+     * @return true if this value is a number or a boolean.
+     */
+    public boolean isNumeric() {
+        return this.kind == Kind.NUMBER || this.kind == Kind.BOOLEAN; // Booleans count as 1 and 0
+    }
+
+    /**
+     * Gets the numeric form of this value. Only meaningful if {@link #isNumeric()} is true.
+     *
+     * @return the number, or 0 for other kinds of value.
+     */
+    public double asNumber() {
+        return this.number; // Return the numeric data
+    }
+
+    /**
+     * Gets the display text of this value.
+     *
+     * @return the display text.
+     */
+    @Override
+    public String toString() {
+        if (this.text == null) {
+            this.text = this.decimal ? Double.toString(this.number) : formatPlain(this.number); // Format once
+        }
+        return this.text; // Return the display text
+    }
+
+    /**
+     * Formats a number the way the script engine used to print arithmetic results:
+     * whole numbers have no decimal part and only very large or very small numbers
+     * use an exponent.
+     *
+     * @param number the number.
+     * @return the formatted number.
+     */
+    static String formatPlain(double number) {
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            return Double.toString(number); // NaN and Infinity are printed by name
+        }
+        double magnitude = Math.abs(number);
+        if (number == Math.rint(number) && magnitude < 1e15) {
+            return Long.toString((long) number); // Whole numbers have no decimal part
+        }
+        if (magnitude >= 1e-6 && magnitude < 1e21) {
+            return BigDecimal.valueOf(number).stripTrailingZeros().toPlainString(); // Shortest digits without an exponent
+        }
+        String text = Double.toString(number); // Shortest digits with an exponent, such as 1.0E21
+        int exponent = text.indexOf('E');
+        String mantissa = text.substring(0, exponent);
+        if (mantissa.endsWith(".0")) {
+            mantissa = mantissa.substring(0, mantissa.length() - 2); // Drop an empty fraction
+        }
+        String power = text.substring(exponent + 1);
+        return mantissa + "e" + (power.startsWith("-") ? power : "+" + power); // Write the exponent as 1e+21
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.model.formula;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The aggregate kernels written with the Vector API, which processes as many numbers
+ * per instruction as the processor's widest vector register holds. Only use this class
+ * when {@link NumericKernels#isVectorAvailable()} is true, since loading it fails when
+ * the jdk.incubator.vector module is not added to the JVM.
+ */
+public final class VectorKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED; // Widest vector supported
+
+    /**
+     * Prevents construction; all methods are static.
+     */
+    private VectorKernels() {
+    }
+
+    /**
+     * Sums the first numbers of an array.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the sum.
+     */
+    public static double sum(double[] values, int length) {
+        DoubleVector lanes = DoubleVector.zero(SPECIES); // One running sum per lane
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            lanes = lanes.add(DoubleVector.fromArray(SPECIES, values, i));
+        }
+        double sum = lanes.reduceLanes(VectorOperators.ADD); // Combine the lanes
+        for (; i < length; i++) {
+            sum += values[i]; // The numbers that do not fill a vector
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the smallest of the first numbers of an array.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the minimum, or positive infinity if there are no numbers.
+     */
+    public static double min(double[] values, int length) {
+        DoubleVector lanes = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY); // One minimum per lane
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            lanes = lanes.min(DoubleVector.fromArray(SPECIES, values, i));
+        }
+        double min = lanes.reduceLanes(VectorOperators.MIN); // Combine the lanes
+        for (; i < length; i++) {
+            min = Math.min(min, values[i]); // The numbers that do not fill a vector
+        }
+        return min;
+    }
+
+    /**
+     * Finds the largest of the first numbers of an array.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the maximum, or negative infinity if there are no numbers.
+     */
+    public static double max(double[] values, int length) {
+        DoubleVector lanes = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY); // One maximum per lane
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            lanes = lanes.max(DoubleVector.fromArray(SPECIES, values, i));
+        }
+        double max = lanes.reduceLanes(VectorOperators.MAX); // Combine the lanes
+        for (; i < length; i++) {
+            max = Math.max(max, values[i]); // The numbers that do not fill a vector
+        }
+        return max;
+    }
+
+    /**
+     * Calculates the population standard deviation of the first numbers of an array.
+     * Welford's algorithm cannot be split across lanes, so this takes two passes: one
+     * for the mean and one for the squared differences from it, which keeps the same
+     * precision for numbers with a large common offset.
+     *
+     * @param values the numbers.
+     * @param length the number of numbers to use.
+     * @return the standard deviation, or NaN if there are no numbers.
+     */
+    public static double stddev(double[] values, int length) {
+        double mean = sum(values, length) / length;
+        DoubleVector means = DoubleVector.broadcast(SPECIES, mean);
+        DoubleVector lanes = DoubleVector.zero(SPECIES); // One running sum of squares per lane
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector delta = DoubleVector.fromArray(SPECIES, values, i).sub(means);
+            lanes = delta.fma(delta, lanes); // Add the squared differences
+        }
+        double squares = lanes.reduceLanes(VectorOperators.ADD); // Combine the lanes
+        for (; i < length; i++) {
+            double delta = values[i] - mean;
+            squares += delta * delta; // The numbers that do not fill a vector
+        }
+        return Math.sqrt(squares / length);
+    }
+}
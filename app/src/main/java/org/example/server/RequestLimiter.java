@@ -0,0 +1,92 @@
+package org.example.server;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Caps how many API requests are served at once. With requests on virtual threads
+ * nothing else bounds how many run together, so without a cap a burst of clients
+ * would hold as many requests, and their memory, as there are connections.
+ *
+ * <p>A request over the cap waits for a running request to finish. If none finishes
+ * within the wait it is answered with 503 Service Unavailable and is not served.</p>
+ */
+public class RequestLimiter implements Filter {
+    public static final int DEFAULT_MAX_REQUESTS = 10_000; // Requests served at once by default
+    public static final long DEFAULT_WAIT_MILLIS = 1_000; // Time a request waits for a permit by default
+
+    private final Semaphore permits; // One permit per request being served
+    private final int maxRequests; // Number of permits
+    private final long waitMillis; // Time a request waits for a permit
+
+    /**
+     * Constructs a limiter.
+     *
+     * @param maxRequests the number of requests served at once.
+     * @param waitMillis  how long a request over the cap waits before it is turned away.
+     * @throws IllegalArgumentException if maxRequests is below 1 or waitMillis is negative.
+     */
+    public RequestLimiter(int maxRequests, long waitMillis) {
+        if (maxRequests < 1 || waitMillis < 0) {
+            throw new IllegalArgumentException("Invalid request limit: " + maxRequests + ", " + waitMillis + " ms");
+        }
+        this.permits = new Semaphore(maxRequests);
+        this.maxRequests = maxRequests;
+        this.waitMillis = waitMillis;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!tryAcquire()) {
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setHeader("Retry-After", "1"); // Ask the client to come back shortly
+            httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many requests");
+            return;
+        }
+        try {
+            chain.doFilter(request, response); // Serve the request
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Takes a permit to serve a request, waiting for one if the cap is reached.
+     * Every successful call must be followed by {@link #release()}.
+     *
+     * @return true if the request may be served, false if no permit freed up in time.
+     */
+    public boolean tryAcquire() {
+        try {
+            return this.permits.tryAcquire(this.waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Keep the interrupt for the caller
+            return false;
+        }
+    }
+
+    /**
+     * Returns the permit of a request that has been served.
+     */
+    public void release() {
+        this.permits.release();
+    }
+
+    /**
+     * Gets the number of requests being served.
+     *
+     * @return the number of permits taken.
+     */
+    public int getActiveRequests() {
+        return this.maxRequests - this.permits.availablePermits();
+    }
+}
@@ -1,19 +1,20 @@
 package org.example.server;
 
 import org.example.model.*;
+import org.example.model.formula.EvaluationTrace;
+import org.example.model.formula.TraceEvent;
 
 import java.util.Base64;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Persistent REST API Server for handling requests from HuskSheet application
@@ -23,8 +24,32 @@ import java.util.Map;
 @RequestMapping("/api/v1")
 public class Server {
 
-    //List of all available users
-    List<IAppUser> availUsers = new ArrayList<>();
+    // All available users, by username
+    UserRegistry registry = new UserRegistry();
+
+    // Versions and changed cells between snapshots of the version logs of new sheets
+    private int snapshotVersions = Spreadsheet.DEFAULT_SNAPSHOT_VERSIONS;
+    private int snapshotCells = Spreadsheet.DEFAULT_SNAPSHOT_CELLS;
+
+    /**
+     * Sets how often the version logs of new sheets keep the whole cells of a version.
+     * A client opening a sheet gets the latest snapshot and the versions after it, so a
+     * shorter interval makes opening faster at the cost of memory.
+     *
+     * @param versions the number of versions between snapshots.
+     * @param cells    the number of changed cells between snapshots.
+     * @throws IllegalArgumentException if either limit is less than 1.
+     */
+    @Autowired
+    void setSnapshotInterval(
+            @Value("${husksheets.snapshot-versions:" + Spreadsheet.DEFAULT_SNAPSHOT_VERSIONS + "}") int versions,
+            @Value("${husksheets.snapshot-cells:" + Spreadsheet.DEFAULT_SNAPSHOT_CELLS + "}") int cells) {
+        if (versions < 1 || cells < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + versions + ", " + cells);
+        }
+        this.snapshotVersions = versions;
+        this.snapshotCells = cells;
+    }
 
     /**
      * Decodes the basic authentication and returns a String array of the credentials.
@@ -64,12 +89,7 @@ public class Server {
      * @author Tony
      */
     private boolean hasSheet(String sheet, String publisher) {
-        for (IAppUser user : availUsers) { // Iterate through all available users
-            if (user.getUsername().equals(publisher) && user.doesSheetExist(sheet)) {
-                return true; // Return true if the user exists and the sheet exists for the publisher
-            }
-        }
-        return false; // Return false if the sheet does not exist for the publisher
+        return this.registry.findSheet(publisher, sheet) != null; // Look up the publisher, then the sheet
     }
 
     /**
@@ -80,12 +100,7 @@ public class Server {
      * @author Ben
      */
     private IAppUser findUser(String username) {
-        for (IAppUser user : this.availUsers) { // Iterate through all available users
-            if (user.getUsername().equals(username)) {
-                return user; // Return the user if the username matches
-            }
-        }
-        return null; // Return null if no user is found with the given username
+        return this.registry.find(username); // Look the user up by username
     }
 
     /**
@@ -97,31 +112,9 @@ public class Server {
      * @author Ben
      */
     public boolean existingUser(String username, String password) {
-        for (IAppUser user : availUsers) { // Iterate through all available users
-            if (user.getUsername().equals(username) && user.getPassword().equals(password)) {
-                return true; // Return true if the username and password match an existing user
-            }
-        }
-        return false; // Return false if no matching user is found
-    }
-
-    /**
-     * Determines if there exists a user with the given username.
-     *
-     * @param username a String
-     * @return true if there exists a user with the given username and false otherwise.
-     * @author Tony
-     */
-    private boolean findByUsername(String username) {
-        for (IAppUser user : availUsers) { // Iterate through all available users
-            if (user.getUsername().equals(username)) {
-                return true; // Return true if the username matches an existing user
-            }
-        }
-        return false; // Return false if no matching user is found
+        return this.registry.authenticate(username, password); // Look the user up and check the password
     }
 
-
     /**
      * Gets a list of publishers currently stored in the server.
      *
@@ -145,7 +138,7 @@ public class Server {
                     false, "User not found", new ArrayList<>())); // Return 404 status if user is not found
         }
         List<Argument> listOfArgument = new ArrayList<>();
-        for (IAppUser appUser : availUsers) { // Iterate through all available users
+        for (IAppUser appUser : this.registry.getUsers()) { // Iterate through all available users
             listOfArgument.add(new Argument(appUser.getUsername(), null, null, null)); // Add each user to the list of arguments
         }
         return ResponseEntity.ok(new Result(
@@ -190,6 +183,7 @@ public class Server {
                         false, "User not found", new ArrayList<>())); // Return 404 status if user is not found
             }
             user.addSheet(sheet); // Add the sheet to the user
+            user.getSheet(sheet).setSnapshotInterval(this.snapshotVersions, this.snapshotCells); // Apply the configured interval
             return ResponseEntity.ok(new Result(
                     true, "Sheet created successfully", new ArrayList<>())); // Return 201 status if sheet is created successfully
         }
@@ -294,40 +288,29 @@ public class Server {
         }
         // New updated sheet must not mutate old version and must be initialized with empty grid
         // to account for empty spaces or deletions in the update
-        for (ISpreadsheet existingSheet : user.getSheets()) { // Iterate through the user's sheets
-            if (existingSheet.getName().equals(sheet)) {
-                List<List<String>> data = Home.convertStringTo2DArray(payload); // Convert the payload to a 2D array
-                List<List<Cell>> updatedGrid = initializeEmptyGrid(existingSheet.getRows(), existingSheet.getCols()); // Initialize an empty grid
-                populateUpdatedGrid(updatedGrid, data); // Populate the updated grid with the data
-                existingSheet.setGrid(updatedGrid); // Set the updated grid in the existing sheet
-                ISpreadsheet updatedVersion = createUpdatedVersion(existingSheet); // Create an updated version of the sheet
-                existingSheet.addPublished(updatedVersion);  // Add the updated version to the list of published versions
-                return ResponseEntity.ok(new Result(true, "Sheet updated successfully", new ArrayList<>())); // Return 200 status if sheet is updated successfully
-            }
+        ISpreadsheet existingSheet = user.getSheet(sheet); // Look the sheet up by name
+        if (existingSheet == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new Result(
+                    false, "Sheet not found", new ArrayList<>())); // Return 404 status if sheet is not found
         }
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new Result(
-                false, "Sheet not found", new ArrayList<>())); // Return 404 status if sheet is not found
+        List<List<String>> data = Home.convertStringTo2DArray(payload); // Convert the payload to a 2D array
+        SparseGrid updatedGrid = initializeEmptyGrid(existingSheet.getRows(), existingSheet.getCols()); // Initialize an empty grid
+        populateUpdatedGrid(updatedGrid, data); // Populate the updated grid with the data
+        existingSheet.publish(updatedGrid.asRows()); // Set the grid and add it to the published versions in one step
+        return ResponseEntity.ok(new Result(true, "Sheet updated successfully", new ArrayList<>())); // Return 200 status if sheet is updated successfully
     }
 
 
     /**
-     * Initializes an empty grid of cells.
+     * Initializes an empty grid of cells. No cells are allocated until they are written.
      *
      * @param rows number of rows
      * @param cols number of columns
-     * @return a 2D list of Cell
+     * @return an empty sparse grid
      * @author Ben
      */
-    private List<List<Cell>> initializeEmptyGrid(int rows, int cols) {
-        List<List<Cell>> grid = new ArrayList<>(); // Initialize the grid
-        for (int i = 0; i < rows; i++) {
-            ArrayList<Cell> row = new ArrayList<>(); // Initialize a new row
-            for (int j = 0; j < cols; j++) {
-                row.add(new Cell("")); // Add a new empty cell to the row
-            }
-            grid.add(row); // Add the row to the grid
-        }
-        return grid; // Return the grid
+    private SparseGrid initializeEmptyGrid(int rows, int cols) {
+        return new SparseGrid(rows, cols); // Cells are allocated as the update writes them
     }
 
     /**
@@ -337,33 +320,30 @@ public class Server {
      * @param data previous grid
      * @author Ben
      */
-    private void populateUpdatedGrid(List<List<Cell>> grid, List<List<String>> data) {
+    private void populateUpdatedGrid(SparseGrid grid, List<List<String>> data) {
         for (List<String> ls : data) { // Iterate through the data
             int row = Integer.parseInt(ls.get(0)); // Get the row index from the data
             int col = Integer.parseInt(ls.get(1)); // Get the column index from the data
             String value = ls.get(2); // Get the cell value from the data
-            grid.get(row).get(col).setValue(value); // Set the cell value in the grid
-            grid.get(row).get(col).setRawData(value); // Set the raw data in the grid
+            Cell cell = grid.getForWrite(row, col); // Allocate the cell being written
+            cell.setValue(value); // Set the cell value in the grid
+            cell.setRawData(value); // Set the raw data in the grid
         }
     }
 
     /**
-     * Creates a new copy of the updated version to be saved in the list of versions.
+     * Records the changes read for a client if the sheet or the current request is traced.
      *
-     * @param existingSheet the existing ISpreadsheet
-     * @return a new ISpreadSheet
-     * @author Ben
+     * @param sheet   the sheet the versions belong to
+     * @param version the index of the first version read
+     * @param payload the changes made from that version on
      */
-    private ISpreadsheet createUpdatedVersion(ISpreadsheet existingSheet) {
-        ISpreadsheet updatedVersion = new Spreadsheet(existingSheet.getName()); // Create a new spreadsheet with the same name
-        List<List<Cell>> grid = existingSheet.getCells(); // Get the grid from the existing sheet
-        for (int i = 0; i < grid.size(); i++) {
-            for (int j = 0; j < grid.get(i).size(); j++) {
-                updatedVersion.setCellValue(i, j, grid.get(i).get(j).getValue()); // Set the cell value in the updated version
-                updatedVersion.setCellRawdata(i, j, grid.get(i).get(j).getRawdata()); // Set the raw data in the updated version
-            }
+    private static void tracePayload(ISpreadsheet sheet, int version, String payload) {
+        EvaluationTrace trace = sheet instanceof Spreadsheet spreadsheet && spreadsheet.getTrace() != null
+                ? spreadsheet.getTrace() : EvaluationTrace.current(); // Find a trace that is on
+        if (trace != null) {
+            trace.record(TraceEvent.Kind.PAYLOAD, sheet.getName(), "since version " + version, payload, 0);
         }
-        return updatedVersion; // Return the updated version
     }
 
     /**
@@ -394,19 +374,16 @@ public class Server {
         }
         // New updated sheet must not mutate old version and must be initialized with empty grid
         // to account for empty spaces or deletions in the update
-        for (ISpreadsheet existingSheet : user.getSheets()) { // Iterate through the user's sheets
-            if (existingSheet.getName().equals(sheet)) {
-                List<List<String>> data = Home.convertStringTo2DArray(payload); // Convert the payload to a 2D array
-                List<List<Cell>> updatedGrid = initializeEmptyGrid(existingSheet.getRows(), existingSheet.getCols()); // Initialize an empty grid
-                populateUpdatedGrid(updatedGrid, data); // Populate the updated grid with the data
-                existingSheet.setGrid(updatedGrid); // Set the updated grid in the existing sheet
-                ISpreadsheet updatedVersion = createUpdatedVersion(existingSheet); // Create an updated version of the sheet
-                existingSheet.addSubscribed(updatedVersion); // Add the updated version to the list of subscribed versions
-                return ResponseEntity.ok(new Result(true, "Sheet updated successfully", new ArrayList<>())); // Return 200 status if sheet is updated successfully
-            }
+        ISpreadsheet existingSheet = user.getSheet(sheet); // Look the sheet up by name
+        if (existingSheet == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new Result(
+                    false, "Sheet not found", new ArrayList<>())); // Return 404 status if sheet is not found
         }
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new Result(
-                false, "Sheet not found", new ArrayList<>())); // Return 404 status if sheet is not found
+        List<List<String>> data = Home.convertStringTo2DArray(payload); // Convert the payload to a 2D array
+        SparseGrid updatedGrid = initializeEmptyGrid(existingSheet.getRows(), existingSheet.getCols()); // Initialize an empty grid
+        populateUpdatedGrid(updatedGrid, data); // Populate the updated grid with the data
+        existingSheet.subscribe(updatedGrid.asRows()); // Set the grid and add it to the subscribed versions in one step
+        return ResponseEntity.ok(new Result(true, "Sheet updated successfully", new ArrayList<>())); // Return 200 status if sheet is updated successfully
     }
 
     /**
@@ -427,12 +404,11 @@ public class Server {
         }
         String username = credentials[0]; // Get the username from credentials
         String password = credentials[1]; // Get the password from credentials
-        if (findByUsername(username)) {
+        AppUser newUser = new AppUser(username, password); // Create a new user
+        if (!this.registry.add(newUser)) { // Check and add in one step, so only one of two concurrent requests wins
             return ResponseEntity.ok(new Result(
                     true, "User already exists", new ArrayList<>())); // Return 401 status if user already exists
         }
-        AppUser newUser = new AppUser(username, password); // Create a new user
-        availUsers.add(newUser); // Add the new user to the list of available users
         return ResponseEntity.ok(new Result(
                 true, "Publisher registered successfully", new ArrayList<>())); // Return 200 status if user is registered successfully
     }
@@ -492,78 +468,15 @@ public class Server {
                     false, "User not found", new ArrayList<>()));  // Return 404 status if user is not found
         }
         List<Argument> arguments = new ArrayList<>(); // Initialize the list of arguments
-        for (ISpreadsheet existingSheet : user.getSheets()) { // Iterate through the user's sheets
-            if (existingSheet.getName().equals(sheet)) {
-                List<String> listOfPayload = new ArrayList<>();
-                List<ISpreadsheet> versions = existingSheet.getPublishedVersions(); // Get the list of published versions
-                for (int i = Integer.parseInt(id); i < versions.size(); i++) { // Iterate through the versions starting from the given id
-                    String payload = Spreadsheet.convertSheetToPayload(versions.get(i)); // Convert the sheet to a payload
-                    payload = payload.replace("\\n", "\n");
-                    System.out.println(payload);
-                    listOfPayload.add(payload);
-                }
-                String payload = trackDifferences(listOfPayload);
-                arguments.add(new Argument(publisher, sheet, String.valueOf(versions.size()), payload));
-                return ResponseEntity.ok(new Result(true, "Updates received", arguments)); // Return 200 status with the list of updates
-            }
-        }
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new Result(
-                false, "Sheet not found", new ArrayList<>()));  // Return 404 status if sheet is not found
-    }
-
-    /**
-     * Tracks the differences between a history of payloads.
-     * @param strings a List of payloads
-     * @return a string representing the updates over the course of time.
-     * @author Ben
-     */
-    public static String trackDifferences(List<String> strings) {
-        StringBuilder output = new StringBuilder();
-        Map<String, String> previousValues = new LinkedHashMap<>();
-
-        for (String str : strings) {
-            Map<String, String> currentValues = parseCurrentValues(str);
-
-            // Append new or updated entries
-            for (Map.Entry<String, String> entry : currentValues.entrySet()) {
-                String key = entry.getKey();
-                String value = entry.getValue();
-                // If it's new or changed, append it
-                if (!previousValues.containsKey(key) || !value.equals(previousValues.get(key))) {
-                    output.append(key).append(" ").append(value).append("\n");
-                }
-            }
-
-            // Check for missing entries from the previous set
-            for (String key : previousValues.keySet()) {
-                if (!currentValues.containsKey(key)) {
-                    output.append(key).append("\n");
-                }
-            }
-
-            // Update the previous values
-            previousValues = new HashMap<>(currentValues);
-        }
-
-        return output.toString();
-    }
-
-    /**
-     * Splits up the payload into more manageable data.
-     * @param str a payload
-     * @return a Map<String, String>
-     * @author Ben
-     */
-    private static Map<String, String> parseCurrentValues(String str) {
-        Map<String, String> values = new LinkedHashMap<>();
-        String[] lines = str.split("\n");
-        for (String line : lines) {
-            if (line.trim().isEmpty()) continue;
-            String[] parts = line.split(" ", 2);
-            if (parts.length < 2) continue;
-            values.put(parts[0].trim(), parts[1].trim());
+        ISpreadsheet existingSheet = user.getSheet(sheet); // Look the sheet up by name
+        if (existingSheet == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new Result(
+                    false, "Sheet not found", new ArrayList<>()));  // Return 404 status if sheet is not found
         }
-        return values;
+        SheetUpdates updates = existingSheet.getPublishedUpdates(Integer.parseInt(id)); // Read the changes from the given id on
+        tracePayload(existingSheet, Integer.parseInt(id), updates.getPayload()); // Record the payload if the sheet or request is traced
+        arguments.add(new Argument(publisher, sheet, String.valueOf(updates.getVersion()), updates.getPayload()));
+        return ResponseEntity.ok(new Result(true, "Updates received", arguments)); // Return 200 status with the list of updates
     }
 
     /**
@@ -594,23 +507,14 @@ public class Server {
                     false, "User not found", new ArrayList<>())); // Return 404 status if user is not found
         }
         List<Argument> arguments = new ArrayList<>(); // Initialize the list of arguments
-        for (ISpreadsheet existingSheet : user.getSheets()) { // Iterate through the user's sheets
-
-            if (existingSheet.getName().equals(sheet)) {
-                List<String> listOfPayload = new ArrayList<>();
-                List<ISpreadsheet> versions = existingSheet.getSubscribedVersions(); // Get the list of subscribed versions
-                for (int i = Integer.parseInt(id); i < versions.size(); i++) { // Iterate through the versions starting from the given id
-                    String payload = Spreadsheet.convertSheetToPayload(versions.get(i)); // Convert the sheet to a payload
-                    payload = payload.replace("\\n", "\n");
-                    System.out.println(payload);
-                    listOfPayload.add(payload);
-                }
-                String payload = trackDifferences(listOfPayload);
-                arguments.add(new Argument(publisher, sheet, String.valueOf(versions.size()), payload));
-                return ResponseEntity.ok(new Result(true, "Updates received", arguments)); // Return 200 status with the list of updates
-            }
+        ISpreadsheet existingSheet = user.getSheet(sheet); // Look the sheet up by name
+        if (existingSheet == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new Result(
+                    false, "Sheet not found", new ArrayList<>()));  // Return 404 status if sheet is not found
         }
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new Result(
-                false, "Sheet not found", new ArrayList<>())); // Return 404 status if sheet is not found
+        SheetUpdates updates = existingSheet.getSubscribedUpdates(Integer.parseInt(id)); // Read the changes from the given id on
+        tracePayload(existingSheet, Integer.parseInt(id), updates.getPayload()); // Record the payload if the sheet or request is traced
+        arguments.add(new Argument(publisher, sheet, String.valueOf(updates.getVersion()), updates.getPayload()));
+        return ResponseEntity.ok(new Result(true, "Updates received", arguments)); // Return 200 status with the list of updates
     }
 }
@@ -0,0 +1,82 @@
+package org.example.server;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.example.model.IAppUser;
+import org.example.model.ISpreadsheet;
+
+/**
+ * Keeps every registered user by username, so the server finds a user, and through
+ * the user a sheet, in constant time however many publishers there are. Users are
+ * listed in the order they registered.
+ *
+ * <p>Requests arrive on many threads. Lookups never block, and of two concurrent
+ * registrations with the same username exactly one succeeds.</p>
+ */
+public class UserRegistry {
+    private final Map<String, IAppUser> users = new ConcurrentHashMap<>(); // Username -> user
+    private final List<IAppUser> order = new CopyOnWriteArrayList<>(); // Users in registration order, rarely written
+
+    /**
+     * Finds a user by username.
+     *
+     * @param username the username.
+     * @return the user, or null if no user has the username.
+     */
+    public IAppUser find(String username) {
+        return this.users.get(username);
+    }
+
+    /**
+     * Registers a user unless the username is taken.
+     *
+     * @param user the user.
+     * @return true if the user was added, false if a user with the same username exists.
+     */
+    public boolean add(IAppUser user) {
+        if (this.users.putIfAbsent(user.getUsername(), user) != null) {
+            return false; // Keep the first user with a name
+        }
+        this.order.add(user);
+        return true;
+    }
+
+    /**
+     * Checks if a username and password belong to a registered user.
+     *
+     * @param username the username.
+     * @param password the password.
+     * @return true if the user exists and the password matches.
+     */
+    public boolean authenticate(String username, String password) {
+        IAppUser user = this.users.get(username);
+        return user != null && user.getPassword().equals(password);
+    }
+
+    /**
+     * Finds a sheet of a publisher.
+     *
+     * @param publisher the username of the publisher.
+     * @param sheet     the name of the sheet.
+     * @return the sheet, or null if the publisher or the sheet does not exist.
+     */
+    public ISpreadsheet findSheet(String publisher, String sheet) {
+        IAppUser user = this.users.get(publisher);
+        return user == null ? null : user.getSheet(sheet);
+    }
+
+    /**
+     * Gets every registered user.
+     *
+     * @return an unmodifiable view of the users, in registration order. Iterating it
+     *         is safe while users register.
+     */
+    public Collection<IAppUser> getUsers() {
+        return Collections.unmodifiableList(this.order);
+    }
+}
@@ -42,6 +42,15 @@ public interface ISheetView {
      */
     void updateTable();
 
+    /**
+     * Updates a single cell of the table in the sheet view.
+     *
+     * @param row   the row of the cell.
+     * @param col   the column of the cell.
+     * @param value the value to display.
+     */
+    void updateCell(int row, int col, String value);
+
     /**
      * Changes the formula text field to display the given raw data.
      *
@@ -2,10 +2,10 @@ package org.example.view;
 
 import org.example.model.Cell;
 import org.example.model.ISpreadsheet;
+import org.example.model.SparseGrid;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
 
 /**
  * The ReviewChangesRenderer class customizes the rendering of table cells for review changes view.
@@ -13,7 +13,7 @@ import java.util.ArrayList;
  */
 public class ReviewChangesRenderer extends AbstractCustomTableCellRenderer {
 
-    private final ArrayList<ArrayList<Cell>> originalCells;
+    private final SparseGrid originalCells;
     private final ISpreadsheet changes;
 
     /**
@@ -23,7 +23,7 @@ public class ReviewChangesRenderer extends AbstractCustomTableCellRenderer {
      * @param changes the changes to be reviewed
      * @author Tony
      */
-    public ReviewChangesRenderer(ArrayList<ArrayList<Cell>> originalCells, ISpreadsheet changes) {
+    public ReviewChangesRenderer(SparseGrid originalCells, ISpreadsheet changes) {
         this.originalCells = originalCells; // Initialize original cells
         this.changes = changes; // Initialize changes
     }
@@ -37,11 +37,10 @@ public class ReviewChangesRenderer extends AbstractCustomTableCellRenderer {
     protected void configureCellRenderer(Component c, JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
         if (column > 0) { // Skip the row header
             int modelColumn = column - 1; // Adjust for row header
-            Cell currentCell = originalCells.get(row).get(modelColumn); // Get the current cell from original cells
-            Cell changeCell = changes.getCells().get(row).get(modelColumn); // Get the corresponding cell from changes
+            Cell currentCell = originalCells.get(row, modelColumn); // Get the current cell from original cells
+            String changeRawdata = changes.getCellRawdata(row, modelColumn); // Get the corresponding raw data from changes
 
-
-            if (!currentCell.getRawdata().equals(changeCell.getRawdata())) { // Check if the cell has changed
+            if (!currentCell.getRawdata().equals(changeRawdata)) { // Check if the cell has changed
                 c.setBackground(Color.YELLOW); // Highlight changed cells
             } else {
                 c.setBackground(Color.WHITE); // Default color for unchanged cells
@@ -1,19 +1,22 @@
 package org.example.view;
 
 import org.example.model.Cell;
+import org.example.model.DependencyGraph;
 import org.example.model.ISpreadsheet;
+import org.example.model.SparseGrid;
 import org.example.view.button.*;
 
 import javax.swing.*;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class ReviewChangesSheetView extends SheetView {
     private ISpreadsheet current;
     private ISpreadsheet changes;
-    private ArrayList<ArrayList<Cell>> originalCells;
+    private SparseGrid originalCells;
 
     /**
      * Constructor for ReviewChangesSheetView.
@@ -26,7 +29,7 @@ public class ReviewChangesSheetView extends SheetView {
         super(current);
         this.current = current;
         this.changes = changes;
-        originalCells = new ArrayList<>();
+        originalCells = new SparseGrid(current.getRows(), current.getCols());
         applyCustomCellRenderer(); // Apply the renderer in the constructor
     }
 
@@ -67,26 +70,28 @@ public class ReviewChangesSheetView extends SheetView {
      * @author Tony
      */
     public void loadChanges() throws Exception {
-        java.util.List<java.util.List<Cell>> changedCells = this.changes.getCells(); // Get the changed cells
-        java.util.List<java.util.List<Cell>> currCells = this.current.getCells(); // Get the current cells
+        Set<Long> positions = new TreeSet<>(); // Cells written in either sheet, in row major order
+        for (Cell cell : this.changes.getPopulatedCells()) {
+            positions.add(DependencyGraph.key(cell.getRow(), cell.getCol()));
+        }
+        for (Cell cell : this.current.getPopulatedCells()) {
+            positions.add(DependencyGraph.key(cell.getRow(), cell.getCol()));
+        }
 
         boolean changed = false; // Flag to track if any changes are found
-        for (int i = 0; i < changedCells.size(); i++) { // Iterate through the rows
-            ArrayList<Cell> addRow = new ArrayList<>(); // Create a new row for original cells
-            for (int j = 0; j < changedCells.get(i).size(); j++) { // Iterate through the columns
-                Cell change = changedCells.get(i).get(j); // Get the changed cell
-                Cell curr = currCells.get(i).get(j); // Get the current cell
+        for (long position : positions) { // Cells that neither sheet has written cannot differ
+            int i = DependencyGraph.row(position); // Get the row
+            int j = DependencyGraph.col(position); // Get the column
+            String change = this.changes.getCellRawdata(i, j); // Get the changed raw data
+            String currRawdata = this.current.getCellRawdata(i, j); // Get the current raw data
 
-                Cell addCell = new Cell(); // Create a new cell for original data
-                addCell.setRawData(curr.getRawdata()); // Set raw data from current cell
-                addCell.setValue(curr.getValue()); // Set value from current cell
-                addRow.add(addCell); // Add the cell to the row
-                if (!curr.getRawdata().equals(change.getRawdata())) { // Check if the cell data has changed
-                    changed = true; // Set the flag to true if a change is found
-                    controller.changeSpreadSheetValueAt(i, j, change.getRawdata()); // Update the spreadsheet with the change
-                }
+            Cell addCell = originalCells.getForWrite(i, j); // Create a new cell for original data
+            addCell.setRawData(currRawdata); // Set raw data from current cell
+            addCell.setValue(this.current.getCellValue(i, j)); // Set value from current cell
+            if (!currRawdata.equals(change)) { // Check if the cell data has changed
+                changed = true; // Set the flag to true if a change is found
+                controller.changeSpreadSheetValueAt(i, j, change); // Update the spreadsheet with the change
             }
-            originalCells.add(addRow); // Add the row to the list of original cells
         }
 
         if(!changed){
@@ -107,9 +112,7 @@ public class ReviewChangesSheetView extends SheetView {
     private void applyCustomCellRenderer() {
         JTable table = getTable(); // Get the table
         if (table != null) {
-            for (int i = 0; i < table.getColumnCount(); i++) { // Iterate through the columns
-                table.getColumnModel().getColumn(i).setCellRenderer(new ReviewChangesRenderer(originalCells, changes)); // Set the custom cell renderer for each column
-            }
+            table.setDefaultRenderer(Object.class, new ReviewChangesRenderer(originalCells, changes)); // Also applies to columns added as the table grows
         }
     }
 }
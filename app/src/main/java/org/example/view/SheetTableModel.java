@@ -0,0 +1,106 @@
+package org.example.view;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.table.AbstractTableModel;
+
+import org.example.model.DependencyGraph;
+import org.example.model.SparseGrid;
+import org.example.model.Spreadsheet;
+
+/**
+ * Table model for a sheet that only stores the cells that hold something. The first
+ * column shows row numbers, which are computed rather than stored. Writing to the last
+ * row or column adds more, up to the largest sheet, so the table grows on demand.
+ */
+public class SheetTableModel extends AbstractTableModel {
+    public static final int GROW_STEP = 100; // Rows or columns added when the edge is reached
+
+    private final Map<Long, Object> values = new HashMap<>(); // Displayed values by packed row and column
+    private int rows; // Number of rows shown
+    private int cols; // Number of sheet columns shown, not counting the row header
+
+    /**
+     * Constructs an empty model.
+     *
+     * @param rows the number of rows to show.
+     * @param cols the number of sheet columns to show.
+     */
+    public SheetTableModel(int rows, int cols) {
+        this.rows = Math.min(rows, SparseGrid.MAX_ROWS); // Set the number of rows
+        this.cols = Math.min(cols, SparseGrid.MAX_COLS); // Set the number of columns
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.cols + 1; // One more for the row header
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? "" : Spreadsheet.getColumnName(column); // Excel style names
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column != 0; // Make all columns except the first one editable
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == 0) {
+            return row + 1; // Row header
+        }
+        return this.values.getOrDefault(DependencyGraph.key(row, column - 1), ""); // Unset cells are empty
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column == 0) {
+            return; // Row headers are fixed
+        }
+        long key = DependencyGraph.key(row, column - 1);
+        if (value == null || "".equals(value)) {
+            this.values.remove(key); // Do not store empty cells
+        } else {
+            this.values.put(key, value);
+        }
+        fireTableCellUpdated(row, column); // Tell the table about the change
+        ensureSize(row + 1 < this.rows ? this.rows : row + 1 + GROW_STEP,
+                column < this.cols ? this.cols : column + GROW_STEP); // Grow when the edge is reached
+    }
+
+    /**
+     * Removes every value, leaving the size unchanged.
+     */
+    public void clear() {
+        this.values.clear(); // Forget the values
+        fireTableDataChanged(); // Tell the table
+    }
+
+    /**
+     * Grows the model to at least the given size.
+     *
+     * @param rows the number of rows.
+     * @param cols the number of sheet columns.
+     */
+    public void ensureSize(int rows, int cols) {
+        rows = Math.min(rows, SparseGrid.MAX_ROWS);
+        cols = Math.min(cols, SparseGrid.MAX_COLS);
+        if (rows > this.rows) {
+            int first = this.rows;
+            this.rows = rows;
+            fireTableRowsInserted(first, rows - 1); // Add rows at the bottom
+        }
+        if (cols > this.cols) {
+            this.cols = cols;
+            fireTableStructureChanged(); // Columns changed, so the table rebuilds its column model
+        }
+    }
+}
@@ -12,7 +12,6 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.HashMap;
@@ -32,8 +31,8 @@ public class SheetView extends SheetViewFactory<SheetView> implements ISheetView
     protected boolean isUpdatingTable = false; // Flag to check if the table is being updated
     protected JTextField formulaTextField; // Text field to display/edit the formula of the selected cell
 
-    protected static final int rowSize = 100; // Number of rows in the table
-    protected static final int colSize = 100; // Number of columns in the table
+    protected static final int rowSize = 100; // Smallest number of rows in the table
+    protected static final int colSize = 100; // Smallest number of columns in the table
     public static final Color PINK = new Color(255, 192, 203); // Color constant for pink
     public static final Color GREEN = new Color(0, 255, 0); // Color constant for green
 
@@ -62,11 +61,8 @@ public class SheetView extends SheetViewFactory<SheetView> implements ISheetView
         setExtendedState(JFrame.MAXIMIZED_BOTH); // Maximize the window
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Set the default close operation
         makeToolbar(); // Create the toolbar
-        Object[][] data = initializeData(); // Initialize the data array
-        initializeColumnNames(); // Initialize the column names
-        String[] columnNames = initializeColumnNames(); // Get the column names
-        DefaultTableModel tableModel = createTableModel(data, columnNames); // Create the table model
-        setRowHeaders(tableModel); // Set the row headers
+        SheetTableModel tableModel = createTableModel(); // Create the table model
+        initializeData(tableModel); // Fill in the written cells
         initalizeTableModel(tableModel); // Initialize the table model
         JPanel rightClickPanel = configureCells(); // Configure the cells for right-click actions
         addMouseListener(rightClickPanel); // Add mouse listener for right-click actions
@@ -173,6 +169,17 @@ public class SheetView extends SheetViewFactory<SheetView> implements ISheetView
         yourTable.repaint(); // Repaint the table to reflect the highlighted cell
     }
 
+    @Override
+    public void updateCell(int row, int col, String value) {
+        JTable table = getTable(); // Get the table
+        if (table == null) {
+            return; // Nothing to update before the table exists
+        }
+        isUpdatingTable = true; // Set the flag so the change is not sent back to the controller
+        table.getModel().setValueAt(value, row, col + 1); // Set the cell value in the model
+        isUpdatingTable = false; // Reset the flag
+    }
+
     /**
      * Converts a column number to its corresponding Excel column name.
      *
@@ -219,21 +226,18 @@ public class SheetView extends SheetViewFactory<SheetView> implements ISheetView
             isUpdatingTable = false; // Reset the flag
             return;
         }
-        DefaultTableModel model = (DefaultTableModel) table.getModel(); // Get the table model
-        String[][] data = this.cells.getCellStringsObject(); // Get the cell data as a 2D array
-        if (data == null) {
-            System.out.println("Error: cells.getCellStringsObject() returned null."); // Print an error message if the data is null
+        if (!(table.getModel() instanceof SheetTableModel model)) {
+            System.out.println("Error: the table does not show a sheet."); // Print an error message if the model is not a sheet
             isUpdatingTable = false; // Reset the flag
             return;
         }
-        for (int row = 0; row < data.length; row++) { // Loop through the rows
-            for (int col = 0; col < data[row].length; col++) { // Loop through the columns
-                String value = controller.handleReevaluatingCellFormula(row, col, data[row][col]); // Reevaluate the cell formula
-                model.setValueAt(value, row, col + 1); // Set the cell value in the model
-                if (!value.isEmpty()) {
-                    System.out.println("Setting cell (" + row + ", " + col + ") to value: " + value); // Print the cell value if it is not empty
-                }
-            }
+        model.clear(); // Forget the old values
+        model.ensureSize(this.cells.getRows(), this.cells.getCols()); // Make room for every written cell
+        for (Cell cell : this.cells.getPopulatedCells()) { // Only visit the cells that have been written
+            int row = cell.getRow(); // Get the row of the cell
+            int col = cell.getCol(); // Get the column of the cell
+            String value = controller.handleReevaluatingCellFormula(row, col, cell.getValue()); // Reevaluate the cell formula
+            model.setValueAt(value, row, col + 1); // Set the cell value in the model
         }
         model.fireTableDataChanged(); // Notify the model that the data has changed
         isUpdatingTable = false; // Reset the flag
@@ -329,38 +333,15 @@ public class SheetView extends SheetViewFactory<SheetView> implements ISheetView
     }
 
     /**
-     * Initializes the data array with cell values.
+     * Fills the table model with the values of the written cells.
      *
-     * @return the initialized data array.
+     * @param tableModel the table model to fill.
      * @author Vinay
      */
-    protected Object[][] initializeData(){
-        // Initialize data array with cell values
-        Object[][] data = new Object[rowSize][colSize]; // Create a new data array
-        Cell[][] cellRef = this.cells.getCellsObject(); // Get the cell reference array
-
-        for (Cell[] row : cellRef) { // Loop through the rows
-            for (Cell c : row) { // Loop through the cells
-                data[c.getRow()][c.getCol()] = c.getValue(); // Set the cell value in the data array
-            }
-        }
-        return data; // Return the data array
-    }
-
-    /**
-     * Initializes the column names.
-     *
-     * @return the initialized column names.
-     * @author Theo
-     */
-    protected String[] initializeColumnNames(){
-        // Initialize column names
-        String[] columnNames = new String[colSize + 1]; // Create a new column names array
-        columnNames[0] = ""; // Set the first column name to an empty string
-        for (int i = 1; i <= colSize; i++) { // Loop through the columns
-            columnNames[i] = getExcelColumnName(i); // Set the column name to the corresponding Excel column name
+    protected void initializeData(SheetTableModel tableModel){
+        for (Cell cell : this.cells.getPopulatedCells()) { // Only visit the cells that have been written
+            tableModel.setValueAt(cell.getValue(), cell.getRow(), cell.getCol() + 1); // Set the cell value in the model
         }
-        return columnNames; // Return the column names array
     }
 
     /**
@@ -395,7 +376,7 @@ public class SheetView extends SheetViewFactory<SheetView> implements ISheetView
      * @param tableModel the table model to initialize.
      * @author Theo
      */
-    protected void initalizeTableModel(DefaultTableModel tableModel) {
+    protected void initalizeTableModel(SheetTableModel tableModel) {
         yourTable = new JTable(tableModel); // Initialize the table with the model
         yourTable.setSelectionMode(MULTIPLE_INTERVAL_SELECTION); // Set the selection mode to multiple interval selection
         yourTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF); // Disable auto-resize mode
@@ -403,19 +384,6 @@ public class SheetView extends SheetViewFactory<SheetView> implements ISheetView
         yourTable.setShowGrid(true); // Show grid lines
     }
 
-    /**
-     * Sets the row headers in the table model.
-     *
-     * @param tableModel the table model to set the row headers in.
-     * @author Theo
-     */
-    protected void setRowHeaders(DefaultTableModel tableModel){
-        // Set row headers
-        for (int i = 0; i < rowSize; i++) { // Loop through the rows
-            tableModel.setValueAt(i + 1, i, 0); // Set the row header value
-        }
-    }
-
     /**
      * Adds mouse listener for right-click actions.
      *
@@ -429,7 +397,7 @@ public class SheetView extends SheetViewFactory<SheetView> implements ISheetView
                 if (e.getButton() == MouseEvent.BUTTON3) { // For right-clicks
                     int row = yourTable.rowAtPoint(e.getPoint()); // Get the row at the mouse point
                     int col = yourTable.columnAtPoint(e.getPoint()); // Get the column at the mouse point
-                    if (row >= 0 && row < rowSize && col >= 1 && col < colSize) { // Check if the cell is within bounds
+                    if (row >= 0 && row < yourTable.getRowCount() && col >= 1 && col < yourTable.getColumnCount()) { // Check if the cell is within bounds
                         rightClickPanel.setLocation(e.getX(), e.getY()); // Set the location of the panel
                         rightClickPanel.setVisible(true); // Set the visibility of the panel to true
                     }
@@ -537,21 +505,14 @@ public class SheetView extends SheetViewFactory<SheetView> implements ISheetView
     }
 
     /**
-     * Creates a table model with the specified data and column names.
+     * Creates a table model as large as the sheet, and at least 100 by 100. Only the
+     * cells that hold a value are stored, and the model grows when its edge is written.
      *
-     * @param data the data for the table.
-     * @param columnNames the column names for the table.
      * @return the created table model.
      * @author Vinay
      */
-    public DefaultTableModel createTableModel(Object[][] data, String[] columnNames){
-        // Create table model
-        DefaultTableModel tableModel = new DefaultTableModel(data, columnNames) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column != 0; // Make all columns except the first one editable
-            }
-        };
-        return tableModel; // Return the table model
+    public SheetTableModel createTableModel(){
+        return new SheetTableModel(Math.max(rowSize, this.cells.getRows()),
+                Math.max(colSize, this.cells.getCols())); // Return the table model
     }
 }
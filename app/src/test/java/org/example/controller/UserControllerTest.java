@@ -1,6 +1,7 @@
 package org.example.controller;
 
 import org.example.model.*;
+import org.example.model.formula.Value;
 import org.example.view.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -345,8 +346,8 @@ public class UserControllerTest {
 
         verify(spreadsheetModel).setCellRawdata(row, col, value); // Verify that setCellRawdata is called
         verify(spreadsheetModel).setCellValue(row, col, value); // Verify that setCellValue is called
-        verify(spreadsheetModel).evaluateFormula(value); // Verify that evaluateFormula is called
-        verify(sheetView).updateTable(); // Verify that updateTable is called
+        verify(spreadsheetModel).takeChangedCells(); // Verify that only the changed cells are fetched
+        verify(sheetView, never()).updateTable(); // Verify that the whole table is not redrawn
     }
 
     /**
@@ -397,7 +398,7 @@ public class UserControllerTest {
         int col = 1;
         String value = "0.75"; // Define the percentile value
 
-        when(spreadsheetModel.getCellValue(row, col)).thenReturn(value); // Mock the cell value
+        when(spreadsheetModel.getCellTypedValue(row, col)).thenReturn(Value.text(value)); // Mock the cell value
 
         userController.getPercentile(row, col); // Call getPercentile method
 
@@ -411,15 +412,16 @@ public class UserControllerTest {
      */
     @Test
     public void testApplyConditionalFormatting() throws Exception {
-        Cell[][] cells = new Cell[100][100];
+        List<Cell> cells = new ArrayList<>();
         for (int i = 0; i < 100; i++) {
             for (int j = 0; j < 100; j++) {
-                cells[i][j] = new Cell(); // Initialize cells
+                Cell cell = new Cell(); // Initialize cells
+                cell.setRow(i);
+                cell.setCol(j);
+                cells.add(cell);
             }
         }
-        when(spreadsheetModel.getCellsObject()).thenReturn(cells); // Mock the cells object
-        when(spreadsheetModel.getRows()).thenReturn(100); // Mock the number of rows
-        when(spreadsheetModel.getCols()).thenReturn(100); // Mock the number of columns
+        when(spreadsheetModel.getPopulatedCells()).thenReturn(cells); // Mock the populated cells
 
         userController.applyConditionalFormatting(); // Call applyConditionalFormatting method
 
@@ -121,4 +121,20 @@ public class AppUserTest {
         assertTrue(this.user.doesSheetExist("Sheet1")); // Verifies that the sheet "Sheet1" now exists.
         assertFalse(this.user.doesSheetExist("Sheet2")); // Checks that a non-existent sheet "Sheet2" is not found.
     }
+
+    /**
+     * Tests the getSheet method, including adding a sheet whose name is taken.
+     */
+    @Test
+    public void testGetSheet() {
+        assertNull(this.user.getSheet("Sheet1")); // No sheets yet.
+
+        this.user.addSheet("Sheet1"); // Adds a sheet named "Sheet1".
+        ISpreadsheet sheet = this.user.getSheet("Sheet1");
+        assertEquals("Sheet1", sheet.getName()); // Finds the sheet by name.
+
+        this.user.addSheet("Sheet1"); // Adds a sheet with the same name.
+        assertSame(sheet, this.user.getSheet("Sheet1")); // Keeps the first sheet.
+        assertEquals(1, this.user.getSheets().size());
+    }
 }
@@ -3,6 +3,8 @@ package org.example.model;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import org.example.model.formula.Value;
+
 /**
  * Tests the methods within the Cell class.
  */
@@ -150,4 +152,26 @@ public class CellTest {
 
         assertEquals(formula, cell.getFormula(), "setFormula should update the formula field"); // Verifies that the formula is updated correctly.
     }
+
+    /**
+     * Tests that values are classified once when they are written.
+     */
+    @Test
+    public void testTypedValue() {
+        Cell cell = new Cell(); // Creates an empty cell.
+        assertEquals(Value.Kind.EMPTY, cell.getTypedValue().getKind());
+
+        cell.setValue("2.50"); // A number keeps its written form.
+        assertEquals(Value.Kind.NUMBER, cell.getTypedValue().getKind());
+        assertEquals(2.5, cell.getTypedValue().asNumber());
+        assertEquals("2.50", cell.getValue());
+
+        cell.setValue("hello"); // Text is not numeric.
+        assertEquals(Value.Kind.TEXT, cell.getTypedValue().getKind());
+        assertFalse(cell.getTypedValue().isNumeric());
+
+        cell.setValue(Value.decimal(4)); // Formula results are stored without formatting them.
+        assertEquals("4.0", cell.getValue());
+        assertEquals("", cell.getFormula());
+    }
 }
@@ -0,0 +1,126 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.example.model.formula.Formula;
+
+/**
+ * Tests the methods within the DependencyGraph class.
+ */
+public class DependencyGraphTest {
+
+    /**
+     * Tests that packed keys keep their row and column.
+     */
+    @Test
+    public void testKey() {
+        long key = DependencyGraph.key(12345, 678); // Packs a cell.
+        assertEquals(12345, DependencyGraph.row(key));
+        assertEquals(678, DependencyGraph.col(key));
+    }
+
+    /**
+     * Tests that dependents are ordered after the cells they read.
+     */
+    @Test
+    public void testRecalculationOrder() {
+        DependencyGraph graph = new DependencyGraph();
+        graph.setPrecedents(0, 2, Formula.parse("=$B1 + $A1")); // C1 reads B1 and A1
+        graph.setPrecedents(0, 1, Formula.parse("=$A1")); // B1 reads A1
+        graph.setPrecedents(1, 0, Formula.parse("=SUM($A1:$C1)")); // A2 reads the whole first row
+
+        List<Long> order = graph.getRecalculationOrder(Set.of(DependencyGraph.key(0, 0)));
+        assertEquals(List.of(DependencyGraph.key(0, 1), DependencyGraph.key(0, 2), DependencyGraph.key(1, 0)), order);
+    }
+
+    /**
+     * Tests that formulas are grouped into levels that only read earlier levels.
+     */
+    @Test
+    public void testRecalculationLevels() {
+        DependencyGraph graph = new DependencyGraph();
+        graph.setPrecedents(0, 1, Formula.parse("=$A1")); // B1 reads A1
+        graph.setPrecedents(1, 1, Formula.parse("=$A1 * 2")); // B2 reads A1
+        graph.setPrecedents(0, 2, Formula.parse("=SUM($B1:$B2)")); // C1 reads B1 and B2
+
+        List<List<Long>> levels = graph.getRecalculationLevels(Set.of(DependencyGraph.key(0, 0)));
+        assertEquals(2, levels.size());
+        assertEquals(Set.of(DependencyGraph.key(0, 1), DependencyGraph.key(1, 1)), Set.copyOf(levels.get(0)));
+        assertEquals(List.of(DependencyGraph.key(0, 2)), levels.get(1));
+    }
+
+    /**
+     * Tests that replacing a formula forgets the cells the old formula read.
+     */
+    @Test
+    public void testReplacePrecedents() {
+        DependencyGraph graph = new DependencyGraph();
+        graph.setPrecedents(0, 1, Formula.parse("=$A1")); // B1 reads A1
+        graph.setPrecedents(0, 1, Formula.parse("=$A2")); // B1 now reads A2
+
+        assertTrue(graph.getDependents(DependencyGraph.key(0, 0)).isEmpty());
+        assertEquals(Set.of(DependencyGraph.key(0, 1)), graph.getDependents(DependencyGraph.key(1, 0)));
+    }
+
+    /**
+     * Tests that cells in a cycle are left out of the order.
+     */
+    @Test
+    public void testCycleIsLeftOut() {
+        DependencyGraph graph = new DependencyGraph();
+        graph.setPrecedents(0, 0, Formula.parse("=$B1")); // A1 reads B1
+        graph.setPrecedents(0, 1, Formula.parse("=$A1")); // B1 reads A1
+
+        assertTrue(graph.getRecalculationOrder(Set.of(DependencyGraph.key(0, 0))).isEmpty());
+    }
+
+    /**
+     * Tests that cells on a cycle and cells reading them are reported, and the rest are still ordered.
+     */
+    @Test
+    public void testCyclesAreReported() {
+        DependencyGraph graph = new DependencyGraph();
+        graph.setPrecedents(0, 0, Formula.parse("=$B1 + $A2")); // A1 reads B1 and A2
+        graph.setPrecedents(0, 1, Formula.parse("=$A1")); // B1 reads A1
+        graph.setPrecedents(0, 2, Formula.parse("=SUM($A1:$B1)")); // C1 reads the cycle
+        graph.setPrecedents(1, 2, Formula.parse("=$A2 * 2")); // C2 only reads A2
+
+        Set<Long> cycles = new HashSet<>();
+        List<List<Long>> levels = graph.getRecalculationLevels(Set.of(DependencyGraph.key(1, 0)), cycles);
+        assertEquals(List.of(List.of(DependencyGraph.key(1, 2))), levels);
+        assertEquals(Set.of(DependencyGraph.key(0, 0), DependencyGraph.key(0, 1), DependencyGraph.key(0, 2)), cycles);
+    }
+
+    /**
+     * Tests that formulas reading ranges of every size are found from the cells inside
+     * the ranges and from no other cell, and are forgotten when replaced.
+     */
+    @Test
+    public void testRangeDependents() {
+        DependencyGraph graph = new DependencyGraph();
+        String[] ranges = { "$B2:$B2", "$A1:$C40", "$B1:$B1048576", "$A30:$Z30", "$P15:$AH90", "$A1:$XFD1" };
+        for (int i = 0; i < ranges.length; i++) {
+            graph.setPrecedents(2000 + i, 0, Formula.parse("=SUM(" + ranges[i] + ")"));
+        }
+        graph.setPrecedents(3000, 0, Formula.parse("=SUM($D4:$D9) + SUM($D4:$D9)")); // The same range twice
+
+        assertEquals(Set.of(DependencyGraph.key(2000, 0), DependencyGraph.key(2001, 0),
+                DependencyGraph.key(2002, 0)), graph.getDependents(DependencyGraph.key(1, 1))); // B2
+        assertEquals(Set.of(DependencyGraph.key(2002, 0)), graph.getDependents(DependencyGraph.key(999999, 1))); // B1000000
+        assertEquals(Set.of(DependencyGraph.key(2003, 0), DependencyGraph.key(2004, 0)),
+                graph.getDependents(DependencyGraph.key(29, 20))); // U30
+        assertEquals(Set.of(DependencyGraph.key(2005, 0)), graph.getDependents(DependencyGraph.key(0, 16383))); // XFD1
+        assertEquals(Set.of(DependencyGraph.key(3000, 0)), graph.getDependents(DependencyGraph.key(5, 3))); // D6
+        assertTrue(graph.getDependents(DependencyGraph.key(90, 33)).isEmpty()); // AH91, just outside
+
+        graph.setPrecedents(2002, 0, Formula.parse("=1")); // No longer reads column B
+        graph.setPrecedents(3000, 0, Formula.parse("=1"));
+        assertTrue(graph.getDependents(DependencyGraph.key(999999, 1)).isEmpty());
+        assertTrue(graph.getDependents(DependencyGraph.key(5, 3)).isEmpty());
+    }
+}
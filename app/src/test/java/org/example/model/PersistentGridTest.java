@@ -0,0 +1,103 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the methods within the PersistentGrid class and sheet snapshots.
+ */
+public class PersistentGridTest {
+
+    /**
+     * Tests that changing a grid leaves the old grid as it was.
+     */
+    @Test
+    public void testOldVersionsAreUnchanged() {
+        PersistentGrid first = PersistentGrid.EMPTY.with(0, 0, new Cell("a")).with(5, 3, new Cell("b"));
+        PersistentGrid second = first.with(0, 0, new Cell("c")).with(5, 3, null).with(1_000_000, 16_000, new Cell("d"));
+
+        assertEquals(2, first.size());
+        assertEquals("a", first.get(0, 0).getValue());
+        assertEquals("b", first.get(5, 3).getValue());
+        assertNull(first.get(1_000_000, 16_000));
+
+        assertEquals(2, second.size());
+        assertEquals("c", second.get(0, 0).getValue());
+        assertNull(second.get(5, 3)); // Removed in the second version only.
+        assertEquals("d", second.get(1_000_000, 16_000).getValue());
+        assertSame(first, first.with(7, 7, null)); // Removing a missing cell changes nothing.
+    }
+
+    /**
+     * Tests that cells come out in row major order and cannot be changed.
+     */
+    @Test
+    public void testCellsInOrder() {
+        PersistentGrid grid = PersistentGrid.EMPTY;
+        grid = grid.with(2, 0, new Cell("3")).with(0, 5, new Cell("2")).with(0, 1, new Cell("1"));
+        List<Cell> cells = grid.getCells();
+        assertEquals("1", cells.get(0).getValue());
+        assertEquals("2", cells.get(1).getValue());
+        assertEquals("3", cells.get(2).getValue());
+        assertThrows(UnsupportedOperationException.class, () -> cells.get(0).setValue("x"));
+    }
+
+    /**
+     * Tests that a snapshot keeps its cells when the sheet changes and shares unchanged cells.
+     */
+    @Test
+    public void testSpreadsheetSnapshots() {
+        Spreadsheet sheet = new Spreadsheet("versions");
+        sheet.setCellRawdata(0, 0, "1");
+        sheet.setCellValue(0, 0, "1");
+        sheet.setCellRawdata(0, 1, "2");
+        sheet.setCellValue(0, 1, "2");
+        SheetSnapshot first = sheet.snapshot();
+
+        sheet.setCellRawdata(0, 1, "3");
+        sheet.setCellValue(0, 1, "3");
+        SheetSnapshot second = sheet.snapshot();
+
+        assertEquals("$A1 1\\n$B1 2\\n", Spreadsheet.convertSheetToPayload(first));
+        assertEquals("$A1 1\\n$B1 3\\n", Spreadsheet.convertSheetToPayload(second));
+        assertSame(first.getGrid().get(0, 0), second.getGrid().get(0, 0)); // The unchanged cell is shared.
+        assertSame(second.getGrid(), sheet.snapshot().getGrid()); // Nothing was written in between.
+
+        List<List<Cell>> replacement = new SparseGrid(100, 100).asRows();
+        sheet.setGrid(replacement); // Replaces every cell.
+        assertEquals(0, sheet.snapshot().getGrid().size());
+        assertEquals("1", second.getCellRawdata(0, 0)); // Older versions keep their cells.
+        assertEquals("3", second.getCellRawdata(0, 1));
+    }
+
+    /**
+     * Tests that diffing two grids finds written, changed and removed cells in order.
+     */
+    @Test
+    public void testDiff() {
+        PersistentGrid older = PersistentGrid.EMPTY;
+        for (int i = 0; i < 100; i++) {
+            older = older.with(i, i % 7, new Cell("v" + i));
+        }
+        PersistentGrid newer = older.with(50, 1, new Cell("changed")).with(3, 3, null)
+                .with(99, 1, new Cell("v99")).with(200, 0, new Cell("new"));
+        List<Cell> changed = new ArrayList<>();
+        List<Cell> removed = new ArrayList<>();
+        older.diff(newer, changed, removed);
+
+        assertEquals(2, changed.size()); // Rewriting B100 with the same value is no change.
+        assertEquals("changed", changed.get(0).getValue());
+        assertEquals("new", changed.get(1).getValue());
+        assertEquals(1, removed.size());
+        assertEquals("v3", removed.get(0).getValue());
+
+        changed.clear();
+        removed.clear();
+        newer.diff(newer, changed, removed); // A grid does not differ from itself.
+        PersistentGrid.EMPTY.diff(PersistentGrid.EMPTY, changed, removed);
+        assertTrue(changed.isEmpty() && removed.isEmpty());
+    }
+}
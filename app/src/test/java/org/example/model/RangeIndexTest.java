@@ -0,0 +1,124 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.TreeMap;
+
+import org.example.model.formula.RangeAggregate;
+import org.example.model.formula.Value;
+
+/**
+ * Tests the methods within the RangeIndex class.
+ */
+public class RangeIndexTest {
+
+    /**
+     * Tests sums, minimums and maximums over parts of a column, including after overwrites.
+     */
+    @Test
+    public void testQueryAfterUpdates() {
+        RangeIndex index = new RangeIndex(100, 3); // An index for a 100 by 3 sheet.
+        for (int row = 0; row < 100; row++) {
+            index.update(row, 0, Value.text(String.valueOf(row + 1))); // Column A holds 1 to 100.
+        }
+        RangeAggregate all = index.query(0, 0, 99, 0);
+        assertEquals(100, all.getCount());
+        assertEquals(5050.0, all.getSum());
+        assertEquals(1.0, all.getMin());
+        assertEquals(100.0, all.getMax());
+
+        index.update(49, 0, Value.text("-7")); // Overwrites row 50.
+        index.update(50, 0, Value.text("")); // Clears row 51.
+        RangeAggregate middle = index.query(40, 0, 59, 0);
+        assertEquals(19, middle.getCount());
+        assertEquals(-7.0, middle.getMin());
+        assertEquals(60.0, middle.getMax());
+        assertEquals(sum(41, 60) - 50 - 7 - 51, middle.getSum());
+        assertFalse(middle.isInvalid());
+    }
+
+    /**
+     * Tests that text in a range is reported and that ranges spanning columns are combined.
+     */
+    @Test
+    public void testInvalidAndMultipleColumns() {
+        RangeIndex index = new RangeIndex(10, 3); // An index for a 10 by 3 sheet.
+        index.update(0, 0, Value.text("1"));
+        index.update(0, 2, Value.text("2"));
+        assertEquals(3.0, index.query(0, 0, 9, 2).getSum()); // Column B is empty and skipped.
+
+        index.update(5, 1, Value.text("text"));
+        assertTrue(index.query(0, 0, 9, 2).isInvalid());
+        assertFalse(index.query(0, 0, 4, 2).isInvalid()); // The text is outside these rows.
+        assertNull(index.query(0, 0, 10, 0), "Ranges outside the sheet are not indexed");
+    }
+
+    /**
+     * Tests that a column keeps its values when it grows to reach a row far below them.
+     */
+    @Test
+    public void testColumnGrowsOnDemand() {
+        RangeIndex index = new RangeIndex(SparseGrid.MAX_ROWS, SparseGrid.MAX_COLS); // The largest sheet.
+        index.update(3, 7, Value.text("4"));
+        index.update(SparseGrid.MAX_ROWS - 1, 7, Value.text("-1")); // Grows the column tree to every row.
+        RangeAggregate column = index.query(0, 0, SparseGrid.MAX_ROWS - 1, SparseGrid.MAX_COLS - 1);
+        assertEquals(2, column.getCount());
+        assertEquals(3.0, column.getSum());
+        assertEquals(-1.0, column.getMin());
+        assertEquals(4.0, column.getMax());
+        assertEquals(0, index.query(100, 8, 200, 9).getCount()); // Columns without values are empty.
+    }
+
+    /**
+     * Tests that queries spanning written and unwritten tiles far down a column agree with
+     * reading every written cell, including after cells are cleared.
+     */
+    @Test
+    public void testSparseTiles() {
+        RangeIndex index = new RangeIndex(SparseGrid.MAX_ROWS, 4);
+        TreeMap<Integer, Double> cells = new TreeMap<>(); // Row -> number, in column 2
+        for (int i = 0; i < 500; i++) {
+            int row = (int) ((i * 2654435761L) % SparseGrid.MAX_ROWS); // Spread over the whole column
+            double value = (i % 17) - 8;
+            index.update(row, 2, Value.text(String.valueOf(value)));
+            cells.put(row, value);
+        }
+        for (int i = 0; i < 500; i += 3) {
+            int row = (int) ((i * 2654435761L) % SparseGrid.MAX_ROWS);
+            index.update(row, 2, Value.text("")); // Clear every third cell
+            cells.remove(row);
+        }
+        for (int q = 0; q < 200; q++) {
+            int start = (int) ((q * 40503L) % SparseGrid.MAX_ROWS);
+            int end = Math.min(SparseGrid.MAX_ROWS - 1, start + (q * 977) % 300000);
+            int count = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            for (double value : cells.subMap(start, true, end, true).values()) {
+                count++;
+                sum += value;
+                min = Math.min(min, value);
+            }
+            RangeAggregate result = index.query(start, 0, end, 3);
+            assertEquals(count, result.getCount());
+            assertEquals(sum, result.getSum(), 1e-9);
+            assertEquals(min, result.getMin());
+        }
+    }
+
+    /**
+     * Sums the whole numbers from start to end.
+     *
+     * @param start the first number.
+     * @param end   the last number.
+     * @return the sum.
+     */
+    private static double sum(int start, int end) {
+        double total = 0;
+        for (int i = start; i <= end; i++) {
+            total += i;
+        }
+        return total;
+    }
+}
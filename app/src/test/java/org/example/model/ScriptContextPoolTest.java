@@ -0,0 +1,113 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests the methods within the ScriptContextPool class.
+ */
+public class ScriptContextPoolTest {
+
+    /**
+     * Tests that scripts are evaluated and that repeated scripts give the same result.
+     */
+    @Test
+    public void testEvaluate() throws Exception {
+        ScriptContextPool pool = new ScriptContextPool(1); // A pool with a single context.
+        try {
+            assertEquals("3", pool.evaluate("1 + 2"));
+            assertEquals("3", pool.evaluate("1 + 2")); // Reuses the cached source and the same context.
+            assertEquals("2.5", pool.evaluate("5 / 2"));
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Tests that more callers than contexts wait for a free context instead of failing.
+     */
+    @Test
+    public void testMoreCallersThanContexts() throws Exception {
+        ScriptContextPool pool = new ScriptContextPool(2); // A pool with two contexts.
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                int n = i;
+                results.add(executor.submit(() -> pool.evaluate(n + " * 2"))); // Submits more work than contexts.
+            }
+            for (int i = 0; i < 32; i++) {
+                assertEquals(String.valueOf(i * 2), results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+            pool.close();
+        }
+    }
+
+    /**
+     * Tests that a pool needs at least one context.
+     */
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ScriptContextPool(0));
+    }
+
+    /**
+     * Tests that closing the pool cancels a script that never ends, and that the pool
+     * cannot be used once closed.
+     */
+    @Test
+    public void testCloseCancelsRunningScripts() throws Exception {
+        ScriptContextPool pool = new ScriptContextPool(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertEquals("1", pool.evaluate("1")); // The context exists before the script runs.
+            Future<String> running = executor.submit(() -> pool.evaluate("while (true) {}"));
+            Future<String> waiting = executor.submit(() -> pool.evaluate("2")); // Waits for the only context.
+            Thread.sleep(200);
+            pool.close(); // Must not fail because a context is executing.
+            assertThrows(ExecutionException.class, () -> running.get(5, TimeUnit.SECONDS));
+            assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+            assertThrows(IllegalStateException.class, () -> pool.evaluate("1 + 2"));
+        } finally {
+            executor.shutdownNow();
+            pool.close();
+        }
+    }
+
+    /**
+     * Tests that a script running past its time limit is stopped, that a caller waiting
+     * past its limit for a free context gives up, and that the context is usable after.
+     */
+    @Test
+    public void testTimeLimit() throws Exception {
+        ScriptContextPool pool = new ScriptContextPool(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long start = System.nanoTime();
+            assertThrows(TimeoutException.class, () -> pool.evaluate("while (true) {}", TimeUnit.MILLISECONDS.toNanos(200)));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3)); // Stopped, not left running.
+            assertEquals("3", pool.evaluate("1 + 2", TimeUnit.SECONDS.toNanos(5))); // The context is reused.
+
+            Future<String> running = executor.submit(() -> pool.evaluate("while (true) {}", TimeUnit.SECONDS.toNanos(1)));
+            Thread.sleep(100);
+            assertThrows(TimeoutException.class, () -> pool.evaluate("1", TimeUnit.MILLISECONDS.toNanos(100))); // Waits too long.
+            ExecutionException stopped = assertThrows(ExecutionException.class, () -> running.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, stopped.getCause());
+            assertEquals("4", pool.evaluate("2 * 2", TimeUnit.SECONDS.toNanos(5)));
+        } finally {
+            executor.shutdownNow();
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+/**
+ * Tests the methods within the SparseGrid class.
+ */
+public class SparseGridTest {
+
+    /**
+     * Tests that unwritten cells are the shared empty cell and that only written cells are stored.
+     */
+    @Test
+    public void testOnlyWrittenCellsAreStored() {
+        SparseGrid grid = new SparseGrid(1000, 1000); // A large grid with nothing in it.
+        assertEquals(0, grid.size());
+        assertSame(Cell.EMPTY, grid.get(999, 999));
+
+        grid.getForWrite(500, 70).setValue("5"); // Writes one cell in the middle of the grid.
+        grid.getForWrite(3, 2).setValue("x");
+        assertEquals(2, grid.size());
+        assertEquals("5", grid.get(500, 70).getValue());
+        assertSame(Cell.EMPTY, grid.get(500, 71)); // Its neighbour in the same tile is still empty.
+
+        List<Cell> cells = grid.getPopulatedCells();
+        assertEquals(2, cells.size());
+        assertEquals(3, cells.get(0).getRow()); // Row major order.
+        assertEquals(2, cells.get(0).getCol());
+        assertEquals(500, cells.get(1).getRow());
+
+        grid.put(3, 2, null); // Removes a cell.
+        assertEquals(1, grid.size());
+        assertSame(Cell.EMPTY, grid.get(3, 2));
+    }
+
+    /**
+     * Tests that the shared empty cell cannot be changed.
+     */
+    @Test
+    public void testEmptyCellIsImmutable() {
+        assertThrows(UnsupportedOperationException.class, () -> Cell.EMPTY.setValue("1"));
+        assertThrows(UnsupportedOperationException.class, () -> Cell.EMPTY.setRawData("1"));
+        assertEquals("", Cell.EMPTY.getValue());
+    }
+
+    /**
+     * Tests that the row view reads through to the grid and that positions outside it are rejected.
+     */
+    @Test
+    public void testRowsView() {
+        SparseGrid grid = new SparseGrid(100, 50);
+        List<List<Cell>> rows = grid.asRows();
+        assertEquals(100, rows.size());
+        assertEquals(50, rows.get(0).size());
+
+        Cell cell = new Cell("hello");
+        rows.get(10).set(20, cell); // Places a cell through the view.
+        assertSame(cell, grid.get(10, 20));
+        assertEquals(10, cell.getRow());
+        assertEquals(20, cell.getCol());
+        assertThrows(IndexOutOfBoundsException.class, () -> rows.get(10).get(50));
+    }
+
+    /**
+     * Tests that the grid grows as cells are written, up to the largest sheet.
+     */
+    @Test
+    public void testGrowsOnWrite() {
+        SparseGrid grid = new SparseGrid(100, 100);
+        assertSame(Cell.EMPTY, grid.get(5000, 5000)); // Reading past the rows in use is allowed.
+        assertEquals(100, grid.getRows());
+
+        grid.getForWrite(SparseGrid.MAX_ROWS - 1, SparseGrid.MAX_COLS - 1).setValue("corner");
+        assertEquals(SparseGrid.MAX_ROWS, grid.getRows());
+        assertEquals(SparseGrid.MAX_COLS, grid.getCols());
+        assertEquals(1, grid.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> grid.getForWrite(SparseGrid.MAX_ROWS, 0));
+    }
+
+    /**
+     * Tests that a new spreadsheet allocates nothing until a cell is written.
+     */
+    @Test
+    public void testSpreadsheetStartsEmpty() {
+        Spreadsheet sheet = new Spreadsheet("sparse");
+        assertTrue(sheet.getPopulatedCells().isEmpty());
+        sheet.setCellValue(4, 4, "=1+1");
+        sheet.setCellValue(5, 5, ""); // Clearing an unwritten cell does not allocate it.
+        assertEquals(1, sheet.getPopulatedCells().size());
+        assertEquals("2", sheet.getCellValue(4, 4));
+    }
+
+    /**
+     * Tests formulas and payloads at the far corner of the largest sheet.
+     */
+    @Test
+    public void testSpreadsheetAtLargestSize() {
+        Spreadsheet sheet = new Spreadsheet("large");
+        int lastRow = SparseGrid.MAX_ROWS - 1;
+        int lastCol = SparseGrid.MAX_COLS - 1;
+        sheet.setCellValue(lastRow, lastCol, "7"); // $XFD1048576
+        sheet.setCellValue(0, 0, "=$XFD1048576 * 2");
+        sheet.setCellValue(1, 0, "=SUM($XFD1048570:$XFD1048576)");
+        assertEquals("14", sheet.getCellValue(0, 0));
+        assertEquals("7.0", sheet.getCellValue(1, 0));
+        assertEquals(SparseGrid.MAX_ROWS, sheet.getRows());
+        assertEquals(SparseGrid.MAX_COLS, sheet.getCols());
+
+        sheet.setCellRawdata(lastRow, lastCol, "7");
+        String payload = Spreadsheet.convertSheetToPayload(sheet);
+        assertEquals("$XFD1048576 7\\n", payload);
+        List<List<String>> parsed = Home.convertStringTo2DArray(payload + "$XFE1 8\\n$A1048577 9\\n");
+        assertEquals(1, parsed.size()); // References past the largest sheet are skipped.
+        assertEquals(String.valueOf(lastRow), parsed.get(0).get(0));
+        assertEquals(String.valueOf(lastCol), parsed.get(0).get(1));
+    }
+}
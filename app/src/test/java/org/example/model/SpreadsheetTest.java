@@ -7,6 +7,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests the methods within the Spreadsheet class.
@@ -572,4 +574,154 @@ public class SpreadsheetTest {
         assertEquals("1.0", spreadsheet.evaluateFormula("=MIN($A1:$A4)")); // Test MIN function with a range of cells
         assertEquals("1.0", spreadsheet.evaluateFormula("=MIN(MIN(2,4),3,1)")); // Test MIN function with nested MIN function calls
     }
+
+    /**
+     * Tests that changing a cell recalculates only the formulas that depend on it.
+     */
+    @Test
+    public void testRecalculatesDependents() {
+        spreadsheet.setCellValue(0, 0, "1"); // A1 = 1
+        spreadsheet.setCellValue(0, 1, "=$A1 + 1"); // B1 reads A1
+        spreadsheet.setCellValue(0, 2, "=SUM($A1:$B1)"); // C1 reads A1 and B1 through a range
+        spreadsheet.setCellValue(5, 5, "=2 * 2"); // F6 reads nothing
+        spreadsheet.takeChangedCells(); // Start from a clean slate
+
+        spreadsheet.setCellValue(0, 0, "5"); // Change A1
+        assertEquals("6", spreadsheet.getCellValue(0, 1)); // B1 follows A1
+        assertEquals("11.0", spreadsheet.getCellValue(0, 2)); // C1 follows A1 and B1
+
+        List<Long> changed = spreadsheet.takeChangedCells();
+        assertEquals(List.of(DependencyGraph.key(0, 0), DependencyGraph.key(0, 1), DependencyGraph.key(0, 2)), changed,
+                "Only A1 and its dependents should change, with B1 before C1");
+    }
+
+    /**
+     * Tests that range aggregates follow writes to the cells in the range.
+     */
+    @Test
+    public void testRangeAggregatesFollowWrites() {
+        for (int row = 0; row < 10; row++) {
+            spreadsheet.setCellValue(row, 0, String.valueOf(row)); // A1 to A10 hold 0 to 9
+        }
+        spreadsheet.setCellValue(0, 1, "=SUM($A1:$A10)"); // B1 sums the column
+        spreadsheet.setCellValue(1, 1, "=MAX($A1:$A10)"); // B2 takes the maximum
+        assertEquals("45.0", spreadsheet.getCellValue(0, 1));
+
+        spreadsheet.setCellValue(9, 0, "100"); // Change A10
+        assertEquals("136.0", spreadsheet.getCellValue(0, 1));
+        assertEquals("100.0", spreadsheet.getCellValue(1, 1));
+
+        spreadsheet.setCellValue(4, 0, "text"); // Text makes the aggregates fail
+        assertEquals("Error", spreadsheet.getCellValue(0, 1));
+        assertEquals("3.0", spreadsheet.evaluateFormula("=AVG($A1:$A4, 9)")); // (0 + 1 + 2 + 3 + 9) / 5
+    }
+
+    /**
+     * Tests that recalculating on a pool gives the same values as recalculating in order.
+     */
+    @Test
+    public void testParallelRecalculation() {
+        Spreadsheet parallel = new Spreadsheet("parallel");
+        parallel.setParallelRecalculation(ForkJoinPool.commonPool(), 4); // Small threshold so the pool is used
+        for (Spreadsheet sheet : List.of(spreadsheet, parallel)) {
+            sheet.setCellValue(0, 0, "1"); // A1 is read by every formula
+            for (int row = 0; row < 50; row++) {
+                sheet.setCellValue(row, 1, String.valueOf(row)); // B holds 0 to 49
+                sheet.setCellValue(row, 2, "=$B" + (row + 1) + " * $A1"); // C reads B and A1
+            }
+            sheet.setCellValue(0, 3, "=SUM($C1:$C50)"); // D1 reads every formula in C
+            sheet.setCellValue(0, 0, "2"); // Recalculates C and then D1
+        }
+        for (int row = 0; row < 50; row++) {
+            assertEquals(spreadsheet.getCellValue(row, 2), parallel.getCellValue(row, 2));
+        }
+        assertEquals("2450.0", parallel.getCellValue(0, 3));
+        assertThrows(IllegalArgumentException.class, () -> parallel.setParallelRecalculation(null, 0));
+    }
+
+    /**
+     * Tests that formulas sharing a call see every write to the cells it reads.
+     */
+    @Test
+    public void testSharedCallsFollowWrites() {
+        for (int row = 0; row < 500; row++) {
+            spreadsheet.setCellValue(row, 0, "1"); // A1 to A500 hold 1
+        }
+        for (int row = 0; row < 20; row++) {
+            spreadsheet.setCellValue(row, 1, "=IF(SUM($A1:$A500) > 500, " + row + ", -1)"); // Every formula shares the SUM
+        }
+        spreadsheet.setCellValue(0, 2, "=SUM($A1:$A500)");
+        assertEquals("-1", spreadsheet.getCellValue(5, 1));
+        assertEquals("500.0", spreadsheet.getCellValue(0, 2));
+
+        spreadsheet.setCellValue(499, 0, "2"); // Changes the shared SUM
+        assertEquals("5", spreadsheet.getCellValue(5, 1));
+        assertEquals("501.0", spreadsheet.getCellValue(0, 2));
+
+        spreadsheet.setCellValue(700, 0, "100"); // Outside the range, so nothing changes
+        assertEquals("5", spreadsheet.getCellValue(5, 1));
+    }
+
+    /**
+     * Tests that formulas on a cycle show #CYCLE and recover when the cycle is broken.
+     */
+    @Test
+    public void testCycleDetection() {
+        spreadsheet.setCellValue(0, 0, "=$A1 + 1"); // Reads itself
+        assertEquals("#CYCLE", spreadsheet.getCellValue(0, 0));
+
+        spreadsheet.setCellValue(1, 0, "=$B2 + 1"); // A2 reads B2
+        spreadsheet.setCellValue(1, 2, "=$A2 * 2"); // C2 reads A2
+        spreadsheet.setCellValue(1, 1, "=$A2"); // B2 reads A2, closing the cycle
+        assertEquals("#CYCLE", spreadsheet.getCellValue(1, 0));
+        assertEquals("#CYCLE", spreadsheet.getCellValue(1, 1));
+        assertEquals("#CYCLE", spreadsheet.getCellValue(1, 2));
+
+        spreadsheet.setCellValue(1, 1, "4"); // Breaks the cycle
+        assertEquals("5", spreadsheet.getCellValue(1, 0));
+        assertEquals("10", spreadsheet.getCellValue(1, 2));
+    }
+
+    /**
+     * Tests that a recalculation over its budget stops with #TIMEOUT instead of running forever.
+     */
+    @Test
+    public void testRecalculationBudget() {
+        spreadsheet.setRecalculationBudget(100, Long.MAX_VALUE);
+        spreadsheet.setCellValue(0, 1, "0");
+        spreadsheet.setCellValue(0, 0, "=COPY($B1 + 1, $B1)"); // Rewrites the cell it reads, forever
+        assertEquals("#TIMEOUT", spreadsheet.getCellValue(0, 0));
+        assertEquals(100, Double.parseDouble(spreadsheet.getCellValue(0, 1)), 1); // Stopped after about 100 copies
+
+        spreadsheet.setCellValue(0, 0, "=$B1"); // A normal formula works again
+        assertEquals(spreadsheet.getCellValue(0, 1), spreadsheet.getCellValue(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> spreadsheet.setRecalculationBudget(0, 1));
+    }
+
+    /**
+     * Tests that the typed value of a cell is the one parsed when it was written.
+     */
+    @Test
+    public void testGetCellTypedValue() {
+        spreadsheet.setCellValue(0, 0, "=1 + 2");
+        spreadsheet.setCellValue(0, 1, "text");
+        assertTrue(spreadsheet.getCellTypedValue(0, 0).isNumeric());
+        assertEquals(3, spreadsheet.getCellTypedValue(0, 0).asNumber());
+        assertFalse(spreadsheet.getCellTypedValue(0, 1).isNumeric());
+        assertTrue(spreadsheet.getCellTypedValue(5, 5).isEmpty()); // Never written
+    }
+
+    /**
+     * Tests that a formula falling back to the script engine that never ends is stopped
+     * by the recalculation budget with #TIMEOUT.
+     */
+    @Test
+    public void testScriptBudget() {
+        spreadsheet.setRecalculationBudget(100, TimeUnit.MILLISECONDS.toNanos(200));
+        long start = System.nanoTime();
+        spreadsheet.setCellValue(0, 0, "=for(;;){1+1}"); // Not a formula the parser knows, so it runs as a script
+        assertEquals("#TIMEOUT", spreadsheet.getCellValue(0, 0));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        assertEquals("#TIMEOUT", spreadsheet.evaluateFormula("=for(;;){1+1}"));
+    }
 }
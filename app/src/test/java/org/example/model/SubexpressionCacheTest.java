@@ -0,0 +1,90 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.example.model.formula.ExpressionInterner;
+import org.example.model.formula.Formula;
+import org.example.model.formula.SharedExpression;
+import org.example.model.formula.Value;
+
+/**
+ * Tests the methods within the SubexpressionCache class.
+ */
+public class SubexpressionCacheTest {
+
+    /**
+     * Tests that a result is only dropped when a cell its call reads is written.
+     */
+    @Test
+    public void testInvalidation() {
+        SharedExpression sum = (SharedExpression) new ExpressionInterner()
+                .intern(Formula.parse("=SUM($B2:$B5)")).getRoot();
+        SubexpressionCache cache = new SubexpressionCache();
+        cache.put(sum, Value.text("10"));
+        assertEquals("10", cache.get(sum).toString());
+
+        cache.invalidate(0, 1); // Above the range.
+        cache.invalidate(2, 0); // Beside the range.
+        assertNotNull(cache.get(sum));
+        cache.invalidate(4, 1); // $B5, the last cell of the range.
+        assertNull(cache.get(sum));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that the cache starts over when it is full.
+     */
+    @Test
+    public void testCapacity() {
+        ExpressionInterner interner = new ExpressionInterner();
+        SubexpressionCache cache = new SubexpressionCache(2);
+        for (int row = 1; row <= 3; row++) {
+            SharedExpression sum = (SharedExpression) interner.intern(Formula.parse("=SUM($A1:$A" + row + ")")).getRoot();
+            cache.put(sum, Value.text(String.valueOf(row)));
+        }
+        assertEquals(1, cache.size()); // Cleared before the third result was added.
+    }
+
+    /**
+     * Tests that results added from several threads while the cache starts over can all
+     * be dropped by writing the cells they read.
+     */
+    @Test
+    public void testConcurrentPutsPastCapacity() throws Exception {
+        ExpressionInterner interner = new ExpressionInterner();
+        List<SharedExpression> sums = new ArrayList<>();
+        for (int row = 1; row <= 2000; row++) {
+            sums.add((SharedExpression) interner.intern(Formula.parse("=SUM($A" + row + ":$B" + row + ")")).getRoot());
+        }
+        SubexpressionCache cache = new SubexpressionCache(64); // Starts over many times.
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 20 * sums.size(); i++) {
+                        cache.put(sums.get((i * 7 + offset * 251) % sums.size()), Value.number(i));
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int row = 0; row < sums.size(); row++) {
+            cache.invalidate(row, 0); // Every cell any call read.
+            cache.invalidate(row, 1);
+        }
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,234 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests the VersionLog class and concurrent updates of a spreadsheet's versions.
+ */
+public class VersionLogTest {
+    private static final int WRITERS = 8; // Threads publishing at once
+    private static final int UPDATES = 250; // Versions published by each thread
+
+    /**
+     * Tests that a view keeps its size while versions are added and cannot be changed.
+     */
+    @Test
+    public void testViewIsStable() {
+        VersionLog versions = new VersionLog("log");
+        for (int i = 0; i < 8; i++) {
+            versions.add(new Spreadsheet("v" + i));
+        }
+        List<IReadOnlySpreadSheet> view = versions.view();
+        assertEquals(9, versions.add(new Spreadsheet("v8"))); // Grows the array.
+        assertEquals(8, view.size()); // The earlier view is unaffected.
+        assertEquals("v7", view.get(7).getName()); // Versions added whole are kept as given.
+        assertEquals("v8", versions.view().get(8).getName());
+        assertThrows(UnsupportedOperationException.class, () -> view.add(new Spreadsheet("x")));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(8));
+    }
+
+    /**
+     * Tests that the log keeps only the cells each version changed, and that reading it
+     * from a version gives the changes made since.
+     */
+    @Test
+    public void testUpdatesSinceVersion() {
+        Spreadsheet sheet = new Spreadsheet("deltas");
+        sheet.publish(grid("1", "2", "3")); // Version 0
+        sheet.publish(grid("1", "5", "3")); // Version 1 changes B1
+        sheet.publish(grid("1", "5", "")); // Version 2 clears C1
+        sheet.publish(grid("1", "5", "")); // Version 3 changes nothing
+
+        assertEquals("$A1 1\n$B1 2\n$C1 3\n$B1 5\n$C1\n", sheet.getPublishedUpdates(0).getPayload());
+        assertEquals("$B1 5\n$C1\n", sheet.getPublishedUpdates(1).getPayload());
+        assertEquals("$C1\n", sheet.getPublishedUpdates(2).getPayload());
+        assertEquals("", sheet.getPublishedUpdates(3).getPayload());
+        assertEquals("", sheet.getPublishedUpdates(10).getPayload()); // Nothing past the end.
+        assertEquals(4, sheet.getPublishedUpdates(1).getVersion());
+        assertEquals("", sheet.getSubscribedUpdates(0).getPayload()); // The other log is separate.
+        assertEquals(0, sheet.getSubscribedUpdates(0).getVersion());
+    }
+
+    /**
+     * Tests that older versions are rebuilt from the log with the cells they had.
+     */
+    @Test
+    public void testVersionsAreRebuilt() {
+        Spreadsheet sheet = new Spreadsheet("rebuilt");
+        sheet.subscribe(grid("a", "b", ""));
+        sheet.subscribe(grid("", "c", "d"));
+        List<IReadOnlySpreadSheet> versions = sheet.getSubscribedVersions();
+        assertEquals(2, versions.size());
+        assertEquals("$A1 a\\n$B1 b\\n", Spreadsheet.convertSheetToPayload(versions.get(0)));
+        assertEquals("$B1 c\\n$C1 d\\n", Spreadsheet.convertSheetToPayload(versions.get(1)));
+        assertEquals("rebuilt", versions.get(1).getName());
+    }
+
+    /**
+     * Tests that a reader at any version catches up to the latest one when the log keeps
+     * snapshots, and that a reader from version 0 gets the latest snapshot rather than
+     * every change ever made.
+     */
+    @Test
+    public void testSnapshotPlusTail() {
+        Spreadsheet sheet = new Spreadsheet("snapshots");
+        sheet.setSnapshotInterval(4, 1000); // A snapshot every fourth version.
+        List<Map<String, String>> states = new ArrayList<>();
+        for (int v = 0; v < 30; v++) {
+            String[] values = new String[6];
+            for (int col = 0; col < values.length; col++) {
+                values[col] = (v + col) % 5 == 0 ? "" : "v" + (v * col % 7); // Some cells change, some clear
+            }
+            sheet.publish(grid(values));
+            states.add(apply(new LinkedHashMap<>(), sheet.getPublishedUpdates(v).getPayload(), v == 0 ? null : states.get(v - 1)));
+        }
+        Map<String, String> latest = states.get(29);
+        for (int from = 0; from <= 30; from++) {
+            Map<String, String> seen = from == 0 ? new LinkedHashMap<>() : new LinkedHashMap<>(states.get(from - 1));
+            assertEquals(latest, apply(seen, sheet.getPublishedUpdates(from).getPayload(), null), "from " + from);
+        }
+        for (int v = 0; v < 30; v++) {
+            Map<String, String> rebuilt = apply(new LinkedHashMap<>(),
+                    Spreadsheet.convertSheetToPayload(sheet.getPublishedVersions().get(v)).replace("\\n", "\n"), null);
+            assertEquals(states.get(v), rebuilt, "version " + v); // Rebuilt from the nearest snapshot.
+        }
+
+        String opening = sheet.getPublishedUpdates(0).getPayload(); // Snapshot of version 27, then 28 and 29.
+        int lines = opening.split("\n").length;
+        assertTrue(lines <= 6 * 3, "opening read " + lines + " lines");
+    }
+
+    /**
+     * Tests that a snapshot is also kept once enough cells have changed, and that invalid
+     * intervals are refused.
+     */
+    @Test
+    public void testSnapshotAfterChangedCells() {
+        Spreadsheet sheet = new Spreadsheet("cells");
+        sheet.setSnapshotInterval(1000, 5);
+        sheet.publish(grid("1", "2", "3")); // Three changed cells.
+        sheet.publish(grid("4", "5", "6")); // Six, so this version is kept whole.
+        sheet.publish(grid("4", "5", "7"));
+        assertEquals("$A1 4\n$B1 5\n$C1 6\n$C1 7\n", sheet.getPublishedUpdates(0).getPayload());
+        assertThrows(IllegalArgumentException.class, () -> sheet.setSnapshotInterval(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> sheet.setSnapshotInterval(5, 0));
+    }
+
+    /**
+     * Applies payload lines to the cells a reader has.
+     *
+     * @param cells    the cells the reader has, by reference.
+     * @param payload  the lines to apply.
+     * @param previous cells to start from instead, or null to start from the given cells.
+     * @return the cells after applying the lines.
+     */
+    private static Map<String, String> apply(Map<String, String> cells, String payload, Map<String, String> previous) {
+        if (previous != null) {
+            cells.putAll(previous);
+        }
+        for (String line : payload.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space < 0) {
+                cells.remove(line); // A cleared cell
+            } else {
+                cells.put(line.substring(0, space), line.substring(space + 1));
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Builds a grid with the given raw data in the first row.
+     *
+     * @param values the raw data of A1, B1 and so on, empty for no cell.
+     * @return the rows of the grid.
+     */
+    private static List<List<Cell>> grid(String... values) {
+        SparseGrid grid = new SparseGrid(10, 10);
+        for (int col = 0; col < values.length; col++) {
+            if (!values[col].isEmpty()) {
+                grid.getForWrite(0, col).setRawData(values[col]);
+                grid.getForWrite(0, col).setValue(values[col]);
+            }
+        }
+        return grid.asRows();
+    }
+
+    /**
+     * Publishes from many threads at once while other threads read the versions, and
+     * checks that every update got its own version holding exactly the cells it wrote.
+     *
+     * @throws Exception if a thread fails.
+     */
+    @Test
+    public void testConcurrentPublishesAreNumberedInOrder() throws Exception {
+        Spreadsheet sheet = new Spreadsheet("stress");
+        ConcurrentHashMap<Integer, String> written = new ConcurrentHashMap<>(); // Version -> value written
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 2);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < WRITERS; t++) {
+            int writer = t;
+            tasks.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < UPDATES; i++) {
+                    String value = writer + ":" + i;
+                    SparseGrid grid = new SparseGrid(10, 10);
+                    grid.getForWrite(0, 0).setRawData(value);
+                    grid.getForWrite(0, 0).setValue(value);
+                    int count = sheet.publish(grid.asRows());
+                    assertNull(written.put(count - 1, value)); // No two updates share a version.
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            tasks.add(pool.submit(() -> {
+                start.await();
+                int last = 0;
+                while (!done.get()) {
+                    List<IReadOnlySpreadSheet> versions = sheet.getPublishedVersions();
+                    assertTrue(versions.size() >= last); // Versions are never lost.
+                    for (int i = last; i < versions.size(); i++) {
+                        assertEquals(i, versions.get(i).getId_version()); // Every version is complete.
+                    }
+                    last = versions.size();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (int t = 0; t < WRITERS; t++) {
+            tasks.get(t).get(); // Wait for the writers
+        }
+        done.set(true);
+        for (Future<?> task : tasks) {
+            task.get(); // Rethrows any failed assertion
+        }
+        pool.shutdown();
+
+        List<IReadOnlySpreadSheet> versions = sheet.getPublishedVersions();
+        assertEquals(WRITERS * UPDATES, versions.size());
+        assertEquals(WRITERS * UPDATES, sheet.getId_version());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(i, versions.get(i).getId_version());
+            assertEquals(written.get(i), versions.get(i).getCellRawdata(0, 0)); // The cells of the update that got version i.
+        }
+    }
+}
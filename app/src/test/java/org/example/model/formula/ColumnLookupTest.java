@@ -0,0 +1,182 @@
+package org.example.model.formula;
+
+import org.example.model.Spreadsheet;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the methods within the ColumnLookup class and the lookup functions.
+ */
+public class ColumnLookupTest {
+
+    /**
+     * Builds an index of a column holding 10, "Apple", 30, 20, "pear", 20 in rows 0 to 5.
+     *
+     * @return the index.
+     */
+    private static ColumnLookup sample() {
+        int[] rows = { 0, 1, 2, 3, 4, 5 };
+        Value[] values = { Value.text("10"), Value.text("Apple"), Value.text("30"), Value.text("20"),
+                Value.text("pear"), Value.text("20") };
+        return new ColumnLookup(rows, values);
+    }
+
+    /**
+     * Tests exact matches, which ignore the case of text and respect the rows searched.
+     */
+    @Test
+    public void testFindExact() {
+        ColumnLookup lookup = sample();
+        assertEquals(3, lookup.findExact(Value.text("20"), 0, 5));
+        assertEquals(5, lookup.findExact(Value.number(20), 4, 5)); // Only rows 4 and 5 are searched.
+        assertEquals(1, lookup.findExact(Value.text("APPLE"), 0, 5));
+        assertEquals(-1, lookup.findExact(Value.text("plum"), 0, 5));
+        assertEquals(-1, lookup.findExact(Value.EMPTY, 0, 5));
+    }
+
+    /**
+     * Tests nearest matches, which stay within numbers or within text.
+     */
+    @Test
+    public void testFindNearest() {
+        ColumnLookup lookup = sample();
+        assertEquals(3, lookup.findNearest(Value.number(25), true, 0, 5)); // 20 is the largest not above 25.
+        assertEquals(2, lookup.findNearest(Value.number(25), false, 0, 5)); // 30 is the smallest not below 25.
+        assertEquals(-1, lookup.findNearest(Value.number(5), true, 0, 5)); // Text is not below a number.
+        assertEquals(4, lookup.findNearest(Value.text("zebra"), true, 0, 5));
+        assertEquals(0, lookup.findNearest(Value.number(25), true, 0, 2)); // 20 is outside the rows searched.
+    }
+
+    /**
+     * Tests counting equal, smaller and larger values.
+     */
+    @Test
+    public void testCount() {
+        ColumnLookup lookup = sample();
+        assertEquals(2, lookup.count(BinaryOperation.Operator.EQUAL, false, Value.number(20), 0, 5));
+        assertEquals(1, lookup.count(BinaryOperation.Operator.EQUAL, false, Value.number(20), 0, 4));
+        assertEquals(3, lookup.count(BinaryOperation.Operator.LESS, false, Value.number(30), 0, 5));
+        assertEquals(3, lookup.count(BinaryOperation.Operator.GREATER, true, Value.number(20), 0, 5));
+        assertEquals(1, lookup.count(BinaryOperation.Operator.GREATER, false, Value.text("b"), 0, 5)); // Only "pear".
+    }
+
+    /**
+     * Tests ordered counts and nearest matches over many values and parts of the column
+     * against reading every cell.
+     */
+    @Test
+    public void testOrderedQueriesMatchScan() {
+        int size = 2000;
+        int[] rows = new int[size];
+        Value[] values = new Value[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i * 3; // Gaps between rows
+            int n = (int) ((i * 2654435761L) % 97);
+            values[i] = n % 10 == 0 ? Value.text("t" + n) : n % 13 == 0 ? Value.EMPTY : Value.number(n - 40);
+        }
+        ColumnLookup lookup = new ColumnLookup(rows, values);
+        Value[] keys = { Value.number(-41), Value.number(-3), Value.number(0), Value.number(7.5), Value.number(60),
+                Value.text("t3"), Value.text("t50"), Value.text("a"), Value.text("z") };
+        for (int q = 0; q < 60; q++) {
+            int fromRow = (q * 397) % (3 * size);
+            int toRow = fromRow + (q * 1511) % (3 * size);
+            for (Value key : keys) {
+                Object lookupKey = ColumnLookup.keyOf(key);
+                int less = 0;
+                int greaterOrEqual = 0;
+                int below = -1;
+                int above = -1;
+                Object belowKey = null;
+                Object aboveKey = null;
+                for (int i = 0; i < size; i++) {
+                    Object cellKey = ColumnLookup.keyOf(values[i]);
+                    if (rows[i] < fromRow || rows[i] > toRow || cellKey == null
+                            || ColumnLookup.isNumber(cellKey) != ColumnLookup.isNumber(lookupKey)) {
+                        continue;
+                    }
+                    int order = ColumnLookup.compareKeys(cellKey, lookupKey);
+                    if (order < 0) {
+                        less++;
+                    } else {
+                        greaterOrEqual++;
+                    }
+                    if (order <= 0 && (belowKey == null || ColumnLookup.compareKeys(cellKey, belowKey) > 0)) {
+                        belowKey = cellKey; // First row of the largest value not above the key
+                        below = rows[i];
+                    }
+                    if (order >= 0 && (aboveKey == null || ColumnLookup.compareKeys(cellKey, aboveKey) < 0)) {
+                        aboveKey = cellKey; // First row of the smallest value not below the key
+                        above = rows[i];
+                    }
+                }
+                String where = key + " in " + fromRow + ".." + toRow;
+                assertEquals(less, lookup.count(BinaryOperation.Operator.LESS, false, key, fromRow, toRow), where);
+                assertEquals(greaterOrEqual, lookup.count(BinaryOperation.Operator.GREATER, true, key, fromRow, toRow), where);
+                assertEquals(below, lookup.findNearest(key, true, fromRow, toRow), where);
+                assertEquals(above, lookup.findNearest(key, false, fromRow, toRow), where);
+            }
+        }
+    }
+
+    /**
+     * Tests the lookup functions on a sheet, with and without the index, and that the
+     * index follows writes.
+     */
+    @Test
+    public void testLookupFunctions() {
+        Spreadsheet sheet = new Spreadsheet("lookup");
+        String[][] data = { { "1", "one" }, { "2", "two" }, { "3", "three" }, { "5", "five" } };
+        for (int row = 0; row < data.length; row++) {
+            sheet.setCellValue(row, 0, data[row][0]);
+            sheet.setCellValue(row, 1, data[row][1]);
+        }
+        assertEquals("three", sheet.evaluateFormula("=VLOOKUP(3, $A1:$B4, 2, 0)"));
+        assertEquals("three", sheet.evaluateFormula("=VLOOKUP(4, $A1:$B4, 2)")); // Approximate match.
+        assertEquals("Error", sheet.evaluateFormula("=VLOOKUP(4, $A1:$B4, 2, 0)"));
+        assertEquals("Error", sheet.evaluateFormula("=VLOOKUP(3, $A1:$B4, 3, 0)")); // No third column.
+        assertEquals("2", sheet.evaluateFormula("=MATCH(\"TWO\", $B1:$B4, 0)"));
+        assertEquals("4", sheet.evaluateFormula("=MATCH(5, $A1:$A4)"));
+        assertEquals("3", sheet.evaluateFormula("=MATCH(4, $A1:$A4, -1) - 1"));
+        assertEquals("5", sheet.evaluateFormula("=XLOOKUP(\"five\", $B1:$B4, $A1:$A4)"));
+        assertEquals("none", sheet.evaluateFormula("=XLOOKUP(\"six\", $B1:$B4, $A1:$A4, \"none\")"));
+        assertEquals("2", sheet.evaluateFormula("=COUNTIF($A1:$A4, \">2\")"));
+        assertEquals("3", sheet.evaluateFormula("=COUNTIF($A1:$A4, \"<=3\")"));
+        assertEquals("4", sheet.evaluateFormula("=COUNTIF($A1:$A5, \"<>3\")")); // Blank cells differ too.
+        assertEquals("2", sheet.evaluateFormula("=MATCH(\"one\", $A1:$B1, 0)")); // A single row is scanned.
+
+        sheet.setCellValue(0, 2, "=VLOOKUP(5, $A1:$B4, 2, 0)");
+        assertEquals("five", sheet.getCellValue(0, 2));
+        sheet.setCellValue(3, 1, "FIVE"); // Changes the looked up cell.
+        assertEquals("FIVE", sheet.getCellValue(0, 2));
+        sheet.setCellValue(3, 0, "7"); // The key is no longer in the column.
+        assertEquals("Error", sheet.getCellValue(0, 2));
+        assertEquals("1", sheet.evaluateFormula("=COUNTIF($A1:$A4, 7)"));
+    }
+
+    /**
+     * Tests that the functions give the same answers when cells are read one by one.
+     */
+    @Test
+    public void testWithoutIndex() {
+        IEvaluationContext context = new IEvaluationContext() {
+            @Override
+            public Value getValue(int row, int col) {
+                return col == 0 && row < 4 ? Value.number(new int[] { 1, 2, 3, 5 }[row]) : Value.EMPTY;
+            }
+
+            @Override
+            public void copyValue(int row, int col, String value) {
+            }
+
+            @Override
+            public Value evaluateScript(String expression) {
+                return Value.ERROR;
+            }
+        };
+        assertEquals("2", Formula.parse("=MATCH(3, $A1:$A4) - 1").evaluate(context).toString());
+        assertEquals("3", Formula.parse("=MATCH(4, $A1:$A4, 1)").evaluate(context).toString());
+        assertEquals("4", Formula.parse("=MATCH(4, $A1:$A4, -1)").evaluate(context).toString());
+        assertEquals("2", Formula.parse("=COUNTIF($A1:$A4, \">2\")").evaluate(context).toString());
+        assertEquals("Error", Formula.parse("=MATCH(9, $A1:$B4, 0)").evaluate(context).toString()); // Not one column.
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.model.formula;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the methods within the CompiledFormula class.
+ */
+public class CompiledFormulaTest {
+
+    /**
+     * A context backed by a map of cell values.
+     */
+    private static class MapContext implements IEvaluationContext {
+        private final Map<String, String> cells = new HashMap<>(); // Cell values keyed by "row,col"
+
+        @Override
+        public Value getValue(int row, int col) {
+            return Value.text(this.cells.get(row + "," + col)); // Look up the cell value
+        }
+
+        @Override
+        public void copyValue(int row, int col, String value) {
+            this.cells.put(row + "," + col, value); // Store the copied value
+        }
+
+        @Override
+        public Value evaluateScript(String expression) {
+            return Value.text(expression); // Return the expression unchanged
+        }
+    }
+
+    /**
+     * Tests that compiled formulas give the same results as the interpreter, including
+     * for cells that are empty, hold text or hold errors.
+     */
+    @Test
+    public void testSameAsInterpreter() {
+        MapContext context = new MapContext();
+        context.cells.put("0,0", "4"); // $A1
+        context.cells.put("1,0", "2.5"); // $A2
+        context.cells.put("2,0", "hello"); // $A3
+        context.cells.put("3,0", "Error"); // $A4, and $A5 is empty
+        String[] formulas = { "=$A1 + $A2 * 2", "=-$A1 / 0", "=$A1 > $A2", "=$A1 = 4", "=$A1 <> $A2",
+            "=0 & $A3", "=1 | $A3", "=$A2 & $A1 - 4", "=$A1 + $A3", "=$A1 + $A5", "=-$A5", "=$A5 < 1",
+            "=$A3 = $A3", "=$A4 * 0", "=0 / 0" };
+        for (String source : formulas) {
+            Expression root = Formula.parse(source).getRoot();
+            CompiledFormula compiled = CompiledFormula.compile(root);
+            assertNotNull(compiled, source);
+            assertEquals(root.evaluate(context).toString(), compiled.evaluate(context).toString(), source);
+        }
+        assertNull(CompiledFormula.compile(Formula.parse("=SUM($A1:$A2) + 1").getRoot())); // Functions are interpreted.
+        assertNull(CompiledFormula.compile(Formula.parse("=$A1").getRoot())); // A single cell is not worth it.
+    }
+
+    /**
+     * Tests that a formula is compiled once it has been evaluated often enough.
+     */
+    @Test
+    public void testTiering() {
+        MapContext context = new MapContext();
+        context.cells.put("0,0", "3");
+        Formula formula = Formula.parse("=$A1 * $A1 + 1");
+        for (int i = 0; i < Formula.COMPILE_THRESHOLD; i++) {
+            assertFalse(formula.isCompiled());
+            assertEquals("10", formula.evaluate(context).toString());
+        }
+        assertTrue(formula.isCompiled());
+        context.cells.put("0,0", "5");
+        assertEquals("26", formula.evaluate(context).toString()); // Reads the new value.
+        context.cells.remove("0,0");
+        assertEquals("1", formula.evaluate(context).toString()); // An empty cell falls back to the interpreter.
+
+        Formula text = Formula.parse("=CONCAT(\"a\", \"b\")");
+        for (int i = 0; i <= Formula.COMPILE_THRESHOLD; i++) {
+            text.evaluate(context);
+        }
+        assertFalse(text.isCompiled()); // Never compiled, but still evaluated.
+        assertEquals("ab", text.evaluate(context).toString());
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.model.formula;
+
+import org.example.model.Spreadsheet;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+/**
+ * Tests the methods within the EvaluationTrace class.
+ */
+public class EvaluationTraceTest {
+
+    /**
+     * Tests that a traced sheet records the tree, the cells read and the result of a formula.
+     */
+    @Test
+    public void testSheetTrace() {
+        Spreadsheet sheet = new Spreadsheet("traced");
+        sheet.setCellValue(0, 0, "60");
+        EvaluationTrace trace = new EvaluationTrace();
+        sheet.setTrace(trace);
+        assertEquals("1", sheet.evaluateFormula("=IF($A1 > 50, 1, 2)"));
+
+        List<TraceEvent> events = trace.getEvents();
+        assertEquals(2, events.size());
+        assertEquals(TraceEvent.Kind.READ, events.get(0).getKind());
+        assertEquals("$A1", events.get(0).getSubject());
+        assertEquals("60", events.get(0).getDetail());
+        assertEquals(TraceEvent.Kind.FORMULA, events.get(1).getKind());
+        assertEquals("traced", events.get(1).getSheet());
+        assertEquals("IF(GREATER($A1, 50), 1, 2) = 1", events.get(1).getDetail());
+
+        sheet.setTrace(null); // Switches tracing off.
+        sheet.evaluateFormula("=$A1");
+        assertEquals(2, trace.getRecordedCount());
+    }
+
+    /**
+     * Tests that a request trace covers every sheet until its scope is closed.
+     */
+    @Test
+    public void testRequestTrace() {
+        Spreadsheet sheet = new Spreadsheet("untraced");
+        EvaluationTrace trace = new EvaluationTrace();
+        assertNull(EvaluationTrace.current());
+        try (EvaluationTrace.Scope scope = EvaluationTrace.forRequest(trace)) {
+            assertSame(trace, EvaluationTrace.current());
+            sheet.evaluateFormula("=1 + 2");
+        }
+        assertNull(EvaluationTrace.current());
+        sheet.evaluateFormula("=3");
+        assertEquals(1, trace.getEvents().size());
+        assertEquals("ADD(1, 2) = 3", trace.getEvents().get(0).getDetail());
+    }
+
+    /**
+     * Tests that the buffer keeps only the newest events.
+     */
+    @Test
+    public void testRingBuffer() {
+        EvaluationTrace trace = new EvaluationTrace(3);
+        for (int i = 0; i < 5; i++) {
+            trace.record(TraceEvent.Kind.READ, "sheet", "$A" + i, String.valueOf(i), 0);
+        }
+        List<TraceEvent> events = trace.getEvents();
+        assertEquals(3, events.size());
+        assertEquals(2, events.get(0).getSequence()); // The two oldest were overwritten.
+        assertEquals("$A4", events.get(2).getSubject());
+        assertEquals(5, trace.getRecordedCount());
+
+        trace.clear();
+        assertTrue(trace.getEvents().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new EvaluationTrace(0));
+    }
+}
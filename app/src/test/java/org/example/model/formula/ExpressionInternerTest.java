@@ -0,0 +1,44 @@
+package org.example.model.formula;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the methods within the ExpressionInterner class.
+ */
+public class ExpressionInternerTest {
+
+    /**
+     * Tests that equal calls in different formulas become the same shared expression.
+     */
+    @Test
+    public void testEqualCallsAreShared() {
+        ExpressionInterner interner = new ExpressionInterner();
+        Formula first = interner.intern(Formula.parse("=IF(SUM($A1:$A500) > 10, 1, 2)"));
+        Formula second = interner.intern(Formula.parse("=SUM( $A1 : $A500 ) * 3"));
+
+        SharedExpression sum = (SharedExpression) ((BinaryOperation) second.getRoot()).getLeft();
+        FunctionCall ifCall = (FunctionCall) ((SharedExpression) first.getRoot()).getExpression();
+        assertSame(sum, ((BinaryOperation) ifCall.getArguments().get(0)).getLeft()); // Spacing does not matter.
+        assertEquals(2, interner.size());
+        assertTrue(first.isInterned());
+        assertSame(first, interner.intern(first)); // Interning twice changes nothing.
+        assertEquals(1, first.getRangeReferences().size()); // References inside shared calls are still found.
+        assertArrayEquals(new int[] { 0, 0, 499 }, sum.getReads().get(0));
+        assertEquals("IF(GREATER(SUM($A1:$A500), 10), 1, 2)", EvaluationTrace.describe(first.getRoot()));
+    }
+
+    /**
+     * Tests that calls containing COPY are never shared.
+     */
+    @Test
+    public void testCopyIsNotShared() {
+        ExpressionInterner interner = new ExpressionInterner();
+        Formula formula = interner.intern(Formula.parse("=IF(1, COPY(SUM($A1:$A2), $B1), 0)"));
+        FunctionCall ifCall = (FunctionCall) formula.getRoot(); // Not shared, since it contains COPY.
+        FunctionCall copy = (FunctionCall) ifCall.getArguments().get(1);
+        assertInstanceOf(SharedExpression.class, copy.getArguments().get(0)); // The SUM inside is still shared.
+        assertTrue(formula.writesCells());
+        assertEquals(1, interner.size());
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.model.formula;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests parsing and evaluating formulas with the Formula class.
+ */
+public class FormulaTest {
+
+    /**
+     * A context backed by a map of cell values.
+     */
+    private static class MapContext implements IEvaluationContext {
+        private final Map<String, String> cells = new HashMap<>(); // Cell values keyed by "row,col"
+
+        @Override
+        public Value getValue(int row, int col) {
+            return Value.text(this.cells.get(row + "," + col)); // Look up the cell value
+        }
+
+        @Override
+        public void copyValue(int row, int col, String value) {
+            this.cells.put(row + "," + col, value); // Store the copied value
+        }
+
+        @Override
+        public Value evaluateScript(String expression) {
+            return Value.text(expression); // Return the expression unchanged
+        }
+    }
+
+    /**
+     * Tests that operator precedence and parentheses are respected.
+     */
+    @Test
+    public void testPrecedence() {
+        MapContext context = new MapContext(); // Creates an empty context.
+        assertEquals("7", Formula.parse("=1 + 2 * 3").evaluate(context).toString());
+        assertEquals("9", Formula.parse("=(1 + 2) * 3").evaluate(context).toString());
+        assertEquals("1", Formula.parse("=1 + 1 = 2 & 3 > 2").evaluate(context).toString());
+        assertEquals("-1", Formula.parse("=-(2 - 1)").evaluate(context).toString());
+    }
+
+    /**
+     * Tests that cell references and ranges are parsed into the right cells.
+     */
+    @Test
+    public void testReferences() {
+        Formula formula = Formula.parse("=SUM($A1:$B2)"); // Parses a formula with a range.
+        FunctionCall call = (FunctionCall) formula.getRoot();
+        RangeReference range = (RangeReference) call.getArguments().get(0);
+        assertEquals(0, range.getStart().getRow());
+        assertEquals(1, range.getEnd().getCol());
+
+        CellReference reference = CellReference.parse("$AA10"); // Parses a two letter column.
+        assertEquals(9, reference.getRow());
+        assertEquals(26, reference.getCol());
+
+        MapContext context = new MapContext(); // Creates a context with some values.
+        context.cells.put("0,0", "1");
+        context.cells.put("1,1", "2.5");
+        assertEquals("3.5", formula.evaluate(context).toString());
+    }
+
+    /**
+     * Tests that & and | only evaluate their right operand when the left one does not decide the result.
+     */
+    @Test
+    public void testLogicalShortCircuit() {
+        MapContext context = new MapContext(); // Creates an empty context.
+        assertEquals("0", Formula.parse("=0 & COPY(1, $A1)").evaluate(context).toString());
+        assertEquals("1", Formula.parse("=2 | COPY(1, $A1)").evaluate(context).toString());
+        assertFalse(context.cells.containsKey("0,0"), "The right operand should not be evaluated");
+
+        assertEquals("1", Formula.parse("=1 & 3 > 2").evaluate(context).toString());
+        assertEquals("0", Formula.parse("=0 | 0").evaluate(context).toString());
+        assertEquals("Error", Formula.parse("=1 & \"x\"").evaluate(context).toString()); // Text has no truth value.
+        assertEquals("Error", Formula.parse("=\"x\" | 1").evaluate(context).toString());
+    }
+
+    /**
+     * Tests that aggregates in an untaken branch read no cells.
+     */
+    @Test
+    public void testDeadBranchReadsNothing() {
+        int[] reads = new int[1];
+        MapContext context = new MapContext() {
+            @Override
+            public Value getValue(int row, int col) {
+                reads[0]++; // Count every cell read
+                return super.getValue(row, col);
+            }
+        };
+        Formula formula = Formula.parse("=IF(1 | $A1, 5, SUM($A1:$A1000) + STDDEV($B1:$B1000))");
+        assertEquals("5", formula.evaluate(context).toString());
+        assertEquals(0, reads[0], "Neither the untaken branch nor the right operand of | should be read");
+    }
+
+    /**
+     * Tests that the branch of IF that is not chosen is never evaluated.
+     */
+    @Test
+    public void testIfIsLazy() {
+        MapContext context = new MapContext(); // Creates an empty context.
+        Formula formula = Formula.parse("=IF(0, COPY(1, $A1), 2)"); // The COPY must not run.
+        assertEquals("2", formula.evaluate(context).toString());
+        assertFalse(context.cells.containsKey("0,0"), "The unused branch should not be evaluated");
+    }
+
+    /**
+     * Tests that formulas the parser does not understand are handed to the script engine.
+     */
+    @Test
+    public void testUnparsedFallback() {
+        MapContext context = new MapContext(); // Creates an empty context.
+        Formula formula = Formula.parse("=1 +"); // An incomplete formula.
+        assertTrue(formula.getRoot() instanceof UnparsedFormula);
+        assertEquals("1 +", formula.evaluate(context).toString());
+
+        assertEquals("plain", Formula.parse("plain").evaluate(context).toString()); // Not a formula at all.
+    }
+
+    /**
+     * Tests that arithmetic results are printed the way the script engine printed them.
+     */
+    @Test
+    public void testArithmeticFormatting() {
+        MapContext context = new MapContext(); // Creates an empty context.
+        assertEquals("0.30000000000000004", Formula.parse("=0.1 + 0.2").evaluate(context).toString());
+        assertEquals("0.0001", Formula.parse("=1 / 10000").evaluate(context).toString());
+        assertEquals("100000000000000000000", Formula.parse("=10000000000 * 10000000000").evaluate(context).toString());
+        assertEquals("1e+21", Formula.parse("=100000000000 * 10000000000").evaluate(context).toString());
+        assertEquals("Infinity", Formula.parse("=1 / 0").evaluate(context).toString());
+        assertEquals("-2.5", Formula.parse("=-5 / 2").evaluate(context).toString());
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.model.formula;
+
+import org.example.model.Spreadsheet;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the methods within the NumericKernels and NumberBuffer classes.
+ */
+public class NumericKernelsTest {
+
+    /**
+     * Tests the standard deviation, including numbers with a large common offset.
+     */
+    @Test
+    public void testStddev() {
+        assertEquals(2.0, NumericKernels.stddev(new double[] { 2, 4, 4, 4, 5, 5, 7, 9 }, 8), 1e-12);
+        assertEquals(0.0, NumericKernels.stddev(new double[] { 3, 99 }, 1), 1e-12); // Only the first number counts.
+        double offset = 1e9; // Summing squares directly would lose the small differences.
+        assertEquals(2.0, NumericKernels.stddev(new double[] { offset + 2, offset + 4, offset + 4, offset + 4,
+                offset + 5, offset + 5, offset + 7, offset + 9 }, 8), 1e-6);
+        assertTrue(Double.isNaN(NumericKernels.stddev(new double[0], 0)));
+    }
+
+    /**
+     * Tests that long arrays give the same results as the scalar kernels, whichever path is taken.
+     */
+    @Test
+    public void testLongArrays() {
+        double[] values = new double[NumericKernels.VECTOR_THRESHOLD * 4 + 3]; // Does not fill the last vector.
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i * 37) % 101 - 50;
+        }
+        int length = values.length;
+        assertEquals(NumericKernels.sumScalar(values, length), NumericKernels.sum(values, length), 1e-9);
+        assertEquals(-50, NumericKernels.min(values, length));
+        assertEquals(50, NumericKernels.max(values, length));
+        assertEquals(NumericKernels.stddevScalar(values, length), NumericKernels.stddev(values, length), 1e-9);
+
+        Spreadsheet sheet = new Spreadsheet("long");
+        for (int row = 0; row < length; row++) {
+            sheet.setCellValue(row, 0, String.valueOf(values[row]));
+        }
+        double expected = Math.round(NumericKernels.stddevScalar(values, length) * 1000) / 1000.0;
+        assertEquals(String.valueOf(expected), sheet.evaluateFormula("=STDDEV($A1:$A" + length + ")"));
+    }
+
+    /**
+     * Tests that the numbers are sorted and listed with commas.
+     */
+    @Test
+    public void testSortedList() {
+        double[] values = { 3, -1, 2.5, 0, 99 };
+        assertEquals("-1.0,0.0,2.5,3.0", NumericKernels.sortedList(values, 4)); // The last number is not used.
+        assertEquals(99, values[4]);
+        assertEquals("", NumericKernels.sortedList(values, 0));
+    }
+
+    /**
+     * Tests that the buffer grows as numbers are added.
+     */
+    @Test
+    public void testNumberBuffer() {
+        NumberBuffer buffer = new NumberBuffer();
+        for (int i = 0; i < 100; i++) {
+            buffer.accept(i);
+        }
+        assertEquals(100, buffer.size());
+        assertEquals(99, buffer.array()[99]);
+    }
+}
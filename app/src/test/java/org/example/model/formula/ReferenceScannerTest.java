@@ -0,0 +1,43 @@
+package org.example.model.formula;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the methods within the ReferenceScanner class.
+ */
+public class ReferenceScannerTest {
+
+    /**
+     * Tests decoding references, including ones with a missing or very large part.
+     */
+    @Test
+    public void testParse() {
+        long cell = ReferenceScanner.parse("$AA10");
+        assertEquals(9, ReferenceScanner.row(cell));
+        assertEquals(26, ReferenceScanner.col(cell));
+        assertEquals(ReferenceScanner.pack(0, 0), ReferenceScanner.parse("A1")); // The $ is optional.
+        assertEquals(-1, ReferenceScanner.col(ReferenceScanner.parse("$1")));
+        assertEquals(-1, ReferenceScanner.row(ReferenceScanner.parse("$A")));
+
+        long huge = ReferenceScanner.parse("$ZZZZZZZZZZ99999999999999");
+        assertTrue(ReferenceScanner.row(huge) > 1_000_000); // Does not overflow into a valid cell.
+        assertTrue(ReferenceScanner.col(huge) > 100_000);
+        assertEquals(ReferenceScanner.pack(1, 2), ReferenceScanner.parse("x+$C2*2", 2, 5)); // Part of a longer text.
+    }
+
+    /**
+     * Tests finding references in text, skipping "$" signs that do not start one.
+     */
+    @Test
+    public void testFind() {
+        String text = "$5 + $A + $B12*$c3 + $XFD1";
+        int first = ReferenceScanner.find(text, 0);
+        assertEquals(text.indexOf("$B12"), first);
+        assertEquals(first + 4, ReferenceScanner.referenceEnd(text, first));
+        int second = ReferenceScanner.find(text, first + 1);
+        assertEquals(text.indexOf("$XFD1"), second); // Lower case letters are not a column.
+        assertEquals(-1, ReferenceScanner.find(text, second + 1));
+        assertEquals(-1, ReferenceScanner.referenceEnd(text, 0));
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Tests the methods within the RequestLimiter class.
+ */
+public class RequestLimiterTest {
+
+    /**
+     * Tests that a request over the cap is turned away while the cap is reached, and
+     * served once a running request finishes.
+     *
+     * @throws Exception if the request thread fails.
+     */
+    @Test
+    public void testRequestOverCapIsRejected() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(1, 0);
+        CountDownLatch serving = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        HttpServlet blocking = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                serving.countDown();
+                try {
+                    finish.await(); // Hold the only permit.
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        Future<?> first = pool.submit(() -> {
+            limiter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain(blocking));
+            return null;
+        });
+        serving.await();
+        assertEquals(1, limiter.getActiveRequests());
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain unused = new MockFilterChain();
+        limiter.doFilter(new MockHttpServletRequest(), rejected, unused);
+        assertEquals(503, rejected.getStatus()); // Over the cap.
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertNull(unused.getRequest()); // The request was not served.
+
+        finish.countDown();
+        first.get();
+        pool.shutdown();
+        assertEquals(0, limiter.getActiveRequests()); // The permit was returned.
+
+        MockHttpServletResponse served = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        limiter.doFilter(new MockHttpServletRequest(), served, chain);
+        assertEquals(200, served.getStatus());
+        assertNotNull(chain.getRequest()); // Served now that a permit is free.
+    }
+
+    /**
+     * Tests that invalid limits are refused.
+     */
+    @Test
+    public void testInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestLimiter(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new RequestLimiter(10, -1));
+    }
+}
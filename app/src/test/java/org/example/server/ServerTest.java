@@ -9,9 +9,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
-import java.util.ArrayList;
 import java.util.Base64;
-import java.util.List;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -26,16 +24,16 @@ class ServerTests {
     private MockMvc mockMvc;
     @InjectMocks
     private Server server;
-    private List<IAppUser> availUsers;
+    private UserRegistry registry;
 
     // Registers testuser before every test method
     @BeforeEach
     void setUp() throws Exception {
-        availUsers = new ArrayList<>();
+        registry = new UserRegistry();
 
-        // Inject availUsers into the server
+        // Inject the registry into the server
         server = new Server();
-        server.availUsers = availUsers;
+        server.registry = registry;
         // Registers the testuser
         mockMvc.perform(get("/api/v1/register")
                 .header("Authorization", createBasicAuthHeader(
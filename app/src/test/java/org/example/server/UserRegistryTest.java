@@ -0,0 +1,102 @@
+package org.example.server;
+
+import org.example.model.AppUser;
+import org.example.model.IAppUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the methods within the UserRegistry class.
+ */
+public class UserRegistryTest {
+    private UserRegistry registry;
+
+    /**
+     * Registers two users before each test.
+     */
+    @BeforeEach
+    public void init() {
+        this.registry = new UserRegistry();
+        this.registry.add(new AppUser("alice", "secret")); // First to register.
+        this.registry.add(new AppUser("bob", "hunter2"));
+    }
+
+    /**
+     * Tests finding users and refusing a second user with a taken name.
+     */
+    @Test
+    public void testFindAndAdd() {
+        assertEquals("alice", this.registry.find("alice").getUsername());
+        assertNull(this.registry.find("carol")); // Never registered.
+
+        assertFalse(this.registry.add(new AppUser("alice", "other"))); // The name is taken.
+        assertEquals("secret", this.registry.find("alice").getPassword()); // The first user is kept.
+        assertTrue(this.registry.authenticate("alice", "secret"));
+        assertFalse(this.registry.authenticate("alice", "other"));
+        assertFalse(this.registry.authenticate("carol", "secret"));
+    }
+
+    /**
+     * Tests finding a sheet through its publisher.
+     */
+    @Test
+    public void testFindSheet() {
+        this.registry.find("bob").addSheet("Budget");
+        assertEquals("Budget", this.registry.findSheet("bob", "Budget").getName());
+        assertNull(this.registry.findSheet("bob", "Missing")); // No such sheet.
+        assertNull(this.registry.findSheet("alice", "Budget")); // Another publisher's sheet.
+        assertNull(this.registry.findSheet("carol", "Budget")); // No such publisher.
+    }
+
+    /**
+     * Tests that users are listed in the order they registered and cannot be changed.
+     */
+    @Test
+    public void testUsersInOrder() {
+        this.registry.add(new AppUser("aaron", "pw"));
+        List<String> names = new ArrayList<>();
+        for (IAppUser user : this.registry.getUsers()) {
+            names.add(user.getUsername());
+        }
+        assertEquals(List.of("alice", "bob", "aaron"), names);
+        assertThrows(UnsupportedOperationException.class, () -> this.registry.getUsers().clear());
+    }
+
+    /**
+     * Tests that of many threads registering the same usernames at once, exactly one
+     * wins each name.
+     *
+     * @throws Exception if a thread fails.
+     */
+    @Test
+    public void testConcurrentRegistration() throws Exception {
+        AtomicInteger added = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (this.registry.add(new AppUser("user" + i, "pw"))) {
+                        added.incrementAndGet();
+                    }
+                    this.registry.getUsers().forEach(IAppUser::getUsername); // Iterate while others register.
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        pool.shutdown();
+        assertEquals(500, added.get()); // One registration per name.
+        assertEquals(502, this.registry.getUsers().size());
+        assertEquals("user499", this.registry.find("user499").getUsername());
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.example.model.SparseGrid;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the methods within the SheetTableModel class.
+ */
+public class SheetTableModelTest {
+
+    /**
+     * Tests row headers, column names and that unset cells read as empty.
+     */
+    @Test
+    public void testValues() {
+        SheetTableModel model = new SheetTableModel(100, 100);
+        assertEquals(100, model.getRowCount());
+        assertEquals(101, model.getColumnCount()); // One more for the row header.
+        assertEquals("A", model.getColumnName(1));
+        assertEquals(5, model.getValueAt(4, 0));
+        assertEquals("", model.getValueAt(4, 1));
+        assertFalse(model.isCellEditable(4, 0));
+
+        model.setValueAt("x", 4, 1);
+        assertEquals("x", model.getValueAt(4, 1));
+        model.clear();
+        assertEquals("", model.getValueAt(4, 1));
+    }
+
+    /**
+     * Tests that writing to the last row or column grows the model, but not past the largest sheet.
+     */
+    @Test
+    public void testGrowsAtEdge() {
+        SheetTableModel model = new SheetTableModel(100, 100);
+        model.setValueAt("x", 50, 50);
+        assertEquals(100, model.getRowCount()); // Away from the edge nothing changes.
+
+        model.setValueAt("y", 99, 100); // The last row and the last column.
+        assertEquals(100 + SheetTableModel.GROW_STEP, model.getRowCount());
+        assertEquals(101 + SheetTableModel.GROW_STEP, model.getColumnCount());
+
+        model.ensureSize(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals(SparseGrid.MAX_ROWS, model.getRowCount());
+        assertEquals(SparseGrid.MAX_COLS + 1, model.getColumnCount());
+    }
+}
@@ -280,10 +280,12 @@ public class SheetViewTest {
      */
     @Test
     public void testInitializeData() {
-        Object[][] data = sheetView.initializeData();
-        for (Cell[] row : testSpreadSheet.getCellsObject()) {
-            for (Cell cell : row) {
-                assertEquals(cell.getValue(), data[cell.getRow()][cell.getCol()]);
+        SheetTableModel model = sheetView.createTableModel();
+        sheetView.initializeData(model);
+        Cell[][] cells = testSpreadSheet.getCellsObject();
+        for (int r = 0; r < cells.length; r++) {
+            for (int c = 0; c < cells[r].length; c++) {
+                assertEquals(cells[r][c].getValue(), model.getValueAt(r, c + 1));
             }
         }
     }